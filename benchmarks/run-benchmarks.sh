@@ -0,0 +1,40 @@
+#!/bin/bash
+#
+# Author : Rishi Gupta
+# 
+# This file is part of 'serial communication manager' library.
+# Copyright (C) <2014-2016>  <Rishi Gupta>
+#
+# This 'serial communication manager' is free software: you can redistribute it and/or modify
+# it under the terms of the GNU Affero General Public License as published by the Free Software 
+# Foundation, either version 3 of the License, or (at your option) any later version.
+#
+# The 'serial communication manager' is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+# A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+#
+# You should have received a copy of the GNU Affero General Public License
+# along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+#################################################################################################
+
+# Builds benchmarks and runs them on a plain Linux box. A pseudo terminal pair is created with 
+# socat for stream and listener benchmarks and removed on exit. Extra arguments are passed to JMH, 
+# for example: ./run-benchmarks.sh CRCBenchmark -f 1 -wi 3 -i 5
+
+set -e
+
+PORTA=/tmp/scm-ttyA
+PORTB=/tmp/scm-ttyB
+
+cd "$(dirname "$0")"
+
+# scm jar must be in local repository for this module to resolve it.
+(cd ../com.embeddedunveiled.serial && mvn -q -Dgpg.skip=true -Dmaven.javadoc.skip=true install)
+mvn -q clean package
+
+socat pty,raw,echo=0,link=$PORTA pty,raw,echo=0,link=$PORTB &
+SOCAT_PID=$!
+trap "kill $SOCAT_PID 2>/dev/null" EXIT
+sleep 1
+
+java -Dscm.bench.portA=$PORTA -Dscm.bench.portB=$PORTB -jar target/benchmarks.jar "$@"
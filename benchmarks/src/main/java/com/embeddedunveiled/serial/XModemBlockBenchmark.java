@@ -0,0 +1,103 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <p>Measures assembly of XMODEM blocks (128 byte checksum, 128 byte CRC and 1024 byte CRC 
+ * variants) from a file image held in memory, so that only the block assembly cost is seen.</p>
+ * 
+ * <p>Block assembly is private to the transfer state machine of SerialComXModem, SerialComXModemCRC 
+ * and SerialComXModem1K, so this benchmark lives in their package and drives the same code through 
+ * their package private assembleNextBlock method in binary mode. A full transfer can not be used as 
+ * it is dominated by the polling delays of the protocol.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class XModemBlockBenchmark {
+
+	// 64 full 1K blocks and one short block to exercise padding.
+	private static final int FILE_SIZE = (64 * 1024) + 100;
+	private static final int BLOCKS_128 = (FILE_SIZE + 127) / 128;
+	private static final int BLOCKS_1K = (FILE_SIZE + 1023) / 1024;
+
+	private final SerialComXModem xmodem = new SerialComXModem(null, 0, null, false, null, null, 0);
+	private final SerialComXModemCRC xmodemCRC = new SerialComXModemCRC(null, 0, null, false, null, null, 0);
+	private final SerialComXModem1K xmodem1K = new SerialComXModem1K(null, 0, null, false, null, null, 0);
+	private byte[] fileImage;
+
+	@Setup
+	public void setup() {
+		fileImage = new byte[FILE_SIZE];
+		new Random(1234).nextBytes(fileImage);
+	}
+
+	/* stream over file image buffered like the file stream used by sendFileX. */
+	private BufferedInputStream openImage() {
+		return new BufferedInputStream(new ByteArrayInputStream(fileImage));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BLOCKS_128)
+	public void checksumBlocks(Blackhole bh) throws IOException {
+		BufferedInputStream inStream = openImage();
+		byte[] block = null;
+		while((block = xmodem.assembleNextBlock(inStream)) != null) {
+			bh.consume(block);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BLOCKS_128)
+	public void crcBlocks(Blackhole bh) throws IOException {
+		BufferedInputStream inStream = openImage();
+		byte[] block = null;
+		while((block = xmodemCRC.assembleNextBlock(inStream)) != null) {
+			bh.consume(block);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BLOCKS_1K)
+	public void crc1KBlocks(Blackhole bh) throws IOException {
+		BufferedInputStream inStream = openImage();
+		byte[] block = null;
+		while((block = xmodem1K.assembleNextBlock(inStream)) != null) {
+			bh.consume(block);
+		}
+	}
+}
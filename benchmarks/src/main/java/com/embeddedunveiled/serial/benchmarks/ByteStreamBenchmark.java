@@ -0,0 +1,97 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.embeddedunveiled.serial.SerialComInByteStream;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComManager.SMODE;
+import com.embeddedunveiled.serial.SerialComOutByteStream;
+
+/**
+ * <p>Measures round trip of a chunk written through SerialComOutByteStream on one end of a pty 
+ * pair and read back completely through SerialComInByteStream on the other end. Score is in 
+ * chunks per second, multiply by chunk size for bytes per second.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ByteStreamBenchmark {
+
+	@Param({"1", "64", "1024"})
+	int chunkSize;
+
+	@Param({"BLOCKING", "NONBLOCKING"})
+	SMODE readMode;
+
+	private PtyLoopback loopback;
+	private SerialComOutByteStream out;
+	private SerialComInByteStream in;
+	private byte[] txData;
+	private byte[] rxData;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		loopback = new PtyLoopback();
+		out = (SerialComOutByteStream) loopback.scm.getIOStreamInstance(SerialComManager.OutputStream, 
+				loopback.handleA, SMODE.BLOCKING);
+		in = (SerialComInByteStream) loopback.scm.getIOStreamInstance(SerialComManager.InputStream, 
+				loopback.handleB, readMode);
+		txData = new byte[chunkSize];
+		for(int x = 0; x < chunkSize; x++) {
+			txData[x] = (byte) x;
+		}
+		rxData = new byte[chunkSize];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		in.close();
+		out.close();
+		loopback.close();
+	}
+
+	@Benchmark
+	public int writeThenRead() throws IOException {
+		out.write(txData, 0, chunkSize);
+		int total = 0;
+		while(total < chunkSize) {
+			int ret = in.read(rxData, total, chunkSize - total);
+			if(ret > 0) {
+				total = total + ret;
+			}
+		}
+		return total;
+	}
+}
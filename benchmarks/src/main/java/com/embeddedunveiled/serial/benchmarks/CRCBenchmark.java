@@ -0,0 +1,93 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.embeddedunveiled.serial.SerialComCRCUtil;
+
+/**
+ * <p>Measures checksum and CRC calculation of SerialComCRCUtil over frames of typical sizes 
+ * (Modbus RTU frame, XMODEM block, XMODEM-1K block, large chunk).</p>
+ * 
+ * @author Rishi Gupta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CRCBenchmark {
+
+	@Param({"8", "128", "1024", "16384"})
+	int length;
+
+	private SerialComCRCUtil crcUtil;
+	private byte[] data;
+
+	@Setup
+	public void setup() {
+		crcUtil = new SerialComCRCUtil();
+		data = new byte[length];
+		new Random(1234).nextBytes(data);
+	}
+
+	@Benchmark
+	public byte checksum() {
+		return crcUtil.getChecksumValue(data, 0, length - 1);
+	}
+
+	@Benchmark
+	public byte lrc() {
+		return crcUtil.getLRCCheckSum(data, 0, length);
+	}
+
+	@Benchmark
+	public int crc8Dallas1Wire() {
+		return crcUtil.getCRC8Dallas1WireValue(data, 0, length - 1);
+	}
+
+	@Benchmark
+	public int crc16Modbus() {
+		return crcUtil.getCRC16Value(data, 0, length - 1);
+	}
+
+	@Benchmark
+	public int crc16CCITT() {
+		return crcUtil.getCRC16CCITTValue(data, 0, length - 1);
+	}
+
+	@Benchmark
+	public int crc16DNP() {
+		return crcUtil.getCRC16DNPValue(data, 0, length - 1);
+	}
+
+	@Benchmark
+	public int crc16IBM() {
+		return crcUtil.getCRC16IBMValue(data, 0, length - 1);
+	}
+}
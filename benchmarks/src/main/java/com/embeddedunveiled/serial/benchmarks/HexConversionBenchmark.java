@@ -0,0 +1,86 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.embeddedunveiled.serial.SerialComUtil;
+
+/**
+ * <p>Measures hex conversions of SerialComUtil which are used by loggers and applications 
+ * to dump serial data in human readable form.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HexConversionBenchmark {
+
+	@Param({"16", "256", "4096"})
+	int length;
+
+	private byte[] data;
+	private String hexString;
+	private long number;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1234);
+		data = new byte[length];
+		random.nextBytes(data);
+		hexString = SerialComUtil.byteArrayToHexString(data, null);
+		number = random.nextLong();
+	}
+
+	@Benchmark
+	public String byteArrayToHexString() {
+		return SerialComUtil.byteArrayToHexString(data, null);
+	}
+
+	@Benchmark
+	public String byteArrayToHexStringWithSeparator() {
+		return SerialComUtil.byteArrayToHexString(data, ":");
+	}
+
+	@Benchmark
+	public byte[] hexStringToByteArray() {
+		return SerialComUtil.hexStringToByteArray(hexString);
+	}
+
+	@Benchmark
+	public String longToHexString() {
+		return SerialComUtil.longToHexString(number);
+	}
+
+	@Benchmark
+	public long hexStrToLongNumber() {
+		return SerialComUtil.hexStrToLongNumber("7FFFFFFFFFFFFFFF");
+	}
+}
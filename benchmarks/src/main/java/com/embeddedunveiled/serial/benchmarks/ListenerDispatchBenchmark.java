@@ -0,0 +1,87 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+
+/**
+ * <p>Measures latency from writing a byte on one end of a pty pair till the data listener 
+ * registered on the other end is called. This covers native reader thread wake up, looper 
+ * queueing and dispatch to application.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListenerDispatchBenchmark {
+
+	private PtyLoopback loopback;
+	private volatile long deliveredBytes;
+	private long expectedBytes;
+	private final byte[] probe = new byte[] { (byte) 0x55 };
+
+	private final ISerialComDataListener listener = new ISerialComDataListener() {
+		@Override
+		public void onNewSerialDataAvailable(byte[] data) {
+			deliveredBytes = deliveredBytes + data.length;
+		}
+
+		@Override
+		public void onDataListenerError(int errorNum) {
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		loopback = new PtyLoopback();
+		loopback.scm.registerDataListener(loopback.handleB, listener);
+		deliveredBytes = 0;
+		expectedBytes = 0;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		loopback.scm.unregisterDataListener(loopback.handleB, listener);
+		loopback.close();
+	}
+
+	@Benchmark
+	public long writeToCallback() throws IOException {
+		loopback.scm.writeBytes(loopback.handleA, probe);
+		expectedBytes = expectedBytes + 1;
+		while(deliveredBytes < expectedBytes) {
+			Thread.yield();
+		}
+		return expectedBytes;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.internal.SerialComLooper;
+import com.embeddedunveiled.serial.metrics.SerialComMetricsRegistry;
+
+/**
+ * <p>Measures how fast data chunks pass through SerialComLooper data queue, from the point native 
+ * reader thread inserts them till the registered listener receives them. The looper is driven 
+ * directly without opening any port, so this isolates queueing and thread hand off cost.</p>
+ * 
+ * <p>A batch is always smaller than the capacity of the looper queue so no chunk is dropped and 
+ * every invocation waits until the whole batch has been delivered.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LooperQueueBenchmark {
+
+	private static final int BATCH = 1000;
+
+	@Param({"16", "512"})
+	int chunkSize;
+
+	@Param({"false", "true"})
+	boolean metrics;
+
+	private SerialComLooper looper;
+	private SerialComMetricsRegistry registry;
+	private final AtomicLong delivered = new AtomicLong();
+	private long expected;
+	private byte[] chunk;
+
+	private final class CountingListener implements ISerialComDataListener {
+		@Override
+		public void onNewSerialDataAvailable(byte[] data) {
+			delivered.incrementAndGet();
+		}
+
+		@Override
+		public void onDataListenerError(int errorNum) {
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws SerialComException {
+		chunk = new byte[chunkSize];
+		looper = new SerialComLooper(null);
+		looper.startDataLooper(1, new CountingListener(), "benchmark");
+		if(metrics == true) {
+			registry = new SerialComMetricsRegistry(false);
+			looper.setMetrics(registry.portOpened(1, "benchmark"));
+		}
+		delivered.set(0);
+		expected = 0;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		looper.stopDataLooper();
+		if(registry != null) {
+			registry.close();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public long insertAndDeliver() {
+		for(int x = 0; x < BATCH; x++) {
+			looper.insertInDataQueue(chunk);
+		}
+		expected = expected + BATCH;
+		while(delivered.get() < expected) {
+			Thread.yield();
+		}
+		return expected;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComManager.BAUDRATE;
+import com.embeddedunveiled.serial.SerialComManager.DATABITS;
+import com.embeddedunveiled.serial.SerialComManager.FLOWCONTROL;
+import com.embeddedunveiled.serial.SerialComManager.PARITY;
+import com.embeddedunveiled.serial.SerialComManager.STOPBITS;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+/**
+ * <p>Opens both ends of a pseudo terminal pair created by socat (see run-benchmarks.sh) so that 
+ * benchmarks can exercise native read/write paths on a plain Linux box without any hardware.</p>
+ * 
+ * <p>Port names are taken from system properties scm.bench.portA and scm.bench.portB, defaulting 
+ * to /tmp/scm-ttyA and /tmp/scm-ttyB.</p>
+ * 
+ * <p>If system property scm.bench.transport is set to virtual, an in-memory virtual port pair 
+ * (SerialComVirtualTransport) is used instead, which measures library overhead without kernel.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class PtyLoopback {
+
+	static final String PORT_A_PROPERTY = "scm.bench.portA";
+	static final String PORT_B_PROPERTY = "scm.bench.portB";
+	static final String TRANSPORT_PROPERTY = "scm.bench.transport";
+
+	final SerialComManager scm;
+	final String portA;
+	final String portB;
+	final long handleA;
+	final long handleB;
+
+	/**
+	 * <p>Opens and configures both ends of the pty pair in raw mode.</p>
+	 * 
+	 * @throws IOException if pty pair does not exist or can not be opened.
+	 */
+	PtyLoopback() throws IOException {
+		if("virtual".equals(System.getProperty(TRANSPORT_PROPERTY))) {
+			portA = "vport0";
+			portB = "vport1";
+			SerialComVirtualTransport transport = new SerialComVirtualTransport();
+			transport.createPortPair(portA, portB);
+			scm = new SerialComManager(transport);
+		}else {
+			portA = System.getProperty(PORT_A_PROPERTY, "/tmp/scm-ttyA");
+			portB = System.getProperty(PORT_B_PROPERTY, "/tmp/scm-ttyB");
+			if((new File(portA).exists() == false) || (new File(portB).exists() == false)) {
+				throw new SerialComException("Pty pair " + portA + " <-> " + portB + " does not exist, create it with socat "
+						+ "or run run-benchmarks.sh !");
+			}
+			scm = new SerialComManager();
+		}
+		handleA = scm.openComPort(portA, true, true, true);
+		try {
+			handleB = scm.openComPort(portB, true, true, true);
+		} catch (SerialComException e) {
+			scm.closeComPort(handleA);
+			throw e;
+		}
+		configure(handleA);
+		configure(handleB);
+	}
+
+	private void configure(long handle) throws SerialComException {
+		scm.configureComPortData(handle, DATABITS.DB_8, STOPBITS.SB_1, PARITY.P_NONE, BAUDRATE.B115200, 0);
+		scm.configureComPortControl(handle, FLOWCONTROL.NONE, 'x', 'x', false, false);
+	}
+
+	/**
+	 * <p>Closes both ends of the pty pair.</p>
+	 * 
+	 * @throws SerialComException if any of the port can not be closed.
+	 */
+	void close() throws SerialComException {
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+}
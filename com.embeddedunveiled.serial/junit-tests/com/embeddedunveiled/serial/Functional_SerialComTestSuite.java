@@ -28,7 +28,30 @@ import org.junit.runners.Suite.SuiteClasses;
 	SerialComManagerTests.class,
 	SerialComByteStreamTests.class,
 	SerialComUtilTests.class,
-	SerialComCRCUtilTests.class
+	SerialComCRCUtilTests.class,
+	SerialComRTTEstimatorTests.class,
+	SerialComWriteBehindOutputStreamTests.class,
+	SerialComXModemCheckpointTests.class,
+	SerialComLineEndingTranscoderTests.class,
+	com.embeddedunveiled.serial.datalogger.SerialComPacketAssemblerTests.class,
+	com.embeddedunveiled.serial.datalogger.SerialComCaptureStoreTests.class,
+	com.embeddedunveiled.serial.datalogger.SerialComLogRotationTests.class,
+	com.embeddedunveiled.serial.datalogger.SerialComFieldExtractorTests.class,
+	com.embeddedunveiled.serial.datalogger.SerialComPcapngWriterTests.class,
+	com.embeddedunveiled.serial.datalogger.SerialComCaptureMergerTests.class,
+	com.embeddedunveiled.serial.metrics.SerialComMetricsRegistryTests.class,
+	com.embeddedunveiled.serial.metrics.SerialComLatencyHistogramTests.class,
+	com.embeddedunveiled.serial.transport.SerialComVirtualTransportTests.class,
+	com.embeddedunveiled.serial.ethernet.SerialComRFC2217ServerTests.class,
+	com.embeddedunveiled.serial.ethernet.SerialComRFC2217TransportTests.class,
+	com.embeddedunveiled.serial.ethernet.SerialComTCPBridgeTests.class,
+	com.embeddedunveiled.serial.gps.SerialComNMEAParserTests.class,
+	com.embeddedunveiled.serial.gps.SerialComUBXTests.class,
+	com.embeddedunveiled.serial.gsm.SerialComATEngineTests.class,
+	com.embeddedunveiled.serial.gsm.SerialComCMUXTests.class,
+	com.embeddedunveiled.serial.gsm.SerialComSMSModemPoolTests.class,
+	com.embeddedunveiled.serial.datalogger.SerialComCaptureReplayerTests.class,
+	com.embeddedunveiled.serial.metrics.SerialComEchoProbeTests.class
 })
 
 public class Functional_SerialComTestSuite {
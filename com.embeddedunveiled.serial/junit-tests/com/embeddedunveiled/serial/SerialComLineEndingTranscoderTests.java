@@ -0,0 +1,56 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class SerialComLineEndingTranscoderTests {
+
+	private String transcode(SerialComLineEndingTranscoder transcoder, String... chunks) {
+		byte[] out = new byte[1024];
+		int q = 0;
+		for(String chunk : chunks) {
+			byte[] in = chunk.getBytes();
+			q = q + transcoder.transcode(in, 0, in.length, out, q);
+		}
+		q = q + transcoder.finish(out, q);
+		return new String(out, 0, q);
+	}
+
+	@Test
+	public void testSending() {
+		assertEquals("a\r\nb\r\n\r\nc\r\nd\r\n", transcode(SerialComLineEndingTranscoder.forSending(), "a\nb\r\rc\n\rd\r"));
+	}
+
+	@Test
+	public void testSendingSplitAcrossChunks() {
+		assertEquals("ab\r\ncd\r\n", transcode(SerialComLineEndingTranscoder.forSending(), "ab\r", "\ncd", "\n"));
+	}
+
+	@Test
+	public void testReceivingLinux() {
+		assertEquals("a\nb\n\nc", transcode(SerialComLineEndingTranscoder.forReceiving(SerialComManager.OS_LINUX), "a\r\nb\r", "\n\r\nc\u001A\u001A"));
+	}
+
+	@Test
+	public void testReceivingWindows() {
+		assertEquals("a\r\nb\r\n", transcode(SerialComLineEndingTranscoder.forReceiving(SerialComManager.OS_WINDOWS), "a\r\nb\r\u001A\u001A", "\u001A"));
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class SerialComRTTEstimatorTests {
+
+	@Test
+	public void testInitialValues() {
+		SerialComRTTEstimator rtt = new SerialComRTTEstimator(10000, 500, 60000, 120, 1, 120);
+		assertEquals(10000, rtt.getRetransmitTimeOut());
+		assertEquals(120, rtt.getPollInterval());
+		assertEquals(-1, rtt.getSmoothedRTT());
+	}
+
+	@Test
+	public void testFirstSample() {
+		SerialComRTTEstimator rtt = new SerialComRTTEstimator(10000, 10, 60000, 120, 1, 120);
+		rtt.addSample(200000000L); // 200 ms
+		assertEquals(200000, rtt.getSmoothedRTT());
+		assertEquals(600, rtt.getRetransmitTimeOut());
+		assertEquals(50, rtt.getPollInterval());
+	}
+
+	@Test
+	public void testLowerBound() {
+		SerialComRTTEstimator rtt = new SerialComRTTEstimator(10000, 500, 60000, 120, 1, 120);
+		rtt.addSample(1000000L); // 1 ms
+		assertEquals(500, rtt.getRetransmitTimeOut());
+		assertEquals(1, rtt.getPollInterval());
+	}
+
+	@Test
+	public void testBackOff() {
+		SerialComRTTEstimator rtt = new SerialComRTTEstimator(10000, 500, 60000, 120, 1, 120);
+		rtt.backOff();
+		assertEquals(20000, rtt.getRetransmitTimeOut());
+		rtt.backOff();
+		rtt.backOff();
+		assertEquals(60000, rtt.getRetransmitTimeOut());
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import org.junit.Test;
+
+public class SerialComWriteBehindOutputStreamTests {
+
+	@Test(timeout=5000)
+	public void testWriteAndClose() throws Exception {
+		File file = File.createTempFile("scmwb", ".bin");
+		file.deleteOnExit();
+		byte[] data = new byte[10000];
+		for(int x = 0; x < data.length; x++) {
+			data[x] = (byte) x;
+		}
+
+		SerialComWriteBehindOutputStream out = new SerialComWriteBehindOutputStream(new FileOutputStream(file), 64, 4);
+		out.write(data, 0, 3);
+		out.write(data[3]);
+		out.write(data, 4, data.length - 4);
+		out.flush();
+		assertEquals(data.length, file.length());
+		out.close();
+		out.close();
+
+		byte[] readBack = new byte[data.length];
+		FileInputStream in = new FileInputStream(file);
+		int total = 0;
+		while(total < readBack.length) {
+			total = total + in.read(readBack, total, readBack.length - total);
+		}
+		in.close();
+		assertArrayEquals(data, readBack);
+	}
+
+	@Test(timeout=5000)
+	public void testSyncTaskRunsAfterData() throws Exception {
+		final File file = File.createTempFile("scmwb", ".bin");
+		file.deleteOnExit();
+		final long[] lengthSeen = new long[1];
+		final String[] threadName = new String[1];
+
+		SerialComWriteBehindOutputStream out = new SerialComWriteBehindOutputStream(new FileOutputStream(file), 64, 4);
+		out.write(new byte[1000], 0, 1000);
+		out.sync(new SerialComWriteBehindOutputStream.SyncTask() {
+			@Override
+			public void run() {
+				lengthSeen[0] = file.length();
+				threadName[0] = Thread.currentThread().getName();
+			}
+		});
+		out.write(new byte[10], 0, 10);
+		out.close();
+		assertEquals(1000, lengthSeen[0]);
+		assertEquals("SCM file writer", threadName[0]);
+		assertEquals(1010, file.length());
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import java.io.File;
+import java.io.FileOutputStream;
+import org.junit.Test;
+
+public class SerialComXModemCheckpointTests {
+
+	private byte[] block = new byte[128];
+
+	@Test
+	public void testResume() throws Exception {
+		File file = File.createTempFile("scmcp", ".bin");
+		file.deleteOnExit();
+		new File(file.getPath() + ".scmcp").deleteOnExit();
+
+		// first session commits 100 blocks, checkpoint is saved after 64 blocks.
+		SerialComXModemCheckpoint checkpoint = new SerialComXModemCheckpoint(file);
+		assertEquals(0, checkpoint.load());
+		SerialComWriteBehindOutputStream out = new SerialComWriteBehindOutputStream(new FileOutputStream(file), 1024, 4);
+		for(int x = 0; x < 100; x++) {
+			block[0] = (byte) x;
+			out.write(block, 0, 128);
+			checkpoint.blockWritten(block, 0, 128, out);
+		}
+		out.close();
+
+		// second session keeps 64 blocks and skips them.
+		checkpoint = new SerialComXModemCheckpoint(file);
+		assertEquals(64 * 128, checkpoint.load());
+		assertEquals(64 * 128, file.length());
+		for(int x = 0; x < 64; x++) {
+			block[0] = (byte) x;
+			assertTrue(checkpoint.isBlockInFile(block, 0, 128));
+		}
+		block[0] = (byte) 64;
+		assertFalse(checkpoint.isBlockInFile(block, 0, 128));
+		checkpoint.complete();
+		assertFalse(new File(file.getPath() + ".scmcp").exists());
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import static org.junit.Assert.assertEquals;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class SerialComCaptureMergerTests {
+
+	private static SerialComCaptureStore createStore() throws Exception {
+		return new SerialComCaptureStore(createDirectory(), 65536);
+	}
+
+	private static File createDirectory() throws Exception {
+		File dir = File.createTempFile("scmmrg", "");
+		dir.delete();
+		return dir;
+	}
+
+	@Test(timeout=10000)
+	public void testMergeOrder() throws Exception {
+		SerialComCaptureStore[] stores = new SerialComCaptureStore[3];
+		for(int x = 0; x < stores.length; x++) {
+			stores[x] = createStore();
+			for(int y = 0; y < 1000; y++) {
+				// store x has timestamps x, x + 3, x + 6 ... so merged stream has every timestamp once.
+				stores[x].append("P" + x, (y * 3) + x, new byte[] { (byte) x }, 0, 1);
+			}
+		}
+		final long[] last = new long[] { -1 };
+		long count = new SerialComCaptureMerger(stores).merge(new ISerialComCaptureVisitor() {
+			@Override
+			public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+				assertEquals(last[0] + 1, timestamp);
+				assertEquals("P" + (timestamp % 3), portName);
+				assertEquals(timestamp % 3, (long) data.get(0));
+				last[0] = timestamp;
+				return true;
+			}
+		});
+		assertEquals(3000, count);
+
+		SerialComCaptureStore combined = createStore();
+		assertEquals(3000, new SerialComCaptureMerger(stores).mergeInto(combined));
+		assertEquals(3, combined.query(null, 10, 12, new ISerialComCaptureVisitor() {
+			@Override
+			public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+				return true;
+			}
+		}));
+
+		SerialComCaptureStore a = createStore();
+		SerialComCaptureStore b = createStore();
+		a.append("COM1", 5, "AT\r".getBytes(), 0, 3);
+		b.append("COM2", 5, "OK".getBytes(), 0, 2);
+		StringWriter dump = new StringWriter();
+		new SerialComCaptureMerger(a, b).mergeToHexDump(dump);
+		String[] lines = dump.toString().split("\n");
+		assertEquals(" COM1  41 54 0D  |AT.|", lines[0].substring(23));
+		assertEquals(" COM2  4F 4B  |OK|", lines[1].substring(23));
+		for(SerialComCaptureStore store : stores) {
+			store.close();
+		}
+		combined.close();
+		a.close();
+		b.close();
+	}
+
+	@Test(timeout=10000)
+	public void testReaderFailureEndsMerge() throws Exception {
+		File dir = createDirectory();
+		SerialComCaptureStore broken = new SerialComCaptureStore(dir, 65536);
+		byte[] data = new byte[1000];
+		for(int x = 0; x < 200; x++) {
+			broken.append("COM1", x, data, 0, data.length);
+		}
+		// first segment is no longer appended to, shortening its file makes reading it fail.
+		RandomAccessFile raf = new RandomAccessFile(new File(dir, "segment-00000001.scap"), "rw");
+		raf.setLength(100);
+		raf.close();
+		SerialComCaptureStore good = createStore();
+		good.append("COM2", 0, data, 0, 1);
+
+		Exception failure = null;
+		try {
+			new SerialComCaptureMerger(good, broken).merge(new ISerialComCaptureVisitor() {
+				@Override
+				public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+					return true;
+				}
+			});
+		} catch (Exception e) {
+			failure = e;
+		}
+		assertEquals(IllegalArgumentException.class, failure.getClass());
+		good.close();
+		broken.close();
+	}
+}
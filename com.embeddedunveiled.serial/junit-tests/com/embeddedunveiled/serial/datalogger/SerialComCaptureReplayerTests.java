@@ -0,0 +1,146 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComCaptureReplayerTests {
+
+	private static SerialComCaptureStore createStore() throws Exception {
+		File dir = File.createTempFile("scmreplay", "");
+		dir.delete();
+		dir.mkdirs();
+		SerialComCaptureStore store = new SerialComCaptureStore(dir, 65536);
+		// 100 bytes of COM1 spread over 400 milliseconds, COM2 in between.
+		byte[] data = new byte[40];
+		long[] times = { 1000, 1100, 1200, 1400 };
+		for(int x = 0; x < times.length; x++) {
+			Arrays.fill(data, (byte) ('a' + x));
+			store.append("COM1", times[x], data, 0, (x + 1) * 10);
+		}
+		store.append("COM2", 1050, "zz".getBytes(), 0, 2);
+		return store;
+	}
+
+	private static String readAll(SerialComManager scm, long handle, int length) throws Exception {
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		while(received.size() < length) {
+			byte[] data = scm.readBytes(handle);
+			if(data == null) {
+				Thread.sleep(1);
+				continue;
+			}
+			received.write(data);
+		}
+		assertEquals(null, scm.readBytes(handle));
+		return received.toString();
+	}
+
+	@Test(timeout=10000)
+	public void testReplayScalesCapturedTiming() throws Exception {
+		SerialComCaptureStore store = createStore();
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+
+		// 400 milliseconds of capture replayed 4 times faster.
+		SerialComCaptureReplayer replayer = new SerialComCaptureReplayer(scm, handleA);
+		long start = System.nanoTime();
+		SerialComReplayStats stats = replayer.replay(store, "COM1", 0, Long.MAX_VALUE, 4.0);
+		long elapsed = System.nanoTime() - start;
+
+		assertEquals(4, stats.getNumberOfRecords());
+		assertEquals(100, stats.getNumberOfBytes());
+		assertEquals(100000000L, stats.getRequestedDuration());
+		assertEquals(1000, (long) stats.getRequestedRate());
+		assertTrue(stats.getAchievedDuration() >= 100000000L);
+		assertTrue(stats.getAchievedDuration() <= elapsed);
+		assertTrue(stats.getMaxLateness() >= 0);
+		assertTrue(stats.getAchievedRate() <= 1000);
+		assertTrue(stats.isCompleted());
+
+		StringBuilder expected = new StringBuilder();
+		for(int x = 0; x < 4; x++) {
+			for(int y = 0; y < (x + 1) * 10; y++) {
+				expected.append((char) ('a' + x));
+			}
+		}
+		assertEquals(expected.toString(), readAll(scm, handleB, 100));
+
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+		store.close();
+	}
+
+	@Test(timeout=10000)
+	public void testReplayAsFastAsPossible() throws Exception {
+		SerialComCaptureStore store = createStore();
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+
+		// all ports, captured timing is ignored.
+		SerialComCaptureReplayer replayer = new SerialComCaptureReplayer(scm, handleA);
+		SerialComReplayStats stats = replayer.replay(store, null, 0, Long.MAX_VALUE, SerialComCaptureReplayer.AS_FAST_AS_POSSIBLE);
+		assertEquals(5, stats.getNumberOfRecords());
+		assertEquals(102, stats.getNumberOfBytes());
+		assertEquals(0, stats.getRequestedDuration());
+		assertEquals(0, (long) stats.getRequestedRate());
+		assertEquals(0, stats.getMaxLateness());
+		assertTrue(stats.getAchievedDuration() < 100000000L);
+		assertTrue(stats.isCompleted());
+		assertEquals(102, readAll(scm, handleB, 102).length());
+
+		// time range selects records 1100 to 1200 only.
+		stats = replayer.replay(store, "COM1", 1100, 1200, 1.0);
+		assertEquals(2, stats.getNumberOfRecords());
+		assertEquals(50, stats.getNumberOfBytes());
+		assertEquals(100000000L, stats.getRequestedDuration());
+		assertEquals(50, readAll(scm, handleB, 50).length());
+
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+		store.close();
+	}
+
+	@Test
+	public void testStatsRates() throws Exception {
+		SerialComReplayStats stats = new SerialComReplayStats(4, 1000, 2000000000L, 4000000000L, 5000, false);
+		assertEquals(500, (long) stats.getRequestedRate());
+		assertEquals(250, (long) stats.getAchievedRate());
+		assertTrue(stats.isCompleted() == false);
+		assertEquals("records=4, bytes=1000, requested rate=500 B/s, achieved rate=250 B/s, max lateness=5 us", 
+				stats.toString());
+		stats = new SerialComReplayStats(0, 0, 0, 0, 0, true);
+		assertEquals(0, (long) stats.getRequestedRate());
+		assertEquals(0, (long) stats.getAchievedRate());
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class SerialComCaptureStoreTests {
+
+	private static File createDirectory() throws Exception {
+		File dir = File.createTempFile("scmcap", "");
+		dir.delete();
+		dir.mkdirs();
+		return dir;
+	}
+
+	private static String collect(SerialComCaptureStore store, String port, long from, long to) throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		store.query(port, from, to, new ISerialComCaptureVisitor() {
+			@Override
+			public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+				byte[] bytes = new byte[data.remaining()];
+				data.get(bytes);
+				sb.append(portName).append(':').append(timestamp).append(':').append(new String(bytes)).append('|');
+				return true;
+			}
+		});
+		return sb.toString();
+	}
+
+	@Test(timeout=10000)
+	public void testQueryAcrossSegmentsAndReopen() throws Exception {
+		File dir = createDirectory();
+		SerialComCaptureStore store = new SerialComCaptureStore(dir, 65536);
+		byte[] data = new byte[1000];
+		Arrays.fill(data, (byte) '0');
+		for(int x = 0; x < 200; x++) {
+			data[0] = (byte) ('0' + (x % 10));
+			store.append((x % 2 == 0) ? "/dev/ttyUSB0" : "/dev/ttyUSB1", 1000 + x, data, 0, 1);
+			store.append("COM9", 1000 + x, data, 0, data.length);
+		}
+		assertEquals("/dev/ttyUSB1:1151:1|/dev/ttyUSB1:1153:3|", collect(store, "/dev/ttyUSB1", 1150, 1154));
+		store.close();
+
+		store = new SerialComCaptureStore(dir, 65536);
+		assertEquals("/dev/ttyUSB0:1150:0|COM9:1150:0|/dev/ttyUSB1:1151:1|COM9:1151:1|", 
+				collect(store, null, 1150, 1151).replaceAll("0{999}", ""));
+		store.append("COM9", 5, "late".getBytes(), 0, 4);
+		assertEquals("COM9:1199:late|", collect(store, "COM9", 1199, 2000).replaceAll("COM9:1199:\\d0{999}\\|", ""));
+		store.close();
+	}
+
+	@Test(timeout=60000)
+	public void testQueryWhileAppending() throws Exception {
+		final SerialComCaptureStore store = new SerialComCaptureStore(createDirectory(), 65536);
+		final int numRecords = 3000;
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		// every record comes from a new port and carries name of its port, segments roll over often.
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					byte[] data = new byte[1000];
+					for(int x = 0; x < numRecords; x++) {
+						byte[] name = ("port" + x).getBytes();
+						System.arraycopy(name, 0, data, 0, name.length);
+						store.append("port" + x, 1000 + x, data, 0, name.length + 1 + (x % 900));
+					}
+				} catch (Throwable e) {
+					failure.set(e);
+				}
+			}
+		});
+		writer.start();
+
+		final long[] lastTime = new long[1];
+		long seen = 0;
+		while(writer.isAlive() || (seen < numRecords)) {
+			lastTime[0] = Long.MIN_VALUE;
+			seen = store.scan(new ISerialComCaptureVisitor() {
+				@Override
+				public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+					byte[] name = new byte[portName.length()];
+					data.get(name);
+					assertEquals(portName, new String(name));
+					assertEquals(portName, "port" + (timestamp - 1000));
+					assertTrue(timestamp > lastTime[0]);
+					lastTime[0] = timestamp;
+					return true;
+				}
+			});
+			assertTrue(seen <= numRecords);
+		}
+		writer.join();
+		assertEquals(null, failure.get());
+		assertEquals(numRecords, seen);
+		store.close();
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import static org.junit.Assert.assertEquals;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import org.junit.Test;
+
+public class SerialComFieldExtractorTests {
+
+	private String log(int structure, char delimiter, int[] lengths, int filter, int conversion, String... packets) throws Exception {
+		File file = File.createTempFile("scmfld", ".txt");
+		file.deleteOnExit();
+		SerialComLogFileWriter writer = new SerialComLogFileWriter(file, false, 64, null);
+		SerialComFieldExtractor extractor = new SerialComFieldExtractor(structure, delimiter, lengths, filter, conversion, writer);
+		for(String packet : packets) {
+			byte[] data = ("##" + packet).getBytes();
+			extractor.process(data, 2, data.length - 2);
+		}
+		writer.close();
+
+		StringBuilder sb = new StringBuilder();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		String line = null;
+		while((line = in.readLine()) != null) {
+			sb.append(line).append('|');
+		}
+		in.close();
+		return sb.toString();
+	}
+
+	@Test(timeout=5000)
+	public void testDelimitedHexToDecimal() throws Exception {
+		assertEquals("31,16,18446744073709551615|", log(SerialComDataLogger.DP_TYPE_MULTIPLE_DELIMITED_FIELDS, ',', null, 
+				SerialComDataLogger.FIELD_FILTER_NUM_ONLY, SerialComDataLogger.FIELD_CONVERT_HEX_TO_DEC, 
+				"1F,zz,0x10,FFFFFFFFFFFFFFFF\r\n"));
+	}
+
+	@Test(timeout=5000)
+	public void testFixedLengthBinaryToHex() throws Exception {
+		assertEquals("2,7,x000|3,3|", log(SerialComDataLogger.DP_TYPE_MUPLTIPLE_FIXED_LENGTH_FIELDS, (char) 0, new int[] { 2, 3, 4 }, 
+				0, SerialComDataLogger.FIELD_CONVERT_BIN_TO_HEX, "10111x0000001\n", "1111"));
+	}
+
+	@Test(timeout=5000)
+	public void testFilters() throws Exception {
+		assertEquals("a;b|12,-3.5|", log(SerialComDataLogger.DP_TYPE_MULTIPLE_DELIMITED_FIELDS, ';', null, 
+				SerialComDataLogger.FIELD_FILTER_DROP, 0, "a;;b;") + log(SerialComDataLogger.DP_TYPE_MULTIPLE_DELIMITED_FIELDS, 
+				',', null, SerialComDataLogger.FIELD_FILTER_NUM_ONLY, 0, "12,-3.5,abc,1.2.3,+", "x,y"));
+	}
+
+	@Test(timeout=5000)
+	public void testPassThrough() throws Exception {
+		assertEquals("raw,1F|", log(0, (char) 0, null, 0, 0, "raw,1F\r\n"));
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+public class SerialComLogRotationTests {
+
+	@Test(timeout=10000)
+	public void testRotateCompressAndRetain() throws Exception {
+		File dir = File.createTempFile("scmrot", "");
+		dir.delete();
+		dir.mkdirs();
+		File logFile = new File(dir, "com.log");
+		SerialComLogRotationPolicy policy = new SerialComLogRotationPolicy(200, 0, 2, true);
+		SerialComLogFileWriter writer = new SerialComLogFileWriter(logFile, false, 64, policy, null);
+		for(int x = 10; x < 60; x++) {
+			byte[] packet = ("packet-" + x + "\n").getBytes();
+			writer.writePacket(packet, 0, packet.length);
+			writer.flush();
+		}
+		writer.close();
+
+		String[] names = dir.list();
+		int numCompressed = 0;
+		int lastSequence = 0;
+		for(String name : names) {
+			if(name.endsWith(".gz")) {
+				numCompressed++;
+				lastSequence = Math.max(lastSequence, Integer.parseInt(name.substring(8, name.length() - 3)));
+			}
+		}
+		assertEquals(2, numCompressed);
+		assertEquals(3, names.length);
+
+		// each retained segment holds whole packets and they continue into the active file.
+		BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+				new FileInputStream(new File(dir, "com.log." + lastSequence + ".gz")))));
+		String line = null;
+		int expected = -1;
+		while((line = in.readLine()) != null) {
+			assertTrue(line.matches("packet-\\d\\d"));
+			expected = Integer.parseInt(line.substring(7)) + 1;
+		}
+		in.close();
+		in = new BufferedReader(new InputStreamReader(new FileInputStream(logFile)));
+		assertEquals("packet-" + expected, in.readLine());
+		in.close();
+	}
+
+	@Test(timeout=10000)
+	public void testRotateWithinOversizedPacket() throws Exception {
+		File dir = File.createTempFile("scmrot", "");
+		dir.delete();
+		dir.mkdirs();
+		File logFile = new File(dir, "com.log");
+		SerialComLogRotationPolicy policy = new SerialComLogRotationPolicy(200, 0, 0, false);
+		SerialComLogFileWriter writer = new SerialComLogFileWriter(logFile, false, 64, policy, null);
+		byte[] packet = new byte[2000];
+		for(int x = 0; x < packet.length; x++) {
+			packet[x] = (byte) ('a' + (x % 26));
+		}
+		writer.writePacket(packet, 0, packet.length);
+		writer.close();
+
+		// packet has no line end till its last byte, still segments stay close to maximum size.
+		File[] files = dir.listFiles();
+		long total = 0;
+		for(File file : files) {
+			assertTrue(file.length() <= (200 + (2 * 64)));
+			total = total + file.length();
+		}
+		assertTrue(files.length > 5);
+		assertEquals(packet.length + 1, total);
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import static org.junit.Assert.assertEquals;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import org.junit.Test;
+
+public class SerialComPacketAssemblerTests {
+
+	private String log(int startEvent, int stopEvent, char endChar, int length, String... chunks) throws Exception {
+		File file = File.createTempFile("scmlog", ".txt");
+		file.deleteOnExit();
+		SerialComLogFileWriter writer = new SerialComLogFileWriter(file, false, 64, null);
+		SerialComPacketAssembler assembler = new SerialComPacketAssembler(startEvent, stopEvent, 0, endChar, length, writer);
+		for(String chunk : chunks) {
+			byte[] data = chunk.getBytes();
+			assembler.process(data, 0, data.length, 0);
+		}
+		assembler.flush();
+		writer.close();
+
+		StringBuilder sb = new StringBuilder();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		String line = null;
+		while((line = in.readLine()) != null) {
+			sb.append(line).append('|');
+		}
+		in.close();
+		return sb.toString();
+	}
+
+	@Test(timeout=5000)
+	public void testStopCRLF() throws Exception {
+		assertEquals("$GPGGA,1|$GPRMC,2|$partial|", log(SerialComDataLogger.DP_START_SPECIAL_CHAR, 
+				SerialComDataLogger.DP_STOP_CRLF, (char) 0, 0, "\r\n$GPGGA,1\r", "\n$GPRMC,2\r\n$partial"));
+	}
+
+	@Test(timeout=5000)
+	public void testStopChar() throws Exception {
+		assertEquals("a1;|b2;|", log(SerialComDataLogger.DP_START_ALPHABETIC_CHAR, 
+				SerialComDataLogger.DP_STOP_CHAR, ';', 0, "12a1;", "b2;"));
+	}
+
+	@Test(timeout=5000)
+	public void testStopFixedLength() throws Exception {
+		assertEquals("123|456|78|", log(SerialComDataLogger.DP_START_NUMERIC_CHAR, 
+				SerialComDataLogger.DP_STOP_FIXED_LENGTH, (char) 0, 3, "xx12", "345678"));
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import static org.junit.Assert.assertEquals;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComPcapngWriterTests {
+
+	@Test(timeout=5000)
+	public void testBlockLayout() throws Exception {
+		File file = File.createTempFile("scmpcap", ".pcapng");
+		file.deleteOnExit();
+		SerialComPcapngWriter writer = new SerialComPcapngWriter(file, 4096);
+		writer.onDataTransferred("/dev/ttyUSB0", true, "AT\r".getBytes(), 0, 3);
+		ByteBuffer direct = ByteBuffer.allocateDirect(16);
+		direct.put("xxOK\r\n".getBytes());
+		writer.onDataTransferred("/dev/ttyUSB0", false, direct, 2, 4);
+		writer.writePacket("COM3", false, 1234567L, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }, 0, 8);
+		writer.close();
+		assertEquals(6, direct.position());
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		byte[] content = new byte[(int) raf.length()];
+		raf.readFully(content);
+		raf.close();
+		ByteBuffer in = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+
+		StringBuilder sb = new StringBuilder();
+		while(in.hasRemaining()) {
+			int start = in.position();
+			int type = in.getInt(start);
+			int length = in.getInt(start + 4);
+			assertEquals(length, in.getInt(start + length - 4));
+			if(type == 1) {
+				int nameLength = in.getShort(start + 18);
+				sb.append("IDB:").append(new String(content, start + 20, nameLength)).append('|');
+			}else if(type == 6) {
+				int captured = in.getInt(start + 20);
+				int flagsAt = start + 28 + ((captured + 3) & ~3);
+				sb.append("EPB:").append(in.getInt(start + 8)).append(':').append(in.getInt(flagsAt + 4)).append(':')
+					.append(captured).append('|');
+				if(captured == 8) {
+					assertEquals(1234567L, ((long) in.getInt(start + 12) << 32) | (in.getInt(start + 16) & 0xFFFFFFFFL));
+				}
+			}else {
+				assertEquals(0x0A0D0D0A, type);
+				assertEquals(0x1A2B3C4D, in.getInt(start + 8));
+			}
+			in.position(start + length);
+		}
+		assertEquals("IDB:/dev/ttyUSB0|EPB:0:2:3|EPB:0:1:4|IDB:COM3|EPB:1:1:8|", sb.toString());
+	}
+
+	/* gives interface name, direction flag and length of each packet in file. */
+	private static List<String> readPackets(File file) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		byte[] content = new byte[(int) raf.length()];
+		raf.readFully(content);
+		raf.close();
+		ByteBuffer in = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+		List<String> names = new ArrayList<String>();
+		List<String> packets = new ArrayList<String>();
+		while(in.hasRemaining()) {
+			int start = in.position();
+			int type = in.getInt(start);
+			int length = in.getInt(start + 4);
+			if(type == 1) {
+				names.add(new String(content, start + 20, in.getShort(start + 18)));
+			}else if(type == 6) {
+				int captured = in.getInt(start + 20);
+				int flagsAt = start + 28 + ((captured + 3) & ~3);
+				packets.add(names.get(in.getInt(start + 8)) + ":" + in.getInt(flagsAt + 4) + ":" 
+						+ new String(content, start + 28, captured));
+			}
+			in.position(start + length);
+		}
+		return packets;
+	}
+
+	private static class Receiver implements ISerialComDataListener {
+		int received;
+
+		@Override
+		public synchronized void onNewSerialDataAvailable(byte[] data) {
+			received += data.length;
+			notifyAll();
+		}
+
+		@Override
+		public void onDataListenerError(int errorNum) {
+		}
+	}
+
+	@Test(timeout=10000)
+	public void testTapsListenerAndSingleByteWrites() throws Exception {
+		File file = File.createTempFile("scmpcap", ".pcapng");
+		file.deleteOnExit();
+		SerialComPcapngWriter writer = new SerialComPcapngWriter(file, 4096);
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handle0 = scm.openComPort("vport0", true, true, true);
+		long handle1 = scm.openComPort("vport1", true, true, true);
+		Receiver receiver = new Receiver();
+		scm.registerDataListener(handle1, receiver);
+		scm.setTrafficTap(writer);
+
+		scm.writeBytes(handle0, "hello".getBytes(), 0);
+		scm.writeSingleByte(handle0, (byte) '!');
+		synchronized(receiver) {
+			while(receiver.received < 6) {
+				receiver.wait();
+			}
+		}
+
+		scm.setTrafficTap(null);
+		scm.unregisterDataListener(handle1, receiver);
+		scm.closeComPort(handle0);
+		scm.closeComPort(handle1);
+		writer.close();
+		assertEquals(0, writer.getNumberOfDroppedPackets());
+
+		StringBuilder outbound = new StringBuilder();
+		StringBuilder inbound = new StringBuilder();
+		for(String packet : readPackets(file)) {
+			if(packet.startsWith("vport0:2:")) {
+				outbound.append(packet.substring(9));
+			}else if(packet.startsWith("vport1:1:")) {
+				inbound.append(packet.substring(9));
+			}else {
+				assertEquals("vport0:2: or vport1:1:", packet);
+			}
+		}
+		assertEquals("hello!", outbound.toString());
+		assertEquals("hello!", inbound.toString());
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComRFC2217ServerTests {
+
+	private static final int IAC = 0xFF;
+
+	private static byte[] bytes(int... values) {
+		byte[] data = new byte[values.length];
+		for(int x = 0; x < values.length; x++) {
+			data[x] = (byte) values[x];
+		}
+		return data;
+	}
+
+	private static byte[] readFully(InputStream in, int length) throws Exception {
+		byte[] data = new byte[length];
+		int index = 0;
+		while(index < length) {
+			int numBytes = in.read(data, index, length - index);
+			assertTrue(numBytes > 0);
+			index += numBytes;
+		}
+		return data;
+	}
+
+	@Test(timeout=10000)
+	public void testNegotiationConfigurationDataAndModemState() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+
+		SerialComRFC2217Server server = new SerialComRFC2217Server(scm, 2);
+		int tcpPort = server.exposePort(handleA, 0);
+		Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), tcpPort);
+		socket.setSoTimeout(3000);
+		InputStream in = socket.getInputStream();
+		OutputStream out = socket.getOutputStream();
+
+		// server offers binary and suppress go ahead and asks for com port option.
+		assertTrue(Arrays.equals(bytes(IAC, 251, 0, IAC, 253, 0, IAC, 251, 3, IAC, 253, 3, IAC, 253, 44), readFully(in, 15)));
+
+		// accepting com port option makes server report modem state, RTS/DTR of peer are raised.
+		out.write(bytes(IAC, 251, 44));
+		byte[] notify = readFully(in, 7);
+		assertTrue(Arrays.equals(bytes(IAC, 250, 44, 107), Arrays.copyOf(notify, 4)));
+		assertEquals(0x10, notify[4] & 0x10);
+
+		// SET-BAUDRATE 115200 is applied and echoed back.
+		out.write(bytes(IAC, 250, 44, 1, 0x00, 0x01, 0xC2, 0x00, IAC, 240));
+		assertTrue(Arrays.equals(bytes(IAC, 250, 44, 101, 0x00, 0x01, 0xC2, 0x00, IAC, 240), readFully(in, 10)));
+
+		// escaped IAC from network reaches serial port as single 0xFF and vice versa.
+		out.write(bytes(1, IAC, IAC, 2));
+		byte[] received = new byte[0];
+		while(received.length < 3) {
+			byte[] data = scm.readBytes(handleB);
+			if(data != null) {
+				byte[] all = Arrays.copyOf(received, received.length + data.length);
+				System.arraycopy(data, 0, all, received.length, data.length);
+				received = all;
+			}
+		}
+		assertTrue(Arrays.equals(bytes(1, 0xFF, 2), received));
+		scm.writeBytes(handleB, bytes(3, 0xFF, 4));
+		assertTrue(Arrays.equals(bytes(3, IAC, IAC, 4), readFully(in, 4)));
+
+		// dropping RTS of peer drops CTS of exposed port.
+		scm.setRTS(handleB, false);
+		notify = readFully(in, 7);
+		assertTrue(Arrays.equals(bytes(IAC, 250, 44, 107), Arrays.copyOf(notify, 4)));
+		assertEquals(0x01, notify[4] & 0x11);
+
+		socket.close();
+		while(server.isClientConnected(handleA)) {
+			Thread.sleep(10);
+		}
+		server.close();
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.ISerialComEventListener;
+import com.embeddedunveiled.serial.SerialComLineEvent;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComManager.BAUDRATE;
+import com.embeddedunveiled.serial.SerialComManager.DATABITS;
+import com.embeddedunveiled.serial.SerialComManager.PARITY;
+import com.embeddedunveiled.serial.SerialComManager.STOPBITS;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComRFC2217TransportTests {
+
+	private static byte[] readFully(SerialComManager scm, long handle, int length) throws Exception {
+		byte[] received = new byte[0];
+		while(received.length < length) {
+			byte[] data = scm.readBytes(handle);
+			if(data == null) {
+				Thread.sleep(1);
+				continue;
+			}
+			byte[] all = Arrays.copyOf(received, received.length + data.length);
+			System.arraycopy(data, 0, all, received.length, data.length);
+			received = all;
+		}
+		return received;
+	}
+
+	@Test(timeout=10000)
+	public void testRemotePortThroughRFC2217Server() throws Exception {
+		SerialComVirtualTransport virtual = new SerialComVirtualTransport();
+		virtual.createPortPair("vport0", "vport1");
+		SerialComManager local = new SerialComManager(virtual);
+		long exposed = local.openComPort("vport0", true, true, true);
+		long peer = local.openComPort("vport1", true, true, true);
+		SerialComRFC2217Server server = new SerialComRFC2217Server(local, 2);
+		int tcpPort = server.exposePort(exposed, 0);
+
+		SerialComRFC2217Transport transport = new SerialComRFC2217Transport(1);
+		SerialComManager remote = new SerialComManager(transport);
+		long handle = remote.openComPort("rfc2217://127.0.0.1:" + tcpPort, true, true, true);
+		remote.configureComPortData(handle, DATABITS.DB_8, STOPBITS.SB_1, PARITY.P_NONE, BAUDRATE.B115200, 0);
+
+		// data including IAC travels both ways unchanged.
+		byte[] data = new byte[] { 1, (byte) 0xFF, 2, (byte) 0xFF, (byte) 0xFF, 3 };
+		remote.writeBytes(handle, data);
+		assertTrue(Arrays.equals(data, readFully(local, peer, data.length)));
+		local.writeBytes(peer, data);
+		assertTrue(Arrays.equals(data, readFully(remote, handle, data.length)));
+
+		// RTS of remote port is CTS of peer, RTS of peer reaches line event listener.
+		remote.setRTS(handle, false);
+		while((local.getLinesStatus(peer)[0] & SerialComManager.CTS) != 0) {
+			Thread.sleep(1);
+		}
+		final ArrayBlockingQueue<SerialComLineEvent> events = new ArrayBlockingQueue<SerialComLineEvent>(16);
+		ISerialComEventListener listener = new ISerialComEventListener() {
+			@Override
+			public void onNewSerialEvent(SerialComLineEvent lineEvent) {
+				events.offer(lineEvent);
+			}
+		};
+		remote.registerLineEventListener(handle, listener);
+		local.setRTS(peer, false);
+		SerialComLineEvent event = events.poll(5, TimeUnit.SECONDS);
+		assertTrue(event != null);
+		assertEquals(2, event.getCTS());
+
+		remote.unregisterLineEventListener(handle, listener);
+		remote.closeComPort(handle);
+		transport.close();
+		while(server.isClientConnected(exposed)) {
+			Thread.sleep(10);
+		}
+		server.close();
+		local.closeComPort(exposed);
+		local.closeComPort(peer);
+	}
+
+	@Test(timeout=20000)
+	public void testConcurrentControlCommands() throws Exception {
+		SerialComVirtualTransport virtual = new SerialComVirtualTransport();
+		virtual.createPortPair("vport0", "vport1");
+		SerialComManager local = new SerialComManager(virtual);
+		long exposed = local.openComPort("vport0", true, true, true);
+		long peer = local.openComPort("vport1", true, true, true);
+		SerialComRFC2217Server server = new SerialComRFC2217Server(local, 2);
+		int tcpPort = server.exposePort(exposed, 0);
+
+		SerialComRFC2217Transport transport = new SerialComRFC2217Transport(1);
+		final SerialComManager remote = new SerialComManager(transport);
+		final long handle = remote.openComPort("rfc2217://127.0.0.1:" + tcpPort, true, true, true);
+
+		// RTS and DTR are both SET-CONTROL commands, replies must not get mixed up.
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread rtsToggler = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for(int x = 0; x < 100; x++) {
+						remote.setRTS(handle, (x % 2) != 0);
+					}
+				} catch (Exception e) {
+					failure.set(e);
+				}
+			}
+		});
+		rtsToggler.start();
+		for(int x = 0; x < 100; x++) {
+			remote.setDTR(handle, (x % 2) == 0);
+		}
+		rtsToggler.join();
+		assertTrue(failure.get() == null);
+
+		int[] lines = remote.getLinesStatus(handle);
+		assertEquals(SerialComManager.RTS, lines[5]);
+		assertEquals(0, lines[6]);
+		while(((local.getLinesStatus(peer)[0] & SerialComManager.CTS) == 0) || 
+				((local.getLinesStatus(peer)[1] & SerialComManager.DSR) != 0)) {
+			Thread.sleep(1);
+		}
+
+		remote.closeComPort(handle);
+		transport.close();
+		while(server.isClientConnected(exposed)) {
+			Thread.sleep(10);
+		}
+		server.close();
+		local.closeComPort(exposed);
+		local.closeComPort(peer);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComTCPBridgeTests {
+
+	private static byte[] readFully(SerialComManager scm, long handle, int length) throws Exception {
+		byte[] received = new byte[0];
+		while(received.length < length) {
+			byte[] data = scm.readBytes(handle);
+			if(data == null) {
+				Thread.sleep(1);
+				continue;
+			}
+			byte[] all = Arrays.copyOf(received, received.length + data.length);
+			System.arraycopy(data, 0, all, received.length, data.length);
+			received = all;
+		}
+		return received;
+	}
+
+	private static byte[] readFully(InputStream in, int length) throws Exception {
+		byte[] data = new byte[length];
+		int index = 0;
+		while(index < length) {
+			int numBytes = in.read(data, index, length - index);
+			assertTrue(numBytes > 0);
+			index += numBytes;
+		}
+		return data;
+	}
+
+	@Test(timeout=10000)
+	public void testRelayStatisticsAndIdleTimeout() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+
+		SerialComTCPBridge bridge = new SerialComTCPBridge(scm, 2);
+		int tcpPort = bridge.addBridge(handleA, 0, 500);
+		Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), tcpPort);
+		socket.setSoTimeout(3000);
+		InputStream in = socket.getInputStream();
+		OutputStream out = socket.getOutputStream();
+
+		// bytes are relayed unchanged in both directions, 0xFF is not escaped.
+		byte[] data = new byte[256];
+		for(int x = 0; x < data.length; x++) {
+			data[x] = (byte) x;
+		}
+		out.write(data);
+		assertTrue(Arrays.equals(data, readFully(scm, handleB, data.length)));
+		scm.writeBytes(handleB, data);
+		assertTrue(Arrays.equals(data, readFully(in, data.length)));
+
+		// second client is rejected while first one is connected.
+		Socket second = new Socket(InetAddress.getByName("127.0.0.1"), tcpPort);
+		second.setSoTimeout(3000);
+		assertEquals(-1, second.getInputStream().read());
+		second.close();
+
+		SerialComTCPBridgeStats stats = bridge.getStatistics(handleA);
+		assertEquals(256, stats.getBytesToSerial());
+		assertEquals(256, stats.getBytesToSocket());
+		assertEquals(1, stats.getNumberOfConnections());
+		assertEquals(1, stats.getNumberOfRejected());
+		assertTrue(stats.isClientConnected());
+
+		// client exchanging no data is disconnected after idle timeout.
+		assertEquals(-1, in.read());
+		socket.close();
+		stats = bridge.getStatistics(handleA);
+		assertEquals(1, stats.getNumberOfIdleTimeouts());
+		assertTrue(!stats.isClientConnected());
+
+		bridge.close();
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+}
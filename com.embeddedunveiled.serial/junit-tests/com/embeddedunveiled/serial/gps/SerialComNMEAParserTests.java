@@ -0,0 +1,111 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SerialComNMEAParserTests {
+
+	private static final String SENTENCES = 
+			"$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47\r\n" + 
+			"$GNRMC,225446.50,A,4916.45,N,12311.12,W,000.5,054.7,191194,020.3,E,A*30\r\n" + 
+			"$GPGSV,3,3,11,22,42,067,42,24,14,311,43,27,05,244,*4D\r\n" + 
+			"$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*46\r\n" + 
+			"$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,\r\n" + 
+			"$PGRME,15.0,M,45.0,M,25.0,M*1C\r\n";
+
+	private static final class Recorder implements ISerialComNMEAListener {
+		final List<String> events = new ArrayList<String>();
+
+		@Override
+		public void onGGA(SerialComNMEAGGA gga) {
+			assertTrue(gga.hasFix());
+			events.add("GGA " + gga.getUTCTime() + " " + gga.getLatitude() + " " + gga.getLongitude() + " " 
+					+ gga.getNumberOfSatellites() + " " + gga.getHDOP() + " " + gga.getAltitude() + " " + gga.getGeoidSeparation());
+		}
+
+		@Override
+		public void onRMC(SerialComNMEARMC rmc) {
+			assertTrue(rmc.isValid());
+			events.add("RMC " + rmc.getUTCTime() + " " + rmc.getLatitude() + " " + rmc.getLongitude() + " " + rmc.getSpeed() 
+					+ " " + rmc.getCourse() + " " + rmc.getDay() + "/" + rmc.getMonth() + "/" + rmc.getYear() + " " 
+					+ rmc.getMagneticVariation() + " " + rmc.getMode());
+		}
+
+		@Override
+		public void onGSV(SerialComNMEAGSV gsv) {
+			StringBuilder sb = new StringBuilder("GSV " + gsv.getMessageNumber() + "/" + gsv.getNumberOfMessages() + " " + gsv.getSatellitesInView());
+			for(int x = 0; x < gsv.getCount(); x++) {
+				sb.append(" " + gsv.getPRN(x) + ":" + gsv.getElevation(x) + ":" + gsv.getAzimuth(x) + ":" + gsv.getSNR(x));
+			}
+			events.add(sb.toString());
+		}
+
+		@Override
+		public void onSentence(SerialComNMEASentence sentence) {
+			events.add(sentence.getFieldCount() + " " + sentence.toString() + " " + sentence.getFieldFixed(1, 1));
+		}
+	}
+
+	private static final String[] EXPECTED = {
+		"GGA 45319000 481173000 115166667 8 90 545400 46900",
+		"RMC 82486500 492741667 -1231853333 500 5470 19/11/1994 2030 A",
+		"GSV 3/3 11 22:42:67:42 24:14:311:43 27:5:244:" + SerialComNMEASentence.NOT_AVAILABLE,
+		"7 PGRME,15.0,M,45.0,M,25.0,M 150"
+	};
+
+	@Test(timeout=5000)
+	public void testSentencesSplitAtEveryByte() throws Exception {
+		byte[] data = SENTENCES.getBytes("US-ASCII");
+		Recorder recorder = new Recorder();
+		SerialComNMEAParser parser = new SerialComNMEAParser(recorder, true);
+		for(int x = 0; x < data.length; x++) {
+			parser.onNewSerialDataAvailable(new byte[] { data[x] });
+		}
+		assertEquals(EXPECTED.length, recorder.events.size());
+		for(int x = 0; x < EXPECTED.length; x++) {
+			assertEquals(EXPECTED[x], recorder.events.get(x));
+		}
+		assertEquals(4, parser.getNumberOfSentences());
+		assertEquals(1, parser.getNumberOfChecksumErrors());
+		assertEquals(1, parser.getNumberOfDiscarded());
+	}
+
+	@Test(timeout=5000)
+	public void testDirectBufferAndOptionalChecksum() throws Exception {
+		byte[] data = SENTENCES.getBytes("US-ASCII");
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		Recorder recorder = new Recorder();
+		SerialComNMEAParser parser = new SerialComNMEAParser(recorder, false);
+		parser.parse(buffer, 0, 50);
+		parser.parse(buffer, 50, data.length - 50);
+		assertEquals(5, recorder.events.size());
+		assertEquals(recorder.events.get(0), recorder.events.get(3));
+		assertEquals(1, parser.getNumberOfChecksumErrors());
+		assertEquals(0, parser.getNumberOfDiscarded());
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComUBXTests {
+
+	private static class Recorder implements ISerialComUBXListener {
+		final List<String> events = new ArrayList<String>();
+
+		@Override
+		public void onNavPvt(SerialComUBXNavPvt pvt) {
+			events.add("PVT " + pvt.getYear() + "-" + pvt.getMonth() + "-" + pvt.getDay() + " " + pvt.getFixType() + " " 
+					+ pvt.getNumberOfSatellites() + " " + pvt.getLatitude() + " " + pvt.getLongitude() + " " + pvt.getHeightMSL() 
+					+ " " + pvt.getITOW() + " " + pvt.isFixOK());
+		}
+
+		@Override
+		public void onNavSat(SerialComUBXNavSat sat) {
+			StringBuilder sb = new StringBuilder("SAT");
+			for(int x = 0; x < sat.getNumberOfSatellites(); x++) {
+				sb.append(" " + sat.getGnssId(x) + ":" + sat.getSvId(x) + ":" + sat.getCNO(x) + ":" + sat.getElevation(x) 
+						+ ":" + sat.getAzimuth(x) + ":" + sat.isUsed(x));
+			}
+			events.add(sb.toString());
+		}
+
+		@Override
+		public void onRxmRawx(SerialComUBXRxmRawx rawx) {
+			events.add("RAWX " + rawx.getReceiverTOW() + " " + rawx.getWeek() + " " + rawx.getNumberOfMeasurements() + " " 
+					+ rawx.getPseudorange(0) + " " + rawx.getDoppler(0) + " " + rawx.getSvId(0));
+		}
+
+		@Override
+		public void onMessage(SerialComUBXMessage message) {
+			events.add("MSG " + message.getMessageClass() + " " + message.getMessageId() + " " + message.getPayloadLength());
+		}
+	}
+
+	private static void putI4(byte[] data, int offset, long value) {
+		for(int x = 0; x < 4; x++) {
+			data[offset + x] = (byte) (value >>> (8 * x));
+		}
+	}
+
+	private static void putR8(byte[] data, int offset, double value) {
+		long bits = Double.doubleToLongBits(value);
+		putI4(data, offset, bits);
+		putI4(data, offset + 4, bits >>> 32);
+	}
+
+	private static byte[] frames() {
+		byte[] pvt = new byte[92];
+		putI4(pvt, 0, 0x80000000L);
+		pvt[4] = (byte) 0xE8;
+		pvt[5] = 0x07;
+		pvt[6] = 6;
+		pvt[7] = 15;
+		pvt[20] = 3;
+		pvt[21] = 1;
+		pvt[23] = 17;
+		putI4(pvt, 24, -1231853333);
+		putI4(pvt, 28, 492741667);
+		putI4(pvt, 36, 545400);
+
+		byte[] sat = new byte[8 + 24];
+		sat[5] = 2;
+		sat[8] = 0;
+		sat[9] = 12;
+		sat[10] = 41;
+		sat[11] = (byte) -5;
+		sat[12] = 0x2C;
+		sat[13] = 0x01;
+		sat[16] = 0x08;
+		sat[20] = 6;
+		sat[21] = 3;
+		sat[22] = 30;
+		sat[23] = 60;
+
+		byte[] rawx = new byte[16 + 32];
+		putR8(rawx, 0, 345600.5);
+		rawx[8] = 0x3A;
+		rawx[9] = 0x09;
+		rawx[11] = 1;
+		putR8(rawx, 16, 21000000.25);
+		putI4(rawx, 32, Float.floatToIntBits(-1250.5f));
+		rawx[37] = 7;
+
+		byte[] all = new byte[0];
+		byte[][] parts = { new byte[] { 0x00, (byte) 0xB5 }, SerialComUBXDecoder.encode(1, 7, pvt), SerialComUBXDecoder.encode(1, 0x35, sat), 
+				SerialComUBXDecoder.encode(2, 0x15, rawx), SerialComUBXDecoder.encode(5, 1, new byte[] { 6, (byte) 0x8A }), 
+				SerialComUBXDecoder.encode(5, 1, new byte[] { 6, 1 }) };
+		parts[5][9]++; // corrupt checksum of last frame.
+		for(byte[] part : parts) {
+			byte[] grown = new byte[all.length + part.length];
+			System.arraycopy(all, 0, grown, 0, all.length);
+			System.arraycopy(part, 0, grown, all.length, part.length);
+			all = grown;
+		}
+		return all;
+	}
+
+	private static final String[] EXPECTED = {
+		"PVT 2024-6-15 3 17 492741667 -1231853333 545400 2147483648 true",
+		"SAT 0:12:41:-5:300:true 6:3:30:60:0:false",
+		"RAWX 345600.5 2362 1 2.100000025E7 -1250.5 7",
+		"MSG 5 1 2"
+	};
+
+	@Test(timeout=5000)
+	public void testDecodeInPlaceAndAssembled() throws Exception {
+		byte[] data = frames();
+
+		Recorder inPlace = new Recorder();
+		SerialComUBXDecoder decoder = new SerialComUBXDecoder(inPlace);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		decoder.parse(buffer, 0, data.length);
+		assertEquals(EXPECTED.length, inPlace.events.size());
+		for(int x = 0; x < EXPECTED.length; x++) {
+			assertEquals(EXPECTED[x], inPlace.events.get(x));
+		}
+		assertEquals(4, decoder.getNumberOfFrames());
+		assertEquals(1, decoder.getNumberOfChecksumErrors());
+
+		Recorder assembled = new Recorder();
+		decoder = new SerialComUBXDecoder(assembled);
+		for(int x = 0; x < data.length; x++) {
+			decoder.onNewSerialDataAvailable(new byte[] { data[x] });
+		}
+		assertEquals(inPlace.events, assembled.events);
+		assertEquals(1, decoder.getNumberOfChecksumErrors());
+	}
+
+	@Test(timeout=10000)
+	public void testPipelinedConfiguration() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		final SerialComManager scm = new SerialComManager(transport);
+		long host = scm.openComPort("vport0", true, true, true);
+		final long receiver = scm.openComPort("vport1", true, true, true);
+
+		// emulated receiver acknowledges CFG-MSG and rejects CFG-VALSET.
+		final List<byte[]> replies = new ArrayList<byte[]>();
+		SerialComUBXDecoder receiverSide = new SerialComUBXDecoder(new Recorder() {
+			@Override
+			public void onMessage(SerialComUBXMessage message) {
+				if(message.getMessageClass() == SerialComUBXDecoder.CLASS_CFG) {
+					int id = (message.getMessageId() == 0x8A) ? SerialComUBXDecoder.ID_ACK_NAK : SerialComUBXDecoder.ID_ACK_ACK;
+					replies.add(SerialComUBXDecoder.encode(SerialComUBXDecoder.CLASS_ACK, id, new byte[] { 6, (byte) message.getMessageId() }));
+				}
+			}
+		});
+
+		SerialComUBXDecoder decoder = new SerialComUBXDecoder(new Recorder());
+		scm.registerDataListener(host, decoder);
+		SerialComUBXConfigClient config = new SerialComUBXConfigClient(scm, host, decoder);
+		config.addMessageRate(SerialComUBXDecoder.CLASS_NAV, SerialComUBXDecoder.ID_NAV_PVT, 1);
+		config.addValSet(SerialComUBXConfigClient.LAYER_RAM, new int[] { 0x30210001, 0x10720002 }, new long[] { 100, 1 });
+		config.addMessageRate(SerialComUBXDecoder.CLASS_NAV, SerialComUBXDecoder.ID_NAV_SAT, 5);
+
+		final SerialComUBXDecoder emulator = receiverSide;
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while(replies.size() < 3) {
+						byte[] data = scm.readBytes(receiver);
+						if(data == null) {
+							Thread.sleep(1);
+							continue;
+						}
+						emulator.parse(data, 0, data.length);
+					}
+					// all messages were received before any acknowledgement was sent.
+					for(byte[] reply : replies) {
+						scm.writeBytes(receiver, reply);
+					}
+				} catch (Exception e) {
+				}
+			}
+		};
+		thread.start();
+
+		boolean[] acked = config.commit(5000);
+		assertEquals(3, acked.length);
+		assertTrue(acked[0]);
+		assertTrue(!acked[1]);
+		assertTrue(acked[2]);
+
+		thread.join();
+		scm.unregisterDataListener(host, decoder);
+		scm.closeComPort(host);
+		scm.closeComPort(receiver);
+	}
+}
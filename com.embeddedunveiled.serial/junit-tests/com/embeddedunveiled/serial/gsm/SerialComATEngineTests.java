@@ -0,0 +1,245 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComATEngineTests {
+
+	/* answers commands like a modem, AT+CGMI is never answered. */
+	private static class Modem implements Runnable {
+		final SerialComManager scm;
+		final long handle;
+		volatile boolean stop;
+		String payload;
+
+		Modem(SerialComManager scm, long handle) {
+			this.scm = scm;
+			this.handle = handle;
+		}
+
+		private void reply(String text) throws Exception {
+			scm.writeString(handle, text, 0);
+		}
+
+		@Override
+		public void run() {
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			boolean inPayload = false;
+			try {
+				while(!stop) {
+					byte[] data = scm.readBytes(handle);
+					if(data == null) {
+						Thread.sleep(1);
+						continue;
+					}
+					for(byte b : data) {
+						if(inPayload) {
+							if(b == 0x1A) {
+								payload = line.toString();
+								line.reset();
+								inPayload = false;
+								reply("\r\n+CMGS: 5\r\n\r\nOK\r\n");
+							}else {
+								line.write(b);
+							}
+							continue;
+						}
+						if(b != '\r') {
+							line.write(b);
+							continue;
+						}
+						String cmd = line.toString();
+						line.reset();
+						// echo is on.
+						reply(cmd + "\r");
+						if(cmd.equals("AT")) {
+							reply("\r\nOK\r\n");
+						}else if(cmd.equals("AT+CSQ")) {
+							// unsolicited result code arrives in the middle of response.
+							reply("\r\n+CSQ: 21,99\r\n\r\n+CMTI: \"SM\",3\r\n\r\nOK\r\n");
+						}else if(cmd.equals("AT+CPIN?")) {
+							reply("\r\n+CME ERROR: 10\r\n");
+						}else if(cmd.equals("AT+CGSN")) {
+							reply("\r\n490154203237518\r\n\r\nOK\r\n");
+						}else if(cmd.startsWith("AT+CMGS=")) {
+							reply("\r\n> ");
+							inPayload = true;
+						}
+					}
+				}
+			} catch (Exception e) {
+			}
+		}
+	}
+
+	private static class URCRecorder implements ISerialComURCListener {
+		final StringBuilder events = new StringBuilder();
+
+		@Override
+		public void onURC(SerialComATLine line, SerialComATLine body) {
+			synchronized(this) {
+				events.append(line.getFieldString(0)).append(' ').append(line.getFieldInt(1)).append(';');
+				notifyAll();
+			}
+		}
+	}
+
+	@Test(timeout=20000)
+	public void testPipelineResultsAndURC() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handle = scm.openComPort("vport0", true, true, true);
+		long modemHandle = scm.openComPort("vport1", true, true, true);
+		Modem modem = new Modem(scm, modemHandle);
+		Thread modemThread = new Thread(modem);
+		modemThread.start();
+
+		SerialComATEngine engine = new SerialComATEngine(scm, handle);
+		scm.registerDataListener(handle, engine);
+		URCRecorder recorder = new URCRecorder();
+		engine.addURCListener("+CMTI:", false, recorder);
+
+		// all commands are queued at once and executed in order.
+		SerialComATCommand at = engine.send("AT", 2000);
+		SerialComATCommand csq = engine.send("AT+CSQ", 2000);
+		SerialComATCommand cpin = engine.send("AT+CPIN?", 2000);
+		SerialComATCommand cgmi = engine.send("AT+CGMI", 300);
+		SerialComATCommand cgsn = engine.send("AT+CGSN", 2000);
+		SerialComATCommand cmgs = engine.send("AT+CMGS=\"+911234567890\"", "hello\u001A".getBytes(), 2000);
+
+		assertEquals(SerialComATCommand.RESULT_OK, at.await());
+		assertEquals(0, at.getLineCount());
+
+		assertEquals(SerialComATCommand.RESULT_OK, csq.await());
+		assertEquals(1, csq.getLineCount());
+		assertEquals(21, csq.getLine(0).getFieldInt(0));
+		assertEquals(99, csq.getLine(0).getFieldInt(1));
+
+		assertEquals(SerialComATCommand.RESULT_CME_ERROR, cpin.await());
+		assertEquals(10, cpin.getErrorCode());
+
+		assertEquals(SerialComATCommand.RESULT_TIMEOUT, cgmi.await());
+
+		// response lines without prefix belong to running command.
+		assertEquals(SerialComATCommand.RESULT_OK, cgsn.await());
+		assertEquals("490154203237518", cgsn.getLine(0).toString());
+
+		assertEquals(SerialComATCommand.RESULT_OK, cmgs.await());
+		assertEquals(5, cmgs.getLine(0).getFieldInt(0));
+		assertEquals("hello", modem.payload);
+
+		synchronized(recorder) {
+			while(recorder.events.length() == 0) {
+				recorder.wait();
+			}
+			assertEquals("SM 3;", recorder.events.toString());
+		}
+		assertEquals(0, engine.getNumberOfDroppedURCs());
+
+		SerialComATCommand pending = engine.send("AT+CGMI", 10000);
+		engine.close();
+		assertEquals(SerialComATCommand.RESULT_ABORTED, pending.await());
+		assertTrue(pending.isDone());
+
+		modem.stop = true;
+		modemThread.join();
+		scm.unregisterDataListener(handle, engine);
+		scm.closeComPort(handle);
+		scm.closeComPort(modemHandle);
+	}
+
+	/* accepts command, then blocks on payload till released. */
+	private static class StalledStream extends OutputStream {
+		final StringBuilder written = new StringBuilder();
+		boolean released;
+
+		@Override
+		public synchronized void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			if(written.length() > 0) {
+				while(!released) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						throw new IOException(e.getMessage());
+					}
+				}
+			}
+			written.append(new String(b, off, len));
+			notifyAll();
+		}
+	}
+
+	@Test(timeout=20000)
+	public void testStalledWriteDoesNotBlockParsing() throws Exception {
+		StalledStream stream = new StalledStream();
+		SerialComATEngine engine = new SerialComATEngine(stream);
+		URCRecorder recorder = new URCRecorder();
+		engine.addURCListener("+CMTI:", false, recorder);
+
+		SerialComATCommand cmgs = engine.send("AT+CMGS=5", "hello\u001A".getBytes(), 5000);
+		synchronized(stream) {
+			while(stream.written.length() == 0) {
+				stream.wait();
+			}
+		}
+
+		// payload write blocks, parsing must still go on.
+		byte[] prompt = "\r\n> ".getBytes();
+		engine.parse(prompt, 0, prompt.length);
+		byte[] urc = "\r\n+CMTI: \"SM\",7\r\n".getBytes();
+		engine.parse(urc, 0, urc.length);
+		synchronized(recorder) {
+			while(recorder.events.length() == 0) {
+				recorder.wait();
+			}
+			assertEquals("SM 7;", recorder.events.toString());
+		}
+
+		synchronized(stream) {
+			stream.released = true;
+			stream.notifyAll();
+			while(stream.written.indexOf("hello") < 0) {
+				stream.wait();
+			}
+			assertEquals("AT+CMGS=5\rhello\u001A", stream.written.toString());
+		}
+		byte[] result = "\r\n+CMGS: 9\r\n\r\nOK\r\n".getBytes();
+		engine.parse(result, 0, result.length);
+		assertEquals(SerialComATCommand.RESULT_OK, cmgs.await());
+		assertEquals(9, cmgs.getLine(0).getFieldInt(0));
+		engine.close();
+	}
+}
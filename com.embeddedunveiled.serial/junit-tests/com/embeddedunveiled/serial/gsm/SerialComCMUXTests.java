@@ -0,0 +1,308 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.ISerialComTransport;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComCMUXTests {
+
+	/* responds to frames like a modem in multiplexer mode and echoes data on every channel. */
+	private static class Modem implements Runnable {
+		final SerialComManager scm;
+		final long handle;
+		volatile boolean stop;
+		final ByteArrayOutputStream channel2 = new ByteArrayOutputStream();
+		int numMSCResponses;
+
+		Modem(SerialComManager scm, long handle) {
+			this.scm = scm;
+			this.handle = handle;
+		}
+
+		void send(int dlci, int control, byte[] info) throws Exception {
+			scm.writeBytes(handle, SerialComCMUX.encodeFrame(dlci, false, control, info, 0, info.length));
+		}
+
+		private void frame(int dlci, int control, byte[] info) throws Exception {
+			switch(control & ~SerialComCMUX.PF) {
+			case SerialComCMUX.SABM:
+				send(dlci, ((dlci == 5) ? SerialComCMUX.DM : SerialComCMUX.UA) | SerialComCMUX.PF, new byte[0]);
+				break;
+			case SerialComCMUX.DISC:
+				send(dlci, SerialComCMUX.UA | SerialComCMUX.PF, new byte[0]);
+				break;
+			case SerialComCMUX.UIH:
+				if(dlci == 0) {
+					int type = info[0] & 0xFF;
+					if(type == (SerialComCMUX.MSG_CLD | 0x03)) {
+						send(0, SerialComCMUX.UIH, new byte[] { (byte) (SerialComCMUX.MSG_CLD | 0x01), 0x01 });
+					}else if(type == (SerialComCMUX.MSG_MSC | 0x01)) {
+						synchronized(this) {
+							numMSCResponses++;
+						}
+					}
+				}else if(dlci == 2) {
+					synchronized(this) {
+						channel2.write(info, 0, info.length);
+					}
+				}else {
+					send(dlci, SerialComCMUX.UIH, info);
+				}
+				break;
+			default:
+			}
+		}
+
+		@Override
+		public void run() {
+			byte[] pending = new byte[0];
+			try {
+				while(!stop) {
+					byte[] data = scm.readBytes(handle);
+					if(data == null) {
+						Thread.sleep(1);
+						continue;
+					}
+					pending = Arrays.copyOf(pending, pending.length + data.length);
+					System.arraycopy(data, 0, pending, pending.length - data.length, data.length);
+					// frames are short, so length field always has one byte.
+					int x = 0;
+					while(true) {
+						while((x < pending.length) && ((pending[x] & 0xFF) == SerialComCMUX.FLAG)) {
+							x++;
+						}
+						if((pending.length - x) < 3) {
+							break;
+						}
+						int length = (pending[x + 2] & 0xFF) >>> 1;
+						if((pending.length - x) < (length + 5)) {
+							break;
+						}
+						assertEquals(0xCF, fcsOf(pending, x, 3, pending[x + 3 + length]));
+						frame((pending[x] & 0xFF) >>> 2, pending[x + 1] & 0xFF, Arrays.copyOfRange(pending, x + 3, x + 3 + length));
+						x += length + 5;
+					}
+					pending = Arrays.copyOfRange(pending, Math.max(0, x - 1), pending.length);
+				}
+			} catch (Exception e) {
+			}
+		}
+
+		private static int fcsOf(byte[] data, int offset, int length, byte fcs) {
+			byte[] all = Arrays.copyOfRange(data, offset, offset + length + 1);
+			all[length] = fcs;
+			return SerialComCMUX.fcs(all, 0, all.length);
+		}
+	}
+
+	/* virtual transport whose direct writes accept no byte while stalled, like a port held by flow control. */
+	private static final class StallingTransport implements InvocationHandler {
+		final SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		volatile boolean stalled;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if(stalled && method.getName().equals("writeBytesDirect")) {
+				return Integer.valueOf(0);
+			}
+			try {
+				return method.invoke(transport, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		ISerialComTransport create() {
+			return (ISerialComTransport) Proxy.newProxyInstance(ISerialComTransport.class.getClassLoader(), 
+					new Class<?>[] { ISerialComTransport.class }, this);
+		}
+	}
+
+	private static byte[] readFully(InputStream in, int length) throws Exception {
+		byte[] data = new byte[length];
+		int index = 0;
+		while(index < length) {
+			int numBytes = in.read(data, index, length - index);
+			assertTrue(numBytes > 0);
+			index += numBytes;
+		}
+		return data;
+	}
+
+	@Test
+	public void testFrameEncoding() {
+		// SABM and UA on control channel as given in specification.
+		byte[] sabm = SerialComCMUX.encodeFrame(0, true, SerialComCMUX.SABM | SerialComCMUX.PF, null, 0, 0);
+		assertTrue(Arrays.equals(new byte[] { (byte) 0xF9, 0x03, 0x3F, 0x01, 0x1C, (byte) 0xF9 }, sabm));
+		byte[] ua = SerialComCMUX.encodeFrame(0, true, SerialComCMUX.UA | SerialComCMUX.PF, null, 0, 0);
+		assertTrue(Arrays.equals(new byte[] { (byte) 0xF9, 0x03, 0x73, 0x01, (byte) 0xD7, (byte) 0xF9 }, ua));
+	}
+
+	@Test(timeout=20000)
+	public void testChannelsAndFlowControl() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handle = scm.openComPort("vport0", true, true, true);
+		long modemHandle = scm.openComPort("vport1", true, true, true);
+		Modem modem = new Modem(scm, modemHandle);
+		Thread modemThread = new Thread(modem);
+		modemThread.start();
+
+		SerialComCMUX mux = new SerialComCMUX(scm, handle, 64);
+		mux.open(3000);
+		SerialComCMUXChannel ch1 = mux.openChannel(1, 3000);
+		SerialComCMUXChannel ch2 = mux.openChannel(2, 3000);
+		boolean refused = false;
+		try {
+			mux.openChannel(5, 3000);
+		} catch (SerialComException e) {
+			refused = true;
+		}
+		assertTrue(refused);
+
+		// data larger than frame size is split in frames and echoed back by modem.
+		byte[] data = new byte[1000];
+		for(int x = 0; x < data.length; x++) {
+			data[x] = (byte) x;
+		}
+		ch1.getOutputStream().write(data);
+		assertTrue(Arrays.equals(data, readFully(ch1.getInputStream(), data.length)));
+
+		// modem stops flow on channel 2, channel 1 keeps working.
+		modem.send(0, SerialComCMUX.UIH, new byte[] { (byte) 0xE3, 0x05, (byte) ((2 << 2) | 0x03), (byte) 0x8F });
+		while(!ch2.isFlowStopped()) {
+			Thread.sleep(1);
+		}
+		ch2.getOutputStream().write(data);
+		ch1.getOutputStream().write(data, 0, 100);
+		assertTrue(Arrays.equals(Arrays.copyOf(data, 100), readFully(ch1.getInputStream(), 100)));
+		synchronized(modem) {
+			assertEquals(0, modem.channel2.size());
+		}
+
+		modem.send(0, SerialComCMUX.UIH, new byte[] { (byte) 0xE3, 0x05, (byte) ((2 << 2) | 0x03), (byte) 0x8D });
+		ch2.getOutputStream().flush();
+		while(true) {
+			synchronized(modem) {
+				if(modem.channel2.size() == data.length) {
+					assertTrue(Arrays.equals(data, modem.channel2.toByteArray()));
+					// responses for both modem status commands.
+					assertEquals(2, modem.numMSCResponses);
+					break;
+				}
+			}
+			Thread.sleep(1);
+		}
+		assertEquals(0, mux.getNumberOfFCSErrors());
+
+		mux.close(3000);
+		assertTrue(!ch1.isOpen());
+		assertEquals(-1, ch1.getInputStream().read());
+
+		modem.stop = true;
+		modemThread.join();
+		scm.closeComPort(handle);
+		scm.closeComPort(modemHandle);
+	}
+
+	@Test(timeout=5000)
+	public void testStalledPortDoesNotBlockClose() throws Exception {
+		StallingTransport stalling = new StallingTransport();
+		stalling.transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(stalling.create());
+		long handle = scm.openComPort("vport0", true, true, true);
+		long modemHandle = scm.openComPort("vport1", true, true, true);
+		Modem modem = new Modem(scm, modemHandle);
+		Thread modemThread = new Thread(modem);
+		modemThread.start();
+
+		SerialComCMUX mux = new SerialComCMUX(scm, handle, 64);
+		mux.open(3000);
+		SerialComCMUXChannel ch1 = mux.openChannel(1, 3000);
+		stalling.stalled = true;
+		ch1.getOutputStream().write(new byte[10]);
+		Thread.sleep(50);
+
+		// writer is stuck on a frame, close must still stop it.
+		mux.close(200);
+		assertTrue(!ch1.isOpen());
+
+		modem.stop = true;
+		modemThread.join();
+		scm.closeComPort(handle);
+		scm.closeComPort(modemHandle);
+	}
+
+	@Test(timeout=20000)
+	public void testStalledPortStopsMultiplexer() throws Exception {
+		StallingTransport stalling = new StallingTransport();
+		stalling.transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(stalling.create());
+		long handle = scm.openComPort("vport0", true, true, true);
+		long modemHandle = scm.openComPort("vport1", true, true, true);
+		Modem modem = new Modem(scm, modemHandle);
+		Thread modemThread = new Thread(modem);
+		modemThread.start();
+
+		SerialComCMUX mux = new SerialComCMUX(scm, handle, 64);
+		mux.open(3000);
+		SerialComCMUXChannel ch1 = mux.openChannel(1, 3000);
+		stalling.stalled = true;
+		ch1.getOutputStream().write(new byte[10]);
+
+		// after WRITE_TIMEOUT without progress, multiplexer gives up and reports why.
+		String reason = null;
+		try {
+			ch1.getOutputStream().flush();
+		} catch (IOException e) {
+			reason = e.getMessage();
+		}
+		assertTrue((reason != null) && (reason.indexOf("did not accept") >= 0));
+		boolean reported = false;
+		try {
+			mux.close(200);
+		} catch (SerialComException e) {
+			reported = true;
+		}
+		assertTrue(reported);
+
+		modem.stop = true;
+		modemThread.join();
+		scm.closeComPort(handle);
+		scm.closeComPort(modemHandle);
+	}
+}
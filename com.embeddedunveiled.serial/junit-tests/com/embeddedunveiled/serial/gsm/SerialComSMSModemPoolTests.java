@@ -0,0 +1,236 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComManager.BAUDRATE;
+import com.embeddedunveiled.serial.SerialComManager.FLOWCONTROL;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComSMSModemPoolTests {
+
+	/* answers like a modem in PDU mode, PDU with given index (counting from 0) is rejected if asked. */
+	private static class Modem implements Runnable {
+		final SerialComManager scm;
+		final long handle;
+		final int delay;
+		final int rejectAt;
+		volatile boolean stop;
+		final List<String> pdus = new ArrayList<String>();
+
+		Modem(SerialComManager scm, long handle, int delay, int rejectAt) {
+			this.scm = scm;
+			this.handle = handle;
+			this.delay = delay;
+			this.rejectAt = rejectAt;
+		}
+
+		@Override
+		public void run() {
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			boolean inPayload = false;
+			int reference = 0;
+			int numPDUs = 0;
+			try {
+				while(!stop) {
+					byte[] data = scm.readBytes(handle);
+					if(data == null) {
+						Thread.sleep(1);
+						continue;
+					}
+					for(byte b : data) {
+						if(inPayload) {
+							if(b != 0x1A) {
+								line.write(b);
+								continue;
+							}
+							inPayload = false;
+							synchronized(this) {
+								pdus.add(line.toString());
+							}
+							line.reset();
+							Thread.sleep(delay);
+							if((numPDUs++) == rejectAt) {
+								scm.writeString(handle, "\r\n+CMS ERROR: 500\r\n", 0);
+							}else {
+								scm.writeString(handle, "\r\n+CMGS: " + (reference++) + "\r\n\r\nOK\r\n", 0);
+							}
+							continue;
+						}
+						if(b != '\r') {
+							line.write(b);
+							continue;
+						}
+						String cmd = line.toString();
+						line.reset();
+						if(cmd.startsWith("AT+CMGS=")) {
+							scm.writeString(handle, "\r\n> ", 0);
+							inPayload = true;
+						}else {
+							scm.writeString(handle, "\r\nOK\r\n", 0);
+						}
+					}
+				}
+			} catch (Exception e) {
+			}
+		}
+	}
+
+	private static String pdu(SerialComSMSEncoder encoder, int part, int reference) {
+		int length = encoder.encodePart(part, reference);
+		assertEquals(0x1A, encoder.getPDU()[length - 1]);
+		return new String(encoder.getPDU(), 0, length - 1);
+	}
+
+	@Test
+	public void testPDUEncoding() {
+		SerialComSMSEncoder encoder = new SerialComSMSEncoder();
+
+		assertEquals(1, encoder.prepare("+46708251358", "hellohello"));
+		assertEquals(SerialComSMSEncoder.CODING_GSM7, encoder.getCoding());
+		assertEquals("0001000B916407281553F800000AE8329BFD4697D9EC37", pdu(encoder, 0, 0));
+		assertEquals(22, encoder.getTPDULength());
+
+		// euro sign is in extension table and takes two septets.
+		assertEquals(1, encoder.prepare("12345", "\u20AC"));
+		assertEquals("00010005812143F50000029B32", pdu(encoder, 0, 0));
+
+		// cyrillic text needs UCS2.
+		assertEquals(1, encoder.prepare("+12", "\u041F\u0440\u0438"));
+		assertEquals(SerialComSMSEncoder.CODING_UCS2, encoder.getCoding());
+		assertEquals("000100029121000806041F04400438", pdu(encoder, 0, 0));
+
+		// 200 characters are sent in two concatenated parts with user data header.
+		StringBuilder text = new StringBuilder();
+		for(int x = 0; x < 200; x++) {
+			text.append('a');
+		}
+		assertEquals(2, SerialComSMSEncoder.countParts(text.toString()));
+		assertEquals(2, encoder.prepare("+12", text.toString()));
+		String first = pdu(encoder, 0, 7);
+		assertTrue(first.startsWith("0041000291210000A0050003070201"));
+		assertEquals(8 + 140, encoder.getTPDULength());
+		assertTrue(pdu(encoder, 1, 7).startsWith("004100029121000036050003070202"));
+	}
+
+	@Test(timeout=30000)
+	public void testDispatchAndRetry() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vpa0", "vpa1");
+		transport.createPortPair("vpb0", "vpb1");
+		SerialComManager scm = new SerialComManager(transport);
+		Modem modemA = new Modem(scm, scm.openComPort("vpa1", true, true, true), 5, -1);
+		Modem modemB = new Modem(scm, scm.openComPort("vpb1", true, true, true), 5, 0);
+		Thread threadA = new Thread(modemA);
+		Thread threadB = new Thread(modemB);
+		threadA.start();
+		threadB.start();
+
+		SerialComSMSModemPool pool = new SerialComSMSModemPool(scm);
+		pool.addModem("vpa0", BAUDRATE.B115200, FLOWCONTROL.NONE);
+		pool.addModem("vpb0", BAUDRATE.B115200, FLOWCONTROL.NONE);
+
+		SerialComSMS[] messages = new SerialComSMS[20];
+		for(int x = 0; x < messages.length; x++) {
+			messages[x] = pool.submit("+911234567890", "alert " + x);
+		}
+		for(SerialComSMS sms : messages) {
+			assertEquals(SerialComSMS.STATUS_SENT, sms.await());
+		}
+
+		// message rejected by modem B was retried and load was shared by both modems.
+		assertEquals(20, pool.getNumberOfSent());
+		assertEquals(0, pool.getNumberOfFailed());
+		assertEquals(1, pool.getNumberOfRetries());
+		SerialComSMSModemStats[] stats = pool.getModemStatistics();
+		assertEquals(2, stats.length);
+		assertTrue(stats[0].getNumberOfSent() > 0);
+		assertTrue(stats[1].getNumberOfSent() > 0);
+		assertEquals(20, stats[0].getNumberOfSent() + stats[1].getNumberOfSent());
+		assertEquals(1, stats[1].getNumberOfFailures());
+		assertEquals(500, stats[1].getLastErrorCode());
+		assertTrue(stats[1].isHealthy());
+		synchronized(modemA) {
+			synchronized(modemB) {
+				assertEquals(21, modemA.pdus.size() + modemB.pdus.size());
+			}
+		}
+
+		pool.close();
+		modemA.stop = true;
+		modemB.stop = true;
+		threadA.join();
+		threadB.join();
+	}
+
+	@Test(timeout=30000)
+	public void testPartlySentMessageRestartsOnOtherModem() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vpa0", "vpa1");
+		transport.createPortPair("vpb0", "vpb1");
+		SerialComManager scm = new SerialComManager(transport);
+		Modem modemA = new Modem(scm, scm.openComPort("vpa1", true, true, true), 5, -1);
+		Modem modemB = new Modem(scm, scm.openComPort("vpb1", true, true, true), 300, 1);
+		Thread threadA = new Thread(modemA);
+		Thread threadB = new Thread(modemB);
+		threadA.start();
+		threadB.start();
+
+		// message goes to modem B which accepts first part and rejects second one.
+		SerialComSMSModemPool pool = new SerialComSMSModemPool(scm);
+		pool.addModem("vpb0", BAUDRATE.B115200, FLOWCONTROL.NONE);
+		StringBuilder text = new StringBuilder();
+		for(int x = 0; x < 400; x++) {
+			text.append((char) ('a' + (x % 26)));
+		}
+		SerialComSMS sms = pool.submit("+911234567890", text.toString());
+		pool.addModem("vpa0", BAUDRATE.B115200, FLOWCONTROL.NONE);
+		assertEquals(SerialComSMS.STATUS_SENT, sms.await());
+		assertEquals(3, sms.getNumberOfParts());
+
+		// all parts were sent again by modem A, so they come from one originating address.
+		SerialComSMSEncoder encoder = new SerialComSMSEncoder();
+		encoder.prepare("+911234567890", text.toString());
+		synchronized(modemB) {
+			assertEquals(2, modemB.pdus.size());
+		}
+		synchronized(modemA) {
+			assertEquals(3, modemA.pdus.size());
+			for(int x = 0; x < 3; x++) {
+				assertEquals(pdu(encoder, x, sms.reference), modemA.pdus.get(x));
+				assertEquals(x, sms.getMessageReference(x));
+			}
+		}
+
+		pool.close();
+		modemA.stop = true;
+		modemB.stop = true;
+		threadA.join();
+		threadB.join();
+	}
+}
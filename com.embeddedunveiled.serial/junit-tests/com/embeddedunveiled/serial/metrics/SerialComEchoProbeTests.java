@@ -0,0 +1,114 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComTimeOutException;
+import com.embeddedunveiled.serial.transport.SerialComVirtualTransport;
+
+public class SerialComEchoProbeTests {
+
+	/* Echoes whatever arrives on its port, preceded by noise bytes and with payload optionally corrupted. */
+	private static final class Echo extends Thread {
+		private final SerialComManager scm;
+		private final long handle;
+		private final boolean corrupt;
+		private volatile boolean stop;
+
+		Echo(SerialComManager scm, long handle, boolean corrupt) {
+			this.scm = scm;
+			this.handle = handle;
+			this.corrupt = corrupt;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while(stop == false) {
+					byte[] data = scm.readBytes(handle, 2048);
+					if(data == null) {
+						Thread.sleep(1);
+						continue;
+					}
+					if(corrupt) {
+						data[data.length - 1] ^= 0x01;
+					}
+					scm.writeBytes(handle, new byte[] { (byte) 0xA5, 0x00 });
+					scm.writeBytes(handle, data);
+				}
+			} catch (Exception e) {
+			}
+		}
+
+		void finish() throws InterruptedException {
+			stop = true;
+			join();
+		}
+	}
+
+	@Test(timeout=10000)
+	public void testEchoAfterNoiseIsMeasured() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+		Echo echo = new Echo(scm, handleB, false);
+		echo.start();
+
+		SerialComEchoProbe probe = new SerialComEchoProbe(scm, handleA);
+		SerialComHistogramSnapshot snapshot = probe.run(20, 16, 3000);
+		assertEquals(20, snapshot.getCount());
+		assertTrue(snapshot.getMin() > 0);
+
+		echo.finish();
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+
+	@Test(timeout=10000)
+	public void testCorruptedEchoIsNotTaken() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+		Echo echo = new Echo(scm, handleB, true);
+		echo.start();
+
+		// marker and sequence of echo match but last payload byte does not.
+		SerialComEchoProbe probe = new SerialComEchoProbe(scm, handleA);
+		boolean timedOut = false;
+		try {
+			probe.run(1, 16, 300);
+		} catch (SerialComTimeOutException e) {
+			timedOut = true;
+		}
+		assertTrue(timedOut);
+		assertEquals(0, probe.getHistogram().getCount());
+
+		echo.finish();
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SerialComLatencyHistogramTests {
+
+	@Test(timeout=5000)
+	public void testBucketPrecision() {
+		assertEquals(5, SerialComLatencyHistogram.highestValueOf(SerialComLatencyHistogram.indexOf(5)));
+		for(long value = 1; value < SerialComLatencyHistogram.MAX_TRACKABLE; value = value + 1 + (value / 7)) {
+			long highest = SerialComLatencyHistogram.highestValueOf(SerialComLatencyHistogram.indexOf(value));
+			assertTrue(highest >= value);
+			assertTrue((highest - value) <= (value / 32));
+		}
+		assertEquals(SerialComLatencyHistogram.NUM_BUCKETS - 1, SerialComLatencyHistogram.indexOf(Long.MAX_VALUE));
+	}
+
+	@Test(timeout=5000)
+	public void testPercentilesAndReset() {
+		SerialComLatencyHistogram histogram = new SerialComLatencyHistogram();
+		for(int x = 1; x <= 10000; x++) {
+			histogram.record(x * 1000L);
+		}
+		SerialComHistogramSnapshot snapshot = histogram.snapshotAndReset();
+		assertEquals(10000, snapshot.getCount());
+		assertEquals(1000, snapshot.getMin());
+		assertEquals(10000000, snapshot.getMax());
+		assertEquals(5000500, snapshot.getMean());
+		assertTrue(Math.abs(snapshot.getValueAtPercentile(50) - 5000000) <= 160000);
+		assertTrue(Math.abs(snapshot.getValueAtPercentile(99) - 9900000) <= 310000);
+		assertEquals(10000000, snapshot.getValueAtPercentile(100));
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+import static org.junit.Assert.assertEquals;
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Test;
+
+public class SerialComMetricsRegistryTests {
+
+	@Test(timeout=5000)
+	public void testPortMetricsOverJMX() throws Exception {
+		SerialComMetricsRegistry registry = new SerialComMetricsRegistry(true);
+		SerialComPortMetrics metrics = registry.portOpened(7, "/dev/ttyUSB0");
+		metrics.recordRead(10, 2000);
+		metrics.recordRead(0);
+		metrics.recordRead(-1);
+		metrics.recordWrite(5);
+		metrics.recordWrite(-1);
+		for(int x = 1; x <= 100; x++) {
+			metrics.recordListenerCallback(x * 1000L);
+		}
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = server.queryNames(new ObjectName(SerialComMetricsRegistry.JMX_DOMAIN + ":type=SerialComPort,handle=7,*"), 
+				null).iterator().next();
+		assertEquals(10L, server.getAttribute(name, "BytesRead"));
+		assertEquals(3L, server.getAttribute(name, "ReadCalls"));
+		assertEquals(1L, server.getAttribute(name, "EmptyReads"));
+		assertEquals(1L, server.getAttribute(name, "ReadFailures"));
+		assertEquals(1L, server.getAttribute(name, "WriteFailures"));
+		assertEquals(100L, server.getAttribute(name, "ListenerCallbacks"));
+		assertEquals(50L, server.getAttribute(name, "ListenerCallbackMeanMicros"));
+		assertEquals(100L, server.getAttribute(name, "ListenerCallbackMaxMicros"));
+		assertEquals(2L, server.getAttribute(name, "ReadCallP99Micros"));
+		assertEquals(5L, registry.getManagerMetrics().getBytesWritten());
+		assertEquals(1, registry.getManagerMetrics().getOpenPorts());
+
+		registry.portClosed(7);
+		assertEquals(0, server.queryNames(name, null).size());
+		assertEquals(1L, registry.getManagerMetrics().getPortsClosed());
+		registry.close();
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComManager.BAUDRATE;
+import com.embeddedunveiled.serial.SerialComManager.DATABITS;
+import com.embeddedunveiled.serial.SerialComManager.FTPPROTO;
+import com.embeddedunveiled.serial.SerialComManager.FTPVAR;
+import com.embeddedunveiled.serial.SerialComManager.PARITY;
+import com.embeddedunveiled.serial.SerialComManager.STOPBITS;
+
+public class SerialComVirtualTransportTests {
+
+	@Test(timeout=5000)
+	public void testDataAndControlLines() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+
+		scm.writeString(handleA, "hello", 0);
+		assertEquals("hello", scm.readString(handleB));
+		assertEquals(null, scm.readBytes(handleB));
+
+		assertEquals(SerialComManager.CTS, scm.getLinesStatus(handleB)[0]);
+		scm.setRTS(handleA, false);
+		assertEquals(0, scm.getLinesStatus(handleB)[0]);
+		scm.setDTR(handleA, false);
+		assertEquals(0, scm.getLinesStatus(handleB)[1]);
+		transport.setRingIndicator("vport1", true);
+		assertEquals(SerialComManager.RI, scm.getLinesStatus(handleB)[3]);
+
+		transport.injectReadFailures("vport1", 1);
+		scm.writeString(handleA, "x", 0);
+		boolean failed = false;
+		try {
+			scm.readBytes(handleB);
+		}catch (SerialComException e) {
+			failed = true;
+		}
+		assertTrue(failed);
+		assertEquals("x", scm.readString(handleB));
+
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+
+	@Test(timeout=5000)
+	public void testListenerAndLineErrors() throws Exception {
+		final AtomicInteger received = new AtomicInteger();
+		final AtomicInteger lastError = new AtomicInteger();
+		ISerialComDataListener listener = new ISerialComDataListener() {
+			@Override
+			public void onNewSerialDataAvailable(byte[] data) {
+				received.addAndGet(data.length);
+			}
+			@Override
+			public void onDataListenerError(int errorNum) {
+				lastError.set(errorNum);
+			}
+		};
+
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+		scm.registerDataListener(handleB, listener);
+
+		scm.writeBytes(handleA, new byte[3000]);
+		transport.injectLineError("vport1", SerialComVirtualTransport.PARITY_ERROR);
+		while((received.get() < 3000) || (lastError.get() == 0)) {
+			Thread.sleep(5);
+		}
+		assertEquals(SerialComVirtualTransport.PARITY_ERROR, lastError.get());
+
+		scm.unregisterDataListener(handleB, listener);
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+
+	@Test(timeout=5000)
+	public void testBaudRateThrottlingAndUnblock() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		transport.setBaudRateThrottling(true);
+		final SerialComManager scm = new SerialComManager(transport);
+		long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+		scm.configureComPortData(handleA, DATABITS.DB_8, STOPBITS.SB_1, PARITY.P_NONE, BAUDRATE.B9600, 0);
+
+		// 96 characters of 10 bits each take 100 milliseconds at 9600 baud.
+		long start = System.nanoTime();
+		scm.writeBytes(handleA, new byte[96]);
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		assertTrue(elapsed >= 95);
+		assertEquals(96, scm.readBytes(handleB).length);
+
+		final long context = scm.createBlockingIOContext();
+		new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(50);
+					scm.unblockBlockingIOOperation(context);
+				} catch (Exception e) {
+				}
+			}
+		}.start();
+		String msg = null;
+		try {
+			scm.readBytes(handleB, new byte[16], 0, 16, context);
+		}catch (SerialComException e) {
+			msg = e.getExceptionMsg();
+		}
+		assertEquals(SerialComManager.EXP_UNBLOCKIO, msg);
+		scm.destroyBlockingIOContext(context);
+
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+
+	@Test(timeout=20000)
+	public void testXmodemTransferWithBitErrors() throws Exception {
+		SerialComVirtualTransport transport = new SerialComVirtualTransport();
+		transport.createPortPair("vport0", "vport1");
+		transport.injectCorruption("vport0", 1000, 1234);
+		final SerialComManager scm = new SerialComManager(transport);
+		final long handleA = scm.openComPort("vport0", true, true, true);
+		long handleB = scm.openComPort("vport1", true, true, true);
+
+		byte[] content = new byte[2 * 1024];
+		new Random(1).nextBytes(content);
+		final File src = File.createTempFile("scmvt", ".bin");
+		File dst = File.createTempFile("scmvt", ".rcv");
+		src.deleteOnExit();
+		dst.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(src);
+		out.write(content);
+		out.close();
+
+		Thread sender = new Thread() {
+			public void run() {
+				try {
+					scm.sendFile(handleA, src, FTPPROTO.XMODEM, FTPVAR.CRC, false, null, null);
+				} catch (Exception e) {
+				}
+			}
+		};
+		sender.start();
+		assertTrue(scm.receiveFile(handleB, dst, FTPPROTO.XMODEM, FTPVAR.CRC, false, null, null));
+		sender.join();
+
+		byte[] received = new byte[content.length];
+		java.io.FileInputStream in = new java.io.FileInputStream(dst);
+		int total = 0;
+		while(total < received.length) {
+			int ret = in.read(received, total, received.length - total);
+			if(ret < 0) {
+				break;
+			}
+			total = total + ret;
+		}
+		in.close();
+		assertTrue(Arrays.equals(content, received));
+
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+	}
+
+	@Test(timeout=5000)
+	public void testNextArrivalCountsArrivedBytes() throws Exception {
+		Object lock = new Object();
+		SerialComVirtualPort port = new SerialComVirtualPort("vport0", lock);
+		synchronized(lock) {
+			// 10 bytes start arriving at 1000 ns, one every 100 ns.
+			port.receive(new byte[10], 1000, 100);
+			assertEquals(100, port.nextArrivalIn(1000));
+			// 3 bytes have arrived but none has been read, 4th one arrives at 1400 ns.
+			assertEquals(50, port.nextArrivalIn(1350));
+			assertEquals(3, port.read(new byte[10], 0, 10, 1350));
+			assertEquals(50, port.nextArrivalIn(1350));
+			assertEquals(0, port.nextArrivalIn(2000));
+		}
+	}
+
+	@Test(timeout=5000)
+	public void testNativeOnlyOperationsNotSupported() throws Exception {
+		SerialComManager scm = new SerialComManager(new SerialComVirtualTransport());
+		String msg = null;
+		try {
+			scm.isUSBDevConnected(0x0403, 0x6001, null);
+		} catch (SerialComException e) {
+			msg = e.getMessage();
+		}
+		assertEquals("This operation is not supported by the transport given to SerialComManager !", msg);
+		msg = null;
+		try {
+			scm.getSerialComUSBInstance();
+		} catch (SerialComException e) {
+			msg = e.getMessage();
+		}
+		assertEquals("This operation is not supported by the transport given to SerialComManager !", msg);
+	}
+}
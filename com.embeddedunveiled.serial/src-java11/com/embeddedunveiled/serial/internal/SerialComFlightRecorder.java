@@ -0,0 +1,297 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.internal;
+
+import com.embeddedunveiled.serial.ISerialComUSBHotPlugListener;
+import com.embeddedunveiled.serial.usb.SerialComUSB;
+
+import jdk.jfr.EventType;
+
+/**
+ * <p>Emits Java Flight Recorder events for serial port operations. This is the Java 11 version of 
+ * this class, packed in META-INF/versions/11 of the library jar. Public methods are same as those of 
+ * the Java 1.6 version which does nothing.</p>
+ * 
+ * <p>Whether an event type is enabled in any running recording is checked before an event object 
+ * is allocated, so when nothing is being recorded cost is a field read per operation. Durational 
+ * events are committed only when they last longer than their threshold; defaults are 20 ms for 
+ * open/close and 10 ms for read, write and listener dispatch and can be changed in recording 
+ * settings, for example :</p>
+ * <p>-XX:StartFlightRecording:settings=serial.jfc or<br/>
+ * recording.enable("com.embeddedunveiled.serial.PortRead").withThreshold(Duration.ofMillis(1));</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComFlightRecorder {
+
+	private static final EventType OPEN = EventType.getEventType(SerialComPortOpenEvent.class);
+	private static final EventType CLOSE = EventType.getEventType(SerialComPortCloseEvent.class);
+	private static final EventType READ = EventType.getEventType(SerialComPortReadEvent.class);
+	private static final EventType WRITE = EventType.getEventType(SerialComPortWriteEvent.class);
+	private static final EventType DISPATCH = EventType.getEventType(SerialComListenerDispatchEvent.class);
+	private static final EventType XMODEM_RETRY = EventType.getEventType(SerialComXModemRetryEvent.class);
+	private static final EventType HOTPLUG = EventType.getEventType(SerialComUSBHotPlugEvent.class);
+
+	/**
+	 * <p>Records USB hot plug events and then calls application's listener.</p>
+	 */
+	private static final class HotPlugListener implements ISerialComUSBHotPlugListener {
+
+		private final ISerialComUSBHotPlugListener listener;
+
+		HotPlugListener(ISerialComUSBHotPlugListener listener) {
+			this.listener = listener;
+		}
+
+		@Override
+		public void onUSBHotPlugEvent(int event, int USBVID, int USBPID, String serialNumber) {
+			if(!HOTPLUG.isEnabled()) {
+				listener.onUSBHotPlugEvent(event, USBVID, USBPID, serialNumber);
+				return;
+			}
+			SerialComUSBHotPlugEvent jfrEvent = new SerialComUSBHotPlugEvent();
+			jfrEvent.begin();
+			try {
+				listener.onUSBHotPlugEvent(event, USBVID, USBPID, serialNumber);
+			} finally {
+				jfrEvent.end();
+				if(jfrEvent.shouldCommit()) {
+					jfrEvent.added = (event == SerialComUSB.DEV_ADDED);
+					jfrEvent.vendorId = USBVID;
+					jfrEvent.productId = USBPID;
+					jfrEvent.serialNumber = serialNumber;
+					jfrEvent.commit();
+				}
+			}
+		}
+	}
+
+	private SerialComFlightRecorder() {
+	}
+
+	/**
+	 * <p>Starts timing opening of a port.</p>
+	 * 
+	 * @return event to be passed to endOpen or null if event is not enabled.
+	 */
+	public static Object beginOpen() {
+		if(!OPEN.isEnabled()) {
+			return null;
+		}
+		SerialComPortOpenEvent event = new SerialComPortOpenEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * <p>Records opening of a port if it took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginOpen.
+	 * @param portName name of the port opened.
+	 * @param handle handle of the port opened.
+	 */
+	public static void endOpen(Object event, String portName, long handle) {
+		if(event == null) {
+			return;
+		}
+		SerialComPortOpenEvent jfrEvent = (SerialComPortOpenEvent) event;
+		jfrEvent.end();
+		if(jfrEvent.shouldCommit()) {
+			jfrEvent.portName = portName;
+			jfrEvent.handle = handle;
+			jfrEvent.commit();
+		}
+	}
+
+	/**
+	 * <p>Starts timing closing of a port.</p>
+	 * 
+	 * @return event to be passed to endClose or null if event is not enabled.
+	 */
+	public static Object beginClose() {
+		if(!CLOSE.isEnabled()) {
+			return null;
+		}
+		SerialComPortCloseEvent event = new SerialComPortCloseEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * <p>Records closing of a port if it took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginClose.
+	 * @param handle handle of the port closed.
+	 */
+	public static void endClose(Object event, long handle) {
+		if(event == null) {
+			return;
+		}
+		SerialComPortCloseEvent jfrEvent = (SerialComPortCloseEvent) event;
+		jfrEvent.end();
+		if(jfrEvent.shouldCommit()) {
+			jfrEvent.handle = handle;
+			jfrEvent.commit();
+		}
+	}
+
+	/**
+	 * <p>Starts timing a native read.</p>
+	 * 
+	 * @return event to be passed to endRead or null if event is not enabled.
+	 */
+	public static Object beginRead() {
+		if(!READ.isEnabled()) {
+			return null;
+		}
+		SerialComPortReadEvent event = new SerialComPortReadEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * <p>Records a native read if it took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginRead.
+	 * @param handle handle of the port read.
+	 * @param numBytes number of bytes read or -1 if read failed.
+	 */
+	public static void endRead(Object event, long handle, int numBytes) {
+		if(event == null) {
+			return;
+		}
+		SerialComPortReadEvent jfrEvent = (SerialComPortReadEvent) event;
+		jfrEvent.end();
+		if(jfrEvent.shouldCommit()) {
+			jfrEvent.handle = handle;
+			jfrEvent.numBytes = numBytes;
+			jfrEvent.commit();
+		}
+	}
+
+	/**
+	 * <p>Starts timing a native write.</p>
+	 * 
+	 * @return event to be passed to endWrite or null if event is not enabled.
+	 */
+	public static Object beginWrite() {
+		if(!WRITE.isEnabled()) {
+			return null;
+		}
+		SerialComPortWriteEvent event = new SerialComPortWriteEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * <p>Records a native write if it took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginWrite.
+	 * @param handle handle of the port written.
+	 * @param numBytes number of bytes written or -1 if write failed.
+	 */
+	public static void endWrite(Object event, long handle, int numBytes) {
+		if(event == null) {
+			return;
+		}
+		SerialComPortWriteEvent jfrEvent = (SerialComPortWriteEvent) event;
+		jfrEvent.end();
+		if(jfrEvent.shouldCommit()) {
+			jfrEvent.handle = handle;
+			jfrEvent.numBytes = numBytes;
+			jfrEvent.commit();
+		}
+	}
+
+	/**
+	 * <p>Tells whether listener dispatch events are being recorded, in which case time at which data 
+	 * is queued for data listener should be noted.</p>
+	 * 
+	 * @return true if listener dispatch event is enabled.
+	 */
+	public static boolean isListenerDispatchEnabled() {
+		return DISPATCH.isEnabled();
+	}
+
+	/**
+	 * <p>Starts timing delivery of data to a data listener.</p>
+	 * 
+	 * @return event to be passed to endListenerDispatch or null if event is not enabled.
+	 */
+	public static Object beginListenerDispatch() {
+		if(!DISPATCH.isEnabled()) {
+			return null;
+		}
+		SerialComListenerDispatchEvent event = new SerialComListenerDispatchEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * <p>Records delivery of data to data listener if listener took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginListenerDispatch.
+	 * @param numBytes number of bytes delivered.
+	 * @param queueWaitNanos time data spent in queue before delivery or -1 if not known.
+	 */
+	public static void endListenerDispatch(Object event, int numBytes, long queueWaitNanos) {
+		if(event == null) {
+			return;
+		}
+		SerialComListenerDispatchEvent jfrEvent = (SerialComListenerDispatchEvent) event;
+		jfrEvent.end();
+		if(jfrEvent.shouldCommit()) {
+			jfrEvent.numBytes = numBytes;
+			jfrEvent.queueWait = queueWaitNanos;
+			jfrEvent.commit();
+		}
+	}
+
+	/**
+	 * <p>Records re-sending of a block (sender) or request to re-send a block (receiver) in 
+	 * xmodem file transfer.</p>
+	 * 
+	 * @param handle handle of the port on which file is being transferred.
+	 * @param protocol variant of xmodem protocol in use.
+	 * @param sending true if file is being sent, false if it is being received.
+	 * @param blockNumber number of block being retried.
+	 */
+	public static void xmodemRetry(long handle, String protocol, boolean sending, int blockNumber) {
+		if(!XMODEM_RETRY.isEnabled()) {
+			return;
+		}
+		SerialComXModemRetryEvent jfrEvent = new SerialComXModemRetryEvent();
+		jfrEvent.handle = handle;
+		jfrEvent.protocol = protocol;
+		jfrEvent.sending = sending;
+		jfrEvent.blockNumber = blockNumber;
+		jfrEvent.commit();
+	}
+
+	/**
+	 * <p>Gives listener to be registered with native layer for USB hot plug events. Returned listener 
+	 * records the event and time taken by application's listener when hot plug events are enabled.</p>
+	 * 
+	 * @param listener listener given by application.
+	 * @return listener to be registered.
+	 */
+	public static ISerialComUSBHotPlugListener wrapHotPlugListener(ISerialComUSBHotPlugListener listener) {
+		return new HotPlugListener(listener);
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Opening of a serial port.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@Name("com.embeddedunveiled.serial.PortOpen")
+@Label("Serial Port Open")
+@Category({ "Serial Communication Manager", "Port" })
+@Description("Opening of a serial port")
+@Threshold("20 ms")
+final class SerialComPortOpenEvent extends jdk.jfr.Event {
+
+	@Label("Port Name")
+	String portName;
+
+	@Label("Handle")
+	long handle;
+}
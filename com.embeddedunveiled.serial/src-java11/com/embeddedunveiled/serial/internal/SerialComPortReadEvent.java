@@ -0,0 +1,48 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Non-blocking native read on a serial port.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@Name("com.embeddedunveiled.serial.PortRead")
+@Label("Serial Port Read")
+@Category({ "Serial Communication Manager", "Port I/O" })
+@Description("Native read on a serial port, number of bytes is -1 if read failed")
+@Threshold("10 ms")
+@StackTrace(false)
+final class SerialComPortReadEvent extends jdk.jfr.Event {
+
+	@Label("Handle")
+	long handle;
+
+	@Label("Bytes")
+	@DataAmount(DataAmount.BYTES)
+	int numBytes;
+}
@@ -0,0 +1,52 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>USB device added to or removed from system. Duration of event is time taken by the 
+ * application's hot plug listener.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@Name("com.embeddedunveiled.serial.USBHotPlug")
+@Label("USB Hot Plug")
+@Category({ "Serial Communication Manager", "USB" })
+@Description("USB device added or removed, duration is time spent in hot plug listener")
+@StackTrace(false)
+final class SerialComUSBHotPlugEvent extends jdk.jfr.Event {
+
+	@Label("Added")
+	@Description("True if device was added, false if it was removed")
+	boolean added;
+
+	@Label("Vendor Id")
+	int vendorId;
+
+	@Label("Product Id")
+	int productId;
+
+	@Label("Serial Number")
+	String serialNumber;
+}
@@ -0,0 +1,49 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p>Re-sending of a block, or request to re-send a block, in xmodem file transfer.</p>
+ * 
+ * @author Rishi Gupta
+ */
+@Name("com.embeddedunveiled.serial.XModemRetry")
+@Label("XMODEM Block Retry")
+@Category({ "Serial Communication Manager", "File Transfer" })
+@Description("Block re-sent by sender or re-requested by receiver in xmodem file transfer")
+final class SerialComXModemRetryEvent extends jdk.jfr.Event {
+
+	@Label("Handle")
+	long handle;
+
+	@Label("Protocol")
+	String protocol;
+
+	@Label("Sending")
+	@Description("True if file is being sent, false if it is being received")
+	boolean sending;
+
+	@Label("Block Number")
+	int blockNumber;
+}
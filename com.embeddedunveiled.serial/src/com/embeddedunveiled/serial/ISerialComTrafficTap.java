@@ -0,0 +1,58 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>The interface ISerialComTrafficTap should be implemented by class who wish to observe all data 
+ * written to and read from serial ports through SerialComManager, for example to trace or record 
+ * traffic. A tap is set using SerialComManager.setTrafficTap method.</p>
+ * 
+ * <p>Methods are called in the thread which performed the read or write, right after the operation 
+ * completed, so they should return quickly. Data delivered to data listeners is given in the thread 
+ * which queues it for the listener. Data must not be modified or referenced after method returns.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface ISerialComTrafficTap {
+
+	/**
+	 * <p>Called when data has been read from or written to a serial port using a byte array.</p>
+	 * 
+	 * @param portName name of the serial port.
+	 * @param outbound true if data was written to port, false if it was read from port.
+	 * @param data buffer containing data.
+	 * @param offset index in data of first byte.
+	 * @param length number of bytes transferred.
+	 */
+	public abstract void onDataTransferred(String portName, boolean outbound, byte[] data, int offset, int length);
+
+	/**
+	 * <p>Called when data has been read from or written to a serial port using a direct byte buffer. 
+	 * Position, limit and mark of the buffer are not meaningful.</p>
+	 * 
+	 * @param portName name of the serial port.
+	 * @param outbound true if data was written to port, false if it was read from port.
+	 * @param data buffer containing data.
+	 * @param offset index in data of first byte.
+	 * @param length number of bytes transferred.
+	 */
+	public abstract void onDataTransferred(String portName, boolean outbound, ByteBuffer data, int offset, int length);
+}
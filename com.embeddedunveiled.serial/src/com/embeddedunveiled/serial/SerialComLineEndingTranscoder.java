@@ -0,0 +1,172 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+/**
+ * <p>Converts line endings in a stream of text data which is given to it in chunks. Every CR, LF, 
+ * CR LF and LF CR sequence in input is replaced by the configured line ending. Optionally all ^Z 
+ * characters (used as EOF padding by file transfer protocols) are removed.</p>
+ * 
+ * <p>Input is scanned for next CR, LF (or ^Z) and the run of bytes before it is copied as a whole 
+ * using System.arraycopy, so for typical text files the cost is close to that of a plain copy.</p>
+ * 
+ * <p>A CR or LF at the end of a chunk is kept pending till next chunk (or call to finish) as it may 
+ * be first half of a CR LF / LF CR sequence.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComLineEndingTranscoder {
+
+	private static final byte CR  = 0x0D;
+	private static final byte LF  = 0x0A;
+	private static final byte SUB = 0x1A;
+
+	private final byte[] lineEnding;
+	private final boolean stripSUB;
+	private byte pendingLineEndByte; // 0 if no CR or LF is pending.
+
+	/**
+	 * <p>Allocates a new SerialComLineEndingTranscoder object.</p>
+	 * 
+	 * @param lineEnding bytes to be used as line ending in output.
+	 * @param stripSUB if true ^Z characters are removed from output.
+	 */
+	SerialComLineEndingTranscoder(byte[] lineEnding, boolean stripSUB) {
+		this.lineEnding = lineEnding.clone();
+		this.stripSUB = stripSUB;
+	}
+
+	/**
+	 * <p>Creates transcoder for data to be sent to remote end. Lines are terminated by CR LF as 
+	 * required by file transfer protocols irrespective of operating system.</p>
+	 * 
+	 * @return transcoder to be used by sender.
+	 */
+	static SerialComLineEndingTranscoder forSending() {
+		return new SerialComLineEndingTranscoder(new byte[] { CR, LF }, false);
+	}
+
+	/**
+	 * <p>Creates transcoder for data received from remote end. Lines are terminated by CR LF on 
+	 * Windows and LF on all other operating systems, ^Z padding is removed.</p>
+	 * 
+	 * @param osType operating system on which this application is running.
+	 * @return transcoder to be used by receiver.
+	 */
+	static SerialComLineEndingTranscoder forReceiving(int osType) {
+		if(osType == SerialComManager.OS_WINDOWS) {
+			return new SerialComLineEndingTranscoder(new byte[] { CR, LF }, true);
+		}
+		return new SerialComLineEndingTranscoder(new byte[] { LF }, true);
+	}
+
+	/**
+	 * <p>Gives size of output buffer which is enough to hold result of transcoding given number of 
+	 * input bytes (including a pending byte from previous chunk).</p>
+	 * 
+	 * @param inputLength number of bytes to be transcoded in one call.
+	 * @return number of bytes needed in output buffer.
+	 */
+	int maxOutputLength(int inputLength) {
+		return (inputLength + 1) * lineEnding.length;
+	}
+
+	/**
+	 * <p>Transcodes given chunk of data.</p>
+	 * 
+	 * @param src buffer containing input data.
+	 * @param offset index in src from where input starts.
+	 * @param length number of input bytes.
+	 * @param dst buffer in which output will be saved; must have maxOutputLength(length) bytes space 
+	 *         starting at dstOffset.
+	 * @param dstOffset index in dst from where output will be saved.
+	 * @return number of bytes saved in dst.
+	 */
+	int transcode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+		int x = offset;
+		int q = dstOffset;
+		int runStart = 0;
+		int end = offset + length;
+		byte data = 0;
+
+		while(x < end) {
+			if(pendingLineEndByte != 0) {
+				data = src[x];
+				if((data == SUB) && (stripSUB == true)) {
+					x++;
+					continue;
+				}
+				if(((data == CR) || (data == LF)) && (data != pendingLineEndByte)) {
+					// CR LF or LF CR, both bytes together represent one line ending.
+					x++;
+				}
+				q = appendLineEnding(dst, q);
+				pendingLineEndByte = 0;
+				continue;
+			}
+
+			// find run of bytes which can be copied as is.
+			runStart = x;
+			while(x < end) {
+				data = src[x];
+				if((data == CR) || (data == LF) || ((data == SUB) && (stripSUB == true))) {
+					break;
+				}
+				x++;
+			}
+			if(x > runStart) {
+				System.arraycopy(src, runStart, dst, q, x - runStart);
+				q = q + (x - runStart);
+			}
+
+			if(x < end) {
+				if(data != SUB) {
+					pendingLineEndByte = data;
+				}
+				x++;
+			}
+		}
+
+		return q - dstOffset;
+	}
+
+	/**
+	 * <p>Writes line ending for CR or LF still pending at end of input.</p>
+	 * 
+	 * @param dst buffer in which output will be saved; must have at least 2 bytes space.
+	 * @param dstOffset index in dst from where output will be saved.
+	 * @return number of bytes saved in dst.
+	 */
+	int finish(byte[] dst, int dstOffset) {
+		if(pendingLineEndByte == 0) {
+			return 0;
+		}
+		pendingLineEndByte = 0;
+		return appendLineEnding(dst, dstOffset) - dstOffset;
+	}
+
+	private int appendLineEnding(byte[] dst, int index) {
+		if(lineEnding.length == 1) {
+			dst[index] = lineEnding[0];
+			return index + 1;
+		}
+		System.arraycopy(lineEnding, 0, dst, index, lineEnding.length);
+		return index + lineEnding.length;
+	}
+}
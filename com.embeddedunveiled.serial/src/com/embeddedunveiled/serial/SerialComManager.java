@@ -33,6 +33,7 @@ import com.embeddedunveiled.serial.internal.ISerialIOStream;
 import com.embeddedunveiled.serial.internal.SerialComBluetoothJNIBridge;
 import com.embeddedunveiled.serial.internal.SerialComCompletionDispatcher;
 import com.embeddedunveiled.serial.internal.SerialComDBReleaseJNIBridge;
+import com.embeddedunveiled.serial.internal.SerialComFlightRecorder;
 import com.embeddedunveiled.serial.internal.SerialComHIDJNIBridge;
 import com.embeddedunveiled.serial.internal.SerialComLooper;
 import com.embeddedunveiled.serial.internal.SerialComPlatform;
@@ -42,6 +43,9 @@ import com.embeddedunveiled.serial.internal.SerialComPortMapperJNIBridge;
 import com.embeddedunveiled.serial.internal.SerialComPortsList;
 import com.embeddedunveiled.serial.internal.SerialComSystemProperty;
 import com.embeddedunveiled.serial.mapper.SerialComPortMapper;
+import com.embeddedunveiled.serial.metrics.SerialComMetricsRegistry;
+import com.embeddedunveiled.serial.metrics.SerialComPortMetrics;
+import com.embeddedunveiled.serial.transport.ISerialComTransport;
 import com.embeddedunveiled.serial.usb.SerialComUSB;
 import com.embeddedunveiled.serial.usb.SerialComUSBdevice;
 import com.embeddedunveiled.serial.vendor.SerialComVendorLib;
@@ -506,9 +510,20 @@ public final class SerialComManager {
 	private SerialComPlatform mSerialComPlatform;
 	private final SerialComSystemProperty mSerialComSystemProperty;
 	private final SerialComPortJNIBridge mComPortJNIBridge;
+	private final ISerialComTransport mTransport;
 	private final SerialComCompletionDispatcher mEventCompletionDispatcher;
 	private final SerialComPortsList mSerialComPortsList;
 	private final Object lockB = new Object();
+	private volatile ISerialComTrafficTap mTrafficTap;
+	private volatile SerialComMetricsRegistry mMetrics;
+	// copy of opened ports replaced under lockB, so that tapping reads port names without locking.
+	private volatile SerialComPortHandleInfo[] mTappedPorts = new SerialComPortHandleInfo[0];
+	private final ThreadLocal<byte[]> mTappedByte = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[1];
+		}
+	};
 
 	private static int osType;
 	private static int cpuArch;
@@ -546,24 +561,7 @@ public final class SerialComManager {
 	public SerialComManager() throws SecurityException, IOException {
 
 		mSerialComSystemProperty = new SerialComSystemProperty();
-		synchronized(lockA) {
-			if(osType <= 0) {
-				mSerialComPlatform = new SerialComPlatform(mSerialComSystemProperty);
-				osType = mSerialComPlatform.getOSType();
-				if(osType == OS_UNKNOWN) {
-					throw new SerialComException("Could not identify operating system. Please report to us your environemnt so that we can add support for it !");
-				}
-				cpuArch = mSerialComPlatform.getCPUArch(osType);
-				if(cpuArch == ARCH_UNKNOWN) {
-					throw new SerialComException("Could not identify CPU architecture. Please report to us your environemnt so that we can add support for it !");
-				}
-				if((cpuArch == ARCH_ARMV7) || (cpuArch == ARCH_ARMV6) || (cpuArch == ARCH_ARMV5)) {
-					if(osType == OS_LINUX) {
-						javaABIType = mSerialComPlatform.getJAVAABIType();
-					}
-				}
-			}
-		}
+		identifyPlatform();
 
 		mComPortJNIBridge = new SerialComPortJNIBridge();
 		if(nativeLibLoadAndInitAlready == false) {
@@ -572,8 +570,9 @@ public final class SerialComManager {
 			nativeLibLoadAndInitAlready = true;
 		}
 
-		mEventCompletionDispatcher = new SerialComCompletionDispatcher(mComPortJNIBridge, mPortHandleInfo);
-		mSerialComPortsList = new SerialComPortsList(mComPortJNIBridge, osType);
+		mTransport = mComPortJNIBridge;
+		mEventCompletionDispatcher = new SerialComCompletionDispatcher(mTransport, mPortHandleInfo);
+		mSerialComPortsList = new SerialComPortsList(mTransport, osType);
 	}
 
 	/**
@@ -634,6 +633,64 @@ public final class SerialComManager {
 		}
 
 		mSerialComSystemProperty = new SerialComSystemProperty();
+		identifyPlatform();
+
+		mComPortJNIBridge = new SerialComPortJNIBridge();
+		if(nativeLibLoadAndInitAlready == false) {
+			SerialComPortJNIBridge.loadNativeLibrary(directoryPath, loadedLibName, mSerialComSystemProperty, osType, cpuArch, javaABIType);
+			mComPortJNIBridge.initNativeLib();
+			nativeLibLoadAndInitAlready = true;
+		}
+		mTransport = mComPortJNIBridge;
+		mEventCompletionDispatcher = new SerialComCompletionDispatcher(mTransport, mPortHandleInfo);
+		mSerialComPortsList = new SerialComPortsList(mTransport, osType);
+	}
+
+	/**
+	 * <p>Allocates a new SerialComManager object which performs all serial port operations through the 
+	 * given transport instead of native library. Native library is not extracted or loaded, so this 
+	 * can be used for example with SerialComVirtualTransport to test and benchmark applications and 
+	 * this library on machines without any serial port hardware or null modem driver.</p>
+	 * 
+	 * <p>Operations which are not part of ISerialComTransport (USB, bluetooth, IOCTL, hot plug, vendor 
+	 * libraries etc.) are not available on an instance created through this constructor; methods of 
+	 * this class performing them throw SerialComException.</p>
+	 * 
+	 * @param transport transport to be used for serial port operations.
+	 * @throws SecurityException if java system properties can not be accessed.
+	 * @throws SerialComUnexpectedException if java system property is null.
+	 * @throws FileNotFoundException if file "/proc/cpuinfo" can not be found for Linux on ARM platform.
+	 * @throws IOException if file operations on "/proc/cpuinfo" fails for Linux on ARM platform.
+	 * @throws IllegalArgumentException if transport is null.
+	 */
+	public SerialComManager(ISerialComTransport transport) throws SecurityException, IOException {
+		if(transport == null) {
+			throw new IllegalArgumentException("Argument transport can not be null !");
+		}
+
+		mSerialComSystemProperty = new SerialComSystemProperty();
+		identifyPlatform();
+
+		mComPortJNIBridge = null;
+		mTransport = transport;
+		mEventCompletionDispatcher = new SerialComCompletionDispatcher(mTransport, mPortHandleInfo);
+		mSerialComPortsList = new SerialComPortsList(mTransport, osType);
+	}
+
+	/*
+	 * Gives native library bridge for operations which are not part of ISerialComTransport.
+	 */
+	private SerialComPortJNIBridge getNativeBridge() throws SerialComException {
+		if(mComPortJNIBridge == null) {
+			throw new SerialComException("This operation is not supported by the transport given to SerialComManager !");
+		}
+		return mComPortJNIBridge;
+	}
+
+	/*
+	 * Identifies operating system type, CPU architecture and java ABI once per JVM.
+	 */
+	private void identifyPlatform() throws SecurityException, IOException {
 		synchronized(lockA) {
 			if(osType <= 0) {
 				mSerialComPlatform = new SerialComPlatform(mSerialComSystemProperty);
@@ -652,15 +709,6 @@ public final class SerialComManager {
 				}
 			}
 		}
-
-		mComPortJNIBridge = new SerialComPortJNIBridge();
-		if(nativeLibLoadAndInitAlready == false) {
-			SerialComPortJNIBridge.loadNativeLibrary(directoryPath, loadedLibName, mSerialComSystemProperty, osType, cpuArch, javaABIType);
-			mComPortJNIBridge.initNativeLib();
-			nativeLibLoadAndInitAlready = true;
-		}
-		mEventCompletionDispatcher = new SerialComCompletionDispatcher(mComPortJNIBridge, mPortHandleInfo);
-		mSerialComPortsList = new SerialComPortsList(mComPortJNIBridge, osType);
 	}
 
 	/**
@@ -671,7 +719,7 @@ public final class SerialComManager {
 	 */
 	public String getLibraryVersions() throws SerialComException {
 		String version = null;
-		String nativeLibversion = mComPortJNIBridge.getNativeLibraryVersion();
+		String nativeLibversion = getNativeBridge().getNativeLibraryVersion();
 		if(nativeLibversion != null) {
 			version = "Java lib version: " + JAVA_LIB_VERSION + "\n" + "Native lib version: " + nativeLibversion;
 		}else {
@@ -772,7 +820,7 @@ public final class SerialComManager {
 		if((vendorFilter < 0) || (vendorFilter > 0XFFFF)) {
 			throw new IllegalArgumentException("Argument vendorFilter can not be negative or greater than 0xFFFF !");
 		}
-		String[] usbDevicesInfo = mComPortJNIBridge.listUSBdevicesWithInfo(vendorFilter);
+		String[] usbDevicesInfo = getNativeBridge().listUSBdevicesWithInfo(vendorFilter);
 
 		if(usbDevicesInfo != null) {
 			if(usbDevicesInfo.length < 4) {
@@ -832,7 +880,7 @@ public final class SerialComManager {
 			serialNum = serialNumber.toLowerCase();
 		}
 
-		String[] comPortsInfo = mComPortJNIBridge.findComPortFromUSBAttribute(usbVidToMatch, usbPidToMatch, serialNum);
+		String[] comPortsInfo = getNativeBridge().findComPortFromUSBAttribute(usbVidToMatch, usbPidToMatch, serialNum);
 		if(comPortsInfo == null) {
 			throw new SerialComException("Could not find COM port for given device. Please retry !");
 		}
@@ -852,7 +900,7 @@ public final class SerialComManager {
 		int i = 0;
 		int numOfDevices = 0;
 		SerialComBluetoothSPPDevNode[] btSerialNodesFound = null;
-		String[] btSerialNodesInfo = mComPortJNIBridge.listBTSPPDevNodesWithInfo();
+		String[] btSerialNodesInfo = getNativeBridge().listBTSPPDevNodesWithInfo();
 
 		if(btSerialNodesInfo != null) {
 			if(btSerialNodesInfo.length < 2) {
@@ -944,13 +992,20 @@ public final class SerialComManager {
 				}
 			}
 
-			handle = mComPortJNIBridge.openComPort(portNameVal, enableRead, enableWrite, exclusiveOwnerShip);
+			Object jfrEvent = SerialComFlightRecorder.beginOpen();
+			handle = mTransport.openComPort(portNameVal, enableRead, enableWrite, exclusiveOwnerShip);
+			SerialComFlightRecorder.endOpen(jfrEvent, portNameVal, handle);
 			if(handle < 0) {
 				/* JNI should have already thrown exception, this is an extra check to increase reliability of program. */
 				throw new SerialComException("Could not open the port " + portNameVal + ". Please retry !");
 			}
 
 			mPortHandleInfo.put(handle, new SerialComPortHandleInfo(portNameVal, handle, null, null, null));
+			updateTappedPorts();
+			SerialComMetricsRegistry metrics = mMetrics;
+			if(metrics != null) {
+				metrics.portOpened(handle, portNameVal);
+			}
 		}
 
 		return handle;
@@ -994,13 +1049,20 @@ public final class SerialComManager {
 				throw new IllegalStateException("Output byte stream must be closed before closing the serial port !");
 			}
 
-			int ret = mComPortJNIBridge.closeComPort(handle);
+			Object jfrEvent = SerialComFlightRecorder.beginClose();
+			int ret = mTransport.closeComPort(handle);
+			SerialComFlightRecorder.endClose(jfrEvent, handle);
 			if(ret < 0) {
 				throw new SerialComException("Could not close the given serial port. Please retry !");
 			}
 
 			/* delete info about this port/handle from global information object. */
 			mPortHandleInfo.remove(handle);
+			updateTappedPorts();
+			SerialComMetricsRegistry metrics = mMetrics;
+			if(metrics != null) {
+				metrics.portClosed(handle);
+			}
 		}
 
 		return true;
@@ -1038,10 +1100,20 @@ public final class SerialComManager {
 			throw new IllegalArgumentException("Argument delay can not be negative !");
 		}
 
-		int ret = mComPortJNIBridge.writeBytes(handle, buffer, delay);
+		boolean timed = (mMetrics != null);
+		long callStart = timed ? System.nanoTime() : 0;
+		Object jfrEvent = SerialComFlightRecorder.beginWrite();
+		int ret = mTransport.writeBytes(handle, buffer, delay);
+		SerialComFlightRecorder.endWrite(jfrEvent, handle, (ret < 0) ? -1 : buffer.length);
+		if(mMetrics != null) {
+			recordWrite(handle, (ret < 0) ? -1 : buffer.length, timed, callStart);
+		}
 		if(ret < 0) {
 			throw new SerialComException("Could not write data to serial port. Please retry !");
 		}
+		if(mTrafficTap != null) {
+			tapTraffic(handle, true, buffer, 0, buffer.length);
+		}
 		return true;
 	}
 
@@ -1071,11 +1143,23 @@ public final class SerialComManager {
 	 * @throws SerialComException if an I/O error occurs.
 	 */
 	public boolean writeSingleByte(long handle, byte dataByte) throws SerialComException {
-		int ret = mComPortJNIBridge.writeSingleByte(handle, dataByte);
+		boolean timed = (mMetrics != null);
+		long callStart = timed ? System.nanoTime() : 0;
+		Object jfrEvent = SerialComFlightRecorder.beginWrite();
+		int ret = mTransport.writeSingleByte(handle, dataByte);
+		SerialComFlightRecorder.endWrite(jfrEvent, handle, (ret < 0) ? -1 : 1);
+		if(mMetrics != null) {
+			recordWrite(handle, (ret < 0) ? -1 : 1, timed, callStart);
+		}
 		if(ret < 0) {
 			/* extra check */
 			throw new SerialComException("Could not write given byte to serial port. Please retry !");
 		}
+		if(mTrafficTap != null) {
+			byte[] tapped = mTappedByte.get();
+			tapped[0] = dataByte;
+			tapTraffic(handle, true, tapped, 0, 1);
+		}
 		return true;
 	}
 
@@ -1290,10 +1374,20 @@ public final class SerialComManager {
 			return 0;
 		}
 
-		int ret = mComPortJNIBridge.writeBytesDirect(handle, buffer, offset, length);
+		boolean timed = (mMetrics != null);
+		long callStart = timed ? System.nanoTime() : 0;
+		Object jfrEvent = SerialComFlightRecorder.beginWrite();
+		int ret = mTransport.writeBytesDirect(handle, buffer, offset, length);
+		SerialComFlightRecorder.endWrite(jfrEvent, handle, ret);
+		if(mMetrics != null) {
+			recordWrite(handle, ret, timed, callStart);
+		}
 		if(ret < 0) {
 			throw new SerialComException("Could not write given data to serial port. Please retry !");
 		}
+		if((mTrafficTap != null) && (ret > 0)) {
+			tapTraffic(handle, true, buffer, offset, ret);
+		}
 		return ret;
 	}
 
@@ -1346,10 +1440,20 @@ public final class SerialComManager {
 			return 0;
 		}
 
-		int ret = mComPortJNIBridge.readBytesDirect(handle, buffer, offset, length);
+		boolean timed = (mMetrics != null);
+		long callStart = timed ? System.nanoTime() : 0;
+		Object jfrEvent = SerialComFlightRecorder.beginRead();
+		int ret = mTransport.readBytesDirect(handle, buffer, offset, length);
+		SerialComFlightRecorder.endRead(jfrEvent, handle, ret);
+		if(mMetrics != null) {
+			recordRead(handle, ret, timed, callStart);
+		}
 		if(ret < 0) {
 			throw new SerialComException("Could not read data from serial port and place into direct byte buffer. Please retry !");
 		}
+		if((mTrafficTap != null) && (ret > 0)) {
+			tapTraffic(handle, false, buffer, offset, ret);
+		}
 		return ret;
 	}
 
@@ -1362,7 +1466,7 @@ public final class SerialComManager {
 	 * @throws SerialComException if an I/O error occurs.
 	 */
 	public long createBlockingIOContext() throws SerialComException {
-		long ret = mComPortJNIBridge.createBlockingIOContext();
+		long ret = mTransport.createBlockingIOContext();
 		if(ret < 0) {
 			throw new SerialComException("Could not create blocking I/O context. Please retry !");
 		}
@@ -1380,7 +1484,7 @@ public final class SerialComManager {
 	 * @throws SerialComException if an I/O error occurs.
 	 */
 	public boolean unblockBlockingIOOperation(long context) throws SerialComException {
-		int ret = mComPortJNIBridge.unblockBlockingIOOperation(context);
+		int ret = mTransport.unblockBlockingIOOperation(context);
 		if(ret < 0) {
 			throw new SerialComException("Could not unblock the blocked I/O operation. Please retry !");
 		}
@@ -1397,7 +1501,7 @@ public final class SerialComManager {
 	 * @throws SerialComException if an I/O error occurs.
 	 */
 	public boolean destroyBlockingIOContext(long context) throws SerialComException {
-		int ret = mComPortJNIBridge.destroyBlockingIOContext(context);
+		int ret = mTransport.destroyBlockingIOContext(context);
 		if(ret < 0) {
 			throw new SerialComException("Could not destroy blocking I/O context. Please retry !");
 		}
@@ -1432,10 +1536,16 @@ public final class SerialComManager {
 			throw new SerialComException("Number of bytes to read can not be greater than 2048 !");
 		}
 		byte[] buffer = null;
-		buffer = mComPortJNIBridge.readBytesBlocking(handle, byteCount, context);
+		buffer = mTransport.readBytesBlocking(handle, byteCount, context);
+		if(mMetrics != null) {
+			recordRead(handle, (buffer != null) ? buffer.length : 0, false, 0);
+		}
 
 		if(buffer != null) {
 			// data read from serial port, pass to application
+			if(mTrafficTap != null) {
+				tapTraffic(handle, false, buffer, 0, buffer.length);
+			}
 			return buffer;
 		}else {
 			// not possible for blocking call, just keeping it
@@ -1462,8 +1572,18 @@ public final class SerialComManager {
 		if(byteCount > 2048) {
 			throw new SerialComException("Number of bytes to read can not be greater than 2048 !");
 		}
-		byte[] buffer = mComPortJNIBridge.readBytes(handle, byteCount);
+		boolean timed = (mMetrics != null);
+		long callStart = timed ? System.nanoTime() : 0;
+		Object jfrEvent = SerialComFlightRecorder.beginRead();
+		byte[] buffer = mTransport.readBytes(handle, byteCount);
+		SerialComFlightRecorder.endRead(jfrEvent, handle, (buffer != null) ? buffer.length : 0);
+		if(mMetrics != null) {
+			recordRead(handle, (buffer != null) ? buffer.length : 0, timed, callStart);
+		}
 		if(buffer != null) {
+			if(mTrafficTap != null) {
+				tapTraffic(handle, false, buffer, 0, buffer.length);
+			}
 			return buffer; // data read from serial port, pass it the to application
 		}else {
 			return null;  // serial port does not have any data
@@ -1573,13 +1693,163 @@ public final class SerialComManager {
 			return 0;
 		}
 
-		int numberOfBytesRead = mComPortJNIBridge.readBytesP(handle, buffer, offset, length, context);
+		// in blocking mode call time is mostly waiting for data, so it is not recorded.
+		boolean timed = (mMetrics != null) && (context == -1);
+		long callStart = timed ? System.nanoTime() : 0;
+		Object jfrEvent = (context == -1) ? SerialComFlightRecorder.beginRead() : null;
+		int numberOfBytesRead = mTransport.readBytesP(handle, buffer, offset, length, context);
+		SerialComFlightRecorder.endRead(jfrEvent, handle, numberOfBytesRead);
+		if(mMetrics != null) {
+			recordRead(handle, numberOfBytesRead, timed, callStart);
+		}
 		if(numberOfBytesRead < 0) {
 			throw new SerialComException("Could not read data from serial port. Please retry !");
 		}
+		if((mTrafficTap != null) && (numberOfBytesRead > 0)) {
+			tapTraffic(handle, false, buffer, offset, numberOfBytesRead);
+		}
 		return numberOfBytesRead;
 	}
 
+	/**
+	 * <p>Sets a tap which will be given all data written to and read from serial ports using read and 
+	 * write methods of this SerialComManager instance, as well as data delivered to data listeners. 
+	 * When no tap is set, the only cost is a check of a volatile field per read and write.</p>
+	 * 
+	 * @param tap tap to be set or null to remove the current tap.
+	 */
+	public void setTrafficTap(ISerialComTrafficTap tap) {
+		synchronized(lockB) {
+			mTrafficTap = tap;
+			for(Map.Entry<Long, SerialComPortHandleInfo> entry : mPortHandleInfo.entrySet()) {
+				SerialComPortHandleInfo handleInfo = entry.getValue();
+				SerialComLooper looper = handleInfo.getLooper();
+				if(looper != null) {
+					looper.setTrafficTap(tap, handleInfo.getOpenedPortName());
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Starts collecting run time metrics (bytes in/out, read/write calls and failures, latency 
+	 * histograms of native read/write calls, data looper queue depth, time spent by data in data looper 
+	 * queue, dropped data chunks and data listener callback durations) for this manager and all 
+	 * ports opened through it. If registerMBeans is true, metrics are also registered as MBeans in the 
+	 * platform MBean server so that they can be watched using tools like JConsole or VisualVM.</p>
+	 * 
+	 * <p>When metrics are not enabled, the cost is a check of a volatile field per read and write.</p>
+	 * 
+	 * @param registerMBeans true if metrics should be exposed through JMX.
+	 * @return registry holding the metrics.
+	 * @throws SerialComException if MBeans could not be registered.
+	 */
+	public SerialComMetricsRegistry enableMetrics(boolean registerMBeans) throws SerialComException {
+		synchronized(lockB) {
+			if(mMetrics != null) {
+				return mMetrics;
+			}
+			SerialComMetricsRegistry metrics = new SerialComMetricsRegistry(registerMBeans);
+			for(Map.Entry<Long, SerialComPortHandleInfo> entry : mPortHandleInfo.entrySet()) {
+				SerialComPortHandleInfo handleInfo = entry.getValue();
+				metrics.portOpened(handleInfo.getPortHandle(), handleInfo.getOpenedPortName());
+				attachLooperMetrics(metrics, handleInfo);
+			}
+			mMetrics = metrics;
+			return metrics;
+		}
+	}
+
+	/**
+	 * <p>Stops collecting run time metrics and unregisters MBeans (if registered).</p>
+	 */
+	public void disableMetrics() {
+		synchronized(lockB) {
+			SerialComMetricsRegistry metrics = mMetrics;
+			if(metrics == null) {
+				return;
+			}
+			mMetrics = null;
+			for(Map.Entry<Long, SerialComPortHandleInfo> entry : mPortHandleInfo.entrySet()) {
+				SerialComLooper looper = entry.getValue().getLooper();
+				if(looper != null) {
+					looper.setMetrics(null);
+				}
+			}
+			metrics.close();
+		}
+	}
+
+	/**
+	 * <p>Gives registry holding run time metrics.</p>
+	 * 
+	 * @return registry or null if metrics are not enabled.
+	 */
+	public SerialComMetricsRegistry getMetrics() {
+		return mMetrics;
+	}
+
+	private void attachLooperMetrics(SerialComMetricsRegistry metrics, SerialComPortHandleInfo handleInfo) {
+		SerialComLooper looper = handleInfo.getLooper();
+		SerialComPortMetrics portMetrics = metrics.getPortMetrics(handleInfo.getPortHandle());
+		if((looper != null) && (portMetrics != null)) {
+			looper.setMetrics(portMetrics);
+			portMetrics.setLooper(looper);
+		}
+	}
+
+	/* Records a read, callStart is time native call was started if timed is true (call was measured). */
+	private void recordRead(long handle, int numBytes, boolean timed, long callStart) {
+		long callNanos = timed ? (System.nanoTime() - callStart) : -1;
+		SerialComMetricsRegistry metrics = mMetrics;
+		SerialComPortMetrics portMetrics = (metrics != null) ? metrics.getPortMetrics(handle) : null;
+		if(portMetrics != null) {
+			portMetrics.recordRead(numBytes, callNanos);
+		}
+	}
+
+	/* Records a write, callStart is time native call was started if timed is true (call was measured). */
+	private void recordWrite(long handle, int numBytes, boolean timed, long callStart) {
+		long callNanos = timed ? (System.nanoTime() - callStart) : -1;
+		SerialComMetricsRegistry metrics = mMetrics;
+		SerialComPortMetrics portMetrics = (metrics != null) ? metrics.getPortMetrics(handle) : null;
+		if(portMetrics != null) {
+			portMetrics.recordWrite(numBytes, callNanos);
+		}
+	}
+
+	/* Gives data to traffic tap along with name of the port it belongs to. */
+	private void tapTraffic(long handle, boolean outbound, byte[] data, int offset, int length) {
+		ISerialComTrafficTap tap = mTrafficTap;
+		String portName = getTappedPortName(handle);
+		if((tap != null) && (portName != null)) {
+			tap.onDataTransferred(portName, outbound, data, offset, length);
+		}
+	}
+
+	private void tapTraffic(long handle, boolean outbound, ByteBuffer data, int offset, int length) {
+		ISerialComTrafficTap tap = mTrafficTap;
+		String portName = getTappedPortName(handle);
+		if((tap != null) && (portName != null)) {
+			tap.onDataTransferred(portName, outbound, data, offset, length);
+		}
+	}
+
+	private String getTappedPortName(long handle) {
+		SerialComPortHandleInfo[] ports = mTappedPorts;
+		for(int x = 0; x < ports.length; x++) {
+			if(ports[x].getPortHandle() == handle) {
+				return ports[x].getOpenedPortName();
+			}
+		}
+		return null;
+	}
+
+	/* called with lockB held whenever a port is opened or closed. */
+	private void updateTappedPorts() {
+		mTappedPorts = mPortHandleInfo.values().toArray(new SerialComPortHandleInfo[mPortHandleInfo.size()]);
+	}
+
 	/**
 	 * <p>This method configures the rate at which communication will occur and the format of UART frame.
 	 * This method must be called before configureComPortControl method.</p>
@@ -1641,7 +1911,7 @@ public final class SerialComManager {
 			custBaudTranslated = custBaud;
 		}
 
-		int ret = mComPortJNIBridge.configureComPortData(handle, dataBits.getValue(), stopBits.getValue(), parity.getValue(), baudRateTranslated, custBaudTranslated);
+		int ret = mTransport.configureComPortData(handle, dataBits.getValue(), stopBits.getValue(), parity.getValue(), baudRateTranslated, custBaudTranslated);
 		if(ret < 0) {
 			/* extra check */
 			throw new SerialComException("Could not configure the serial port. Please retry !");
@@ -1680,7 +1950,7 @@ public final class SerialComManager {
 		int xonCh = (int) xon;
 		int xoffCh = (int) xoff;
 
-		int ret = mComPortJNIBridge.configureComPortControl(handle, flowctrl.getValue(), ((byte) xonCh), ((byte) xoffCh), ParFraError, overFlowErr);
+		int ret = mTransport.configureComPortControl(handle, flowctrl.getValue(), ((byte) xonCh), ((byte) xoffCh), ParFraError, overFlowErr);
 		if(ret < 0) {
 			/* extra check */
 			throw new SerialComException("Could not configure serial port. Please retry !");
@@ -1714,7 +1984,7 @@ public final class SerialComManager {
 
 		if(getOSType() != OS_WINDOWS) {
 			// for unix-like os
-			int[] config = mComPortJNIBridge.getCurrentConfigurationU(handle);
+			int[] config = mTransport.getCurrentConfigurationU(handle);
 			String[] configuration = new String[config.length];
 			if(config[0] < 0) {
 				throw new SerialComException("Could not determine current configuration. Please retry !");
@@ -1726,7 +1996,7 @@ public final class SerialComManager {
 			return configuration;
 		}else {
 			// for windows os
-			String[] configuration = mComPortJNIBridge.getCurrentConfigurationW(handle);
+			String[] configuration = mTransport.getCurrentConfigurationW(handle);
 			return configuration;
 		}
 	}
@@ -1756,7 +2026,7 @@ public final class SerialComManager {
 	 * @throws SerialComException if system is unable to complete requested operation.
 	 */
 	public boolean setRTS(long handle, boolean enabled) throws SerialComException {
-		int ret = mComPortJNIBridge.setRTS(handle, enabled);
+		int ret = mTransport.setRTS(handle, enabled);
 		if(ret < 0) {
 			throw new SerialComException("Could not set RTS line to desired state. Please retry !");
 		}
@@ -1781,7 +2051,7 @@ public final class SerialComManager {
 	 * @throws SerialComException if system is unable to complete requested operation.
 	 */
 	public boolean setDTR(long handle, boolean enabled) throws SerialComException {
-		int ret = mComPortJNIBridge.setDTR(handle, enabled);
+		int ret = mTransport.setDTR(handle, enabled);
 		if(ret < 0) {
 			throw new SerialComException("Could not set DTR line to desired state. Please retry !");
 		}
@@ -1822,7 +2092,13 @@ public final class SerialComManager {
 				throw new SerialComException("Data listener already exist for this handle. A handle can have only one data listener !");
 			}
 
-			return mEventCompletionDispatcher.setUpDataLooper(handle, handleInfo, dataListener);
+			boolean ret = mEventCompletionDispatcher.setUpDataLooper(handle, handleInfo, dataListener);
+			SerialComMetricsRegistry metrics = mMetrics;
+			if(metrics != null) {
+				attachLooperMetrics(metrics, handleInfo);
+			}
+			handleInfo.getLooper().setTrafficTap(mTrafficTap, handleInfo.getOpenedPortName());
+			return ret;
 		}
 	}
 
@@ -2023,7 +2299,7 @@ public final class SerialComManager {
 			throw new SerialComException("Given handle does not represent a serial port opened through SCM !");
 		}
 
-		ret = mComPortJNIBridge.fineTuneRead(handle, vmin, vtime, rit, rttm, rttc);
+		ret = mTransport.fineTuneRead(handle, vmin, vtime, rit, rttm, rttc);
 		if(ret < 0) {
 			throw new SerialComException("Could not set the given parameters. Please retry !");
 		}
@@ -2131,7 +2407,7 @@ public final class SerialComManager {
 			throw new IllegalArgumentException("Both arguments clearRxBuffer and clearTxBuffer can not be false !");
 		}
 
-		int ret = mComPortJNIBridge.clearPortIOBuffers(handle, clearRxBuffer, clearTxBuffer);
+		int ret = mTransport.clearPortIOBuffers(handle, clearRxBuffer, clearTxBuffer);
 		if(ret < 0) {
 			throw new SerialComException("Could not clear the buffers for the given port. Please retry !");
 		}
@@ -2174,7 +2450,7 @@ public final class SerialComManager {
 			throw new IllegalArgumentException("Argument duration can not be negative or zero !");
 		}
 
-		mComPortJNIBridge.sendBreak(handle, duration);
+		mTransport.sendBreak(handle, duration);
 
 		return true;
 	}
@@ -2199,7 +2475,7 @@ public final class SerialComManager {
 			throw new SerialComException("Given handle does not represent a serial port opened through SCM !");
 		}
 
-		interruptsCount = mComPortJNIBridge.getInterruptCount(handle);
+		interruptsCount = mTransport.getInterruptCount(handle);
 		if(interruptsCount == null) {
 			throw new SerialComException("Unknown error occurred !");
 		}
@@ -2226,7 +2502,7 @@ public final class SerialComManager {
 			throw new SerialComException("Given handle does not represent a serial port opened through SCM !");
 		}
 
-		status = mComPortJNIBridge.getLinesStatus(handle);
+		status = mTransport.getLinesStatus(handle);
 		if(status == null) {
 			throw new SerialComException("Failed to get line status for the given handle. Please retry !");
 		}
@@ -2254,7 +2530,7 @@ public final class SerialComManager {
 			throw new IllegalArgumentException("Argument comPortName string can not be greater than 256 in length !");
 		}
 
-		String driverName = mComPortJNIBridge.findDriverServingComPort(comPortName);
+		String driverName = getNativeBridge().findDriverServingComPort(comPortName);
 		if(driverName == null) {
 			throw new SerialComException("Failed to find driver serving the given serial port. Please retry !");
 		}
@@ -2269,7 +2545,7 @@ public final class SerialComManager {
 	 * @throws SerialComException if operation can not be completed successfully.
 	 */
 	public String findIRQnumberForComPort(long handle) throws SerialComException {
-		String addressAndIRQ = mComPortJNIBridge.findIRQnumberForComPort(handle);
+		String addressAndIRQ = getNativeBridge().findIRQnumberForComPort(handle);
 		if(addressAndIRQ == null) {
 			throw new SerialComException("Failed to find IRQ and address for the given serial port. Please retry !");
 		}
@@ -2294,7 +2570,7 @@ public final class SerialComManager {
 			throw new SerialComException("Given handle does not represent a serial port opened through SCM !");
 		}
 
-		int[] numBytesInfo = mComPortJNIBridge.getByteCount(handle);
+		int[] numBytesInfo = mTransport.getByteCount(handle);
 		if(numBytesInfo == null) {
 			throw new SerialComException("Could not determine number of bytes in buffer. Please retry !");
 		}
@@ -2357,7 +2633,8 @@ public final class SerialComManager {
 		}
 
 		synchronized(lockB) {
-			opaqueHandle = mComPortJNIBridge.registerUSBHotPlugEventListener(hotPlugListener, filterVID, filterPID, serialNumber);
+			opaqueHandle = getNativeBridge().registerUSBHotPlugEventListener(SerialComFlightRecorder.wrapHotPlugListener(hotPlugListener), 
+					filterVID, filterPID, serialNumber);
 			if(opaqueHandle < 0) {
 				throw new SerialComException("Could not register USB device hotplug listener. Please retry !");
 			}
@@ -2383,7 +2660,7 @@ public final class SerialComManager {
 		}
 
 		synchronized(lockB) {
-			ret = mComPortJNIBridge.unregisterUSBHotPlugEventListener(opaqueHandle);
+			ret = getNativeBridge().unregisterUSBHotPlugEventListener(opaqueHandle);
 		}
 
 		if(ret < 0) {
@@ -2440,6 +2717,38 @@ public final class SerialComManager {
 	public boolean sendFile(long handle, final java.io.File fileToSend, FTPPROTO ftpProto, FTPVAR ftpVariant, 
 			boolean textMode, ISerialComXmodemProgress progressListener, SerialComXModemAbort transferState) throws SerialComException, SecurityException,
 			FileNotFoundException, SerialComTimeOutException, IOException {
+		return sendFile(handle, fileToSend, ftpProto, ftpVariant, textMode, progressListener, transferState, null);
+	}
+
+	/**
+	 * <p>Send given file using specified file transfer protocol.</p>
+	 * 
+	 * @param handle of the port on which file is to be sent.
+	 * @param fileToSend File instance representing file to be sent.
+	 * @param ftpProto file transfer protocol to use for communication over serial port.
+	 * @param ftpVariant variant of file transfer protocol to use.
+	 * @param textMode if true file will be sent as text file (ASCII mode), if false file will be sent as binary file.
+	 *         The text file must contain only valid ASCII characters.
+	 * @param progressListener object of class which implements ISerialComXmodemProgress interface and is interested in knowing
+	 *         how many blocks have been sent to file receiver till now. If progressListener is null, update will not 
+	 *         be delivered to application.
+	 * @param transferState if application wish to abort sending file at instant of time due to any reason, it can call 
+	 *         abortTransfer method on this object. If the application does not wishes to abort sending file explicitly 
+	 *         transferState can be null.
+	 * @param transferStats object in which statistics (throughput, retries, round trip time etc.) about this 
+	 *         transfer will be collected. It can be null if application is not interested in statistics.
+	 * @return true on success, false if application instructed to abort.
+	 * @throws SerialComException if invalid handle is passed.
+	 * @throws SecurityException If a security manager exists and its SecurityManager.checkRead(java.lang.String) method denies read access to the file.
+	 * @throws FileNotFoundException if the file does not exist, is a directory rather than a regular file, or for some other reason cannot be opened for reading.
+	 * @throws SerialComTimeOutException if timeout occurs as per file transfer protocol.
+	 * @throws IOException if error occurs while reading data from file to be sent.
+	 * @throws IllegalArgumentException if fileToSend or ftpProto or ftpVariant or ftpMode argument is null.
+	 */
+	public boolean sendFile(long handle, final java.io.File fileToSend, FTPPROTO ftpProto, FTPVAR ftpVariant, 
+			boolean textMode, ISerialComXmodemProgress progressListener, SerialComXModemAbort transferState, 
+			SerialComXModemStats transferStats) throws SerialComException, SecurityException,
+			FileNotFoundException, SerialComTimeOutException, IOException {
 
 		int protocol = 0;
 		int variant = 0;
@@ -2463,13 +2772,13 @@ public final class SerialComManager {
 		variant = ftpVariant.getValue();
 		if(protocol == 1) {
 			if((variant == 0) || (variant == 1)) {
-				SerialComXModem xmodem = new SerialComXModem(this, handle, fileToSend, textMode, progressListener, transferState, osType);
+				SerialComXModem xmodem = new SerialComXModem(this, handle, fileToSend, textMode, progressListener, transferState, transferStats, osType);
 				result = xmodem.sendFileX();
 			}else if(variant == 2) {
-				SerialComXModemCRC xmodem = new SerialComXModemCRC(this, handle, fileToSend, textMode, progressListener, transferState, osType);
+				SerialComXModemCRC xmodem = new SerialComXModemCRC(this, handle, fileToSend, textMode, progressListener, transferState, transferStats, osType);
 				result = xmodem.sendFileX();
 			}else if(variant == 3) {
-				SerialComXModem1K xmodem = new SerialComXModem1K(this, handle, fileToSend, textMode, progressListener, transferState, osType);
+				SerialComXModem1K xmodem = new SerialComXModem1K(this, handle, fileToSend, textMode, progressListener, transferState, transferStats, osType);
 				result = xmodem.sendFileX();
 			}else {
 			}
@@ -2486,6 +2795,10 @@ public final class SerialComManager {
 	/**
 	 * <p>Receives file using specified file transfer protocol.</p>
 	 * 
+	 * <p>In binary mode, progress is saved in a checkpoint file (name of fileToReceive with suffix .scmcp) 
+	 * every few blocks. If reception fails, next reception of the same file keeps data already received 
+	 * and does not write it again. The checkpoint file is deleted once file is received completely.</p>
+	 * 
 	 * @param handle of the port on which file is to be sent.
 	 * @param fileToReceive File instance representing file to be sent.
 	 * @param ftpProto file transfer protocol to use for communication over serial port.
@@ -2508,6 +2821,41 @@ public final class SerialComManager {
 	public boolean receiveFile(long handle, final java.io.File fileToReceive, FTPPROTO ftpProto, FTPVAR ftpVariant, 
 			boolean textMode, ISerialComXmodemProgress progressListener, SerialComXModemAbort transferState) throws SerialComException, SecurityException, 
 			FileNotFoundException, SerialComTimeOutException, IOException {
+		return receiveFile(handle, fileToReceive, ftpProto, ftpVariant, textMode, progressListener, transferState, null);
+	}
+
+	/**
+	 * <p>Receives file using specified file transfer protocol.</p>
+	 * 
+	 * <p>In binary mode, progress is saved in a checkpoint file (name of fileToReceive with suffix .scmcp) 
+	 * every few blocks. If reception fails, next reception of the same file keeps data already received 
+	 * and does not write it again. The checkpoint file is deleted once file is received completely.</p>
+	 * 
+	 * @param handle of the port on which file is to be sent.
+	 * @param fileToReceive File instance representing file to be sent.
+	 * @param ftpProto file transfer protocol to use for communication over serial port.
+	 * @param ftpVariant variant of file transfer protocol to use.
+	 * @param textMode if true file will be received as text file (ASCII mode), if false file will be received as binary file.
+	 * @param progressListener object of class which implements ISerialComXmodemProgress interface and is interested in knowing
+	 *         how many blocks have been received from file sender till now. If progressListener is null, update will not 
+	 *         be delivered to application.
+	 * @param transferState if application wish to abort receiving file at instant of time due to any reason, it can call 
+	 *         abortTransfer method on this object. If the application does not wishes to abort receiving file explicitly 
+	 *         transferState can be null.
+	 * @param transferStats object in which statistics (throughput, retries, round trip time etc.) about this 
+	 *         transfer will be collected. It can be null if application is not interested in statistics.
+	 * @return true on success, false if application instructed to abort.
+	 * @throws SerialComException if invalid handle is passed.
+	 * @throws SecurityException If a security manager exists and its SecurityManager.checkRead(java.lang.String) method denies read access to the file.
+	 * @throws FileNotFoundException if the file does not exist, is a directory rather than a regular file, or for some other reason cannot be opened for reading.
+	 * @throws SerialComTimeOutException if timeout occurs as per file transfer protocol.
+	 * @throws IOException if error occurs while reading data from file to be sent.
+	 * @throws IllegalArgumentException if fileToReceive or ftpProto or ftpVariant or ftpMode argument is null.
+	 */
+	public boolean receiveFile(long handle, final java.io.File fileToReceive, FTPPROTO ftpProto, FTPVAR ftpVariant, 
+			boolean textMode, ISerialComXmodemProgress progressListener, SerialComXModemAbort transferState, 
+			SerialComXModemStats transferStats) throws SerialComException, SecurityException, 
+			FileNotFoundException, SerialComTimeOutException, IOException {
 
 		int protocol = 0;
 		int variant = 0;
@@ -2531,13 +2879,13 @@ public final class SerialComManager {
 		variant = ftpVariant.getValue();
 		if(protocol == 1) {
 			if((variant == 0) || (variant == 1)) {
-				SerialComXModem xmodem = new SerialComXModem(this, handle, fileToReceive, textMode, progressListener, transferState, osType);
+				SerialComXModem xmodem = new SerialComXModem(this, handle, fileToReceive, textMode, progressListener, transferState, transferStats, osType);
 				result = xmodem.receiveFileX();
 			}else if(variant == 2) {
-				SerialComXModemCRC xmodem = new SerialComXModemCRC(this, handle, fileToReceive, textMode, progressListener, transferState, osType);
+				SerialComXModemCRC xmodem = new SerialComXModemCRC(this, handle, fileToReceive, textMode, progressListener, transferState, transferStats, osType);
 				result = xmodem.receiveFileX();
 			}else if(variant == 3) {
-				SerialComXModem1K xmodem = new SerialComXModem1K(this, handle, fileToReceive, textMode, progressListener, transferState, osType);
+				SerialComXModem1K xmodem = new SerialComXModem1K(this, handle, fileToReceive, textMode, progressListener, transferState, transferStats, osType);
 				result = xmodem.receiveFileX();
 			}else {
 			}
@@ -2628,7 +2976,7 @@ public final class SerialComManager {
 		if(mSerialComIOCTLExecutor != null) {
 			return mSerialComIOCTLExecutor;
 		}
-		mSerialComIOCTLExecutor = new SerialComIOCTLExecutor(mComPortJNIBridge);
+		mSerialComIOCTLExecutor = new SerialComIOCTLExecutor(getNativeBridge());
 		return mSerialComIOCTLExecutor;
 	}
 
@@ -2651,7 +2999,7 @@ public final class SerialComManager {
 			throw new IllegalArgumentException("Argument productID can not be negative or greater than 0xFFFF !");
 		}
 
-		int ret = mComPortJNIBridge.isUSBDevConnected(vendorID, productID, serialNumber);
+		int ret = getNativeBridge().isUSBDevConnected(vendorID, productID, serialNumber);
 		if(ret < 0) {
 			throw new SerialComException("Unknown error occurred !");
 		}else if(ret == 1) {
@@ -2719,7 +3067,7 @@ public final class SerialComManager {
 		if(mSerialComUSB != null) {
 			return mSerialComUSB;
 		}
-		mSerialComUSB = new SerialComUSB(mComPortJNIBridge);
+		mSerialComUSB = new SerialComUSB(getNativeBridge());
 		return mSerialComUSB;
 	}
 
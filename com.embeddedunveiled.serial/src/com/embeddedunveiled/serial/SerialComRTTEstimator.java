@@ -0,0 +1,147 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+/**
+ * <p>Estimates round trip time of a block and derives retransmission timeout from it for file
+ * transfer protocols. The algorithm is same as used by TCP (Jacobson/Karels, RFC 6298); smoothed
+ * round trip time and its mean deviation are maintained and timeout is SRTT + 4 * RTTVAR. On every
+ * timeout the value is doubled (exponential back off) until a fresh sample is taken.</p>
+ *
+ * <p>Caller should not feed samples for blocks which were re-sent (Karn's algorithm) as it can not
+ * be known whether the acknowledgement was for first or re-sent block.</p>
+ *
+ * @author Rishi Gupta
+ */
+final class SerialComRTTEstimator {
+
+	private final long minRTO;
+	private final long maxRTO;
+	private final int minPollInterval;
+	private final int maxPollInterval;
+	private long srtt = -1;   // smoothed round trip time in microseconds, -1 means no sample yet.
+	private long rttvar = 0;  // mean deviation of round trip time in microseconds.
+	private long rto;         // current retransmission timeout in milliseconds.
+	private int pollInterval; // delay between two successive read attempts in milliseconds.
+	private int numSamples;
+
+	/**
+	 * <p>Allocates a new SerialComRTTEstimator object.</p>
+	 *
+	 * @param initialRTO timeout in milliseconds to be used till first sample is taken.
+	 * @param minRTO lower bound for timeout in milliseconds.
+	 * @param maxRTO upper bound for timeout in milliseconds.
+	 * @param initialPollInterval delay in milliseconds between two read attempts till first sample is taken.
+	 * @param minPollInterval lower bound for delay between two read attempts in milliseconds.
+	 * @param maxPollInterval upper bound for delay between two read attempts in milliseconds.
+	 */
+	SerialComRTTEstimator(long initialRTO, long minRTO, long maxRTO, int initialPollInterval,
+			int minPollInterval, int maxPollInterval) {
+		this.minRTO = minRTO;
+		this.maxRTO = maxRTO;
+		this.minPollInterval = minPollInterval;
+		this.maxPollInterval = maxPollInterval;
+		this.rto = initialRTO;
+		this.pollInterval = initialPollInterval;
+	}
+
+	/**
+	 * <p>Updates estimate with newly measured round trip time.</p>
+	 *
+	 * @param sampleNanos measured round trip time in nanoseconds.
+	 */
+	void addSample(long sampleNanos) {
+		long sample = sampleNanos / 1000;
+		if(sample < 0) {
+			return;
+		}
+
+		if(srtt < 0) {
+			// first measurement.
+			srtt = sample;
+			rttvar = sample >> 1;
+		}else {
+			long err = sample - srtt;
+			srtt = srtt + (err >> 3);                        // srtt = 7/8 srtt + 1/8 sample
+			rttvar = rttvar + ((Math.abs(err) - rttvar) >> 2); // rttvar = 3/4 rttvar + 1/4 |err|
+		}
+		numSamples++;
+
+		rto = (srtt + (rttvar << 2)) / 1000;
+		if(rto < minRTO) {
+			rto = minRTO;
+		}else if(rto > maxRTO) {
+			rto = maxRTO;
+		}
+
+		// poll 4 times in one round trip so that response is noticed early without spinning.
+		pollInterval = (int) (srtt / 4000);
+		if(pollInterval < minPollInterval) {
+			pollInterval = minPollInterval;
+		}else if(pollInterval > maxPollInterval) {
+			pollInterval = maxPollInterval;
+		}
+	}
+
+	/**
+	 * <p>Doubles the retransmission timeout as response did not arrive in expected time.</p>
+	 */
+	void backOff() {
+		rto = rto << 1;
+		if(rto > maxRTO) {
+			rto = maxRTO;
+		}
+	}
+
+	/**
+	 * <p>Gives current retransmission timeout.</p>
+	 *
+	 * @return timeout in milliseconds.
+	 */
+	long getRetransmitTimeOut() {
+		return rto;
+	}
+
+	/**
+	 * <p>Gives delay to be used between two successive attempts to read response.</p>
+	 *
+	 * @return delay in milliseconds.
+	 */
+	int getPollInterval() {
+		return pollInterval;
+	}
+
+	/**
+	 * <p>Gives smoothed round trip time.</p>
+	 *
+	 * @return smoothed round trip time in microseconds or -1 if no sample has been taken yet.
+	 */
+	long getSmoothedRTT() {
+		return srtt;
+	}
+
+	/**
+	 * <p>Gives number of samples taken till now.</p>
+	 *
+	 * @return number of samples.
+	 */
+	int getNumberOfSamples() {
+		return numSamples;
+	}
+}
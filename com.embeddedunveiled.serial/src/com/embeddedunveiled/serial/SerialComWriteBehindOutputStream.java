@@ -0,0 +1,327 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>Output stream which decouples file system latency from the thread writing to it. Bytes written 
+ * are copied in to one of a fixed number of chunks in memory and full chunks are written to file by a 
+ * separate thread. If all chunks are waiting to be written, writer blocks until one becomes free 
+ * (back pressure), so memory used is bounded.</p>
+ * 
+ * <p>The flush method returns when all bytes written till now have been handed over to file system. 
+ * The close method additionally forces them to storage device physically (sync) before returning, 
+ * so when close returns without exception data is durable.</p>
+ * 
+ * <p>The sync method queues a task which the background thread runs once all bytes written before it 
+ * are forced to storage device, without making caller wait for file system.</p>
+ * 
+ * <p>If the background thread fails to write, the exception is re-thrown to the caller from the next 
+ * write, flush or close call.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComWriteBehindOutputStream extends OutputStream {
+
+	private final FileOutputStream fileOutStream;
+	private final BlockingQueue<Chunk> pendingChunks;
+	private final BlockingQueue<Chunk> freeChunks;
+	private final Chunk stopMarker = new Chunk(0);
+	private final Object mWriteLock = new Object();
+	private final Thread mWriterThread;
+	private Chunk current;
+	private long chunksQueued;  // guarded by mWriteLock.
+	private long chunksWritten; // guarded by mWriteLock.
+	private volatile IOException writeError;
+	private boolean closed;
+
+	/**
+	 * <p>Work done by writer thread after bytes written before it are durable.</p>
+	 */
+	interface SyncTask {
+		void run() throws IOException;
+	}
+
+	/* Block of bytes in memory waiting to be written to file, or a sync task if task is not null. */
+	private static final class Chunk {
+		final byte[] data;
+		int length;
+		SyncTask task;
+
+		Chunk(int size) {
+			data = new byte[size];
+		}
+	}
+
+	/**
+	 * <p>This class runs in as a different thread context and keep writing chunks of data to file 
+	 * in the same order in which they were queued.</p>
+	 */
+	private final class FileWriter implements Runnable {
+		@Override
+		public void run() {
+			Chunk chunk = null;
+			while(true) {
+				try {
+					chunk = pendingChunks.take();
+				} catch (InterruptedException e) {
+					continue;
+				}
+				if(chunk == stopMarker) {
+					break;
+				}
+
+				// after first failure keep draining queue so that writer never blocks forever.
+				if(chunk.task != null) {
+					if(writeError == null) {
+						try {
+							fileOutStream.getFD().sync();
+							chunk.task.run();
+						} catch (IOException e) {
+							writeError = e;
+						}
+					}
+				}else {
+					if(writeError == null) {
+						try {
+							fileOutStream.write(chunk.data, 0, chunk.length);
+						} catch (IOException e) {
+							writeError = e;
+						}
+					}
+					chunk.length = 0;
+					freeChunks.offer(chunk);
+				}
+
+				synchronized(mWriteLock) {
+					chunksWritten++;
+					mWriteLock.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComWriteBehindOutputStream object which writes to the given file 
+	 * stream and starts the thread which writes to file.</p>
+	 * 
+	 * @param fileOutStream stream to the file in which data is to be written.
+	 * @param chunkSize size of one chunk in bytes.
+	 * @param numChunks number of chunks; chunkSize * numChunks is maximum memory used for buffering.
+	 * @throws IllegalArgumentException if fileOutStream is null or chunkSize or numChunks is less than 2.
+	 */
+	SerialComWriteBehindOutputStream(FileOutputStream fileOutStream, int chunkSize, int numChunks) {
+		if(fileOutStream == null) {
+			throw new IllegalArgumentException("Argument fileOutStream can not be null !");
+		}
+		if((chunkSize < 2) || (numChunks < 2)) {
+			throw new IllegalArgumentException("Argument chunkSize and numChunks must be greater than 1 !");
+		}
+
+		this.fileOutStream = fileOutStream;
+		pendingChunks = new ArrayBlockingQueue<Chunk>(numChunks + 1); // +1 for stop marker.
+		freeChunks = new ArrayBlockingQueue<Chunk>(numChunks);
+		for(int x = 1; x < numChunks; x++) {
+			freeChunks.offer(new Chunk(chunkSize));
+		}
+		current = new Chunk(chunkSize);
+
+		mWriterThread = new Thread(new FileWriter(), "SCM file writer");
+		mWriterThread.setDaemon(true);
+		mWriterThread.start();
+	}
+
+	/**
+	 * <p>Writes the specified byte to this output stream.</p>
+	 * 
+	 * @param b byte to be written.
+	 * @throws IOException if stream is closed or previous write to file failed.
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		checkState();
+		current.data[current.length] = (byte) b;
+		current.length++;
+		if(current.length == current.data.length) {
+			queueCurrentChunk();
+		}
+	}
+
+	/**
+	 * <p>Writes len bytes from the specified byte array starting at offset off to this output stream.</p>
+	 * 
+	 * @param b data to be written.
+	 * @param off start offset in the data.
+	 * @param len number of bytes to write.
+	 * @throws IOException if stream is closed or previous write to file failed.
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		int numBytesToCopy = 0;
+		checkState();
+		if(b == null) {
+			throw new IllegalArgumentException("Argument b can not be null !");
+		}
+		if((off < 0) || (len < 0) || (len > (b.length - off))) {
+			throw new IndexOutOfBoundsException("Index violation detected in given byte array !");
+		}
+
+		while(len > 0) {
+			numBytesToCopy = current.data.length - current.length;
+			if(numBytesToCopy > len) {
+				numBytesToCopy = len;
+			}
+			System.arraycopy(b, off, current.data, current.length, numBytesToCopy);
+			current.length = current.length + numBytesToCopy;
+			off = off + numBytesToCopy;
+			len = len - numBytesToCopy;
+			if(current.length == current.data.length) {
+				queueCurrentChunk();
+			}
+		}
+	}
+
+	/**
+	 * <p>Blocks until all bytes written till now have been handed over to the file system.</p>
+	 * 
+	 * @throws IOException if stream is closed or write to file failed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkState();
+		if(current.length > 0) {
+			queueCurrentChunk();
+		}
+		synchronized(mWriteLock) {
+			while(chunksWritten != chunksQueued) {
+				try {
+					mWriteLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for data to be written to file !");
+				}
+			}
+		}
+		if(writeError != null) {
+			throw writeError;
+		}
+	}
+
+	/**
+	 * <p>Queues given task which writer thread runs after all bytes written till now have been handed 
+	 * over to file system and forced to storage device. Returns without waiting; failure of sync or 
+	 * task is thrown by next write, flush or close call.</p>
+	 * 
+	 * @param task work to be done once data written till now is durable.
+	 * @throws IOException if stream is closed or previous write to file failed.
+	 */
+	void sync(SyncTask task) throws IOException {
+		checkState();
+		if(current.length > 0) {
+			queueCurrentChunk();
+		}
+		Chunk marker = new Chunk(0);
+		marker.task = task;
+		try {
+			pendingChunks.put(marker);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			writeError = new InterruptedIOException("Interrupted while queuing sync !");
+			throw writeError;
+		}
+		synchronized(mWriteLock) {
+			chunksQueued++;
+		}
+	}
+
+	/**
+	 * <p>Writes all pending bytes to file, forces them to storage device physically, stops the writer 
+	 * thread and closes the file. Calling close on an already closed stream has no effect.</p>
+	 * 
+	 * @throws IOException if any write to file or sync operation failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed == true) {
+			return;
+		}
+		try {
+			flush();
+			fileOutStream.getFD().sync();
+		} finally {
+			closed = true;
+			stopWriterThread();
+			fileOutStream.close();
+		}
+	}
+
+	/* Hands over current chunk to writer thread and takes a free one, waiting if none is free. */
+	private void queueCurrentChunk() throws IOException {
+		try {
+			pendingChunks.put(current);
+			synchronized(mWriteLock) {
+				chunksQueued++;
+			}
+			current = freeChunks.take();
+		} catch (InterruptedException e) {
+			// current chunk may be in queue already, so this stream can not be used any more.
+			Thread.currentThread().interrupt();
+			writeError = new InterruptedIOException("Interrupted while waiting for free buffer !");
+			throw writeError;
+		}
+	}
+
+	private void checkState() throws IOException {
+		if(closed == true) {
+			throw new IOException("Stream is already closed !");
+		}
+		if(writeError != null) {
+			throw writeError;
+		}
+	}
+
+	private void stopWriterThread() {
+		boolean interrupted = false;
+		while(true) {
+			try {
+				pendingChunks.put(stopMarker);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		while(true) {
+			try {
+				mWriterThread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted == true) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -21,13 +21,13 @@ package com.embeddedunveiled.serial;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
 import com.embeddedunveiled.serial.SerialComManager.FTPPROTO;
 import com.embeddedunveiled.serial.SerialComManager.FTPVAR;
 import com.embeddedunveiled.serial.SerialComCRCUtil;
+import com.embeddedunveiled.serial.internal.SerialComFlightRecorder;
 
 /**
  * <p>Implements state machine for XMODEM-CRC file transfer protocol in Java. 
@@ -55,32 +55,23 @@ public final class SerialComXModemCRC {
 	private boolean textMode;
 	private ISerialComXmodemProgress progressListener;
 	private SerialComXModemAbort transferState;
+	private SerialComXModemStats stats;
+	private SerialComRTTEstimator rttEstimator;
 	private int osType;
 
 	private int blockNumber;
 	private byte[] block = new byte[133];   // 133 bytes xmodem block/packet
 	private BufferedInputStream inStream;    // sent file from local to remote system
-	private BufferedOutputStream outStream;  // received file from remote to local system
+	private SerialComWriteBehindOutputStream outStream; // received file from remote to local system
 	private boolean noMoreData;
-	private boolean isFirstDataBytePending = false;
-	private boolean isSecondDataBytePending = false;
-	private boolean isThirdDataBytePending = false;
-	private boolean isLineFeedPending = false;
-	private boolean isCarriageReturnPending = false;
-	private byte firstPendingDataByte;
-	private byte secondPendingDataByte;
-	private byte thirdPendingDataByte;
 	private boolean alreadySentEOFchar = false;
 	private byte[] tmpSendBuffer = new byte[1024];
+	private byte[] tmpTranscodedBuffer = new byte[2050];
+	private int mark = 0;  // index of next byte in tmpTranscodedBuffer to be sent.
+	private int limit = 0; // number of bytes in tmpTranscodedBuffer.
+	private boolean endOfFileReached = false;
+	private SerialComLineEndingTranscoder transcoder;
 	private byte[] tmpReceiveBuffer = new byte[512];
-	private int mark = -1;
-	private int limit = -1;
-	private boolean lastCharacterReceivedWasLF = false;
-	private boolean lastCharacterReceivedWasCR = false;
-	private boolean unprocessedByteInReceivedDataExist = false;
-	private byte unprocessedByteInLastReceivedBlock;
-	private byte data0 = 0;
-	private byte data1 = 0;
 	private long numberOfBlocksSent = 0;     // track how many blocks have been sent till now.
 	private long numberOfBlocksReceived = 0; // track how many blocks have been received till now.
 	private boolean lastCharacterReceivedWasCAN = false;
@@ -106,12 +97,42 @@ public final class SerialComXModemCRC {
 	 */
 	public SerialComXModemCRC(SerialComManager scm, long handle, File fileToProcess, boolean textMode,
 			ISerialComXmodemProgress progressListener, SerialComXModemAbort transferState, int osType) {
+		this(scm, handle, fileToProcess, textMode, progressListener, transferState, null, osType);
+	}
+
+	/**
+	 * <p>Allocates a new SerialComXModemCRC object with given details and associate it with the given 
+	 * instance of SerialComManager class.</p>
+	 * 
+	 * @param scm SerialComManager instance associated with this handle.
+	 * @param handle of the port on which file is to be communicated.
+	 * @param fileToProcess File instance representing file to be communicated.
+	 * @param textMode if true file will be sent as text file (ASCII mode), if false file will be sent 
+	 *         as binary file.
+	 * @param progressListener object of class which implements ISerialComXmodemProgress interface and is 
+	 *         interested in knowing
+	 *         how many blocks have been sent/received till now.
+	 * @param transferState if application wish to abort sending/receiving file at instant of time due to any 
+	 *         reason, it can call abortTransfer method on this object. It can be null of application does not 
+	 *         wish to abort sending/receiving file explicitly.
+	 * @param stats object in which statistics about this transfer will be collected. It can be null if 
+	 *         application is not interested in statistics.
+	 * @param osType operating system on which this application is running.
+	 */
+	public SerialComXModemCRC(SerialComManager scm, long handle, File fileToProcess, boolean textMode,
+			ISerialComXmodemProgress progressListener, SerialComXModemAbort transferState, 
+			SerialComXModemStats stats, int osType) {
 		this.scm = scm;
 		this.handle = handle;
 		this.fileToProcess = fileToProcess;
 		this.textMode = textMode;
 		this.progressListener = progressListener;
 		this.transferState = transferState;
+		if(stats != null) {
+			this.stats = stats;
+		}else {
+			this.stats = new SerialComXModemStats();
+		}
 		this.osType = osType;
 	}
 
@@ -144,6 +165,18 @@ public final class SerialComXModemCRC {
 		long responseWaitTimeOut = 0;
 		long eotAckWaitTimeOutValue = 0;
 		int percentOfBlocksSent = 0;
+		long blockSentTime = 0;
+		boolean blockResent = false;
+
+		/* Timeout for ACK starts at 10 seconds as suggested by protocol and then adapts to the round trip 
+		 * time measured for every block, so that slow links do not time out spuriously and fast links do 
+		 * not wait long on errors. */
+		rttEstimator = new SerialComRTTEstimator(10000, 500, 60000, 120, 1, 120);
+		stats.reset();
+
+		if(textMode == true) {
+			transcoder = SerialComLineEndingTranscoder.forSending();
+		}
 
 		lengthOfFileToProcess = fileToProcess.length();
 		inStream = new BufferedInputStream(new FileInputStream(fileToProcess));
@@ -187,6 +220,7 @@ public final class SerialComXModemCRC {
 					// check if application (file sender) wish to cancel sending file.
 					if((transferState != null) && (transferState.isTransferToBeAborted() == true)) {
 						inStream.close();
+						stats.finish(rttEstimator);
 						scm.writeBytes(handle, abortSequence, 0);
 						return false;
 					}
@@ -208,6 +242,9 @@ public final class SerialComXModemCRC {
 					inStream.close();
 					throw exp;
 				}
+				blockSentTime = System.nanoTime();
+				blockResent = false;
+				stats.addBytesOnLine(block.length);
 				state = WAITACK;
 				break;
 			case RESEND:
@@ -222,26 +259,28 @@ public final class SerialComXModemCRC {
 					inStream.close();
 					throw exp;
 				}
+				blockSentTime = System.nanoTime();
+				blockResent = true;
+				stats.incrementRetries();
+				SerialComFlightRecorder.xmodemRetry(handle, "XMODEM-CRC", true, blockNumber);
+				stats.addBytesOnLine(block.length);
 				state = WAITACK;
 				break;
 			case WAITACK:
-				responseWaitTimeOut = System.currentTimeMillis() + 60000; // 1 minute.
+				responseWaitTimeOut = System.currentTimeMillis() + rttEstimator.getRetransmitTimeOut();
 
 				while(true) {
 					// check if application (file sender) wish to cancel sending file.
 					if((transferState != null) && (transferState.isTransferToBeAborted() == true)) {
 						inStream.close();
+						stats.finish(rttEstimator);
 						scm.writeBytes(handle, abortSequence, 0);
 						return false;
 					}
 
-					// delay before next attempt to read from serial port
+					// delay before next attempt to read from serial port, adapts to round trip time of link.
 					try {
-						if(noMoreData != true) {
-							Thread.sleep(120);
-						}else {
-							Thread.sleep(1500);
-						}
+						Thread.sleep(rttEstimator.getPollInterval());
 					} catch (InterruptedException e) {
 					}
 
@@ -253,28 +292,27 @@ public final class SerialComXModemCRC {
 						throw exp;
 					}
 
-					/* if data received process it. if long timeout occurred abort otherwise retry reading from serial port.
-					 * if nothing received at all abort. */
+					/* if data received process it. if retransmission timeout occurred re-send block (or EOT) with 
+					 * backed off timeout, otherwise retry reading from serial port. RESEND state aborts if too 
+					 * many attempts fail. */
 					if((data != null) && (data.length > 0)) {
 						break;
 					}else {
-						if(noMoreData == true) {
-							state = ENDTX;
-							break;
-						}
 						if(System.currentTimeMillis() >= responseWaitTimeOut) {
+							stats.incrementTimeOuts();
+							rttEstimator.backOff();
 							if(noMoreData == true) {
-								errMsg = "Timedout while waiting for EOT reception acknowledgement from file receiver !";
+								state = ENDTX;
 							}else {
-								errMsg = "Timedout while waiting for block reception acknowledgement from file receiver !";
+								retryCount++;
+								state = RESEND;
 							}
-							state = ABORT;
 							break;
 						}
 					}
 				}
 
-				if((state != ABORT) && (state != ENDTX)) {
+				if(state == WAITACK) {
 					if(noMoreData != true) {						
 						if(data[0] == ACK) {
 							if(lastCharacterReceivedWasCAN == true) {
@@ -283,9 +321,15 @@ public final class SerialComXModemCRC {
 								state = RESEND;
 								break;
 							}
+							// Karn's algorithm; round trip time of re-sent block is ambiguous so is not sampled.
+							if(blockResent == false) {
+								rttEstimator.addSample(System.nanoTime() - blockSentTime);
+							}
+							stats.incrementBlocks();
 							state = SENDNEXT;
 						}else if(data[0] == NAK) {
 							// indicates both <NAK> only and <CAN> <NAK> sequence reception.
+							stats.incrementNAKs();
 							retryCount++;
 							state = RESEND;
 						}else if(data[0] == CAN) {
@@ -326,6 +370,8 @@ public final class SerialComXModemCRC {
 						if(data[0] == ACK) {
 							// successfully sent file, let's go back home happily.
 							inStream.close();
+							stats.addDataBytes(lengthOfFileToProcess);
+							stats.finish(rttEstimator);
 							return true;
 						}else {
 							if(System.currentTimeMillis() >= eotAckWaitTimeOutValue) {
@@ -356,6 +402,9 @@ public final class SerialComXModemCRC {
 					inStream.close();
 					throw exp;
 				}
+				blockSentTime = System.nanoTime();
+				blockResent = false;
+				stats.addBytesOnLine(block.length);
 
 				state = WAITACK;
 				break;
@@ -363,13 +412,19 @@ public final class SerialComXModemCRC {
 				if(eotAckReceptionTimerInitialized != true) {
 					eotAckWaitTimeOutValue = System.currentTimeMillis() + 60000; // 1 minute
 					eotAckReceptionTimerInitialized = true;
+				}else if(System.currentTimeMillis() >= eotAckWaitTimeOutValue) {
+					errMsg = "Timedout while waiting for EOT reception acknowledgement from file receiver !";
+					state = ABORT;
+					break;
 				}
+
 				try {
 					scm.writeSingleByte(handle, EOT);
 				} catch (SerialComException exp) {
 					inStream.close();
 					throw exp;
 				}
+				stats.addBytesOnLine(1);
 				state = WAITACK;
 				break;
 			case ABORT:
@@ -377,6 +432,7 @@ public final class SerialComXModemCRC {
 				 * have been already thrown. This state is entered explicitly to abort executing 
 				 * actions in state machine. */
 				inStream.close();
+				stats.finish(rttEstimator);
 				throw new SerialComTimeOutException(errMsg);
 			default:
 				break;
@@ -394,29 +450,11 @@ public final class SerialComXModemCRC {
 	 * will be sent. This method handles text/ascii mode in operating system independent
 	 * way. 
 	 * 
-	 * Algorithm for processing assumes that a text file may contain following combinations
-	 * of character sequence with the corresponding data bytes sent to receiving end. The X
-	 * is a data byte other than CR and LF.
-	 * 
-	 * CR LF (send CR LF)
-	 * CR CR (send CR LF CR LF)
-	 * CR X  (send CR LF X)
-	 * LF CR (send CR LF)
-	 * LF LF (send CR LF CR LF)
-	 * LF X  (send CR LF X)
-	 * X  X  (send X X)
-	 * X  LF (send X CR LF)
-	 * X  CR (send X CR LF)
-	 * 
-	 * Algorithm takes 2 bytes at a time into consideration and check it against above combination.
-	 * Based on cases above it will add/remove CR and LF etc characters.
-	 * 
-	 * For text mode data is first read into tmpSendBuffer and then parsed. The mark points to 
-	 * current byte which needs to be sent to other end. The limit refers to number of bytes 
-	 * currently available in tmpSendBuffer.
-	 * 
-	 * If we need to add extra LF or CR characters, it may be added in current block if there
-	 * is space or will be added in next block if current block is full.
+	 * Line endings are converted to CR LF by SerialComLineEndingTranscoder. For text mode data is 
+	 * first read into tmpSendBuffer and converted into tmpTranscodedBuffer. The mark points to 
+	 * next byte which needs to be sent to other end and limit refers to number of bytes currently 
+	 * available in tmpTranscodedBuffer. Converted data is copied into block in runs, so a line 
+	 * ending may get split across two blocks.
 	 * 
 	 * @throws IOException if any I/O error occurs.
 	 */
@@ -440,285 +478,46 @@ public final class SerialComXModemCRC {
 			// set index at which first data byte will be saved to send.
 			x = 3;
 
-			if(isFirstDataBytePending == true) {
-				block[x] = firstPendingDataByte;
-				x++;
-				isFirstDataBytePending = false; // reset
-				if(isSecondDataBytePending == true) {
-					block[x] = secondPendingDataByte;
-					x++;
-					isSecondDataBytePending = false; // reset
-					if(isThirdDataBytePending == true) {
-						block[x] = thirdPendingDataByte;
-						x++;
-						isThirdDataBytePending = false; // reset
-					}
-				}
-			}
-
 			while(x < 131) {
-				// entering into this loop means that at-least one byte 
-				// of space exist in block[] array.
-
-				if((mark == limit) || (mark == -1)) {
-					// indicates we need to read more data from file as all data bytes in
-					// tmpSendBuffer has been sent to file receiver end.
-					limit = inStream.read(tmpSendBuffer, 0, 1024);
-					mark = 0; // reset mark.
-					if(limit < 0) {
-						// 0 bytes; EOF reached.
-						if(isLineFeedPending == true) {
-							data0 = LF;
-							isLineFeedPending = false; // reset
-							data1 = -1;
-						}else if(isCarriageReturnPending == true) {
-							data0 = CR;
-							isCarriageReturnPending = false; // reset
-							data1 = -1;
-						}else {
-							data0 = -1;
-							data1 = -1;
-						}
-					}else if(limit == 1) {
-						// 1 byte (last byte) of data in file.
-						if(isLineFeedPending == true) {
-							data0 = LF;
-							isLineFeedPending = false; // reset
-							data1 = tmpSendBuffer[mark];
-							mark++;
-						}else if(isCarriageReturnPending == true) {
-							data0 = CR;
-							isCarriageReturnPending = false; // reset
-							data1 = tmpSendBuffer[mark];
-							mark++;
-						}else {
-							data0 = tmpSendBuffer[mark];
-							mark++;
-							data1 = -1;
-						}
-					}else {
-						// 2 or more data bytes are there in file.
-						if(isLineFeedPending == true) {
-							data0 = LF;
-							isLineFeedPending = false; // reset
-							data1 = tmpSendBuffer[mark];
-							mark++;
-						}else if(isCarriageReturnPending == true) {
-							data0 = CR;
-							isCarriageReturnPending = false; // reset
-							data1 = tmpSendBuffer[mark];
-							mark++;
-						}else {
-							data0 = tmpSendBuffer[mark];
-							mark++;
-							data1 = tmpSendBuffer[mark];
-							mark++;
-						}
-					}
-				}else if(mark == (limit - 1)) {
-					// indicates mark is at last byte of tmpSendBuffer and therefore
-					// 1 more data byte is needed (to be placed in data1 variable).
-					if(isLineFeedPending == true) {
-						data0 = LF;
-						isLineFeedPending = false; // reset
-						data1 = tmpSendBuffer[mark];
-						mark++;
-					}else if(isCarriageReturnPending == true) {
-						data0 = CR;
-						isCarriageReturnPending = false; // reset
-						data1 = tmpSendBuffer[mark];
-						mark++;
-					}else {
-						data0 = tmpSendBuffer[mark];
-						mark++;
-						limit = inStream.read(tmpSendBuffer, 0, 1024);
-						mark = 0; // reset mark.
-						if(limit < 0) {
-							data1 = -1;
-						}else {
-							data1 = tmpSendBuffer[mark];
-							mark++;
-						}
-					}
-				}else if((mark == 0) && (limit == -1)) {
-					// indicates there is no more data to be sent.
-					if(isLineFeedPending == true) {
-						data0 = LF;
-						isLineFeedPending = false; // reset
-						data1 = -1;
-					}else if(isCarriageReturnPending == true) {
-						data0 = CR;
-						isCarriageReturnPending = false; // reset
-						data1 = -1;
-					}else {
-						data0 = -1;
-						data1 = -1;
+				if(mark == limit) {
+					// all converted bytes have been sent, read and convert more data from file.
+					if(endOfFileReached == true) {
+						break;
 					}
-				}else {
-					// indicates mark is at position from where 2 bytes in tmpSendBuffer
-					// are available to be analyzed.
-					if(isLineFeedPending == true) {
-						data0 = LF;
-						isLineFeedPending = false; // reset
-						data1 = tmpSendBuffer[mark];
-						mark++;
-					}else if(isCarriageReturnPending == true) {
-						data0 = CR;
-						isCarriageReturnPending = false; // reset
-						data1 = tmpSendBuffer[mark];
-						mark++;
+					numBytesRead = inStream.read(tmpSendBuffer, 0, tmpSendBuffer.length);
+					if(numBytesRead < 0) {
+						// EOF reached, a CR or LF may still be pending in transcoder.
+						limit = transcoder.finish(tmpTranscodedBuffer, 0);
+						endOfFileReached = true;
 					}else {
-						data0 = tmpSendBuffer[mark];
-						mark++;
-						data1 = tmpSendBuffer[mark];
-						mark++;
+						limit = transcoder.transcode(tmpSendBuffer, 0, numBytesRead, tmpTranscodedBuffer, 0);
 					}
+					mark = 0;
+					continue;
 				}
 
-				// when control reached here, both data0 and data1 will have valid values.
-				// so algorithm will work with 2 given bytes.
-				if(data0 < 0) {
-					// indicates EOF reached.
-					if(alreadySentEOFchar == true) {
-						// EOF have been sent already in last block.
-						noMoreData = true;
-						return;
-					}else {
-						// assemble last block with ^Z padding. if x == 3,
-						// whole block will contain ^Z only as data bytes.
-						for(x = x + 0; x < 131; x++) {
-							block[x] = SUB;
-						}
-						alreadySentEOFchar = true;
-					}
-				}else if((data0 >= 0) && (data1 < 0)) {
-					// indicates last byte of data in file.
-					if((data0 == LF) || (data0 == CR)) {
-						block[x] = CR;
-						x++;
-						if(x < 131) {
-							block[x] = LF;
-							x++;
-						}else {
-							// now LF character will be sent in next block
-							isFirstDataBytePending = true;
-							firstPendingDataByte = LF;
-						}
-					}else {
-						block[x] = data0;
-						x++;
-					}
-				}else {
-					// indicates 2 bytes of data are there and need to be processed.
-					if((data0 != LF) && (data0 != CR)) {
-						if((data1 != LF) && (data1 != CR)) {
-							// indicates XX case.
-							block[x] = data0;
-							x++;
-							if(x < 131) {
-								block[x] = data1;
-								x++;
-							}else {
-								isFirstDataBytePending = true;
-								firstPendingDataByte = data1;
-							}
-						}else if(data1 == LF) {
-							// indicates XLF case.
-							block[x] = data0;
-							x++;
-							isLineFeedPending = true;
-						}else {
-							// indicates XCR case.
-							block[x] = data0;
-							x++;
-							isCarriageReturnPending = true;
-						}
-					}else if(((data0 == CR) && (data1 == LF)) || ((data0 == LF) && (data1 == CR))) {
-						// indicates LFCR or CRLF case.
-						block[x] = CR;
-						x++;
-						if(x < 131) {
-							block[x] = LF;
-							x++;
-						}else {
-							isFirstDataBytePending = true;
-							firstPendingDataByte = LF;
-						}
-					}else if((data0 == LF) && (data1 != CR) && (data1 != LF)) {
-						// indicates LFX case.
-						block[x] = CR;
-						x++;
-						if(x < 131) {
-							block[x] = LF;
-							x++;
-							if(x < 131) {
-								block[x] = data1;
-								x++;
-							}else {
-								isFirstDataBytePending = true;
-								firstPendingDataByte = data1;
-							}
-						}else {
-							isFirstDataBytePending = true;
-							firstPendingDataByte = LF;
-							isSecondDataBytePending = true;
-							secondPendingDataByte = data1;
-						}
-					}else if((data0 == CR) && (data1 != CR) && (data1 != LF)) {
-						// indicates CRX case.
-						block[x] = CR;
-						x++;
-						if(x < 131) {
-							block[x] = LF;
-							x++;
-							if(x < 131) {
-								block[x] = data1;
-								x++;
-							}else {
-								isFirstDataBytePending = true;
-								firstPendingDataByte = data1;
-							}
-						}else {
-							isFirstDataBytePending = true;
-							firstPendingDataByte = LF;
-							isSecondDataBytePending = true;
-							secondPendingDataByte = data1;
-						}
-					}else if(((data0 == LF) && (data1 == LF)) || ((data0 == CR) && (data1 == CR))) {
-						// indicates LFLF or CRCR case.
-						block[x] = CR;
-						x++;
-						if(x < 131) {
-							block[x] = LF;
-							x++;
-							if(x < 131) {
-								block[x] = CR;
-								x++;
-								if(x < 131) {
-									block[x] = LF;
-									x++;
-								}else {
-									isFirstDataBytePending = true;
-									firstPendingDataByte = LF;
-								}
-							}else {
-								isFirstDataBytePending = true;
-								firstPendingDataByte = CR;
-								isSecondDataBytePending = true;
-								secondPendingDataByte = LF;
-							}
-						}else {
-							isFirstDataBytePending = true;
-							firstPendingDataByte = LF;
-							isSecondDataBytePending = true;
-							secondPendingDataByte = CR;
-							isThirdDataBytePending = true;
-							thirdPendingDataByte = LF;
-						}
-					}else {
-					}
+				numBytesRead = limit - mark;
+				if(numBytesRead > (131 - x)) {
+					numBytesRead = 131 - x;
+				}
+				System.arraycopy(tmpTranscodedBuffer, mark, block, x, numBytesRead);
+				mark = mark + numBytesRead;
+				x = x + numBytesRead;
+			}
+
+			if(x < 131) {
+				// indicates EOF reached.
+				if(alreadySentEOFchar == true) {
+					// EOF have been sent already in last block.
+					noMoreData = true;
+					return;
+				}
+				// assemble last block with ^Z padding. if x == 3, whole block will contain ^Z only as data bytes.
+				for(x = x + 0; x < 131; x++) {
+					block[x] = SUB;
 				}
-			} // end while loop
+				alreadySentEOFchar = true;
+			}
 		}else {
 			/* file is to be send as a binary file. */
 
@@ -744,6 +543,37 @@ public final class SerialComXModemCRC {
 		block[132] = (byte) blockCRCval;         // CRC low byte
 	}
 
+	/**
+	 * <p>Assembles blocks of given stream one after another exactly as sendFileX does but without any 
+	 * serial port communication, so that cost of block assembly can be measured on its own (see 
+	 * XModemBlockBenchmark). A stream not seen in last call starts again from block number 1.</p>
+	 * 
+	 * @param in stream from which data of blocks is read, it is not closed.
+	 * @return assembled block (same array is reused on every call) or null if there is no more data.
+	 * @throws IOException if stream can not be read.
+	 */
+	byte[] assembleNextBlock(BufferedInputStream in) throws IOException {
+		if(inStream != in) {
+			inStream = in;
+			blockNumber = 1;
+			noMoreData = false;
+			alreadySentEOFchar = false;
+			endOfFileReached = false;
+			mark = 0;
+			limit = 0;
+			if(textMode == true) {
+				transcoder = SerialComLineEndingTranscoder.forSending();
+			}
+		}else {
+			blockNumber++;
+		}
+		assembleBlock();
+		if(noMoreData == true) {
+			return null;
+		}
+		return block;
+	}
+
 	/**
 	 * <p>Represents actions to execute in state machine to implement 
 	 * xmodem-crc protocol for receiving files.</p>
@@ -762,8 +592,9 @@ public final class SerialComXModemCRC {
 		final int ABORT = 4;
 
 		int z = 0;
-		int delayVal = 250;
+		int delayVal = 0;
 		int retryCount = 0;
+		int timeOutRetryCount = 0;
 		int duplicateBlockRetryCount = 0;
 		int state = -1;
 		int blockNumber = 1;
@@ -776,12 +607,34 @@ public final class SerialComXModemCRC {
 		boolean isCorrupted = false;
 		boolean isDuplicateBlock = false;
 		boolean partialReadInProgress = false;
+		boolean sampleNextBlock = false;
+		long replySentTime = 0;
+		long resumeOffset = 0;
+		SerialComXModemCheckpoint checkpoint = null;
 		byte[] data = null;
 		String errMsg = null;
 
-		/* The data bytes get flushed automatically to file system physically whenever BufferedOutputStream's
-		   internal buffer gets full and request to write more bytes have arrived. */
-		outStream = new BufferedOutputStream(new FileOutputStream(fileToProcess));
+		/* Timeout for next block starts at 10 seconds as suggested by protocol and then adapts to the time 
+		 * measured between sending ACK and receiving complete next block. Delay between two read attempts 
+		 * also adapts to it, so that fast links are not slowed down by fixed sleep. */
+		rttEstimator = new SerialComRTTEstimator(10000, 500, 60000, 250, 1, 250);
+		delayVal = rttEstimator.getPollInterval();
+		stats.reset();
+
+		if(textMode == true) {
+			transcoder = SerialComLineEndingTranscoder.forReceiving(osType);
+		}
+
+		/* In binary mode progress is check pointed, so if this session fails next session for the same 
+		   file continues after the last committed block instead of writing file again from beginning. */
+		if(textMode != true) {
+			checkpoint = new SerialComXModemCheckpoint(fileToProcess);
+			resumeOffset = checkpoint.load();
+		}
+
+		/* Data bytes are written to file by a separate thread so that a slow disk does not delay sending 
+		   ACK and make sender re-transmit blocks. At most 128 KB of data is buffered in memory. */
+		outStream = new SerialComWriteBehindOutputStream(new FileOutputStream(fileToProcess, (resumeOffset > 0)), 8192, 16);
 
 		// Clear receive buffer before start.
 		try {
@@ -800,6 +653,7 @@ public final class SerialComXModemCRC {
 					try {
 						scm.writeSingleByte(handle, C);
 						firstBlock = true;
+						sampleNextBlock = false;
 						connectTimeOut = System.currentTimeMillis() + 3000; // update timeout, 3 seconds.
 						state = RECEIVEDATA;
 					} catch (SerialComException exp) {
@@ -808,7 +662,8 @@ public final class SerialComXModemCRC {
 					}
 				}else {
 					// fall back to xmodem-128 checksum mode.
-					return scm.receiveFile(handle, fileToProcess, FTPPROTO.XMODEM, FTPVAR.CHKSUM, textMode, progressListener, transferState);
+					outStream.close();
+					return scm.receiveFile(handle, fileToProcess, FTPPROTO.XMODEM, FTPVAR.CHKSUM, textMode, progressListener, transferState, stats);
 				}
 				break;
 			case RECEIVEDATA:
@@ -821,6 +676,7 @@ public final class SerialComXModemCRC {
 					// check if application (file receiver) wish to cancel receiving file.
 					if((transferState != null) && (transferState.isTransferToBeAborted() == true)) {
 						outStream.close();
+						stats.finish(rttEstimator);
 						scm.writeBytes(handle, abortSequence, 0);
 						return false;
 					}
@@ -840,6 +696,7 @@ public final class SerialComXModemCRC {
 
 					if((data != null) && (data.length > 0)) {
 						firstBlock = false;
+						stats.addBytesOnLine(data.length);
 
 						if(data[0] == CAN) {
 							if(lastCharacterReceivedWasCAN == true) {
@@ -915,7 +772,7 @@ public final class SerialComXModemCRC {
 												// extraneous characters, line has noise. go to verification
 												// state as we have received full data block thereby
 												// discarding extraneous characters.
-												delayVal = 250;  // reset.
+												delayVal = rttEstimator.getPollInterval();  // reset.
 												bufferIndex = 0; // reset.
 												partialReadInProgress = false; // reset.
 												state = VERIFY;
@@ -933,7 +790,7 @@ public final class SerialComXModemCRC {
 												// extraneous characters, line has noise. go to verification
 												// state as we have received full data block thereby
 												// discarding this extraneous character.
-												delayVal = 250;  // reset.
+												delayVal = rttEstimator.getPollInterval();  // reset.
 												bufferIndex = 0; // reset.
 												partialReadInProgress = false; // reset.
 												state = VERIFY;
@@ -945,7 +802,7 @@ public final class SerialComXModemCRC {
 									bufferIndex++;
 								}
 								if(bufferIndex >= 133) {
-									delayVal = 220;  // reset delay.
+									delayVal = rttEstimator.getPollInterval();  // reset delay.
 									bufferIndex = 0; // reset index.
 									partialReadInProgress = false; // reset.
 									state = VERIFY;
@@ -953,7 +810,7 @@ public final class SerialComXModemCRC {
 								}else {
 									// next remaining data bytes should arrive early, 
 									// go back to read more data from port.
-									delayVal = 80;
+									delayVal = (rttEstimator.getPollInterval() >> 1) + 1;
 								}	
 							}
 						}
@@ -961,8 +818,20 @@ public final class SerialComXModemCRC {
 						if(firstBlock == false) {
 							// reaching here means that we are waiting for receiving next block from file sender.
 							if(System.currentTimeMillis() > nextDataRecvTimeOut) {
-								errMsg = "Timedout while trying to receive next data byte (block) from file sender !";
-								state = ABORT;
+								// discard partially received block (if any) and ask sender to re-send it.
+								stats.incrementTimeOuts();
+								rttEstimator.backOff();
+								timeOutRetryCount++;
+								if(timeOutRetryCount > 10) {
+									errMsg = "Timedout while trying to receive next data byte (block) from file sender !";
+									state = ABORT;
+									break;
+								}
+								delayVal = rttEstimator.getPollInterval();
+								bufferIndex = 0;
+								partialReadInProgress = false;
+								isCorrupted = true;
+								state = REPLY;
 								break;
 							}
 						}else {
@@ -979,6 +848,7 @@ public final class SerialComXModemCRC {
 			case VERIFY:
 				isCorrupted = false;      // reset.
 				isDuplicateBlock = false; // reset.
+				timeOutRetryCount = 0;    // reset.
 				state = REPLY;
 				// check duplicate block.
 				if(block[1] == ((blockNumber - 1) & 0xFF)){
@@ -1005,18 +875,43 @@ public final class SerialComXModemCRC {
 				if((block[131] != (byte)(blockCRCval >>> 8)) || (block[132] != (byte)blockCRCval)){
 					isCorrupted = true;
 				}
+				// time between our ACK and arrival of this complete block is round trip time of link.
+				if((isCorrupted == false) && (sampleNextBlock == true)) {
+					rttEstimator.addSample(System.nanoTime() - replySentTime);
+				}
 				break;
 			case REPLY:
 				try {
 					if(rxDone == false) {
 						if(isCorrupted == false) {
+							// blocks committed in previous session are verified before acknowledging them, so 
+							// that a sender sending some other file is cancelled instead of acknowledged.
+							boolean blockInFile = false;
+							if((isDuplicateBlock != true) && (textMode != true)) {
+								try {
+									blockInFile = checkpoint.isBlockInFile(block, 3, 128);
+								} catch (IOException exp) {
+									scm.writeBytes(handle, abortSequence, 0);
+									throw exp;
+								}
+							}
 							scm.writeSingleByte(handle, ACK);
-							if(textMode == true) {
-								// for ASCII mode, parse and then flush.
-								processAndWrite(block);
-							}else {
-								// for binary mode, just flush data as is to file physically.
-								outStream.write(block, 3, 128);
+							replySentTime = System.nanoTime();
+							sampleNextBlock = true;
+							if(isDuplicateBlock != true) {
+								// a duplicate block is acknowledged again but its data is already in file.
+								if(textMode == true) {
+									// for ASCII mode, parse and then flush.
+									processAndWrite(block);
+								}else {
+									// for binary mode, just flush data as is to file physically.
+									if(blockInFile != true) {
+										outStream.write(block, 3, 128);
+										checkpoint.blockWritten(block, 3, 128, outStream);
+									}
+									stats.addDataBytes(128);
+								}
+								stats.incrementBlocks();
 							}
 
 							// update GUI that a block has been received if application has provided 
@@ -1034,13 +929,25 @@ public final class SerialComXModemCRC {
 							}
 						}else {
 							scm.writeSingleByte(handle, NAK);
+							sampleNextBlock = false;
+							stats.incrementNAKs();
+							stats.incrementRetries();
+							SerialComFlightRecorder.xmodemRetry(handle, "XMODEM-CRC", false, blockNumber);
 						}
 						state = RECEIVEDATA;
 					}else {
-						// file reception successfully finished, let's go back home happily.
-						scm.writeSingleByte(handle, ACK);
-						outStream.flush();
+						if(textMode == true) {
+							writePendingLineEnding();
+						}
+
+						// file reception successfully finished, make sure all data is physically on disk 
+						// before acknowledging EOT and let's go back home happily.
 						outStream.close();
+						if(checkpoint != null) {
+							checkpoint.complete();
+						}
+						scm.writeSingleByte(handle, ACK);
+						stats.finish(rttEstimator);
 						return true;
 					}
 				} catch (SerialComException exp) {
@@ -1050,12 +957,13 @@ public final class SerialComXModemCRC {
 					outStream.close();
 					throw exp;
 				}
-				nextDataRecvTimeOut = System.currentTimeMillis() + 1000; // update timeout for next byte 1 second.
+				nextDataRecvTimeOut = System.currentTimeMillis() + rttEstimator.getRetransmitTimeOut(); // update timeout for next block.
 				break;
 			case ABORT:
 				/* if an IOexception occurs, control will not reach here instead exception would have been
 				 * thrown already. */
 				outStream.close();
+				stats.finish(rttEstimator);
 				throw new SerialComTimeOutException(errMsg);
 			default:
 				break;
@@ -1064,228 +972,28 @@ public final class SerialComXModemCRC {
 	}
 
 	/* 
-	 * This algorithm strip all ^Z characters from received data. Further it will add or remove
-	 * CR and LF characters as needed based on operating system this application is running on.
-	 * It process 2 consecutive bytes at a time and handle the following cases (where X represent
-	 * any byte other than CR, LF and ^Z) :
-	 * 
-	 * LF LF,
-	 * LF CR,
-	 * LF ^Z,
-	 * LF X,
-	 * CR CR,
-	 * CR LF,
-	 * CR ^Z,
-	 * CR X,
-	 * ^Z ^Z,
-	 * ^Z CR,
-	 * ^Z LF,
-	 * ^Z X,
-	 * X X,
-	 * X CR,
-	 * X LF,
-	 * X ^Z
-	 * 
-	 * It is possible that last data byte (130th byte) in current block can not be processed because
-	 * we have to analyze next data byte which will be available to us only in the next data block
-	 * received. So we save that last byte and process it next time this method is called.
+	 * Strips all ^Z characters from received data and converts line endings to the one used by 
+	 * operating system this application is running on. A CR or LF at the end of block is kept 
+	 * pending in transcoder till next block is received, as it may be part of CR LF sequence.
 	 * 
 	 * @throws IOException if any I/O error occurs.
 	 */
 	private void processAndWrite(byte[] block) throws IOException {
-		mark = 3;  // init + reset
-		int q = 0; // init + reset
-
-		while(mark <= 129) {
-			if(unprocessedByteInReceivedDataExist == false) {
-				if(lastCharacterReceivedWasLF) {
-					data0 = LF;
-					lastCharacterReceivedWasLF = false; // reset
-				}else if(lastCharacterReceivedWasCR) {
-					data0 = CR;
-					lastCharacterReceivedWasCR = false; // reset
-				}else {
-					data0 = block[mark];
-					mark++;
-				}
-				data1 = block[mark];
-				mark++;
-			}else {
-				// there was a pending byte from last block received to be tested against all cases.
-				data0 = unprocessedByteInLastReceivedBlock;
-				unprocessedByteInReceivedDataExist = false; // reset
-				data1 = block[mark];
-				mark++;
-			}
-
-			if(data0 == CR) {
-				if(data1 == LF) {
-					// represent CRLF case.
-					if(osType == SerialComManager.OS_WINDOWS) {
-						tmpReceiveBuffer[q] = CR;
-						tmpReceiveBuffer[q + 1] = LF;
-						q = q + 2;
-					}else if((osType == SerialComManager.OS_MAC_OS_X) || (osType == SerialComManager.OS_LINUX) || (osType == SerialComManager.OS_SOLARIS)
-							|| (osType == SerialComManager.OS_FREEBSD) || (osType == SerialComManager.OS_NETBSD) || (osType == SerialComManager.OS_OPENBSD)
-							|| (osType == SerialComManager.OS_ANDROID)) {
-						tmpReceiveBuffer[q] = LF;
-						q = q + 1;
-					}else {
-					}
-				}else if(data1 == CR) {
-					// represent CRCR case.
-					if(osType == SerialComManager.OS_WINDOWS) {
-						tmpReceiveBuffer[q] = CR;
-						tmpReceiveBuffer[q + 1] = LF;
-						tmpReceiveBuffer[q + 2] = CR;
-						tmpReceiveBuffer[q + 3] = LF;
-						q = q + 4;
-					}else if((osType == SerialComManager.OS_MAC_OS_X) || (osType == SerialComManager.OS_LINUX) || (osType == SerialComManager.OS_SOLARIS)
-							|| (osType == SerialComManager.OS_FREEBSD) || (osType == SerialComManager.OS_NETBSD) || (osType == SerialComManager.OS_OPENBSD)
-							|| (osType == SerialComManager.OS_ANDROID)) {
-						tmpReceiveBuffer[q] = LF;
-						tmpReceiveBuffer[q + 1] = LF;
-						q = q + 2;
-					}else {
-					}
-				}else if(data1 == SUB) {
-					// represent CRSUB case.
-					if(osType == SerialComManager.OS_WINDOWS) {
-						tmpReceiveBuffer[q] = CR;
-						tmpReceiveBuffer[q + 1] = LF;
-						q = q + 2;
-					}else if((osType == SerialComManager.OS_MAC_OS_X) || (osType == SerialComManager.OS_LINUX) || (osType == SerialComManager.OS_SOLARIS)
-							|| (osType == SerialComManager.OS_FREEBSD) || (osType == SerialComManager.OS_NETBSD) || (osType == SerialComManager.OS_OPENBSD)
-							|| (osType == SerialComManager.OS_ANDROID)) {
-						tmpReceiveBuffer[q] = LF;
-						q = q + 1;
-					}else {
-					}
-				}else {
-					// represent CRX case.
-					if(osType == SerialComManager.OS_WINDOWS) {
-						tmpReceiveBuffer[q] = CR;
-						tmpReceiveBuffer[q + 1] = LF;
-						tmpReceiveBuffer[q + 2] = data1;
-						q = q + 3;
-					}else if((osType == SerialComManager.OS_MAC_OS_X) || (osType == SerialComManager.OS_LINUX) || (osType == SerialComManager.OS_SOLARIS)
-							|| (osType == SerialComManager.OS_FREEBSD) || (osType == SerialComManager.OS_NETBSD) || (osType == SerialComManager.OS_OPENBSD)
-							|| (osType == SerialComManager.OS_ANDROID)) {
-						tmpReceiveBuffer[q] = LF;
-						tmpReceiveBuffer[q + 1] = data1;
-						q = q + 2;
-					}else {
-					}
-				}
-			}else if(data0 == LF) {
-				if(data1 == LF) {
-					// represent LFLF case.
-					if(osType == SerialComManager.OS_WINDOWS) {
-						tmpReceiveBuffer[q] = CR;
-						tmpReceiveBuffer[q + 1] = LF;
-						tmpReceiveBuffer[q + 2] = CR;
-						tmpReceiveBuffer[q + 3] = LF;
-						q = q + 4;
-					}else if((osType == SerialComManager.OS_MAC_OS_X) || (osType == SerialComManager.OS_LINUX) || (osType == SerialComManager.OS_SOLARIS)
-							|| (osType == SerialComManager.OS_FREEBSD) || (osType == SerialComManager.OS_NETBSD) || (osType == SerialComManager.OS_OPENBSD)
-							|| (osType == SerialComManager.OS_ANDROID)) {
-						tmpReceiveBuffer[q] = LF;
-						tmpReceiveBuffer[q + 1] = LF;
-						q = q + 2;
-					}else {
-					}
-				}else if(data1 == CR) {
-					// represent LFCR case.
-					if(osType == SerialComManager.OS_WINDOWS) {
-						tmpReceiveBuffer[q] = CR;
-						tmpReceiveBuffer[q + 1] = LF;
-						q = q + 2;
-					}else if((osType == SerialComManager.OS_MAC_OS_X) || (osType == SerialComManager.OS_LINUX) || (osType == SerialComManager.OS_SOLARIS)
-							|| (osType == SerialComManager.OS_FREEBSD) || (osType == SerialComManager.OS_NETBSD) || (osType == SerialComManager.OS_OPENBSD)
-							|| (osType == SerialComManager.OS_ANDROID)) {
-						tmpReceiveBuffer[q] = LF;
-						q = q + 1;
-					}else {
-					}
-				}else if(data1 == SUB) {
-					// represent LFSUB case.
-					if(osType == SerialComManager.OS_WINDOWS) {
-						tmpReceiveBuffer[q] = CR;
-						tmpReceiveBuffer[q + 1] = LF;
-						q = q + 2;
-					}else if((osType == SerialComManager.OS_MAC_OS_X) || (osType == SerialComManager.OS_LINUX) || (osType == SerialComManager.OS_SOLARIS)
-							|| (osType == SerialComManager.OS_FREEBSD) || (osType == SerialComManager.OS_NETBSD) || (osType == SerialComManager.OS_OPENBSD)
-							|| (osType == SerialComManager.OS_ANDROID)) {
-						tmpReceiveBuffer[q] = LF;
-						q = q + 1;
-					}else {
-					}
-				}else {
-					// represent LFX case.
-					if(osType == SerialComManager.OS_WINDOWS) {
-						tmpReceiveBuffer[q] = CR;
-						tmpReceiveBuffer[q + 1] = LF;
-						tmpReceiveBuffer[q + 2] = data1;
-						q = q + 3;
-					}else if((osType == SerialComManager.OS_MAC_OS_X) || (osType == SerialComManager.OS_LINUX) || (osType == SerialComManager.OS_SOLARIS)
-							|| (osType == SerialComManager.OS_FREEBSD) || (osType == SerialComManager.OS_NETBSD) || (osType == SerialComManager.OS_OPENBSD)
-							|| (osType == SerialComManager.OS_ANDROID)) {
-						tmpReceiveBuffer[q] = LF;
-						tmpReceiveBuffer[q + 1] = data1;
-						q = q + 2;
-					}else {
-					}
-				}
-			}else if(data0 == SUB) {
-				if(data1 == LF) {
-					// represent SUBLF case.
-					// we need to check that whether next character is CR or LF and then only
-					// we can decide what to do with this LF. So make this LF as pending and
-					// let it process with next character in next iteration of this loop.
-					lastCharacterReceivedWasLF = true;
-				}else if(data1 == CR) {
-					// represent SUBCR case.
-					lastCharacterReceivedWasCR = true;
-				}else if(data1 == SUB) {
-					// represent SUBSUB case.
-					// do nothing, drop/strip this character.
-				}else {
-					// represent SUBX case.
-					tmpReceiveBuffer[q] = data1;
-					q = q + 1;
-				}
-			}else {
-				if(data1 == LF) {
-					// represent XLF case.
-					tmpReceiveBuffer[q] = data0;
-					q = q + 1;
-					lastCharacterReceivedWasLF = true;
-				}else if(data1 == CR) {
-					// represent XCR case.
-					tmpReceiveBuffer[q] = data0;
-					q = q + 1;
-					lastCharacterReceivedWasCR = true;
-				}else if(data1 == SUB) {
-					// represent XSUB case.
-					tmpReceiveBuffer[q] = data0;
-					q = q + 1;
-				}else {
-					// represent XX case.
-					tmpReceiveBuffer[q] = data0;
-					tmpReceiveBuffer[q + 1] = data1;
-					q = q + 2;
-				}
-			}
-		} // end while loop
+		int q = transcoder.transcode(block, 3, 128, tmpReceiveBuffer, 0);
 
 		// write processed data bytes to file in file system.
 		outStream.write(tmpReceiveBuffer, 0, q);
+		stats.addDataBytes(q);
+	}
 
-		if(mark == 130) {
-			// indicates last byte in block array could not be processed as one more bytes was needed to test against
-			// all cases. so save this byte and process it next block of data received.
-			unprocessedByteInReceivedDataExist = true;
-			unprocessedByteInLastReceivedBlock = block[130];
-		}
+	/* 
+	 * Writes line ending for CR or LF which was last data byte of file.
+	 * 
+	 * @throws IOException if any I/O error occurs.
+	 */
+	private void writePendingLineEnding() throws IOException {
+		int q = transcoder.finish(tmpReceiveBuffer, 0);
+		outStream.write(tmpReceiveBuffer, 0, q);
+		stats.addDataBytes(q);
 	}
 }
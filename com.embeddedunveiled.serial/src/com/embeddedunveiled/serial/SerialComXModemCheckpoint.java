@@ -0,0 +1,238 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Keeps track of how much of a file being received has been committed to file system, so that 
+ * if the transfer fails, next session for the same file can continue from there instead of from 
+ * beginning.</p>
+ * 
+ * <p>The checkpoint is kept in a file next to the file being received (its name with suffix .scmcp) 
+ * and contains number of bytes and blocks committed and CRC32 of committed bytes. When a new session 
+ * starts, the checkpoint is accepted only if the data file still contains bytes matching this CRC. 
+ * XMODEM has no way to ask sender to start from an offset, so the blocks which are already in the 
+ * file are acknowledged without being written again (skip-ahead) and are verified against the CRC 
+ * once all of them have been received.</p>
+ * 
+ * <p>A checkpoint is saved by the thread writing data to file, only after data it accounts for has 
+ * been forced to storage device, so that a checkpoint never claims bytes which may be lost.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComXModemCheckpoint {
+
+	private static final int MAGIC = 0x53434D43; // SCMC
+	private static final int VERSION = 1;
+	private static final int BLOCKS_PER_CHECKPOINT = 64;
+
+	private final File dataFile;
+	private final File checkpointFile;
+	private final CRC32 committedCRC = new CRC32();
+	private final CRC32 skippedCRC = new CRC32();
+	private long committedBytes;
+	private long committedBlocks;
+	private long blocksToSkip;
+	private long resumedCRCValue;
+
+	/**
+	 * <p>Allocates a new SerialComXModemCheckpoint object for the given file.</p>
+	 * 
+	 * @param dataFile file being received.
+	 */
+	SerialComXModemCheckpoint(File dataFile) {
+		this.dataFile = dataFile;
+		this.checkpointFile = new File(dataFile.getPath() + ".scmcp");
+	}
+
+	/**
+	 * <p>Reads checkpoint left by previous session (if any) and verifies that data file still contains 
+	 * the committed bytes. If valid, data file is truncated to committed length so that new data can be 
+	 * appended to it. If not valid, checkpoint is deleted and reception starts from beginning.</p>
+	 * 
+	 * <p>When resuming, running CRC of committed data continues from CRC of bytes already in file.</p>
+	 * 
+	 * @return number of bytes already present in data file which are to be kept.
+	 */
+	long load() {
+		int magic = 0;
+		int version = 0;
+		long bytes = 0;
+		long blocks = 0;
+		long crc = 0;
+		DataInputStream in = null;
+
+		if(checkpointFile.exists() != true) {
+			return 0;
+		}
+
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)));
+			magic = in.readInt();
+			version = in.readInt();
+			bytes = in.readLong();
+			blocks = in.readLong();
+			crc = in.readLong();
+			in.close();
+			in = null;
+
+			if((magic == MAGIC) && (version == VERSION) && (bytes > 0) && (blocks > 0) 
+					&& (bytes <= dataFile.length()) && (crc == computeFileCRC(bytes, committedCRC))) {
+				RandomAccessFile raf = new RandomAccessFile(dataFile, "rw");
+				try {
+					raf.setLength(bytes);
+				} finally {
+					raf.close();
+				}
+				committedBytes = bytes;
+				committedBlocks = blocks;
+				blocksToSkip = blocks;
+				resumedCRCValue = crc;
+				return bytes;
+			}
+		} catch (IOException e) {
+			// corrupted or unreadable checkpoint, start from beginning.
+		} finally {
+			if(in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		// running CRC of committed data must include only bytes which will be received now.
+		committedCRC.reset();
+		checkpointFile.delete();
+		return 0;
+	}
+
+	/**
+	 * <p>Tells whether the given block was committed to data file in previous session and hence should 
+	 * not be written again. Blocks must be given in the order they are received.</p>
+	 * 
+	 * @param data buffer containing data bytes of block.
+	 * @param offset index in data from where data bytes start.
+	 * @param length number of data bytes in block.
+	 * @return true if block is already in data file.
+	 * @throws IOException if data sent by file sender does not match data received in previous session.
+	 */
+	boolean isBlockInFile(byte[] data, int offset, int length) throws IOException {
+		if(blocksToSkip <= 0) {
+			return false;
+		}
+		skippedCRC.update(data, offset, length);
+		blocksToSkip--;
+		if((blocksToSkip == 0) && (skippedCRC.getValue() != resumedCRCValue)) {
+			// sender is sending some other file, checkpoint is of no use now.
+			checkpointFile.delete();
+			throw new IOException("Data sent by file sender differs from data received in previous session, receive file again !");
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Accounts for a block written to data file. Every few blocks, a checkpoint is queued on output 
+	 * stream, whose writer thread saves it after syncing data written before it.</p>
+	 * 
+	 * @param data buffer containing data bytes of block.
+	 * @param offset index in data from where data bytes start.
+	 * @param length number of data bytes in block.
+	 * @param outStream stream to which block has been written.
+	 * @throws IOException if an earlier write, sync or save of checkpoint failed.
+	 */
+	void blockWritten(byte[] data, int offset, int length, SerialComWriteBehindOutputStream outStream) throws IOException {
+		committedCRC.update(data, offset, length);
+		committedBytes = committedBytes + length;
+		committedBlocks++;
+
+		if((committedBlocks % BLOCKS_PER_CHECKPOINT) == 0) {
+			final long bytes = committedBytes;
+			final long blocks = committedBlocks;
+			final long crc = committedCRC.getValue();
+			outStream.sync(new SerialComWriteBehindOutputStream.SyncTask() {
+				@Override
+				public void run() throws IOException {
+					save(bytes, blocks, crc);
+				}
+			});
+		}
+	}
+
+	/**
+	 * <p>Verifies that reception did not end while blocks of previous session were being skipped 
+	 * and deletes checkpoint as file has been received completely.</p>
+	 * 
+	 * @throws IOException if file sender sent less data than what was received in previous session.
+	 */
+	void complete() throws IOException {
+		checkpointFile.delete();
+		if(blocksToSkip > 0) {
+			throw new IOException("File sender sent less data than received in previous session, receive file again !");
+		}
+	}
+
+	private void save(long bytes, long blocks, long crc) throws IOException {
+		File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(tmpFile));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(bytes);
+			out.writeLong(blocks);
+			out.writeLong(crc);
+		} finally {
+			out.close();
+		}
+		// renameTo does not replace existing file on all platforms.
+		checkpointFile.delete();
+		if(tmpFile.renameTo(checkpointFile) != true) {
+			throw new IOException("Could not save checkpoint file " + checkpointFile.getPath() + " !");
+		}
+	}
+
+	/* Updates crc with first length bytes of data file. */
+	private long computeFileCRC(long length, CRC32 crc) throws IOException {
+		byte[] buffer = new byte[8192];
+		int numBytesRead = 0;
+		BufferedInputStream in = new BufferedInputStream(new FileInputStream(dataFile));
+		try {
+			while(length > 0) {
+				numBytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+				if(numBytesRead < 0) {
+					throw new IOException("Unexpected end of file !");
+				}
+				crc.update(buffer, 0, numBytesRead);
+				length = length - numBytesRead;
+			}
+		} finally {
+			in.close();
+		}
+		return crc.getValue();
+	}
+}
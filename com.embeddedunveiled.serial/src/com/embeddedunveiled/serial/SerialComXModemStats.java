@@ -0,0 +1,221 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial;
+
+/**
+ * <p>Collects statistics about a file transfer carried out using xmodem or its variant protocols. 
+ * Application creates an instance of this class and passes it to sendFile/receiveFile methods in 
+ * SerialComManager class. When the method returns this object contains information about how the 
+ * transfer went.</p>
+ * 
+ * <p>The efficiency value tells how much of the traffic on serial line was actually file data. Protocol 
+ * overhead (header, checksum/CRC, padding), re-sent blocks and control characters make it less than 1.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComXModemStats {
+
+	private long startTime;
+	private long endTime;
+	private long numOfDataBytes;
+	private long numOfBytesOnLine;
+	private long numOfBlocks;
+	private long numOfRetries;
+	private long numOfNAKs;
+	private long numOfTimeOuts;
+	private long smoothedRTT = -1;
+	private long retransmitTimeOut;
+
+	/**
+	 * <p>Allocates a new SerialComXModemStats object.</p>
+	 */
+	public SerialComXModemStats() {
+	}
+
+	/* Called when state machine starts, makes this object re-usable for next transfer. */
+	void reset() {
+		startTime = System.nanoTime();
+		endTime = 0;
+		numOfDataBytes = 0;
+		numOfBytesOnLine = 0;
+		numOfBlocks = 0;
+		numOfRetries = 0;
+		numOfNAKs = 0;
+		numOfTimeOuts = 0;
+		smoothedRTT = -1;
+		retransmitTimeOut = 0;
+	}
+
+	/* Called when state machine exits whether successfully or not. */
+	void finish(SerialComRTTEstimator estimator) {
+		endTime = System.nanoTime();
+		smoothedRTT = estimator.getSmoothedRTT();
+		retransmitTimeOut = estimator.getRetransmitTimeOut();
+	}
+
+	void addDataBytes(long count) {
+		numOfDataBytes = numOfDataBytes + count;
+	}
+
+	void addBytesOnLine(long count) {
+		numOfBytesOnLine = numOfBytesOnLine + count;
+	}
+
+	void incrementBlocks() {
+		numOfBlocks++;
+	}
+
+	void incrementRetries() {
+		numOfRetries++;
+	}
+
+	void incrementNAKs() {
+		numOfNAKs++;
+	}
+
+	void incrementTimeOuts() {
+		numOfTimeOuts++;
+	}
+
+	/**
+	 * <p>Gives time taken by the transfer.</p>
+	 * 
+	 * @return elapsed time in milliseconds.
+	 */
+	public long getElapsedTime() {
+		long end = endTime;
+		if(end == 0) {
+			end = System.nanoTime(); // transfer still in progress.
+		}
+		return (end - startTime) / 1000000;
+	}
+
+	/**
+	 * <p>Gives number of file data bytes sent or received. In text mode this is number of bytes read 
+	 * from or written to file after line ending translation.</p>
+	 * 
+	 * @return number of data bytes.
+	 */
+	public long getDataBytes() {
+		return numOfDataBytes;
+	}
+
+	/**
+	 * <p>Gives total number of bytes sent or received on serial line including protocol overhead and 
+	 * re-sent blocks.</p>
+	 * 
+	 * @return number of bytes on serial line.
+	 */
+	public long getBytesOnLine() {
+		return numOfBytesOnLine;
+	}
+
+	/**
+	 * <p>Gives number of distinct data blocks successfully sent or received.</p>
+	 * 
+	 * @return number of blocks.
+	 */
+	public long getBlocks() {
+		return numOfBlocks;
+	}
+
+	/**
+	 * <p>Gives number of times a block was re-sent (sender) or re-requested (receiver).</p>
+	 * 
+	 * @return number of retries.
+	 */
+	public long getRetries() {
+		return numOfRetries;
+	}
+
+	/**
+	 * <p>Gives number of NAK characters received (sender) or sent (receiver) after connection was 
+	 * established.</p>
+	 * 
+	 * @return number of NAKs.
+	 */
+	public long getNAKs() {
+		return numOfNAKs;
+	}
+
+	/**
+	 * <p>Gives number of times response did not arrive within retransmission timeout.</p>
+	 * 
+	 * @return number of timeouts.
+	 */
+	public long getTimeOuts() {
+		return numOfTimeOuts;
+	}
+
+	/**
+	 * <p>Gives effective throughput of the transfer in terms of file data.</p>
+	 * 
+	 * @return data bytes per second.
+	 */
+	public double getThroughput() {
+		long elapsed = getElapsedTime();
+		if(elapsed <= 0) {
+			return 0;
+		}
+		return (numOfDataBytes * 1000.0) / elapsed;
+	}
+
+	/**
+	 * <p>Gives ratio of file data bytes to total bytes on serial line.</p>
+	 * 
+	 * @return value between 0 and 1.
+	 */
+	public double getEfficiency() {
+		if(numOfBytesOnLine == 0) {
+			return 0;
+		}
+		return ((double) numOfDataBytes) / numOfBytesOnLine;
+	}
+
+	/**
+	 * <p>Gives smoothed round trip time of a block as measured at the end of transfer.</p>
+	 * 
+	 * @return round trip time in microseconds or -1 if it could not be measured.
+	 */
+	public long getSmoothedRTT() {
+		return smoothedRTT;
+	}
+
+	/**
+	 * <p>Gives retransmission timeout that was in effect at the end of transfer.</p>
+	 * 
+	 * @return timeout in milliseconds.
+	 */
+	public long getRetransmitTimeOut() {
+		return retransmitTimeOut;
+	}
+
+	/**
+	 * <p>Gives statistics in human readable form.</p>
+	 * 
+	 * @return statistics as string.
+	 */
+	@Override
+	public String toString() {
+		return "elapsed " + getElapsedTime() + " ms, data bytes " + numOfDataBytes + ", bytes on line " + numOfBytesOnLine 
+				+ ", blocks " + numOfBlocks + ", retries " + numOfRetries + ", NAKs " + numOfNAKs + ", timeouts " + numOfTimeOuts 
+				+ ", throughput " + (long) getThroughput() + " bytes/s, efficiency " + (int) (getEfficiency() * 100) + " %, srtt " 
+				+ smoothedRTT + " us, rto " + retransmitTimeOut + " ms";
+	}
+}
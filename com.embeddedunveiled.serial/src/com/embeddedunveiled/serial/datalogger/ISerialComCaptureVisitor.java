@@ -0,0 +1,43 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>The class interested in records read from a capture store must implement this interface.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface ISerialComCaptureVisitor {
+
+	/**
+	 * <p>This method is called for every record which matches the query, in the order in which records 
+	 * were captured.</p>
+	 * 
+	 * <p>The data buffer is a read only view of the capture file and is valid only till this method 
+	 * returns. Application must copy bytes if it needs them later.</p>
+	 * 
+	 * @param timestamp time in milliseconds (since epoch) when the data was captured.
+	 * @param portName name of the serial port from which data was captured.
+	 * @param data data bytes of the record between position and limit.
+	 * @return true to continue with next record, false to stop the query.
+	 */
+	public abstract boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data);
+}
@@ -0,0 +1,339 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Merges traffic of several capture stores (typically one per serial port) into a single stream 
+ * ordered by timestamp, giving a chronological view of interactions on a bus.</p>
+ * 
+ * <p>The merge is a streaming k-way merge: every input is read by its own thread which copies records 
+ * into small batches and queues a few of them ahead (read-ahead), and the merging thread keeps the 
+ * head record of every input in a heap, repeatedly taking the earliest one. Memory used is bounded by 
+ * the read-ahead of each input, irrespective of capture size. Records with same timestamp are given 
+ * in the order inputs were passed.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComCaptureMerger {
+
+	private static final int BATCH_SIZE = 256;
+	private static final int READ_AHEAD = 4; // batches queued per input.
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	private final SerialComCaptureStore[] inputs;
+
+	/**
+	 * <p>Records of one input copied out of the capture, handed from reader thread to merging thread.</p>
+	 */
+	private static final class Batch {
+		final long[] timestamps = new long[BATCH_SIZE];
+		final String[] portNames = new String[BATCH_SIZE];
+		final byte[][] data = new byte[BATCH_SIZE][];
+		int count;
+		boolean last;
+		Throwable error;
+	}
+
+	/**
+	 * <p>Reads one input in its own thread and gives records to merging thread in time order.</p>
+	 */
+	private static final class InputCursor implements Comparable<InputCursor>, Runnable, ISerialComCaptureVisitor {
+		private final SerialComCaptureStore store;
+		private final int index;
+		private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(READ_AHEAD);
+		private volatile boolean cancelled;
+		private Batch filling = new Batch();   // used by reader thread.
+		private Batch current;                 // used by merging thread.
+		private int position;
+
+		InputCursor(SerialComCaptureStore store, int index) {
+			this.store = store;
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+			// whatever ends reading, merging thread must get last batch or it waits forever.
+			try {
+				store.scan(this);
+			} catch (Throwable e) {
+				filling.error = e;
+			}
+			filling.last = true;
+			enqueue();
+		}
+
+		@Override
+		public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+			byte[] bytes = new byte[data.remaining()];
+			data.get(bytes);
+			filling.timestamps[filling.count] = timestamp;
+			filling.portNames[filling.count] = portName;
+			filling.data[filling.count] = bytes;
+			filling.count++;
+			if(filling.count == BATCH_SIZE) {
+				if(enqueue() == false) {
+					return false;
+				}
+				filling = new Batch();
+			}
+			return true;
+		}
+
+		/* Queues filled batch, waiting while read-ahead is full. Gives false if merge was cancelled. */
+		private boolean enqueue() {
+			try {
+				while(cancelled == false) {
+					if(queue.offer(filling, 100, TimeUnit.MILLISECONDS) == true) {
+						return true;
+					}
+				}
+			} catch (InterruptedException e) {
+				cancelled = true;
+			}
+			return false;
+		}
+
+		/* Moves to next record, gives false when input is exhausted. */
+		boolean advance() throws IOException {
+			if(current != null) {
+				position++;
+			}
+			while((current == null) || (position >= current.count)) {
+				if((current != null) && (current.last == true)) {
+					return false;
+				}
+				try {
+					current = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for capture records !");
+				}
+				position = 0;
+				if(current.error != null) {
+					rethrow(current.error);
+				}
+			}
+			return true;
+		}
+
+		private static void rethrow(Throwable error) throws IOException {
+			if(error instanceof IOException) {
+				throw (IOException) error;
+			}
+			if(error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			}
+			if(error instanceof Error) {
+				throw (Error) error;
+			}
+			throw new IOException(error.getMessage());
+		}
+
+		long timestamp() {
+			return current.timestamps[position];
+		}
+
+		String portName() {
+			return current.portNames[position];
+		}
+
+		byte[] data() {
+			return current.data[position];
+		}
+
+		void cancel() {
+			cancelled = true;
+			queue.clear();
+		}
+
+		@Override
+		public int compareTo(InputCursor other) {
+			long t1 = timestamp();
+			long t2 = other.timestamp();
+			if(t1 != t2) {
+				return (t1 < t2) ? -1 : 1;
+			}
+			return index - other.index;
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComCaptureMerger object.</p>
+	 * 
+	 * @param inputs capture stores to be merged.
+	 * @throws IllegalArgumentException if inputs is null or empty or contains null.
+	 */
+	public SerialComCaptureMerger(SerialComCaptureStore... inputs) {
+		if((inputs == null) || (inputs.length == 0)) {
+			throw new IllegalArgumentException("Argument inputs must contain at least one capture store !");
+		}
+		for(SerialComCaptureStore input : inputs) {
+			if(input == null) {
+				throw new IllegalArgumentException("Argument inputs can not contain null !");
+			}
+		}
+		this.inputs = inputs.clone();
+	}
+
+	/**
+	 * <p>Gives all records of all inputs to visitor in time order.</p>
+	 * 
+	 * @param visitor object to which records will be given; returning false stops the merge. Data buffer 
+	 *         given to visitor is backed by an array private to the record.
+	 * @return number of records given to visitor.
+	 * @throws IOException if an input can not be read.
+	 * @throws IllegalArgumentException if visitor is null.
+	 */
+	public long merge(ISerialComCaptureVisitor visitor) throws IOException {
+		if(visitor == null) {
+			throw new IllegalArgumentException("Argument visitor can not be null !");
+		}
+
+		InputCursor[] cursors = new InputCursor[inputs.length];
+		for(int x = 0; x < inputs.length; x++) {
+			cursors[x] = new InputCursor(inputs[x], x);
+			Thread reader = new Thread(cursors[x], "SCM capture merge reader " + x);
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		long count = 0;
+		try {
+			PriorityQueue<InputCursor> heap = new PriorityQueue<InputCursor>(inputs.length);
+			for(InputCursor cursor : cursors) {
+				if(cursor.advance() == true) {
+					heap.add(cursor);
+				}
+			}
+			InputCursor cursor = null;
+			while((cursor = heap.poll()) != null) {
+				count++;
+				if(visitor.onCaptureRecord(cursor.timestamp(), cursor.portName(), ByteBuffer.wrap(cursor.data())) == false) {
+					break;
+				}
+				if(cursor.advance() == true) {
+					heap.add(cursor);
+				}
+			}
+		} finally {
+			for(InputCursor cursor : cursors) {
+				cursor.cancel();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Appends all records of all inputs to given store in time order, giving a combined capture.</p>
+	 * 
+	 * @param output capture store to which records are appended, must not be one of the inputs.
+	 * @return number of records appended.
+	 * @throws IOException if an input can not be read or output can not be written.
+	 * @throws IllegalArgumentException if output is null or is one of the inputs.
+	 */
+	public long mergeInto(final SerialComCaptureStore output) throws IOException {
+		if(output == null) {
+			throw new IllegalArgumentException("Argument output can not be null !");
+		}
+		for(SerialComCaptureStore input : inputs) {
+			if(input == output) {
+				throw new IllegalArgumentException("Argument output can not be one of the inputs !");
+			}
+		}
+		final IOException[] failure = new IOException[1];
+		long count = merge(new ISerialComCaptureVisitor() {
+			@Override
+			public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+				try {
+					output.append(portName, timestamp, data.array(), data.arrayOffset() + data.position(), data.remaining());
+				} catch (IOException e) {
+					failure[0] = e;
+					return false;
+				}
+				return true;
+			}
+		});
+		if(failure[0] != null) {
+			throw failure[0];
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Writes all records of all inputs in time order as hex dump, one line per record:</p>
+	 * <p>yyyy-MM-dd HH:mm:ss.SSS portName  41 54 0D  |AT.|</p>
+	 * 
+	 * @param out writer to which dump is written, it is not closed.
+	 * @return number of records written.
+	 * @throws IOException if an input can not be read or dump can not be written.
+	 * @throws IllegalArgumentException if out is null.
+	 */
+	public long mergeToHexDump(final Writer out) throws IOException {
+		if(out == null) {
+			throw new IllegalArgumentException("Argument out can not be null !");
+		}
+		final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+		final Date date = new Date();
+		final StringBuilder line = new StringBuilder(256);
+		final IOException[] failure = new IOException[1];
+		long count = merge(new ISerialComCaptureVisitor() {
+			@Override
+			public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+				date.setTime(timestamp);
+				line.setLength(0);
+				line.append(dateFormat.format(date)).append(' ').append(portName).append(' ');
+				int start = data.position();
+				int end = data.limit();
+				for(int x = start; x < end; x++) {
+					int b = data.get(x) & 0xFF;
+					line.append(' ').append(HEX[b >>> 4]).append(HEX[b & 0x0F]);
+				}
+				line.append("  |");
+				for(int x = start; x < end; x++) {
+					int b = data.get(x) & 0xFF;
+					line.append(((b >= 0x20) && (b < 0x7F)) ? (char) b : '.');
+				}
+				line.append("|\n");
+				try {
+					out.write(line.toString());
+				} catch (IOException e) {
+					failure[0] = e;
+					return false;
+				}
+				return true;
+			}
+		});
+		if(failure[0] != null) {
+			throw failure[0];
+		}
+		return count;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+
+/**
+ * <p>Writes traffic captured in a SerialComCaptureStore into a serial port, with original timing 
+ * between records, time scaled by a speed factor, or as fast as possible. Typically used to reproduce 
+ * field issues or load test an application connected to other end of a serial port or pty pair.</p>
+ * 
+ * <p>Records are read straight from the memory mapped capture, copied into one direct buffer and 
+ * written using SerialComManager.writeBytesDirect. Each write is scheduled on System.nanoTime; the 
+ * pacing loop sleeps while the next write is more than a couple of milliseconds away and then yields 
+ * until it is due, giving sub millisecond accuracy without keeping a CPU busy during long gaps.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComCaptureReplayer {
+
+	/** <p>Speed factor to write records as fast as possible ignoring captured timing.</p> */
+	public static final double AS_FAST_AS_POSSIBLE = 0;
+
+	private static final long SPIN_THRESHOLD = 2000000; // nanoseconds
+
+	private final SerialComManager scm;
+	private final long handle;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+	private volatile boolean stopRequested;
+
+	/**
+	 * <p>Replays records given by capture store query and keeps statistics.</p>
+	 */
+	private final class ReplayVisitor implements ISerialComCaptureVisitor {
+		private final double speed;
+		private long firstTimestamp = -1;
+		private long startTime;
+		private long lastWriteTime;
+		private long lastScheduledTime;
+		private long numRecords;
+		private long numBytes;
+		private long maxLateness;
+		private SerialComException error;
+
+		ReplayVisitor(double speed) {
+			this.speed = speed;
+		}
+
+		@Override
+		public boolean onCaptureRecord(long timestamp, String portName, ByteBuffer data) {
+			if(stopRequested == true) {
+				return false;
+			}
+			int length = data.remaining();
+			if(length > buffer.capacity()) {
+				buffer = ByteBuffer.allocateDirect(Math.max(length, buffer.capacity() << 1));
+			}
+			buffer.clear();
+			buffer.put(data);
+
+			long now = System.nanoTime();
+			if(firstTimestamp < 0) {
+				firstTimestamp = timestamp;
+				startTime = now;
+			}
+			if(speed > 0) {
+				long scheduledTime = startTime + (long) (((timestamp - firstTimestamp) * 1000000L) / speed);
+				now = waitUntil(scheduledTime);
+				if((now - scheduledTime) > maxLateness) {
+					maxLateness = now - scheduledTime;
+				}
+				lastScheduledTime = scheduledTime;
+			}
+
+			int numBytesWritten = 0;
+			try {
+				numBytesWritten = writeFully(length);
+			} catch (SerialComException e) {
+				error = e;
+				return false;
+			}
+			lastWriteTime = System.nanoTime();
+			numBytes = numBytes + numBytesWritten;
+			if(numBytesWritten < length) {
+				return false;
+			}
+			numRecords++;
+			return true;
+		}
+
+		SerialComReplayStats getStats(boolean completed) {
+			return new SerialComReplayStats(numRecords, numBytes, (speed > 0) ? (lastScheduledTime - startTime) : 0, 
+					(numRecords > 0) ? (lastWriteTime - startTime) : 0, maxLateness, completed);
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComCaptureReplayer object.</p>
+	 * 
+	 * @param scm SerialComManager instance to be used for writing.
+	 * @param handle handle of the opened serial port into which traffic will be written.
+	 * @throws IllegalArgumentException if scm is null.
+	 */
+	public SerialComCaptureReplayer(SerialComManager scm, long handle) {
+		if(scm == null) {
+			throw new IllegalArgumentException("Argument scm can not be null !");
+		}
+		this.scm = scm;
+		this.handle = handle;
+	}
+
+	/**
+	 * <p>Replays records of given port (or all ports) captured in given time range. Blocks until all 
+	 * records have been written or stop is called.</p>
+	 * 
+	 * @param store capture store containing traffic.
+	 * @param portName name of port whose records are to be replayed or null for all ports.
+	 * @param fromTime start of time range (inclusive) in milliseconds since epoch.
+	 * @param toTime end of time range (inclusive) in milliseconds since epoch.
+	 * @param speed 1.0 for original timing, greater than 1 to replay faster (e.g. 10 for 10x), less than 1 
+	 *         to replay slower, or AS_FAST_AS_POSSIBLE.
+	 * @return statistics of replay.
+	 * @throws SerialComException if writing to serial port fails.
+	 * @throws IOException if capture can not be read.
+	 * @throws IllegalArgumentException if store is null or speed is negative.
+	 */
+	public synchronized SerialComReplayStats replay(SerialComCaptureStore store, String portName, long fromTime, 
+			long toTime, double speed) throws SerialComException, IOException {
+		if(store == null) {
+			throw new IllegalArgumentException("Argument store can not be null !");
+		}
+		if((speed < 0) || Double.isNaN(speed)) {
+			throw new IllegalArgumentException("Argument speed can not be negative !");
+		}
+
+		stopRequested = false;
+		ReplayVisitor visitor = new ReplayVisitor(speed);
+		store.query(portName, fromTime, toTime, visitor);
+		if(visitor.error != null) {
+			throw visitor.error;
+		}
+		return visitor.getStats(stopRequested == false);
+	}
+
+	/**
+	 * <p>Stops replay in progress after the record being written. Can be called from any thread.</p>
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/* Sleeps while scheduled time is far, then yields until it arrives. Gives current time. */
+	private long waitUntil(long scheduledTime) {
+		long remaining = scheduledTime - System.nanoTime();
+		while(remaining > 0) {
+			if(stopRequested == true) {
+				break;
+			}
+			if(remaining > SPIN_THRESHOLD) {
+				try {
+					Thread.sleep((remaining - SPIN_THRESHOLD) / 1000000, (int) ((remaining - SPIN_THRESHOLD) % 1000000));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					stopRequested = true;
+					break;
+				}
+			}else {
+				Thread.yield();
+			}
+			remaining = scheduledTime - System.nanoTime();
+		}
+		return System.nanoTime();
+	}
+
+	/* Writes length bytes from start of buffer, retrying when port accepts only part of them. Gives 
+	 * number of bytes written, which is less than length only if stop was requested meanwhile. */
+	private int writeFully(int length) throws SerialComException {
+		int offset = 0;
+		int ret = 0;
+		while((offset < length) && (stopRequested == false)) {
+			ret = scm.writeBytesDirect(handle, buffer, offset, length - offset);
+			if(ret == 0) {
+				// output buffer of port is full, give it time to drain.
+				Thread.yield();
+			}
+			offset = offset + ret;
+		}
+		return offset;
+	}
+}
@@ -0,0 +1,341 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>One segment file of a capture store together with its sparse time index.</p>
+ * 
+ * <p>Segment file is created with its full size and memory mapped. Each record is laid out as 
+ * [int record length][long timestamp][int port id][data bytes]; a record length of 0 marks end of 
+ * data. Every INDEX_INTERVAL bytes, timestamp and offset of the record is added to the index which 
+ * is kept in memory and appended to a small index file.</p>
+ * 
+ * <p>Segment is modified only while lock of capture store is held. Readers take a View under the same 
+ * lock and use it afterwards without locking; index arrays are only appended to (and replaced when 
+ * grown), so entries and data covered by a view never change.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComCaptureSegment {
+
+	static final int RECORD_HEADER_SIZE = 16;
+	private static final int INDEX_INTERVAL = 32 * 1024;
+
+	private final File dataFile;
+	private final File indexFile;
+	private final int sequence;
+	private long[] indexTimes = new long[64];
+	private int[] indexOffsets = new int[64];
+	private int numIndexEntries;
+	private int lastIndexedOffset = -INDEX_INTERVAL;
+	private int writePosition;
+	private long lastTimestamp = Long.MIN_VALUE;
+	private volatile MappedByteBuffer writeBuffer; // only for active segment.
+	private DataOutputStream indexOutStream; // only for active segment.
+
+	/**
+	 * <p>Allocates a new SerialComCaptureSegment object.</p>
+	 * 
+	 * @param directory directory in which segment files are kept.
+	 * @param sequence sequence number of this segment.
+	 */
+	SerialComCaptureSegment(File directory, int sequence) {
+		this.sequence = sequence;
+		this.dataFile = new File(directory, String.format("segment-%08d.scap", sequence));
+		this.indexFile = new File(directory, String.format("segment-%08d.sidx", sequence));
+	}
+
+	int getSequence() {
+		return sequence;
+	}
+
+	File getDataFile() {
+		return dataFile;
+	}
+
+	File getIndexFile() {
+		return indexFile;
+	}
+
+	/**
+	 * <p>Loads index of an existing segment and finds end of data by scanning records after last 
+	 * index entry.</p>
+	 * 
+	 * @throws IOException if files can not be read.
+	 */
+	void load() throws IOException {
+		DataInputStream in = null;
+		if(indexFile.exists() == true) {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			try {
+				while(true) {
+					long time = in.readLong();
+					int offset = in.readInt();
+					addIndexEntry(time, offset);
+				}
+			} catch (EOFException e) {
+				// all entries read, a partially written last entry is ignored.
+			} finally {
+				in.close();
+			}
+		}
+
+		ByteBuffer buffer = mapForReading(0);
+		int position = (numIndexEntries > 0) ? indexOffsets[numIndexEntries - 1] : 0;
+		int length = 0;
+		while((position + RECORD_HEADER_SIZE) <= buffer.limit()) {
+			length = buffer.getInt(position);
+			if((length < RECORD_HEADER_SIZE) || ((position + length) > buffer.limit())) {
+				break;
+			}
+			lastTimestamp = buffer.getLong(position + 4);
+			if(numIndexEntries == 0) {
+				addIndexEntry(lastTimestamp, position);
+			}
+			position = position + length;
+		}
+		writePosition = position;
+	}
+
+	/**
+	 * <p>Creates (or opens existing) segment file with given size for appending records.</p>
+	 * 
+	 * @param segmentSize size of segment file in bytes.
+	 * @throws IOException if file can not be created or mapped.
+	 */
+	void openForAppend(int segmentSize) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(dataFile, "rw");
+		try {
+			if(raf.length() < segmentSize) {
+				raf.setLength(segmentSize);
+			}
+			writeBuffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+		} finally {
+			// mapping stays valid after channel is closed.
+			raf.close();
+		}
+		indexOutStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+	}
+
+	/**
+	 * <p>Tells whether a record with given number of data bytes fits in this segment.</p>
+	 * 
+	 * @param dataLength number of data bytes.
+	 * @return true if record fits.
+	 */
+	boolean hasSpaceFor(int dataLength) {
+		// 4 bytes are kept free for end of data marker.
+		return (writePosition + RECORD_HEADER_SIZE + dataLength + 4) <= writeBuffer.capacity();
+	}
+
+	/**
+	 * <p>Appends a record. Caller must make sure that there is space and must serialize calls.</p>
+	 * 
+	 * @param timestamp time at which data was captured.
+	 * @param portId id of the serial port.
+	 * @param data buffer containing data bytes.
+	 * @param offset index in data of first byte.
+	 * @param length number of data bytes.
+	 * @throws IOException if index file can not be written.
+	 */
+	void append(long timestamp, int portId, byte[] data, int offset, int length) throws IOException {
+		int position = writePosition;
+		if((position - lastIndexedOffset) >= INDEX_INTERVAL) {
+			addIndexEntry(timestamp, position);
+			indexOutStream.writeLong(timestamp);
+			indexOutStream.writeInt(position);
+			lastIndexedOffset = position;
+		}
+
+		// length is written last so that a reader never sees a partially written record.
+		writeBuffer.putLong(position + 4, timestamp);
+		writeBuffer.putInt(position + 12, portId);
+		writeBuffer.position(position + RECORD_HEADER_SIZE);
+		writeBuffer.put(data, offset, length);
+		writeBuffer.putInt(position, RECORD_HEADER_SIZE + length);
+		lastTimestamp = timestamp;
+		writePosition = position + RECORD_HEADER_SIZE + length;
+	}
+
+	/**
+	 * <p>Forces data and index to storage and releases resources used for appending.</p>
+	 * 
+	 * @throws IOException if index file can not be written.
+	 */
+	void closeForAppend() throws IOException {
+		if(writeBuffer != null) {
+			writeBuffer.force();
+			writeBuffer = null;
+		}
+		if(indexOutStream != null) {
+			indexOutStream.close();
+			indexOutStream = null;
+		}
+	}
+
+	/**
+	 * <p>Flushes index entries to index file.</p>
+	 * 
+	 * @throws IOException if index file can not be written.
+	 */
+	void flushIndex() throws IOException {
+		if(indexOutStream != null) {
+			indexOutStream.flush();
+		}
+	}
+
+	long getLastTimestamp() {
+		return lastTimestamp;
+	}
+
+	/**
+	 * <p>Gives consistent view of data and index written till now. Must be called with lock of 
+	 * capture store held.</p>
+	 * 
+	 * @return view of this segment.
+	 */
+	View snapshot() {
+		return new View(this, writePosition, lastTimestamp, indexTimes, indexOffsets, numIndexEntries);
+	}
+
+	/**
+	 * <p>State of a segment at the time View was taken, safe to use without lock.</p>
+	 */
+	static final class View {
+		private final SerialComCaptureSegment segment;
+		private final int end;
+		private final long lastTimestamp;
+		private final long[] indexTimes;
+		private final int[] indexOffsets;
+		private final int numIndexEntries;
+
+		View(SerialComCaptureSegment segment, int end, long lastTimestamp, long[] indexTimes, int[] indexOffsets, 
+				int numIndexEntries) {
+			this.segment = segment;
+			this.end = end;
+			this.lastTimestamp = lastTimestamp;
+			this.indexTimes = indexTimes;
+			this.indexOffsets = indexOffsets;
+			this.numIndexEntries = numIndexEntries;
+		}
+
+		long getFirstTimestamp() {
+			return (numIndexEntries > 0) ? indexTimes[0] : Long.MAX_VALUE;
+		}
+
+		long getLastTimestamp() {
+			return lastTimestamp;
+		}
+
+		/**
+		 * <p>Gives offset of a record from where scanning should start to find records at or after given 
+		 * time, using binary search in sparse index.</p>
+		 * 
+		 * @param fromTime time from which records are wanted.
+		 * @return offset in segment.
+		 */
+		int findStartOffset(long fromTime) {
+			int low = 0;
+			int high = numIndexEntries - 1;
+			int mid = 0;
+			int result = 0;
+			// find last index entry with time strictly less than fromTime, records with same time may 
+			// also exist just before an entry having time equal to fromTime.
+			while(low <= high) {
+				mid = (low + high) >>> 1;
+				if(indexTimes[mid] < fromTime) {
+					result = indexOffsets[mid];
+					low = mid + 1;
+				}else {
+					high = mid - 1;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * <p>Gives read only view of the data covered by this view.</p>
+		 * 
+		 * @return buffer with limit set to end of data.
+		 * @throws IOException if segment file can not be mapped.
+		 */
+		ByteBuffer map() throws IOException {
+			if(end == 0) {
+				return ByteBuffer.allocate(0);
+			}
+			return segment.mapForReading(end);
+		}
+	}
+
+	/**
+	 * <p>Gives read only view of the data written in this segment till given position.</p>
+	 * 
+	 * @param end end of data to be visible, 0 for whole file.
+	 * @return buffer with limit set to end of data.
+	 * @throws IOException if segment file can not be mapped.
+	 */
+	private ByteBuffer mapForReading(int end) throws IOException {
+		MappedByteBuffer activeBuffer = writeBuffer;
+		if(activeBuffer != null) {
+			ByteBuffer buffer = activeBuffer.asReadOnlyBuffer();
+			buffer.limit(end);
+			buffer.position(0);
+			return buffer;
+		}
+		RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+		try {
+			ByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			if(end > 0) {
+				buffer.limit(end);
+			}
+			return buffer;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void addIndexEntry(long time, int offset) {
+		if(numIndexEntries == indexTimes.length) {
+			long[] times = new long[numIndexEntries << 1];
+			int[] offsets = new int[numIndexEntries << 1];
+			System.arraycopy(indexTimes, 0, times, 0, numIndexEntries);
+			System.arraycopy(indexOffsets, 0, offsets, 0, numIndexEntries);
+			indexTimes = times;
+			indexOffsets = offsets;
+		}
+		indexTimes[numIndexEntries] = time;
+		indexOffsets[numIndexEntries] = offset;
+		numIndexEntries++;
+		lastIndexedOffset = offset;
+	}
+}
@@ -0,0 +1,353 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+
+/**
+ * <p>Stores raw serial traffic of any number of ports as timestamped, port tagged records in 
+ * memory mapped segment files kept in a directory, and answers queries like "data of port X between 
+ * 10:02 and 10:05" without loading whole files.</p>
+ * 
+ * <p>Records are appended to the active segment; when it is full a new segment is started. Each 
+ * segment has a sparse time index, so a range query maps only the segments overlapping the time 
+ * range, binary searches the index and scans sequentially from there. Timestamps are milliseconds 
+ * since epoch and never go backwards within a store.</p>
+ * 
+ * <p>Appending and querying can be done from different threads at the same time.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComCaptureStore {
+
+	private static final String PORTS_FILE = "ports.txt";
+
+	private final File directory;
+	private final int segmentSize;
+	private final List<SerialComCaptureSegment> segments = new ArrayList<SerialComCaptureSegment>();
+	private final Map<String, Integer> portIds = new HashMap<String, Integer>();
+	private final List<String> portNames = new ArrayList<String>();
+	private SerialComCaptureSegment activeSegment;
+	private long lastTimestamp;
+	private boolean closed;
+
+	/**
+	 * <p>Captures data received through data listener mechanism into the store.</p>
+	 */
+	private final class CaptureListener implements ISerialComDataListener {
+		private final String portName;
+		private final ISerialComToFileErrListener errListener;
+
+		CaptureListener(String portName, ISerialComToFileErrListener errListener) {
+			this.portName = portName;
+			this.errListener = errListener;
+		}
+
+		@Override
+		public void onNewSerialDataAvailable(byte[] data) {
+			try {
+				append(portName, System.currentTimeMillis(), data, 0, data.length);
+			} catch (IOException e) {
+				if(errListener != null) {
+					errListener.onLogError(e);
+				}
+			}
+		}
+
+		@Override
+		public void onDataListenerError(int errorNum) {
+			if(errListener != null) {
+				errListener.onLogError(new IOException("Error " + errorNum + " occurred while reading data from serial port " + portName + " !"));
+			}
+		}
+	}
+
+	/**
+	 * <p>Opens capture store in given directory, creating it if it does not exist. Existing segments 
+	 * are loaded and new records are appended after the existing ones.</p>
+	 * 
+	 * @param directory directory in which segment files are kept.
+	 * @param segmentSize size of each segment file in bytes (at least 64 KB).
+	 * @throws IOException if directory or files can not be created or read.
+	 * @throws IllegalArgumentException if directory is null or segmentSize is less than 64 KB.
+	 */
+	public SerialComCaptureStore(File directory, int segmentSize) throws IOException {
+		if(directory == null) {
+			throw new IllegalArgumentException("Argument directory can not be null !");
+		}
+		if(segmentSize < 65536) {
+			throw new IllegalArgumentException("Argument segmentSize must be at least 65536 !");
+		}
+		if((directory.isDirectory() == false) && (directory.mkdirs() == false)) {
+			throw new IOException("Could not create directory " + directory.getPath() + " !");
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+
+		loadPortNames();
+
+		File[] files = directory.listFiles();
+		List<Integer> sequences = new ArrayList<Integer>();
+		if(files != null) {
+			for(File file : files) {
+				String name = file.getName();
+				if(name.startsWith("segment-") && name.endsWith(".scap")) {
+					try {
+						sequences.add(Integer.valueOf(name.substring(8, name.length() - 5)));
+					} catch (NumberFormatException e) {
+					}
+				}
+			}
+		}
+		Collections.sort(sequences);
+		for(Integer sequence : sequences) {
+			SerialComCaptureSegment segment = new SerialComCaptureSegment(directory, sequence.intValue());
+			segment.load();
+			segments.add(segment);
+			if(segment.getLastTimestamp() > lastTimestamp) {
+				lastTimestamp = segment.getLastTimestamp();
+			}
+		}
+
+		if(segments.isEmpty() == true) {
+			activeSegment = new SerialComCaptureSegment(directory, 1);
+			segments.add(activeSegment);
+		}else {
+			activeSegment = segments.get(segments.size() - 1);
+		}
+		activeSegment.openForAppend(segmentSize);
+	}
+
+	/**
+	 * <p>Appends a record to the store.</p>
+	 * 
+	 * @param portName name of the serial port from which data was received.
+	 * @param timestamp time in milliseconds since epoch at which data was received; if it is earlier 
+	 *         than last record, time of last record is used.
+	 * @param data buffer containing data bytes.
+	 * @param offset index in data of first byte.
+	 * @param length number of data bytes.
+	 * @throws IOException if store is closed or new segment can not be created.
+	 * @throws IllegalArgumentException if portName or data is null or record is larger than a segment.
+	 */
+	public synchronized void append(String portName, long timestamp, byte[] data, int offset, int length) throws IOException {
+		if(portName == null) {
+			throw new IllegalArgumentException("Argument portName can not be null !");
+		}
+		if(data == null) {
+			throw new IllegalArgumentException("Argument data can not be null !");
+		}
+		if((offset < 0) || (length < 0) || (length > (data.length - offset))) {
+			throw new IndexOutOfBoundsException("Index violation detected in given byte array !");
+		}
+		if((length + SerialComCaptureSegment.RECORD_HEADER_SIZE + 4) > segmentSize) {
+			throw new IllegalArgumentException("Argument length is too large for segment size !");
+		}
+		if(closed == true) {
+			throw new IOException("Capture store is already closed !");
+		}
+
+		if(timestamp < lastTimestamp) {
+			timestamp = lastTimestamp;
+		}
+		if(activeSegment.hasSpaceFor(length) == false) {
+			SerialComCaptureSegment segment = new SerialComCaptureSegment(directory, activeSegment.getSequence() + 1);
+			segment.openForAppend(segmentSize);
+			activeSegment.closeForAppend();
+			segments.add(segment);
+			activeSegment = segment;
+		}
+		activeSegment.append(timestamp, getPortId(portName), data, offset, length);
+		lastTimestamp = timestamp;
+	}
+
+	/**
+	 * <p>Creates data listener which captures data of given port into this store. It should be registered 
+	 * using SerialComManager.registerDataListener method.</p>
+	 * 
+	 * @param portName name of the serial port, used to tag records.
+	 * @param errListener listener which will be informed if saving data fails, can be null.
+	 * @return data listener.
+	 * @throws IllegalArgumentException if portName is null.
+	 */
+	public ISerialComDataListener createDataListener(String portName, ISerialComToFileErrListener errListener) {
+		if(portName == null) {
+			throw new IllegalArgumentException("Argument portName can not be null !");
+		}
+		return new CaptureListener(portName, errListener);
+	}
+
+	/**
+	 * <p>Gives records of given port (or all ports) captured in given time range to visitor in the 
+	 * order they were captured.</p>
+	 * 
+	 * @param portName name of port whose records are wanted or null for all ports.
+	 * @param fromTime start of time range (inclusive) in milliseconds since epoch.
+	 * @param toTime end of time range (inclusive) in milliseconds since epoch.
+	 * @param visitor object to which records will be given.
+	 * @return number of records given to visitor.
+	 * @throws IOException if segment files can not be read.
+	 * @throws IllegalArgumentException if visitor is null.
+	 */
+	public long query(String portName, long fromTime, long toTime, ISerialComCaptureVisitor visitor) throws IOException {
+		if(visitor == null) {
+			throw new IllegalArgumentException("Argument visitor can not be null !");
+		}
+
+		// port table and segment views are taken together, so every record visible through views has 
+		// its port name in the table.
+		int wantedPortId = -1;
+		String[] names = null;
+		SerialComCaptureSegment.View[] views = null;
+		synchronized(this) {
+			if(portName != null) {
+				Integer id = portIds.get(portName);
+				if(id == null) {
+					return 0;
+				}
+				wantedPortId = id.intValue();
+			}
+			names = portNames.toArray(new String[portNames.size()]);
+			views = new SerialComCaptureSegment.View[segments.size()];
+			for(int x = 0; x < views.length; x++) {
+				views[x] = segments.get(x).snapshot();
+			}
+		}
+
+		long count = 0;
+		for(SerialComCaptureSegment.View view : views) {
+			if((view.getFirstTimestamp() > toTime) || (view.getLastTimestamp() < fromTime)) {
+				continue;
+			}
+			ByteBuffer buffer = view.map();
+			int position = view.findStartOffset(fromTime);
+			int end = buffer.limit();
+			while((position + SerialComCaptureSegment.RECORD_HEADER_SIZE) <= end) {
+				int length = buffer.getInt(position);
+				if((length < SerialComCaptureSegment.RECORD_HEADER_SIZE) || ((position + length) > end)) {
+					break;
+				}
+				long timestamp = buffer.getLong(position + 4);
+				if(timestamp > toTime) {
+					return count;
+				}
+				int portId = buffer.getInt(position + 12);
+				if((timestamp >= fromTime) && ((wantedPortId < 0) || (portId == wantedPortId)) 
+						&& (portId >= 0) && (portId < names.length)) {
+					buffer.limit(position + length);
+					buffer.position(position + SerialComCaptureSegment.RECORD_HEADER_SIZE);
+					count++;
+					boolean proceed = visitor.onCaptureRecord(timestamp, names[portId], buffer.slice());
+					buffer.limit(end);
+					if(proceed == false) {
+						return count;
+					}
+				}
+				position = position + length;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Gives all records in the store to visitor in the order they were captured.</p>
+	 * 
+	 * @param visitor object to which records will be given.
+	 * @return number of records given to visitor.
+	 * @throws IOException if segment files can not be read.
+	 */
+	public long scan(ISerialComCaptureVisitor visitor) throws IOException {
+		return query(null, Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+	}
+
+	/**
+	 * <p>Makes index of active segment durable so that a crash loses at most unflushed data pages.</p>
+	 * 
+	 * @throws IOException if index file can not be written.
+	 */
+	public synchronized void flush() throws IOException {
+		if(closed == false) {
+			activeSegment.flushIndex();
+		}
+	}
+
+	/**
+	 * <p>Forces active segment to storage and closes the store. Calling close on an already closed 
+	 * store has no effect.</p>
+	 * 
+	 * @throws IOException if files can not be written.
+	 */
+	public synchronized void close() throws IOException {
+		if(closed == true) {
+			return;
+		}
+		closed = true;
+		activeSegment.closeForAppend();
+	}
+
+	/* Gives id of port, assigning a new one (and saving it) for a port seen first time. */
+	private int getPortId(String portName) throws IOException {
+		Integer id = portIds.get(portName);
+		if(id != null) {
+			return id.intValue();
+		}
+		Writer out = new OutputStreamWriter(new FileOutputStream(new File(directory, PORTS_FILE), true), "UTF-8");
+		try {
+			out.write(portName);
+			out.write('\n');
+		} finally {
+			out.close();
+		}
+		portIds.put(portName, Integer.valueOf(portNames.size()));
+		portNames.add(portName);
+		return portNames.size() - 1;
+	}
+
+	private void loadPortNames() throws IOException {
+		File file = new File(directory, PORTS_FILE);
+		if(file.exists() == false) {
+			return;
+		}
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line = null;
+			while((line = in.readLine()) != null) {
+				portIds.put(line, Integer.valueOf(portNames.size()));
+				portNames.add(line);
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
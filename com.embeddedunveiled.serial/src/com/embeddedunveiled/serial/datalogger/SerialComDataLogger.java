@@ -18,9 +18,21 @@
 
 package com.embeddedunveiled.serial.datalogger;
 
+import java.io.File;
+import java.io.IOException;
+
+import com.embeddedunveiled.serial.SerialComException;
 import com.embeddedunveiled.serial.SerialComManager;
 
 /**
+ * <p>Logs data packets received from a serial port (log source) to a file.</p>
+ * 
+ * <p>A reader stage reads serial port in the style configured in SerialComLogSource and extracts 
+ * packets as per configured start and stop events. If packet structure, field filter or field 
+ * conversion is configured, packets are split into fields which are filtered and converted in place 
+ * before being logged. A writer stage (SerialComLogFileWriter) saves 
+ * packets in memory and appends them to file in large batches from a background thread. A writer 
+ * can be shared by many data loggers.</p>
  * 
  * @author Rishi Gupta
  */
@@ -62,6 +74,9 @@ public final class SerialComDataLogger {
 	private int[] lengthOfEachField;
 	private int dataFieldFilter;
 	private int dataFieldFormConversion;
+	private SerialComLogFileWriter writer;
+	private boolean ownsWriter;
+	private SerialComLogReader reader;
 
 	public SerialComDataLogger(SerialComManager scm, SerialComLogSource scls, ISerialComToFileErrListener errListener) {
 		this.scm = scm;
@@ -78,7 +93,7 @@ public final class SerialComDataLogger {
 
 	public void setDataPacketStopEvent(int dataPacketStopEvent, int dataPacketdelayTime, char dataPacketEndChar, 
 			int dataPacketLength) {
-		if((dataPacketStartEvent < 0x06) || (dataPacketStartEvent > 0x09)) {
+		if((dataPacketStopEvent < 0x06) || (dataPacketStopEvent > 0x09)) {
 			throw new IllegalArgumentException("Argument dataPacketStopEvent is invalid !");
 		}
 		this.dataPacketStopEvent = dataPacketStopEvent;
@@ -133,10 +148,96 @@ public final class SerialComDataLogger {
 		this.dataFieldFormConversion = dataFieldFormConversion;
 	}
 
-}
-
-
+	/**
+	 * <p>Starts logging data packets to the given file. If the file exists, packets are added at its end.</p>
+	 * 
+	 * @param logFile file in which packets are to be logged.
+	 * @throws IOException if file can not be opened.
+	 * @throws SerialComException if reading from serial port can not be started.
+	 * @throws IllegalStateException if logging has already been started.
+	 * @throws IllegalArgumentException if logFile is null.
+	 */
+	public synchronized void startLogging(File logFile) throws IOException, SerialComException {
+		startLogging(logFile, null);
+	}
 
+	/**
+	 * <p>Starts logging data packets to the given file, rotating it as per given policy. If the file 
+	 * exists, packets are added at its end. Rotated segments are compressed and old ones deleted in 
+	 * background without blocking logging.</p>
+	 * 
+	 * @param logFile file in which packets are to be logged.
+	 * @param rotationPolicy when to rotate log file and what to do with rotated segments, null to never rotate.
+	 * @throws IOException if file can not be opened.
+	 * @throws SerialComException if reading from serial port can not be started.
+	 * @throws IllegalStateException if logging has already been started.
+	 * @throws IllegalArgumentException if logFile is null.
+	 */
+	public synchronized void startLogging(File logFile, SerialComLogRotationPolicy rotationPolicy) throws IOException, 
+			SerialComException {
+		if(reader != null) {
+			throw new IllegalStateException("Logging has already been started !");
+		}
+		SerialComLogFileWriter fileWriter = new SerialComLogFileWriter(logFile, true, 65536, rotationPolicy, errListener);
+		try {
+			startLogging(fileWriter);
+		} catch (SerialComException e) {
+			fileWriter.close();
+			throw e;
+		}
+		ownsWriter = true;
+	}
 
+	/**
+	 * <p>Starts logging data packets using the given writer. The writer may be shared with other data 
+	 * loggers and is not closed when logging is stopped.</p>
+	 * 
+	 * @param writer log file writer to which packets will be given.
+	 * @throws SerialComException if reading from serial port can not be started.
+	 * @throws IllegalStateException if logging has already been started.
+	 * @throws IllegalArgumentException if writer is null.
+	 */
+	public synchronized void startLogging(SerialComLogFileWriter writer) throws SerialComException {
+		if(writer == null) {
+			throw new IllegalArgumentException("Argument writer can not be null !");
+		}
+		if(reader != null) {
+			throw new IllegalStateException("Logging has already been started !");
+		}
 
+		int startEvent = (dataPacketStartEvent != 0) ? dataPacketStartEvent : DP_START_ANY_CHAR;
+		int stopEvent = (dataPacketStopEvent != 0) ? dataPacketStopEvent : DP_STOP_CRLF;
+		SerialComFieldExtractor extractor = new SerialComFieldExtractor(dataPacketStructure, fieldDelimiter, 
+				lengthOfEachField, dataFieldFilter, dataFieldFormConversion, writer);
+		SerialComPacketAssembler assembler = new SerialComPacketAssembler(startEvent, stopEvent, dataPacketdelayTime, 
+				dataPacketEndChar, dataPacketLength, extractor);
+		SerialComLogReader logReader = new SerialComLogReader(scm, source, assembler, errListener);
+		logReader.start();
+
+		this.writer = writer;
+		this.ownsWriter = false;
+		this.reader = logReader;
+	}
 
+	/**
+	 * <p>Stops logging. Packet in progress (if any) is logged as it is. If the writer was created by 
+	 * this data logger, all packets are written to file and file is closed.</p>
+	 * 
+	 * @throws SerialComException if reading from serial port can not be stopped.
+	 * @throws IOException if closing log file fails.
+	 */
+	public synchronized void stopLogging() throws SerialComException, IOException {
+		if(reader == null) {
+			return;
+		}
+		try {
+			reader.stop();
+		} finally {
+			reader = null;
+			if(ownsWriter == true) {
+				writer.close();
+			}
+			writer = null;
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.IOException;
+
+/**
+ * <p>Splits data packets into fields, filters and converts the fields as configured in 
+ * SerialComDataLogger and gives resulting packet to log file writer.</p>
+ * 
+ * <p>The configuration is compiled once when logging starts: structure decides how field boundaries 
+ * are found, and digit lookup tables are built for the input and output number system. A packet is 
+ * then parsed in place, fields are represented by offset/length pairs in the packet and numbers are 
+ * parsed and formatted directly between byte arrays, so no objects are created per packet or field.</p>
+ * 
+ * <p>Trailing CR/LF of the packet is not part of the last field. Fields are written separated by the 
+ * field delimiter (comma if no delimiter was given). Filter FIELD_FILTER_DROP leaves out empty fields, 
+ * FIELD_FILTER_NUM_ONLY leaves out fields which are not numbers in input number system (decimal 
+ * number with optional sign and fraction if no conversion is configured). A conversion is applied to 
+ * fields which are valid numbers of at most 64 bits, others are written as they are.</p>
+ * 
+ * <p>Not thread safe, SerialComPacketAssembler calls it with its lock held.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComFieldExtractor {
+
+	private static final byte CR = 0x0D;
+	private static final byte LF = 0x0A;
+	private static final byte[] DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+	private final SerialComLogFileWriter writer;
+	private final boolean passThrough;
+	private final int structure;
+	private final byte delimiter;
+	private final byte outDelimiter;
+	private final int[] fieldLengths;
+	private final int filter;
+	private final int inShift;        // bits per input digit for conversion, 0 if no conversion.
+	private final boolean outDecimal;
+	private final byte[] digitValue;  // value of each byte as digit of input radix, -1 if not a digit.
+	private int[] fieldOffset = new int[16];
+	private int[] fieldLength = new int[16];
+	private byte[] out = new byte[256];
+	private final byte[] number = new byte[20];
+
+	/**
+	 * <p>Allocates a new SerialComFieldExtractor object which writes packets unchanged.</p>
+	 * 
+	 * @param writer writer to which packets are given.
+	 */
+	SerialComFieldExtractor(SerialComLogFileWriter writer) {
+		this(0, (char) 0, null, 0, 0, writer);
+	}
+
+	/**
+	 * <p>Allocates a new SerialComFieldExtractor object and compiles given configuration.</p>
+	 * 
+	 * @param structure one of the SerialComDataLogger.DP_TYPE_XXX constants or 0 if not configured.
+	 * @param fieldDelimiter delimiter for DP_TYPE_MULTIPLE_DELIMITED_FIELDS, also used in output.
+	 * @param lengthOfEachField field lengths for DP_TYPE_MUPLTIPLE_FIXED_LENGTH_FIELDS.
+	 * @param filter one of the SerialComDataLogger.FIELD_FILTER_XXX constants or 0 if not configured.
+	 * @param conversion one of the SerialComDataLogger.FIELD_CONVERT_XXX constants or 0 if not configured.
+	 * @param writer writer to which resulting packets are given.
+	 */
+	SerialComFieldExtractor(int structure, char fieldDelimiter, int[] lengthOfEachField, int filter, int conversion, 
+			SerialComLogFileWriter writer) {
+		this.writer = writer;
+		this.structure = (structure != 0) ? structure : SerialComDataLogger.DP_TYPE_SINGLE_FIELD;
+		this.filter = (filter != 0) ? filter : SerialComDataLogger.FIELD_FILTER_NONE;
+		this.delimiter = (byte) fieldDelimiter;
+		this.outDelimiter = (fieldDelimiter != 0) ? (byte) fieldDelimiter : (byte) ',';
+		this.fieldLengths = (lengthOfEachField != null) ? lengthOfEachField.clone() : null;
+
+		switch(conversion) {
+		case SerialComDataLogger.FIELD_CONVERT_HEX_TO_DEC:
+			inShift = 4;
+			outDecimal = true;
+			break;
+		case SerialComDataLogger.FIELD_CONVERT_OCT_TO_DEC:
+			inShift = 3;
+			outDecimal = true;
+			break;
+		case SerialComDataLogger.FIELD_CONVERT_BIN_TO_HEX:
+			inShift = 1;
+			outDecimal = false;
+			break;
+		default:
+			inShift = 0;
+			outDecimal = false;
+		}
+
+		digitValue = new byte[256];
+		int radix = (inShift != 0) ? (1 << inShift) : 10;
+		for(int x = 0; x < 256; x++) {
+			digitValue[x] = (byte) Character.digit((char) x, radix);
+		}
+
+		passThrough = (this.structure == SerialComDataLogger.DP_TYPE_SINGLE_FIELD) 
+				&& (this.filter == SerialComDataLogger.FIELD_FILTER_NONE) && (inShift == 0);
+	}
+
+	/**
+	 * <p>Processes one complete packet.</p>
+	 * 
+	 * @param data buffer containing packet.
+	 * @param offset index in data at which packet starts.
+	 * @param length number of bytes in packet.
+	 * @throws IOException if log file writer has been closed.
+	 */
+	void process(byte[] data, int offset, int length) throws IOException {
+		if(passThrough == true) {
+			writer.writePacket(data, offset, length);
+			return;
+		}
+
+		int end = offset + length;
+		while((end > offset) && ((data[end - 1] == LF) || (data[end - 1] == CR))) {
+			end--;
+		}
+
+		int numFields = split(data, offset, end);
+		int count = 0;
+		boolean first = true;
+		for(int x = 0; x < numFields; x++) {
+			int start = fieldOffset[x];
+			int len = fieldLength[x];
+			if((filter == SerialComDataLogger.FIELD_FILTER_DROP) && (len == 0)) {
+				continue;
+			}
+			if((filter == SerialComDataLogger.FIELD_FILTER_NUM_ONLY) && (isNumber(data, start, len) == false)) {
+				continue;
+			}
+			// a field can become longer on conversion, at most 20 digits plus delimiter and line end.
+			ensureOutCapacity(count + len + 24);
+			if(first == false) {
+				out[count++] = outDelimiter;
+			}
+			first = false;
+			int converted = (inShift != 0) ? convert(data, start, len, count) : -1;
+			if(converted >= 0) {
+				count = converted;
+			}else {
+				System.arraycopy(data, start, out, count, len);
+				count = count + len;
+			}
+		}
+		if(count == 0) {
+			// all fields filtered out, nothing to log.
+			return;
+		}
+		out[count++] = LF;
+		writer.writePacket(out, 0, count);
+	}
+
+	/* Finds field boundaries, gives number of fields found. */
+	private int split(byte[] data, int offset, int end) {
+		int numFields = 0;
+		if(structure == SerialComDataLogger.DP_TYPE_MULTIPLE_DELIMITED_FIELDS) {
+			int start = offset;
+			for(int x = offset; x <= end; x++) {
+				if((x == end) || (data[x] == delimiter)) {
+					numFields = addField(numFields, start, x - start);
+					start = x + 1;
+				}
+			}
+		}else if(structure == SerialComDataLogger.DP_TYPE_MUPLTIPLE_FIXED_LENGTH_FIELDS) {
+			int start = offset;
+			for(int x = 0; (x < fieldLengths.length) && (start < end); x++) {
+				int len = Math.min(fieldLengths[x], end - start);
+				numFields = addField(numFields, start, len);
+				start = start + len;
+			}
+		}else {
+			numFields = addField(numFields, offset, end - offset);
+		}
+		return numFields;
+	}
+
+	private int addField(int index, int start, int length) {
+		if(index == fieldOffset.length) {
+			int[] tmp = new int[index << 1];
+			System.arraycopy(fieldOffset, 0, tmp, 0, index);
+			fieldOffset = tmp;
+			tmp = new int[index << 1];
+			System.arraycopy(fieldLength, 0, tmp, 0, index);
+			fieldLength = tmp;
+		}
+		fieldOffset[index] = start;
+		fieldLength[index] = length;
+		return index + 1;
+	}
+
+	/* Tells whether field is a number in input number system. */
+	private boolean isNumber(byte[] data, int start, int len) {
+		int end = start + len;
+		if(inShift != 0) {
+			start = skipPrefix(data, start, end);
+			if(start == end) {
+				return false;
+			}
+			for(int x = start; x < end; x++) {
+				if(digitValue[data[x] & 0xFF] < 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		if((start < end) && ((data[start] == '-') || (data[start] == '+'))) {
+			start++;
+		}
+		boolean digitSeen = false;
+		boolean pointSeen = false;
+		for(int x = start; x < end; x++) {
+			if(data[x] == '.') {
+				if(pointSeen == true) {
+					return false;
+				}
+				pointSeen = true;
+			}else if(digitValue[data[x] & 0xFF] >= 0) {
+				digitSeen = true;
+			}else {
+				return false;
+			}
+		}
+		return digitSeen;
+	}
+
+	/* Skips 0x or 0b prefix for hexadecimal and binary input. */
+	private int skipPrefix(byte[] data, int start, int end) {
+		if(((end - start) > 2) && (data[start] == '0')) {
+			byte p = data[start + 1];
+			if(((inShift == 4) && ((p == 'x') || (p == 'X'))) || ((inShift == 1) && ((p == 'b') || (p == 'B')))) {
+				return start + 2;
+			}
+		}
+		return start;
+	}
+
+	/* Parses field in input radix and writes it in output radix at given index of out. Gives index 
+	 * after written number or -1 if field is not a valid number or does not fit in 64 bits. */
+	private int convert(byte[] data, int start, int len, int outIndex) {
+		int end = start + len;
+		start = skipPrefix(data, start, end);
+		if(start == end) {
+			return -1;
+		}
+		long value = 0;
+		int digit = 0;
+		for(int x = start; x < end; x++) {
+			digit = digitValue[data[x] & 0xFF];
+			if((digit < 0) || ((value >>> (64 - inShift)) != 0)) {
+				return -1;
+			}
+			value = (value << inShift) | digit;
+		}
+
+		// format from least significant digit backwards, value is treated as unsigned.
+		int index = number.length;
+		if(outDecimal == true) {
+			if(value < 0) {
+				long quotient = (value >>> 1) / 5;
+				number[--index] = DIGITS[(int) (value - (quotient * 10))];
+				value = quotient;
+			}
+			do {
+				number[--index] = DIGITS[(int) (value % 10)];
+				value = value / 10;
+			} while(value != 0);
+		}else {
+			do {
+				number[--index] = DIGITS[(int) (value & 0x0F)];
+				value = value >>> 4;
+			} while(value != 0);
+		}
+		int numDigits = number.length - index;
+		System.arraycopy(number, index, out, outIndex, numDigits);
+		return outIndex + numDigits;
+	}
+
+	private void ensureOutCapacity(int capacity) {
+		if(capacity > out.length) {
+			byte[] tmp = new byte[Math.max(capacity, out.length << 1)];
+			System.arraycopy(out, 0, tmp, 0, out.length);
+			out = tmp;
+		}
+	}
+}
@@ -0,0 +1,383 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>Appends data packets to a log file from a background thread. Packets are copied into one of two 
+ * buffers; when the active buffer is half full (or flush interval elapses) the writer thread swaps 
+ * the buffers and writes the filled one to file using FileChannel in a single large write, while 
+ * packets keep getting saved in the other buffer.</p>
+ * 
+ * <p>One instance can be shared by any number of data loggers, so logging many serial ports costs 
+ * one writer thread and sequential writes rather than a write system call per packet. All methods 
+ * are thread safe.</p>
+ * 
+ * <p>If a SerialComLogRotationPolicy is given, the writer thread rotates log file as per the policy. 
+ * A segment is ended at a packet boundary whenever possible; if no packet ends within a buffer's worth 
+ * of data after rotation became due, it is ended at a buffer boundary instead. Rotated segments are compressed and old 
+ * ones deleted by a separate low priority thread, so packets keep getting saved while this happens.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComLogFileWriter {
+
+	private static final byte LF = 0x0A;
+	private static final byte[] LINE_END = new byte[] { LF };
+	private static final long FLUSH_INTERVAL = 500; // milliseconds
+
+	private final File logFile;
+	private final SerialComLogRotationPolicy rotationPolicy;
+	private final SerialComLogSegmentCompressor compressor;
+	private final ISerialComToFileErrListener errListener;
+	private FileChannel fileChannel;          // owned by writer thread.
+	private FileOutputStream fileOutStream;   // owned by writer thread.
+	private long segmentSize;                 // owned by writer thread.
+	private long segmentStartTime;            // owned by writer thread.
+	private long overdueBytes;                // owned by writer thread.
+	private final Object mBufferLock = new Object();
+	private final Object mAppendLock = new Object();
+	private final Thread mWriterThread;
+	private ByteBuffer activeBuffer;   // guarded by mBufferLock.
+	private ByteBuffer standbyBuffer;  // owned by writer thread while writing.
+	private boolean writing;           // guarded by mBufferLock.
+	private boolean closing;           // guarded by mBufferLock.
+	private boolean flushRequested;    // guarded by mBufferLock.
+	private long numPackets;           // guarded by mBufferLock.
+
+	/**
+	 * <p>This class runs in as a different thread context and keep writing filled buffer to file.</p>
+	 */
+	private final class BufferWriter implements Runnable {
+		@Override
+		public void run() {
+			ByteBuffer buffer = null;
+			long timeToWait = 0;
+			long flushTime = System.currentTimeMillis() + FLUSH_INTERVAL;
+			while(true) {
+				synchronized(mBufferLock) {
+					/* write when buffer is half full, or application asked for flush or flush interval 
+					 * elapsed, so that writes are large but data does not stay in memory for long. */
+					while((activeBuffer.position() < (activeBuffer.capacity() >> 1)) && (closing == false) 
+							&& (flushRequested == false)) {
+						timeToWait = flushTime - System.currentTimeMillis();
+						if(timeToWait <= 0) {
+							if(activeBuffer.position() > 0) {
+								break;
+							}
+							flushTime = System.currentTimeMillis() + FLUSH_INTERVAL;
+							timeToWait = FLUSH_INTERVAL;
+						}
+						try {
+							mBufferLock.wait(timeToWait);
+						} catch (InterruptedException e) {
+						}
+					}
+					if(activeBuffer.position() == 0) {
+						flushRequested = false;
+						mBufferLock.notifyAll();
+						if(closing == true) {
+							// nothing more to write.
+							break;
+						}
+						continue;
+					}
+					flushTime = System.currentTimeMillis() + FLUSH_INTERVAL;
+					buffer = activeBuffer;
+					activeBuffer = standbyBuffer;
+					standbyBuffer = buffer;
+					writing = true;
+					mBufferLock.notifyAll();
+				}
+
+				buffer.flip();
+				try {
+					writeToFile(buffer);
+				} catch (IOException e) {
+					if(errListener != null) {
+						errListener.onLogError(e);
+					}
+				}
+				buffer.clear();
+
+				synchronized(mBufferLock) {
+					writing = false;
+					mBufferLock.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComLogFileWriter object, opens given file and starts the writer thread.</p>
+	 * 
+	 * @param logFile file in which data will be logged.
+	 * @param append if true data will be added at the end of existing file, if false file will be truncated.
+	 * @param bufferSize size of each of the two buffers in bytes.
+	 * @param errListener listener which will be informed if writing to file fails, can be null.
+	 * @throws IOException if file can not be opened.
+	 * @throws IllegalArgumentException if logFile is null or bufferSize is less than 2.
+	 */
+	public SerialComLogFileWriter(File logFile, boolean append, int bufferSize, ISerialComToFileErrListener errListener) 
+			throws IOException {
+		this(logFile, append, bufferSize, null, errListener);
+	}
+
+	/**
+	 * <p>Allocates a new SerialComLogFileWriter object which rotates log file as per given policy, opens 
+	 * given file and starts the writer thread.</p>
+	 * 
+	 * @param logFile file in which data will be logged.
+	 * @param append if true data will be added at the end of existing file, if false file will be truncated.
+	 * @param bufferSize size of each of the two buffers in bytes.
+	 * @param rotationPolicy when to rotate log file and what to do with rotated segments, null to never rotate.
+	 * @param errListener listener which will be informed if writing to file fails, can be null.
+	 * @throws IOException if file can not be opened.
+	 * @throws IllegalArgumentException if logFile is null or bufferSize is less than 2.
+	 */
+	public SerialComLogFileWriter(File logFile, boolean append, int bufferSize, SerialComLogRotationPolicy rotationPolicy, 
+			ISerialComToFileErrListener errListener) throws IOException {
+		if(logFile == null) {
+			throw new IllegalArgumentException("Argument logFile can not be null !");
+		}
+		if(bufferSize < 2) {
+			throw new IllegalArgumentException("Argument bufferSize must be greater than 1 !");
+		}
+
+		fileOutStream = new FileOutputStream(logFile, append);
+		fileChannel = fileOutStream.getChannel();
+		segmentSize = fileChannel.size();
+		segmentStartTime = System.currentTimeMillis();
+		this.logFile = logFile;
+		this.rotationPolicy = rotationPolicy;
+		this.errListener = errListener;
+		if(rotationPolicy != null) {
+			compressor = new SerialComLogSegmentCompressor(logFile, rotationPolicy, errListener);
+		}else {
+			compressor = null;
+		}
+		activeBuffer = ByteBuffer.allocateDirect(bufferSize);
+		standbyBuffer = ByteBuffer.allocateDirect(bufferSize);
+
+		mWriterThread = new Thread(new BufferWriter(), "SCM log file writer");
+		mWriterThread.setDaemon(true);
+		mWriterThread.start();
+	}
+
+	/**
+	 * <p>Saves given packet to be written to file. A line feed is added after packet if it does not 
+	 * end with one, so that each packet appears on its own line. Blocks only if both buffers are full.</p>
+	 * 
+	 * @param data buffer containing packet.
+	 * @param offset index in data at which packet starts.
+	 * @param length number of bytes in packet.
+	 * @throws IOException if this writer has been closed.
+	 * @throws IOException if interrupted while waiting for space in buffer.
+	 */
+	public void writePacket(byte[] data, int offset, int length) throws IOException {
+		synchronized(mAppendLock) {
+			append(data, offset, length);
+			if((length == 0) || (data[offset + length - 1] != LF)) {
+				append(LINE_END, 0, 1);
+			}
+			synchronized(mBufferLock) {
+				numPackets++;
+			}
+		}
+	}
+
+	/**
+	 * <p>Gives number of packets saved till now.</p>
+	 * 
+	 * @return number of packets.
+	 */
+	public long getNumberOfPackets() {
+		synchronized(mBufferLock) {
+			return numPackets;
+		}
+	}
+
+	/**
+	 * <p>Blocks until all packets saved till now have been written to file.</p>
+	 * 
+	 * @throws IOException if interrupted while waiting.
+	 */
+	public void flush() throws IOException {
+		synchronized(mBufferLock) {
+			flushRequested = true;
+			mBufferLock.notifyAll();
+			while((activeBuffer.position() > 0) || (writing == true)) {
+				if(mWriterThread.isAlive() == false) {
+					break;
+				}
+				try {
+					mBufferLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for data to be written to file !");
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Writes all saved packets to file, stops writer thread and closes file. Calling close on an 
+	 * already closed writer has no effect.</p>
+	 * 
+	 * @throws IOException if closing file fails.
+	 */
+	public void close() throws IOException {
+		synchronized(mBufferLock) {
+			if(closing == true) {
+				return;
+			}
+			closing = true;
+			mBufferLock.notifyAll();
+		}
+		boolean interrupted = false;
+		while(true) {
+			try {
+				mWriterThread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted == true) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			fileOutStream.close();
+		} finally {
+			if(compressor != null) {
+				compressor.close();
+			}
+		}
+	}
+
+	/* Writes filled buffer to file, rotating the segment first if policy says so. Runs in writer thread. */
+	private void writeToFile(ByteBuffer buffer) throws IOException {
+		if((rotationPolicy != null) && (isRotationDue(buffer.remaining()) == true)) {
+			// end segment after last complete packet in buffer; if buffer has no line end, the packet 
+			// started in this segment, so rotate on next write instead of splitting it. A packet larger 
+			// than buffer or data without line ends would then postpone rotation for ever, so once more 
+			// than a buffer's worth has been written since rotation became due, rotate at buffer boundary.
+			int end = buffer.limit();
+			int index = end - 1;
+			while((index >= buffer.position()) && (buffer.get(index) != LF)) {
+				index--;
+			}
+			if(index >= buffer.position()) {
+				buffer.limit(index + 1);
+				writeFully(buffer);
+				buffer.limit(end);
+				rotate();
+			}else if(overdueBytes >= buffer.capacity()) {
+				rotate();
+			}else {
+				overdueBytes = overdueBytes + buffer.remaining();
+			}
+		}
+		writeFully(buffer);
+	}
+
+	private boolean isRotationDue(int numBytesToWrite) {
+		long maxSize = rotationPolicy.getMaxSegmentSize();
+		long maxAge = rotationPolicy.getMaxSegmentAge();
+		if((maxSize > 0) && ((segmentSize + numBytesToWrite) > maxSize)) {
+			return true;
+		}
+		if((maxAge > 0) && ((System.currentTimeMillis() - segmentStartTime) >= maxAge)) {
+			return true;
+		}
+		return false;
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		segmentSize = segmentSize + buffer.remaining();
+		while(buffer.hasRemaining()) {
+			fileChannel.write(buffer);
+		}
+	}
+
+	/* Renames current log file to next segment name, starts a new empty log file and hands renamed 
+	 * segment to compressor. If renaming fails logging continues in the current file. */
+	private void rotate() throws IOException {
+		if(segmentSize == 0) {
+			return;
+		}
+		File segment = compressor.nextSegmentFile();
+		boolean renamed = false;
+		fileOutStream.close();
+		try {
+			renamed = logFile.renameTo(segment);
+		} finally {
+			fileOutStream = new FileOutputStream(logFile, !renamed);
+			fileChannel = fileOutStream.getChannel();
+		}
+		// on failure too, so that renaming is not attempted again for every write.
+		segmentSize = 0;
+		overdueBytes = 0;
+		segmentStartTime = System.currentTimeMillis();
+		if(renamed == false) {
+			throw new IOException("Could not rename " + logFile.getPath() + " to " + segment.getPath() + " !");
+		}
+		compressor.segmentRotated(segment);
+	}
+
+	/* Copies bytes in active buffer, waiting for buffers to be swapped if it gets full. */
+	private void append(byte[] data, int offset, int length) throws IOException {
+		int numBytesToCopy = 0;
+		synchronized(mBufferLock) {
+			while(length > 0) {
+				if(closing == true) {
+					throw new IOException("Log file writer is already closed !");
+				}
+				numBytesToCopy = activeBuffer.remaining();
+				if(numBytesToCopy == 0) {
+					// both buffers are full, wait for writer thread to swap them.
+					mBufferLock.notifyAll();
+					try {
+						mBufferLock.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for space in buffer !");
+					}
+					continue;
+				}
+				if(numBytesToCopy > length) {
+					numBytesToCopy = length;
+				}
+				activeBuffer.put(data, offset, numBytesToCopy);
+				offset = offset + numBytesToCopy;
+				length = length - numBytesToCopy;
+			}
+			if(activeBuffer.position() >= (activeBuffer.capacity() >> 1)) {
+				// enough data for a large sequential write, wake up writer thread.
+				mBufferLock.notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.IOException;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+
+/**
+ * <p>Reads data from serial port of a log source in the reading style configured for the source 
+ * and gives it to packet assembler.</p>
+ * 
+ * <p>For NONBLOCKING_PERIODIC and BLOCKING a dedicated thread reads into a reusable buffer. For 
+ * DATALISTENER the data listener mechanism of this library is used and no extra thread is created; 
+ * in this style (and in BLOCKING style) a packet ending by time delay is closed when next data 
+ * arrives or when logging is stopped.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComLogReader implements ISerialComDataListener {
+
+	private final SerialComManager scm;
+	private final long handle;
+	private final int readingStyle;
+	private final int pollingPeriod;
+	private final SerialComPacketAssembler assembler;
+	private final ISerialComToFileErrListener errListener;
+	private final byte[] readBuffer = new byte[2048];
+	private volatile boolean exitThread;
+	private Thread mReaderThread;
+	private long context = -1;
+
+	/**
+	 * <p>This class runs in as a different thread context and keep reading data from serial port 
+	 * until logging is stopped.</p>
+	 */
+	private final class PortReader implements Runnable {
+		@Override
+		public void run() {
+			int numBytesRead = 0;
+			while(exitThread == false) {
+				try {
+					numBytesRead = scm.readBytes(handle, readBuffer, 0, readBuffer.length, context);
+					if(numBytesRead > 0) {
+						assembler.process(readBuffer, 0, numBytesRead, System.currentTimeMillis());
+					}else {
+						assembler.checkTimeOut(System.currentTimeMillis());
+						if(readingStyle == SerialComLogSource.NONBLOCKING_PERIODIC) {
+							try {
+								Thread.sleep(pollingPeriod);
+							} catch (InterruptedException e) {
+							}
+						}
+					}
+				} catch (SerialComException e) {
+					if(exitThread == true) {
+						// blocked read unblocked because logging is being stopped.
+						break;
+					}
+					reportError(e);
+					try {
+						Thread.sleep(pollingPeriod);
+					} catch (InterruptedException ie) {
+					}
+				} catch (IOException e) {
+					reportError(e);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComLogReader object.</p>
+	 * 
+	 * @param scm SerialComManager instance associated with the serial port.
+	 * @param source log source whose serial port is to be read.
+	 * @param assembler assembler to which data read will be given.
+	 * @param errListener listener to which errors will be reported, can be null.
+	 */
+	SerialComLogReader(SerialComManager scm, SerialComLogSource source, SerialComPacketAssembler assembler, 
+			ISerialComToFileErrListener errListener) {
+		this.scm = scm;
+		this.handle = source.getComPortHandle();
+		this.readingStyle = source.getReadingStyle();
+		this.pollingPeriod = (source.getPollingFrequency() > 0) ? source.getPollingFrequency() : 1;
+		this.assembler = assembler;
+		this.errListener = errListener;
+	}
+
+	/**
+	 * <p>Starts reading data from serial port.</p>
+	 * 
+	 * @throws SerialComException if data listener can not be registered or blocking I/O context can 
+	 *          not be created.
+	 */
+	void start() throws SerialComException {
+		exitThread = false;
+		if(readingStyle == SerialComLogSource.DATALISTENER) {
+			scm.registerDataListener(handle, this);
+			return;
+		}
+		if(readingStyle == SerialComLogSource.BLOCKING) {
+			context = scm.createBlockingIOContext();
+		}
+		mReaderThread = new Thread(new PortReader(), "SCM log reader");
+		mReaderThread.setDaemon(true);
+		mReaderThread.start();
+	}
+
+	/**
+	 * <p>Stops reading data and gives packet in progress (if any) to writer.</p>
+	 * 
+	 * @throws SerialComException if data listener can not be unregistered or blocked read can not be 
+	 *          unblocked.
+	 */
+	void stop() throws SerialComException {
+		exitThread = true;
+		if(readingStyle == SerialComLogSource.DATALISTENER) {
+			scm.unregisterDataListener(handle, this);
+		}else {
+			if(context != -1) {
+				scm.unblockBlockingIOOperation(context);
+			}
+			mReaderThread.interrupt();
+			try {
+				mReaderThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if(context != -1) {
+				scm.destroyBlockingIOContext(context);
+				context = -1;
+			}
+		}
+		try {
+			assembler.flush();
+		} catch (IOException e) {
+			reportError(e);
+		}
+	}
+
+	/**
+	 * <p>Gives data received through data listener mechanism to packet assembler.</p>
+	 * 
+	 * @param data bytes read from serial port.
+	 */
+	@Override
+	public void onNewSerialDataAvailable(byte[] data) {
+		try {
+			assembler.process(data, 0, data.length, System.currentTimeMillis());
+		} catch (IOException e) {
+			reportError(e);
+		}
+	}
+
+	/**
+	 * <p>Reports error which occurred in data listener mechanism.</p>
+	 * 
+	 * @param errorNum operating system specific error number.
+	 */
+	@Override
+	public void onDataListenerError(int errorNum) {
+		reportError(new SerialComException("Error " + errorNum + " occurred while reading data from serial port !"));
+	}
+
+	private void reportError(Exception e) {
+		if(errListener != null) {
+			errListener.onLogError(e);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+/**
+ * <p>Tells SerialComLogFileWriter when to close the current log file (segment) and start a new one, 
+ * whether closed segments are to be compressed and how many of them are to be kept.</p>
+ * 
+ * <p>When a segment is rotated, log file is renamed to &lt;name&gt;.&lt;n&gt; where n increases with 
+ * every rotation, and a new empty log file is started. If compression is enabled the renamed segment 
+ * is gzipped to &lt;name&gt;.&lt;n&gt;.gz on a low priority background thread. When there are more 
+ * rotated segments than the retention count, oldest ones are deleted.</p>
+ * 
+ * <p>Segments end after a complete packet, so a segment may grow beyond maxSegmentSize (or maxSegmentAge) 
+ * until the next packet ends. If no packet ends within one writer buffer's worth of data after rotation 
+ * became due (a packet larger than the buffer or data without line feeds), the segment is ended at a 
+ * buffer boundary instead, so a segment never exceeds maxSegmentSize by more than about two buffers.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComLogRotationPolicy {
+
+	private final long maxSegmentSize;
+	private final long maxSegmentAge;
+	private final int maxRetainedSegments;
+	private final boolean compress;
+
+	/**
+	 * <p>Allocates a new SerialComLogRotationPolicy object.</p>
+	 * 
+	 * @param maxSegmentSize size in bytes after which segment is rotated, 0 to not rotate on size.
+	 * @param maxSegmentAge time in milliseconds after which segment is rotated, 0 to not rotate on time.
+	 * @param maxRetainedSegments number of rotated segments to keep, 0 to keep all.
+	 * @param compress if true rotated segments are gzipped.
+	 * @throws IllegalArgumentException if any argument is negative or both maxSegmentSize and 
+	 *          maxSegmentAge are 0.
+	 */
+	public SerialComLogRotationPolicy(long maxSegmentSize, long maxSegmentAge, int maxRetainedSegments, boolean compress) {
+		if((maxSegmentSize < 0) || (maxSegmentAge < 0) || (maxRetainedSegments < 0)) {
+			throw new IllegalArgumentException("Arguments maxSegmentSize, maxSegmentAge and maxRetainedSegments can not be negative !");
+		}
+		if((maxSegmentSize == 0) && (maxSegmentAge == 0)) {
+			throw new IllegalArgumentException("Either maxSegmentSize or maxSegmentAge must be greater than 0 !");
+		}
+		this.maxSegmentSize = maxSegmentSize;
+		this.maxSegmentAge = maxSegmentAge;
+		this.maxRetainedSegments = maxRetainedSegments;
+		this.compress = compress;
+	}
+
+	/**
+	 * <p>Gives size after which segment is rotated.</p>
+	 * 
+	 * @return size in bytes or 0 if segments are not rotated on size.
+	 */
+	public long getMaxSegmentSize() {
+		return maxSegmentSize;
+	}
+
+	/**
+	 * <p>Gives time after which segment is rotated.</p>
+	 * 
+	 * @return time in milliseconds or 0 if segments are not rotated on time.
+	 */
+	public long getMaxSegmentAge() {
+		return maxSegmentAge;
+	}
+
+	/**
+	 * <p>Gives number of rotated segments which are kept.</p>
+	 * 
+	 * @return number of segments or 0 if all are kept.
+	 */
+	public int getMaxRetainedSegments() {
+		return maxRetainedSegments;
+	}
+
+	/**
+	 * <p>Tells whether rotated segments are compressed.</p>
+	 * 
+	 * @return true if segments are gzipped.
+	 */
+	public boolean isCompressionEnabled() {
+		return compress;
+	}
+}
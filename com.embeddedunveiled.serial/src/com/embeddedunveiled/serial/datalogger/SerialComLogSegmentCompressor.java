@@ -0,0 +1,251 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Compresses rotated log segments and deletes old ones on a low priority background thread so 
+ * that writing of active segment is never delayed by it.</p>
+ * 
+ * <p>A segment is first compressed to a temporary file which is renamed once complete, so a crash 
+ * never leaves a truncated .gz file; leftover uncompressed segments are picked up again when a new 
+ * compressor is started for the same log file.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComLogSegmentCompressor {
+
+	private static final String GZ_SUFFIX = ".gz";
+	private static final String TMP_SUFFIX = ".tmp";
+
+	private final File logFile;
+	private final SerialComLogRotationPolicy policy;
+	private final ISerialComToFileErrListener errListener;
+	private final LinkedList<File> pending = new LinkedList<File>(); // guarded by itself.
+	private final Thread mCompressorThread;
+	private boolean closing; // guarded by pending.
+	private int lastSequence;
+
+	/**
+	 * <p>This class runs in as a different thread context and compresses queued segments.</p>
+	 */
+	private final class SegmentCompressor implements Runnable {
+		@Override
+		public void run() {
+			File segment = null;
+			while(true) {
+				synchronized(pending) {
+					while(pending.isEmpty() && (closing == false)) {
+						try {
+							pending.wait();
+						} catch (InterruptedException e) {
+						}
+					}
+					if(pending.isEmpty()) {
+						break;
+					}
+					segment = pending.removeFirst();
+				}
+				try {
+					if(policy.isCompressionEnabled() == true) {
+						compress(segment);
+					}
+					enforceRetention();
+				} catch (IOException e) {
+					if(errListener != null) {
+						errListener.onLogError(e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComLogSegmentCompressor object, queues uncompressed segments left from 
+	 * earlier runs and starts compressor thread.</p>
+	 * 
+	 * @param logFile active log file whose rotated segments are to be handled.
+	 * @param policy rotation policy.
+	 * @param errListener listener which will be informed if compression fails, can be null.
+	 */
+	SerialComLogSegmentCompressor(File logFile, SerialComLogRotationPolicy policy, ISerialComToFileErrListener errListener) {
+		this.logFile = logFile;
+		this.policy = policy;
+		this.errListener = errListener;
+
+		List<Integer> sequences = listSegments();
+		if(sequences.isEmpty() == false) {
+			lastSequence = sequences.get(sequences.size() - 1).intValue();
+		}
+		for(Integer sequence : sequences) {
+			File segment = getSegmentFile(sequence.intValue(), false);
+			if(segment.exists() == true) {
+				pending.add(segment);
+			}
+		}
+
+		mCompressorThread = new Thread(new SegmentCompressor(), "SCM log segment compressor");
+		mCompressorThread.setDaemon(true);
+		mCompressorThread.setPriority(Thread.MIN_PRIORITY);
+		mCompressorThread.start();
+	}
+
+	/**
+	 * <p>Gives file to which active log file should be renamed on next rotation.</p>
+	 * 
+	 * @return file name for the rotated segment.
+	 */
+	File nextSegmentFile() {
+		lastSequence++;
+		return getSegmentFile(lastSequence, false);
+	}
+
+	/**
+	 * <p>Queues a rotated segment for compression and retention handling. Returns immediately.</p>
+	 * 
+	 * @param segment rotated segment file.
+	 */
+	void segmentRotated(File segment) {
+		synchronized(pending) {
+			pending.add(segment);
+			pending.notifyAll();
+		}
+	}
+
+	/**
+	 * <p>Finishes handling of queued segments and stops compressor thread.</p>
+	 */
+	void close() {
+		synchronized(pending) {
+			closing = true;
+			pending.notifyAll();
+		}
+		boolean interrupted = false;
+		while(true) {
+			try {
+				mCompressorThread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted == true) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void compress(File segment) throws IOException {
+		if(segment.exists() == false) {
+			return;
+		}
+		File gzFile = new File(segment.getPath() + GZ_SUFFIX);
+		File tmpFile = new File(gzFile.getPath() + TMP_SUFFIX);
+		byte[] buffer = new byte[65536];
+		int numBytesRead = 0;
+
+		FileInputStream in = new FileInputStream(segment);
+		try {
+			GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(tmpFile), buffer.length);
+			try {
+				while((numBytesRead = in.read(buffer)) > 0) {
+					out.write(buffer, 0, numBytesRead);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+
+		if((gzFile.exists() == true) && (gzFile.delete() == false)) {
+			throw new IOException("Could not delete " + gzFile.getPath() + " !");
+		}
+		if(tmpFile.renameTo(gzFile) == false) {
+			throw new IOException("Could not rename " + tmpFile.getPath() + " to " + gzFile.getPath() + " !");
+		}
+		if(segment.delete() == false) {
+			throw new IOException("Could not delete " + segment.getPath() + " !");
+		}
+	}
+
+	/* Deletes oldest rotated segments beyond retention count. */
+	private void enforceRetention() throws IOException {
+		int maxRetained = policy.getMaxRetainedSegments();
+		if(maxRetained == 0) {
+			return;
+		}
+		List<Integer> sequences = listSegments();
+		int numToDelete = sequences.size() - maxRetained;
+		for(int x = 0; x < numToDelete; x++) {
+			int sequence = sequences.get(x).intValue();
+			File plain = getSegmentFile(sequence, false);
+			File gzipped = getSegmentFile(sequence, true);
+			if((plain.exists() && (plain.delete() == false)) || (gzipped.exists() && (gzipped.delete() == false))) {
+				throw new IOException("Could not delete old log segment " + plain.getPath() + " !");
+			}
+		}
+	}
+
+	private File getSegmentFile(int sequence, boolean gzipped) {
+		return new File(logFile.getPath() + "." + sequence + (gzipped ? GZ_SUFFIX : ""));
+	}
+
+	/* Gives sorted sequence numbers of rotated segments (compressed or not) present on disk. */
+	private List<Integer> listSegments() {
+		List<Integer> sequences = new ArrayList<Integer>();
+		File dir = logFile.getAbsoluteFile().getParentFile();
+		String prefix = logFile.getName() + ".";
+		String[] names = (dir != null) ? dir.list() : null;
+		if(names == null) {
+			return sequences;
+		}
+		for(String name : names) {
+			if(name.startsWith(prefix) == false) {
+				continue;
+			}
+			String rest = name.substring(prefix.length());
+			if(rest.endsWith(TMP_SUFFIX)) {
+				// incomplete compression from an earlier run, source segment is still there.
+				new File(dir, name).delete();
+				continue;
+			}
+			if(rest.endsWith(GZ_SUFFIX)) {
+				rest = rest.substring(0, rest.length() - GZ_SUFFIX.length());
+			}
+			try {
+				Integer sequence = Integer.valueOf(rest);
+				if(sequences.contains(sequence) == false) {
+					sequences.add(sequence);
+				}
+			} catch (NumberFormatException e) {
+			}
+		}
+		Collections.sort(sequences);
+		return sequences;
+	}
+}
@@ -88,4 +88,17 @@ public final class SerialComLogSource {
 		scm.closeComPort(comPortHandle);
 		return true;
 	}
+
+	/* Handle of the serial port opened by createComPortSource. */
+	long getComPortHandle() {
+		return comPortHandle;
+	}
+
+	int getReadingStyle() {
+		return readingStyle;
+	}
+
+	int getPollingFrequency() {
+		return pollingFrequency;
+	}
 }
@@ -0,0 +1,238 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.IOException;
+
+/**
+ * <p>Extracts data packets from stream of bytes read from serial port as per start and stop rules 
+ * configured in SerialComDataLogger and gives complete packets to field extractor which passes them 
+ * on to log file writer.</p>
+ * 
+ * <p>Bytes received while no packet is in progress are discarded until a byte matching the start 
+ * rule arrives. Runs of bytes are searched for the stop condition and copied in bulk. Methods are 
+ * synchronized as data listener callback and stop of logging can happen in different threads.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComPacketAssembler {
+
+	private static final byte CR = 0x0D;
+	private static final byte LF = 0x0A;
+	private static final int MAX_PACKET_SIZE = 65536;
+
+	private final int startEvent;
+	private final int stopEvent;
+	private final long delayTime;
+	private final byte endChar;
+	private final int packetLength;
+	private final SerialComFieldExtractor extractor;
+	private byte[] packet = new byte[256];
+	private int count;
+	private boolean inPacket;
+	private long lastByteTime;
+
+	/**
+	 * <p>Allocates a new SerialComPacketAssembler object.</p>
+	 * 
+	 * @param startEvent one of the SerialComDataLogger.DP_START_XXX constants.
+	 * @param stopEvent one of the SerialComDataLogger.DP_STOP_XXX constants.
+	 * @param delayTime gap in milliseconds which ends a packet for DP_STOP_TIME_DELAY.
+	 * @param endChar character which ends a packet for DP_STOP_CHAR.
+	 * @param packetLength number of bytes in packet for DP_STOP_FIXED_LENGTH.
+	 * @param writer writer to which complete packets are given unchanged.
+	 */
+	SerialComPacketAssembler(int startEvent, int stopEvent, int delayTime, char endChar, int packetLength, 
+			SerialComLogFileWriter writer) {
+		this(startEvent, stopEvent, delayTime, endChar, packetLength, new SerialComFieldExtractor(writer));
+	}
+
+	/**
+	 * <p>Allocates a new SerialComPacketAssembler object.</p>
+	 * 
+	 * @param startEvent one of the SerialComDataLogger.DP_START_XXX constants.
+	 * @param stopEvent one of the SerialComDataLogger.DP_STOP_XXX constants.
+	 * @param delayTime gap in milliseconds which ends a packet for DP_STOP_TIME_DELAY.
+	 * @param endChar character which ends a packet for DP_STOP_CHAR.
+	 * @param packetLength number of bytes in packet for DP_STOP_FIXED_LENGTH.
+	 * @param extractor field extractor to which complete packets are given.
+	 */
+	SerialComPacketAssembler(int startEvent, int stopEvent, int delayTime, char endChar, int packetLength, 
+			SerialComFieldExtractor extractor) {
+		this.startEvent = startEvent;
+		this.stopEvent = stopEvent;
+		this.delayTime = delayTime;
+		this.endChar = (byte) endChar;
+		this.packetLength = packetLength;
+		this.extractor = extractor;
+		if((stopEvent == SerialComDataLogger.DP_STOP_FIXED_LENGTH) && (packetLength > packet.length)) {
+			packet = new byte[packetLength];
+		}
+	}
+
+	/**
+	 * <p>Processes bytes read from serial port.</p>
+	 * 
+	 * @param data buffer containing bytes read.
+	 * @param offset index in data of first byte read.
+	 * @param length number of bytes read.
+	 * @param now current time in milliseconds.
+	 * @throws IOException if log file writer has been closed.
+	 */
+	synchronized void process(byte[] data, int offset, int length, long now) throws IOException {
+		int x = offset;
+		int end = offset + length;
+		int runStart = 0;
+
+		if(length <= 0) {
+			return;
+		}
+		checkTimeOut(now);
+		lastByteTime = now;
+
+		while(x < end) {
+			if(inPacket == false) {
+				// discard bytes till start of a new packet is found.
+				while((x < end) && (isStartByte(data[x]) == false)) {
+					x++;
+				}
+				if(x == end) {
+					return;
+				}
+				inPacket = true;
+			}
+
+			runStart = x;
+			if(stopEvent == SerialComDataLogger.DP_STOP_FIXED_LENGTH) {
+				x = x + Math.min(end - x, packetLength - count);
+				append(data, runStart, x - runStart);
+				if(count == packetLength) {
+					emitPacket();
+				}
+			}else if(stopEvent == SerialComDataLogger.DP_STOP_CHAR) {
+				while((x < end) && (data[x] != endChar)) {
+					x++;
+				}
+				if(x < end) {
+					x++; // include end character in packet.
+					append(data, runStart, x - runStart);
+					emitPacket();
+				}else {
+					append(data, runStart, x - runStart);
+				}
+			}else if(stopEvent == SerialComDataLogger.DP_STOP_TIME_DELAY) {
+				x = end;
+				append(data, runStart, x - runStart);
+			}else {
+				// DP_STOP_CRLF, LF preceded by CR (possibly received in previous read) ends packet.
+				while(x < end) {
+					if(data[x] == LF) {
+						if(x > runStart) {
+							if(data[x - 1] == CR) {
+								break;
+							}
+						}else if((count > 0) && (packet[count - 1] == CR)) {
+							break;
+						}
+					}
+					x++;
+				}
+				if(x < end) {
+					x++;
+					append(data, runStart, x - runStart);
+					emitPacket();
+				}else {
+					append(data, runStart, x - runStart);
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Ends packet in progress if stop rule is DP_STOP_TIME_DELAY and no byte has been received for 
+	 * the configured delay time.</p>
+	 * 
+	 * @param now current time in milliseconds.
+	 * @throws IOException if log file writer has been closed.
+	 */
+	synchronized void checkTimeOut(long now) throws IOException {
+		if((stopEvent == SerialComDataLogger.DP_STOP_TIME_DELAY) && (inPacket == true) && (count > 0) 
+				&& ((now - lastByteTime) >= delayTime)) {
+			emitPacket();
+		}
+	}
+
+	/**
+	 * <p>Gives packet in progress (if any) to writer, used when logging is stopped.</p>
+	 * 
+	 * @throws IOException if log file writer has been closed.
+	 */
+	synchronized void flush() throws IOException {
+		if(count > 0) {
+			emitPacket();
+		}
+		inPacket = false;
+	}
+
+	private boolean isStartByte(byte b) {
+		boolean alphabetic = ((b >= 'A') && (b <= 'Z')) || ((b >= 'a') && (b <= 'z'));
+		boolean numeric = (b >= '0') && (b <= '9');
+		switch(startEvent) {
+		case SerialComDataLogger.DP_START_ALPHABETIC_CHAR:
+			return alphabetic;
+		case SerialComDataLogger.DP_START_NUMERIC_CHAR:
+			return numeric;
+		case SerialComDataLogger.DP_START_ALPHANUMERIC_CHAR:
+			return alphabetic || numeric;
+		case SerialComDataLogger.DP_START_SPECIAL_CHAR:
+			return (b > 0x20) && (b < 0x7F) && (alphabetic == false) && (numeric == false);
+		default:
+			return true;
+		}
+	}
+
+	private void append(byte[] data, int offset, int length) throws IOException {
+		if((count + length) > packet.length) {
+			if((count + length) > MAX_PACKET_SIZE) {
+				// stop condition not seen for too long, log what we have to bound memory used.
+				if(count > 0) {
+					emitPacket();
+					inPacket = true;
+				}
+				if(length > MAX_PACKET_SIZE) {
+					extractor.process(data, offset, length);
+					return;
+				}
+			}
+			if((count + length) > packet.length) {
+				byte[] tmp = new byte[Math.min(MAX_PACKET_SIZE, Math.max(packet.length << 1, count + length))];
+				System.arraycopy(packet, 0, tmp, 0, count);
+				packet = tmp;
+			}
+		}
+		System.arraycopy(data, offset, packet, count, length);
+		count = count + length;
+	}
+
+	private void emitPacket() throws IOException {
+		extractor.process(packet, 0, count);
+		count = 0;
+		inPacket = false;
+	}
+}
@@ -0,0 +1,428 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.embeddedunveiled.serial.ISerialComTrafficTap;
+
+/**
+ * <p>Writes serial traffic to a pcapng file which can be opened in Wireshark. Each serial port gets 
+ * its own interface (named after the port) and every read or write becomes an Enhanced Packet Block 
+ * with microsecond timestamp and direction flag (inbound for data read, outbound for data written).</p>
+ * 
+ * <p>Traffic can be given live by setting this object as traffic tap of SerialComManager 
+ * (SerialComManager.setTrafficTap), or exported from a SerialComCaptureStore. Tapped data is copied 
+ * and queued, so I/O threads of different ports never wait for each other or for the file; a writer 
+ * thread builds blocks in a buffer and writes them to file using FileChannel only when buffer fills 
+ * up or on flush. When MAX_PENDING_PACKETS packets are already waiting, further tapped packets are 
+ * dropped and counted. Interfaces use link type USER0 (147); in Wireshark the payload can be decoded 
+ * by assigning a dissector to DLT_USER 0.</p>
+ * 
+ * <p>All methods are thread safe.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComPcapngWriter implements ISerialComTrafficTap {
+
+	/** <p>Link layer type used for serial interfaces (LINKTYPE_USER0).</p> */
+	public static final int LINKTYPE_USER0 = 147;
+
+	/** <p>Number of tapped packets which can wait for writer thread.</p> */
+	public static final int MAX_PENDING_PACKETS = 8192;
+
+	private static final int BLOCK_SHB = 0x0A0D0D0A;
+	private static final int BLOCK_IDB = 0x00000001;
+	private static final int BLOCK_EPB = 0x00000006;
+	private static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+	private static final short OPT_END = 0;
+	private static final short OPT_IF_NAME = 2;
+	private static final short OPT_EPB_FLAGS = 2;
+	private static final int FLAG_INBOUND = 0x01;
+	private static final int FLAG_OUTBOUND = 0x02;
+	private static final int EPB_OVERHEAD = 44; // fixed fields, flags option, end of options and trailing length.
+
+	private final FileOutputStream fileOutStream;
+	private final FileChannel fileChannel;
+	private final Map<String, Integer> interfaces = new HashMap<String, Integer>();
+	private final long baseMicros;
+	private final long baseNanos;
+	private final BlockingQueue<Packet> pending = new LinkedBlockingQueue<Packet>(MAX_PENDING_PACKETS);
+	private final AtomicLong numDropped = new AtomicLong();
+	private final Thread mWriterThread;
+	private volatile boolean closed;
+
+	// guarded by this.
+	private ByteBuffer buffer;
+	private IOException error;
+	private boolean fileClosed;
+
+	/**
+	 * <p>Copy of tapped data waiting for writer thread.</p>
+	 */
+	private static final class Packet {
+		final String portName;
+		final boolean outbound;
+		final long timestamp;
+		final byte[] data;
+
+		Packet(String portName, boolean outbound, long timestamp, byte[] data) {
+			this.portName = portName;
+			this.outbound = outbound;
+			this.timestamp = timestamp;
+			this.data = data;
+		}
+	}
+
+	/**
+	 * <p>This class runs in as a different thread context and writes queued packets till writer is 
+	 * closed. Queue is only checked for work outside the lock; packets are dequeued and written with 
+	 * this writer locked, so they are never written out of order with packets written by other threads.</p>
+	 */
+	private final class Writer implements Runnable {
+		@Override
+		public void run() {
+			while(true) {
+				if(pending.isEmpty() == false) {
+					synchronized(SerialComPcapngWriter.this) {
+						writePending();
+					}
+				}else if(closed == true) {
+					return;
+				}else {
+					// woken up by enqueue, timeout only bounds the delay in noticing close.
+					LockSupport.parkNanos(100000000L);
+					if(Thread.interrupted() == true) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComPcapngWriter object, creates given file and writes section header.</p>
+	 * 
+	 * @param pcapngFile file to be created (existing file is truncated).
+	 * @param bufferSize number of bytes buffered before writing to file (at least 4096).
+	 * @throws IOException if file can not be created.
+	 * @throws IllegalArgumentException if pcapngFile is null or bufferSize is less than 4096.
+	 */
+	public SerialComPcapngWriter(File pcapngFile, int bufferSize) throws IOException {
+		if(pcapngFile == null) {
+			throw new IllegalArgumentException("Argument pcapngFile can not be null !");
+		}
+		if(bufferSize < 4096) {
+			throw new IllegalArgumentException("Argument bufferSize must be at least 4096 !");
+		}
+		fileOutStream = new FileOutputStream(pcapngFile, false);
+		fileChannel = fileOutStream.getChannel();
+		buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+		baseMicros = System.currentTimeMillis() * 1000L;
+		baseNanos = System.nanoTime();
+
+		// section header block, section length not specified.
+		buffer.putInt(BLOCK_SHB).putInt(28).putInt(BYTE_ORDER_MAGIC).putShort((short) 1).putShort((short) 0)
+			.putLong(-1L).putInt(28);
+
+		mWriterThread = new Thread(new Writer(), "SCM pcapng writer for " + pcapngFile.getName());
+		mWriterThread.setDaemon(true);
+		mWriterThread.start();
+	}
+
+	/**
+	 * <p>Records data transferred now on given serial port. Called by SerialComManager when this object 
+	 * is set as traffic tap. Data is copied and queued for writer thread, so a write failure is not 
+	 * thrown here but by next call to flush or close.</p>
+	 */
+	@Override
+	public void onDataTransferred(String portName, boolean outbound, byte[] data, int offset, int length) {
+		if(closed == true) {
+			return;
+		}
+		byte[] copy = new byte[length];
+		System.arraycopy(data, offset, copy, 0, length);
+		enqueue(new Packet(portName, outbound, currentMicros(), copy));
+	}
+
+	/**
+	 * <p>Records data transferred now on given serial port. Called by SerialComManager when this object 
+	 * is set as traffic tap. Data is copied and queued for writer thread, so a write failure is not 
+	 * thrown here but by next call to flush or close.</p>
+	 */
+	@Override
+	public void onDataTransferred(String portName, boolean outbound, ByteBuffer data, int offset, int length) {
+		if(closed == true) {
+			return;
+		}
+		// caller's position and limit must stay untouched, so copy through a view.
+		ByteBuffer source = data.duplicate();
+		source.limit(offset + length).position(offset);
+		byte[] copy = new byte[length];
+		source.get(copy);
+		enqueue(new Packet(portName, outbound, currentMicros(), copy));
+	}
+
+	/**
+	 * <p>Gives number of tapped packets dropped because writer thread could not keep up.</p>
+	 * 
+	 * @return number of dropped packets.
+	 */
+	public long getNumberOfDroppedPackets() {
+		return numDropped.get();
+	}
+
+	/**
+	 * <p>Writes one Enhanced Packet Block.</p>
+	 * 
+	 * @param portName name of serial port, an interface is created for it when seen first time.
+	 * @param outbound true if data was written to port, false if it was read from port.
+	 * @param timestamp time in microseconds since epoch.
+	 * @param data buffer containing data.
+	 * @param offset index in data of first byte.
+	 * @param length number of bytes.
+	 * @throws IOException if writing to file fails or writer has been closed.
+	 * @throws IllegalArgumentException if portName or data is null.
+	 */
+	public synchronized void writePacket(String portName, boolean outbound, long timestamp, byte[] data, int offset, 
+			int length) throws IOException {
+		if(portName == null) {
+			throw new IllegalArgumentException("Argument portName can not be null !");
+		}
+		if(data == null) {
+			throw new IllegalArgumentException("Argument data can not be null !");
+		}
+		if((offset < 0) || (length < 0) || (length > (data.length - offset))) {
+			throw new IndexOutOfBoundsException("Index violation detected in given byte array !");
+		}
+		writePending();
+		ensureSpace(length);
+		writeHeader(portName, timestamp, length);
+		buffer.put(data, offset, length);
+		writeTrailer(outbound, length);
+	}
+
+	/**
+	 * <p>Writes records of given port (or all ports) captured in given time range as inbound packets.</p>
+	 * 
+	 * @param store capture store containing traffic.
+	 * @param portName name of port whose records are wanted or null for all ports.
+	 * @param fromTime start of time range (inclusive) in milliseconds since epoch.
+	 * @param toTime end of time range (inclusive) in milliseconds since epoch.
+	 * @return number of packets written.
+	 * @throws IOException if capture can not be read or writing to file fails.
+	 * @throws IllegalArgumentException if store is null.
+	 */
+	public long exportCapture(SerialComCaptureStore store, String portName, long fromTime, long toTime) throws IOException {
+		if(store == null) {
+			throw new IllegalArgumentException("Argument store can not be null !");
+		}
+		synchronized(this) {
+			writePending();
+		}
+		final IOException[] failure = new IOException[1];
+		long count = store.query(portName, fromTime, toTime, new ISerialComCaptureVisitor() {
+			@Override
+			public boolean onCaptureRecord(long timestamp, String name, ByteBuffer data) {
+				synchronized(SerialComPcapngWriter.this) {
+					int length = data.remaining();
+					try {
+						ensureSpace(length);
+						writeHeader(name, timestamp * 1000L, length);
+						buffer.put(data);
+						writeTrailer(false, length);
+					} catch (IOException e) {
+						failure[0] = e;
+						return false;
+					}
+				}
+				return true;
+			}
+		});
+		if(failure[0] != null) {
+			throw failure[0];
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Writes buffered blocks to file.</p>
+	 * 
+	 * @throws IOException if writing failed now or during an earlier tapped read/write.
+	 */
+	public synchronized void flush() throws IOException {
+		if(fileClosed == false) {
+			writePending();
+			writeBuffer();
+		}
+		checkError();
+	}
+
+	/**
+	 * <p>Writes buffered blocks to file and closes it. Remove this writer as traffic tap before closing. 
+	 * Calling close on an already closed writer has no effect.</p>
+	 * 
+	 * @throws IOException if writing or closing file fails.
+	 */
+	public void close() throws IOException {
+		synchronized(this) {
+			if(closed == true) {
+				return;
+			}
+			closed = true;
+		}
+		LockSupport.unpark(mWriterThread);
+		try {
+			mWriterThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized(this) {
+			try {
+				writePending();
+				writeBuffer();
+			} finally {
+				fileClosed = true;
+				fileOutStream.close();
+			}
+			checkError();
+		}
+	}
+
+	private long currentMicros() {
+		return baseMicros + ((System.nanoTime() - baseNanos) / 1000L);
+	}
+
+	private void enqueue(Packet packet) {
+		if(pending.offer(packet) == false) {
+			numDropped.incrementAndGet();
+			return;
+		}
+		LockSupport.unpark(mWriterThread);
+	}
+
+	/* called with this locked, writes all packets queued so far. */
+	private void writePending() {
+		Packet packet;
+		while((packet = pending.poll()) != null) {
+			writeQueued(packet);
+		}
+	}
+
+	/* called with this locked, failure is kept till next flush or close. */
+	private void writeQueued(Packet packet) {
+		try {
+			ensureSpace(packet.data.length);
+			writeHeader(packet.portName, packet.timestamp, packet.data.length);
+			buffer.put(packet.data);
+			writeTrailer(packet.outbound, packet.data.length);
+		} catch (IOException e) {
+			if(error == null) {
+				error = e;
+			}
+		}
+	}
+
+	/* Makes room for an EPB (and possibly an IDB) carrying length bytes of data. */
+	private void ensureSpace(int length) throws IOException {
+		if(fileClosed == true) {
+			throw new IOException("Pcapng writer is already closed !");
+		}
+		int needed = EPB_OVERHEAD + length + 3 + 512; // padding and room for an interface description block.
+		if(buffer.remaining() >= needed) {
+			return;
+		}
+		writeBuffer();
+		if(buffer.capacity() < needed) {
+			buffer = ByteBuffer.allocateDirect(needed).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	/* Writes fixed part of EPB, preceded by an IDB if port is seen first time. */
+	private void writeHeader(String portName, long timestamp, int length) {
+		Integer id = interfaces.get(portName);
+		if(id == null) {
+			id = Integer.valueOf(interfaces.size());
+			interfaces.put(portName, id);
+			writeInterfaceDescription(portName);
+		}
+		int paddedLength = (length + 3) & ~3;
+		int blockLength = EPB_OVERHEAD + paddedLength;
+		buffer.putInt(BLOCK_EPB).putInt(blockLength).putInt(id.intValue()).putInt((int) (timestamp >>> 32))
+			.putInt((int) timestamp).putInt(length).putInt(length);
+	}
+
+	/* Writes padding after data, direction flag option and trailing block length of EPB. */
+	private void writeTrailer(boolean outbound, int length) {
+		for(int x = (length + 3) & ~3; x > length; x--) {
+			buffer.put((byte) 0);
+		}
+		buffer.putShort(OPT_EPB_FLAGS).putShort((short) 4).putInt(outbound ? FLAG_OUTBOUND : FLAG_INBOUND)
+			.putShort(OPT_END).putShort((short) 0).putInt(EPB_OVERHEAD + ((length + 3) & ~3));
+	}
+
+	private void writeInterfaceDescription(String portName) {
+		byte[] name = null;
+		try {
+			name = portName.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			name = portName.getBytes();
+		}
+		int nameLength = Math.min(name.length, 256);
+		int paddedLength = (nameLength + 3) & ~3;
+		int blockLength = 16 + 4 + paddedLength + 4 + 4;
+		buffer.putInt(BLOCK_IDB).putInt(blockLength).putShort((short) LINKTYPE_USER0).putShort((short) 0).putInt(0)
+			.putShort(OPT_IF_NAME).putShort((short) nameLength).put(name, 0, nameLength);
+		for(int x = nameLength; x < paddedLength; x++) {
+			buffer.put((byte) 0);
+		}
+		buffer.putShort(OPT_END).putShort((short) 0).putInt(blockLength);
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		try {
+			while(buffer.hasRemaining()) {
+				fileChannel.write(buffer);
+			}
+		} finally {
+			buffer.clear();
+		}
+	}
+
+	private void checkError() throws IOException {
+		if(error != null) {
+			IOException e = error;
+			error = null;
+			throw e;
+		}
+	}
+}
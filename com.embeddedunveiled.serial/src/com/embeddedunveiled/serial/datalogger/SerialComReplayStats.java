@@ -0,0 +1,123 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.datalogger;
+
+/**
+ * <p>Tells how closely a replay followed the timing of captured traffic.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComReplayStats {
+
+	private final long numRecords;
+	private final long numBytes;
+	private final long requestedDuration;
+	private final long achievedDuration;
+	private final long maxLateness;
+	private final boolean completed;
+
+	SerialComReplayStats(long numRecords, long numBytes, long requestedDuration, long achievedDuration, 
+			long maxLateness, boolean completed) {
+		this.numRecords = numRecords;
+		this.numBytes = numBytes;
+		this.requestedDuration = requestedDuration;
+		this.achievedDuration = achievedDuration;
+		this.maxLateness = maxLateness;
+		this.completed = completed;
+	}
+
+	/**
+	 * <p>Gives number of captured records written to serial port.</p>
+	 * 
+	 * @return number of records.
+	 */
+	public long getNumberOfRecords() {
+		return numRecords;
+	}
+
+	/**
+	 * <p>Gives number of bytes written to serial port.</p>
+	 * 
+	 * @return number of bytes.
+	 */
+	public long getNumberOfBytes() {
+		return numBytes;
+	}
+
+	/**
+	 * <p>Gives time replay should have taken as per captured timestamps and speed factor. It is 0 
+	 * when replaying as fast as possible.</p>
+	 * 
+	 * @return duration in nanoseconds.
+	 */
+	public long getRequestedDuration() {
+		return requestedDuration;
+	}
+
+	/**
+	 * <p>Gives time replay actually took from first to last write.</p>
+	 * 
+	 * @return duration in nanoseconds.
+	 */
+	public long getAchievedDuration() {
+		return achievedDuration;
+	}
+
+	/**
+	 * <p>Gives the largest delay of a write after its scheduled time.</p>
+	 * 
+	 * @return delay in nanoseconds.
+	 */
+	public long getMaxLateness() {
+		return maxLateness;
+	}
+
+	/**
+	 * <p>Gives rate at which data should have been written as per captured timestamps and speed factor.</p>
+	 * 
+	 * @return bytes per second or 0 if replaying as fast as possible or all records had same timestamp.
+	 */
+	public double getRequestedRate() {
+		return (requestedDuration > 0) ? ((numBytes * 1000000000.0) / requestedDuration) : 0;
+	}
+
+	/**
+	 * <p>Gives rate at which data was actually written.</p>
+	 * 
+	 * @return bytes per second or 0 if time taken was too small to measure.
+	 */
+	public double getAchievedRate() {
+		return (achievedDuration > 0) ? ((numBytes * 1000000000.0) / achievedDuration) : 0;
+	}
+
+	/**
+	 * <p>Tells whether all selected records were replayed or replay was stopped early.</p>
+	 * 
+	 * @return true if all records were replayed.
+	 */
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	@Override
+	public String toString() {
+		return "records=" + numRecords + ", bytes=" + numBytes + ", requested rate=" + (long) getRequestedRate() 
+				+ " B/s, achieved rate=" + (long) getAchievedRate() + " B/s, max lateness=" + (maxLateness / 1000) + " us";
+	}
+}
@@ -0,0 +1,359 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Single threaded non-blocking NIO server shared by SerialComTCPBridge and SerialComRFC2217Server. 
+ * Each served serial port listens on its own TCP port and serves one client at a time; a client 
+ * connecting while another is connected is disconnected immediately.</p>
+ * 
+ * <p>The server thread accepts clients, dispatches socket readiness to the port of the client and, 
+ * while at least one client is connected, polls ports of connected clients every poll interval; 
+ * otherwise it sleeps till a client connects. What is done with data is decided by the port.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComNioServer {
+
+	static final int BUFFER_SIZE = 16 * 1024;
+
+	private final int pollInterval;
+	private final Selector selector;
+	private final Thread mServerThread;
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private final List<Port> ports = new ArrayList<Port>(); // accessed only by server thread.
+	private volatile boolean closed;
+	private int numClients; // accessed only by server thread.
+
+	/**
+	 * <p>Serial port served by SerialComNioServer and the client connected to it. Except where noted, 
+	 * all methods are called in server thread.</p>
+	 * 
+	 * <p>Each port has two direct byte buffers, one per direction. Data for client is accumulated in 
+	 * toSocket, data received from client is kept in toSerial from toSerialOffset till it has been 
+	 * written to serial port; new data is read from client only after toSerial has been emptied.</p>
+	 */
+	abstract static class Port {
+
+		final long handle;
+		final ServerSocketChannel server;
+		volatile SocketChannel client;
+		SelectionKey clientKey;
+		final ByteBuffer toSocket = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		final ByteBuffer toSerial = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		int toSerialOffset;
+		int toSerialLength;
+
+		Port(long handle, ServerSocketChannel server) {
+			this.handle = handle;
+			this.server = server;
+		}
+
+		/* client has been accepted and registered for reading, per client state should be reset. */
+		abstract void connected() throws IOException;
+
+		/* client has been closed. */
+		abstract void disconnected();
+
+		/* socket -> serial port. */
+		abstract void readSocket() throws IOException;
+
+		/* writes pending data of toSocket to client. */
+		abstract void flushSocket() throws IOException;
+
+		/* called every poll interval while client is connected, returns false if client must be disconnected. */
+		abstract boolean poll(long now) throws IOException;
+
+		/* a client was refused as port is in use. */
+		void rejected() {
+		}
+
+		void updateInterest() {
+			int ops = (toSerialLength == 0) ? SelectionKey.OP_READ : 0;
+			if(toSocket.position() > 0) {
+				ops |= SelectionKey.OP_WRITE;
+			}
+			clientKey.interestOps(ops);
+		}
+	}
+
+	/**
+	 * <p>This class runs in as a different thread context and serves all ports.</p>
+	 */
+	private final class Server implements Runnable {
+		@Override
+		public void run() {
+			while(closed == false) {
+				try {
+					selector.select((numClients > 0) ? pollInterval : 0);
+				} catch (IOException e) {
+					break;
+				}
+
+				Runnable task;
+				while((task = tasks.poll()) != null) {
+					task.run();
+				}
+
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while(it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					Port port = (Port) key.attachment();
+					try {
+						if(key.isValid() == false) {
+							continue;
+						}
+						if(key.isAcceptable()) {
+							accept(port);
+							continue;
+						}
+						if(key.isWritable()) {
+							port.flushSocket();
+						}
+						if(key.isValid() && key.isReadable()) {
+							port.readSocket();
+						}
+					} catch (IOException e) {
+						disconnect(port);
+					}
+				}
+
+				if(numClients > 0) {
+					long now = System.nanoTime();
+					for(Port port : ports) {
+						if(port.client != null) {
+							try {
+								if(port.poll(now) == false) {
+									disconnect(port);
+								}
+							} catch (IOException e) {
+								disconnect(port);
+							}
+						}
+					}
+				}
+			}
+
+			for(Port port : ports) {
+				disconnect(port);
+				try {
+					port.server.close();
+				} catch (IOException e) {
+				}
+			}
+			ports.clear();
+		}
+
+		private void accept(Port port) throws IOException {
+			SocketChannel channel = port.server.accept();
+			if(channel == null) {
+				return;
+			}
+			if(port.client != null) {
+				// port is in use by other client.
+				port.rejected();
+				channel.close();
+				return;
+			}
+			numClients++;
+			port.client = channel;
+			try {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				port.clientKey = channel.register(selector, SelectionKey.OP_READ, port);
+				port.toSocket.clear();
+				port.toSerialLength = 0;
+				port.connected();
+			} catch (IOException e) {
+				disconnect(port);
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComNioServer object and starts server thread.</p>
+	 * 
+	 * @param pollInterval time in milliseconds between two successive polls of ports which have 
+	 *         client connected.
+	 * @param threadName name given to server thread.
+	 * @throws IOException if selector can not be opened.
+	 */
+	SerialComNioServer(int pollInterval, String threadName) throws IOException {
+		this.pollInterval = pollInterval;
+		selector = Selector.open();
+		mServerThread = new Thread(new Server(), threadName);
+		mServerThread.setDaemon(true);
+		mServerThread.start();
+	}
+
+	/**
+	 * <p>Opens a non-blocking server socket bound to given address.</p>
+	 * 
+	 * @param address local address and TCP port; port 0 selects a free port.
+	 * @return bound server socket channel.
+	 * @throws IOException if address can not be bound.
+	 */
+	static ServerSocketChannel bind(InetSocketAddress address) throws IOException {
+		ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.socket().setReuseAddress(true);
+			server.socket().bind(address);
+			server.configureBlocking(false);
+		} catch (IOException e) {
+			server.close();
+			throw e;
+		}
+		return server;
+	}
+
+	/**
+	 * <p>Starts accepting clients for given port. Can be called from any thread.</p>
+	 * 
+	 * @param port port to be served.
+	 */
+	void addPort(final Port port) {
+		runInServerThread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					port.server.register(selector, SelectionKey.OP_ACCEPT, port);
+					ports.add(port);
+				} catch (IOException e) {
+				}
+			}
+		});
+	}
+
+	/**
+	 * <p>Disconnects client (if any) of given port and closes its server socket. Can be called from 
+	 * any thread.</p>
+	 * 
+	 * @param port port to be removed.
+	 */
+	void removePort(final Port port) {
+		runInServerThread(new Runnable() {
+			@Override
+			public void run() {
+				ports.remove(port);
+				disconnect(port);
+				try {
+					port.server.close();
+				} catch (IOException e) {
+				}
+			}
+		});
+	}
+
+	/**
+	 * <p>Runs given task in server thread without waiting for it. Can be called from any thread.</p>
+	 * 
+	 * @param task task to be run.
+	 */
+	void post(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * <p>Disconnects client (if any) of given port. Must be called in server thread.</p>
+	 * 
+	 * @param port port whose client is to be disconnected.
+	 */
+	void disconnect(Port port) {
+		if(port.client == null) {
+			return;
+		}
+		// cleared before closing so that a client which has seen end of stream sees port as free.
+		SocketChannel channel = port.client;
+		port.client = null;
+		if(port.clientKey != null) {
+			port.clientKey.cancel();
+			port.clientKey = null;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+		port.toSocket.clear();
+		port.toSerialLength = 0;
+		numClients--;
+		port.disconnected();
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	/* runs task in server thread and waits for it to finish. */
+	private void runInServerThread(final Runnable task) {
+		final CountDownLatch done = new CountDownLatch(1);
+		post(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} finally {
+					done.countDown();
+				}
+			}
+		});
+		try {
+			while(mServerThread.isAlive() && (done.await(100, TimeUnit.MILLISECONDS) == false)) {
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * <p>Disconnects all clients, closes all server sockets and terminates server thread. Calling 
+	 * close on an already closed server has no effect.</p>
+	 */
+	void close() {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		selector.wakeup();
+		try {
+			mServerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+		}
+	}
+}
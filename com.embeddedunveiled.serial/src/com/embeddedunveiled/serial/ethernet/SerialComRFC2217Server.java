@@ -0,0 +1,641 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.embeddedunveiled.serial.ISerialComEventListener;
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComLineEvent;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComManager.BAUDRATE;
+import com.embeddedunveiled.serial.SerialComManager.DATABITS;
+import com.embeddedunveiled.serial.SerialComManager.FLOWCONTROL;
+import com.embeddedunveiled.serial.SerialComManager.PARITY;
+import com.embeddedunveiled.serial.SerialComManager.STOPBITS;
+
+/**
+ * <p>RFC 2217 (Telnet Com Port Control Option) server which exposes serial ports opened through 
+ * SerialComManager to TCP clients. Each exposed port listens on its own TCP port and serves one 
+ * client at a time; a client connecting while another is connected is disconnected immediately.</p>
+ * 
+ * <p>All exposed ports are served by a single thread using non-blocking NIO sockets (SerialComNioServer). Data is moved 
+ * between socket and serial port through direct byte buffers using readBytesDirect/writeBytesDirect 
+ * methods; telnet escaping is done in place in these buffers. While at least one client is connected 
+ * the thread polls serial ports of connected clients every poll interval, otherwise it sleeps till a 
+ * client connects.</p>
+ * 
+ * <p>SET-BAUDRATE, SET-DATASIZE, SET-PARITY and SET-STOPSIZE are applied using configureComPortData, 
+ * SET-CONTROL using configureComPortControl, setDTR, setRTS and sendBreak, and PURGE-DATA using 
+ * clearPortIOBuffers. Modem state changes are reported with NOTIFY-MODEMSTATE using line event 
+ * listener registered on the port when it is exposed; so application must not register its own 
+ * line event listener on an exposed port. Line state (NOTIFY-LINESTATE) is not reported.</p>
+ * 
+ * <p>SerialComManager does not provide a way to read current settings of a port in platform 
+ * independent way, so the server assumes that port is configured at 9600 8N1 without flow control 
+ * until a client changes settings. As there is no way to hold break condition, BREAK ON sends a 
+ * break of BREAK_DURATION milliseconds.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComRFC2217Server {
+
+	/** <p>Duration of break in milliseconds sent when client requests BREAK ON or sends telnet BRK.</p> */
+	public static final int BREAK_DURATION = 100;
+
+	private static final int CONTROL_RESERVE = 512; // room kept in socket buffer for telnet replies.
+	private static final byte[] SIGNATURE = "SCM RFC 2217 server".getBytes();
+
+	private final SerialComManager scm;
+	private final SerialComNioServer nioServer;
+	private final Map<Long, PortBinding> bindings = new ConcurrentHashMap<Long, PortBinding>();
+
+	/**
+	 * <p>State of an exposed serial port and the client connected to it. Except line event callback, 
+	 * all methods are called in server thread.</p>
+	 */
+	private final class PortBinding extends SerialComNioServer.Port implements ISerialComEventListener, SerialComTelnet.Handler {
+
+		SerialComTelnet telnet;
+		final boolean[] localOn = new boolean[256];
+		final boolean[] remoteOn = new boolean[256];
+		final boolean[] willSent = new boolean[256];
+		final boolean[] doSent = new boolean[256];
+		final byte[] params = new byte[4];
+
+		int baudRate = 9600;
+		int dataBits = 8;
+		int parity = 1;
+		int stopSize = 1;
+		int flowControl = 1;
+		boolean dtr = true;
+		boolean rts = true;
+		int modemStateMask = 255;
+		int lineStateMask = 0;
+		boolean suspended;
+
+		// guarded by this, updated in line event callback.
+		int modemState;
+		int modemStateDelta;
+
+		// reports modem state changes to client, posted to server thread by line event callback.
+		final Runnable modemStateTask = new Runnable() {
+			@Override
+			public void run() {
+				if((client != null) && remoteOn[SerialComTelnet.OPT_COM_PORT]) {
+					try {
+						sendModemState(true);
+						flushSocket();
+					} catch (IOException e) {
+						nioServer.disconnect(PortBinding.this);
+					}
+				}
+			}
+		};
+
+		PortBinding(long handle, ServerSocketChannel server) {
+			super(handle, server);
+		}
+
+		@Override
+		public void onNewSerialEvent(SerialComLineEvent lineEvent) {
+			synchronized(this) {
+				modemState = applyChange(lineEvent.getCTS(), SerialComTelnet.MS_CTS, SerialComTelnet.MS_DELTA_CTS);
+				modemState = applyChange(lineEvent.getDSR(), SerialComTelnet.MS_DSR, SerialComTelnet.MS_DELTA_DSR);
+				modemState = applyChange(lineEvent.getDCD(), SerialComTelnet.MS_CD, SerialComTelnet.MS_DELTA_CD);
+				modemState = applyChange(lineEvent.getRI(), SerialComTelnet.MS_RI, 0);
+				if(lineEvent.getRI() == 2) {
+					modemStateDelta |= SerialComTelnet.MS_TRAILING_RI;
+				}
+			}
+			nioServer.post(modemStateTask);
+		}
+
+		// change is 0 unchanged, 1 asserted, 2 de-asserted as given by SerialComLineEvent.
+		private int applyChange(int change, int stateBit, int deltaBit) {
+			if(change == 1) {
+				modemStateDelta |= deltaBit;
+				return modemState | stateBit;
+			}
+			if(change == 2) {
+				modemStateDelta |= deltaBit;
+				return modemState & ~stateBit;
+			}
+			return modemState;
+		}
+
+		@Override
+		void connected() throws IOException {
+			telnet = new SerialComTelnet(this);
+			for(int x = 0; x < 256; x++) {
+				localOn[x] = false;
+				remoteOn[x] = false;
+				willSent[x] = false;
+				doSent[x] = false;
+			}
+			modemStateMask = 255;
+			lineStateMask = 0;
+			suspended = false;
+
+			int[] lines = scm.getLinesStatus(handle);
+			synchronized(this) {
+				modemState = ((lines[0] != 0) ? SerialComTelnet.MS_CTS : 0) | ((lines[1] != 0) ? SerialComTelnet.MS_DSR : 0) | 
+						((lines[2] != 0) ? SerialComTelnet.MS_CD : 0) | ((lines[3] != 0) ? SerialComTelnet.MS_RI : 0);
+				modemStateDelta = 0;
+			}
+
+			offer(SerialComTelnet.OPT_BINARY, true);
+			offer(SerialComTelnet.OPT_SGA, true);
+			offer(SerialComTelnet.OPT_COM_PORT, false);
+			flushSocket();
+		}
+
+		@Override
+		void disconnected() {
+		}
+
+		/* socket -> serial port. New data is read from socket only after previous data has been written. */
+		@Override
+		void readSocket() throws IOException {
+			if(toSerialLength > 0) {
+				return;
+			}
+			toSerial.clear();
+			int numBytes = client.read(toSerial);
+			if(numBytes < 0) {
+				throw new IOException("Client closed connection !");
+			}
+			toSerialOffset = 0;
+			toSerialLength = telnet.decode(toSerial, 0, numBytes);
+			writeSerial();
+			flushSocket();
+		}
+
+		void writeSerial() throws IOException {
+			while(toSerialLength > 0) {
+				int numBytes = scm.writeBytesDirect(handle, toSerial, toSerialOffset, toSerialLength);
+				if(numBytes <= 0) {
+					break;
+				}
+				toSerialOffset += numBytes;
+				toSerialLength -= numBytes;
+			}
+			updateInterest();
+		}
+
+		/* serial port -> socket. Half of free space is read so that escaping can be done in place. */
+		void readSerial() throws IOException {
+			if(suspended) {
+				return;
+			}
+			int maxBytes = (toSocket.remaining() - CONTROL_RESERVE) / 2;
+			if(maxBytes > 0) {
+				int position = toSocket.position();
+				int numBytes = scm.readBytesDirect(handle, toSocket, position, maxBytes);
+				if(numBytes > 0) {
+					toSocket.position(position + SerialComTelnet.escape(toSocket, position, numBytes));
+				}
+			}
+			flushSocket();
+		}
+
+		@Override
+		void flushSocket() throws IOException {
+			if(toSocket.position() > 0) {
+				toSocket.flip();
+				client.write(toSocket);
+				toSocket.compact();
+			}
+			updateInterest();
+		}
+
+		@Override
+		boolean poll(long now) throws IOException {
+			if(toSerialLength > 0) {
+				writeSerial();
+			}
+			readSerial();
+			return true;
+		}
+
+		void sendModemState(boolean onlyIfChanged) throws IOException {
+			int state;
+			int delta;
+			synchronized(this) {
+				state = modemState;
+				delta = modemStateDelta;
+				modemStateDelta = 0;
+			}
+			if(onlyIfChanged && ((delta & modemStateMask) == 0)) {
+				return;
+			}
+			sendComPortCommand(SerialComTelnet.NOTIFY_MODEMSTATE + SerialComTelnet.SERVER_OFFSET, (state | delta) & modemStateMask);
+		}
+
+		private void ensureRoom(int numBytes) throws IOException {
+			if(toSocket.remaining() < numBytes) {
+				throw new IOException("Client is not reading replies !");
+			}
+		}
+
+		/* asks client to enable option at its end and optionally offers to enable it at this end. */
+		private void offer(int option, boolean local) throws IOException {
+			if(local) {
+				willSent[option] = true;
+				sendNegotiation(SerialComTelnet.WILL, option);
+			}
+			doSent[option] = true;
+			sendNegotiation(SerialComTelnet.DO, option);
+		}
+
+		private void sendNegotiation(int command, int option) throws IOException {
+			ensureRoom(3);
+			SerialComTelnet.putNegotiation(toSocket, command, option);
+		}
+
+		private void sendComPortCommand(int command, int value) throws IOException {
+			params[0] = (byte) value;
+			ensureRoom(8);
+			SerialComTelnet.putComPortCommand(toSocket, command, params, 1);
+		}
+
+		@Override
+		public void onNegotiation(int command, int option) throws IOException {
+			boolean supported = (option == SerialComTelnet.OPT_BINARY) || (option == SerialComTelnet.OPT_SGA);
+			if(command == SerialComTelnet.WILL) {
+				if(supported || (option == SerialComTelnet.OPT_COM_PORT)) {
+					if(!remoteOn[option]) {
+						remoteOn[option] = true;
+						if(!doSent[option]) {
+							doSent[option] = true;
+							sendNegotiation(SerialComTelnet.DO, option);
+						}
+						if(option == SerialComTelnet.OPT_COM_PORT) {
+							sendModemState(false);
+						}
+					}
+				}else {
+					sendNegotiation(SerialComTelnet.DONT, option);
+				}
+			}else if(command == SerialComTelnet.WONT) {
+				if(remoteOn[option]) {
+					sendNegotiation(SerialComTelnet.DONT, option);
+				}
+				remoteOn[option] = false;
+				doSent[option] = false;
+			}else if(command == SerialComTelnet.DO) {
+				if(supported) {
+					if(!localOn[option]) {
+						localOn[option] = true;
+						if(!willSent[option]) {
+							willSent[option] = true;
+							sendNegotiation(SerialComTelnet.WILL, option);
+						}
+					}
+				}else {
+					sendNegotiation(SerialComTelnet.WONT, option);
+				}
+			}else {
+				if(localOn[option]) {
+					sendNegotiation(SerialComTelnet.WONT, option);
+				}
+				localOn[option] = false;
+				willSent[option] = false;
+			}
+		}
+
+		@Override
+		public void onCommand(int command) throws IOException {
+			if(command == SerialComTelnet.BRK) {
+				scm.sendBreak(handle, BREAK_DURATION);
+			}
+		}
+
+		@Override
+		public void onSubnegotiation(byte[] data, int length) throws IOException {
+			if((length < 2) || ((data[0] & 0xFF) != SerialComTelnet.OPT_COM_PORT)) {
+				return;
+			}
+			int command = data[1] & 0xFF;
+			int value = (length > 2) ? (data[2] & 0xFF) : 0;
+			int reply = command + SerialComTelnet.SERVER_OFFSET;
+
+			switch(command) {
+			case SerialComTelnet.SIGNATURE:
+				if(length == 2) {
+					ensureRoom(SIGNATURE.length * 2 + 6);
+					SerialComTelnet.putComPortCommand(toSocket, reply, SIGNATURE, SIGNATURE.length);
+				}
+				break;
+			case SerialComTelnet.SET_BAUDRATE:
+				if(length >= 6) {
+					int requested = ((data[2] & 0xFF) << 24) | ((data[3] & 0xFF) << 16) | ((data[4] & 0xFF) << 8) | (data[5] & 0xFF);
+					if(requested > 0) {
+						int previous = baudRate;
+						baudRate = requested;
+						if(!applyDataSettings()) {
+							baudRate = previous;
+						}
+					}
+				}
+				params[0] = (byte) (baudRate >>> 24);
+				params[1] = (byte) (baudRate >>> 16);
+				params[2] = (byte) (baudRate >>> 8);
+				params[3] = (byte) baudRate;
+				ensureRoom(16);
+				SerialComTelnet.putComPortCommand(toSocket, reply, params, 4);
+				break;
+			case SerialComTelnet.SET_DATASIZE:
+				if((value >= 5) && (value <= 8)) {
+					int previous = dataBits;
+					dataBits = value;
+					if(!applyDataSettings()) {
+						dataBits = previous;
+					}
+				}
+				sendComPortCommand(reply, dataBits);
+				break;
+			case SerialComTelnet.SET_PARITY:
+				if((value >= 1) && (value <= 5)) {
+					int previous = parity;
+					parity = value;
+					if(!applyDataSettings()) {
+						parity = previous;
+					}
+				}
+				sendComPortCommand(reply, parity);
+				break;
+			case SerialComTelnet.SET_STOPSIZE:
+				if((value >= 1) && (value <= 3)) {
+					int previous = stopSize;
+					stopSize = value;
+					if(!applyDataSettings()) {
+						stopSize = previous;
+					}
+				}
+				sendComPortCommand(reply, stopSize);
+				break;
+			case SerialComTelnet.SET_CONTROL:
+				sendComPortCommand(reply, control(value));
+				break;
+			case SerialComTelnet.FLOWCONTROL_SUSPEND:
+				suspended = true;
+				break;
+			case SerialComTelnet.FLOWCONTROL_RESUME:
+				suspended = false;
+				break;
+			case SerialComTelnet.SET_LINESTATE_MASK:
+				lineStateMask = value;
+				sendComPortCommand(reply, lineStateMask);
+				break;
+			case SerialComTelnet.SET_MODEMSTATE_MASK:
+				modemStateMask = value;
+				sendComPortCommand(reply, modemStateMask);
+				break;
+			case SerialComTelnet.PURGE_DATA:
+				if((value >= 1) && (value <= 3)) {
+					scm.clearPortIOBuffers(handle, (value & 1) != 0, (value & 2) != 0);
+				}
+				sendComPortCommand(reply, value);
+				break;
+			default:
+				break;
+			}
+		}
+
+		/* executes SET-CONTROL and gives value to be sent in reply. */
+		private int control(int value) throws SerialComException {
+			switch(value) {
+			case 1:
+			case 2:
+			case 3:
+				applyFlowControl(value);
+				return flowControl;
+			case 14:
+			case 15:
+			case 16:
+				// same setting is used for both directions.
+				applyFlowControl(value - 13);
+				return flowControl + 13;
+			case 13:
+			case 17:
+			case 18:
+			case 19:
+				return flowControl + 13;
+			case 4:
+			case 6:
+				return 6;
+			case 5:
+				scm.sendBreak(handle, BREAK_DURATION);
+				return 6;
+			case 8:
+			case 9:
+				scm.setDTR(handle, value == 8);
+				dtr = (value == 8);
+				return dtr ? 8 : 9;
+			case 7:
+				return dtr ? 8 : 9;
+			case 11:
+			case 12:
+				scm.setRTS(handle, value == 11);
+				rts = (value == 11);
+				return rts ? 11 : 12;
+			case 10:
+				return rts ? 11 : 12;
+			default:
+				return flowControl;
+			}
+		}
+
+		private void applyFlowControl(int value) throws SerialComException {
+			FLOWCONTROL flow = FLOWCONTROL.NONE;
+			if(value == 2) {
+				flow = FLOWCONTROL.SOFTWARE;
+			}else if(value == 3) {
+				flow = FLOWCONTROL.HARDWARE;
+			}
+			scm.configureComPortControl(handle, flow, (char) 0x11, (char) 0x13, false, false);
+			flowControl = value;
+		}
+
+		/* applies baud rate, data size, parity and stop size, gives false if port rejected them. */
+		private boolean applyDataSettings() {
+			BAUDRATE baud = BAUDRATE.BCUSTOM;
+			for(BAUDRATE b : BAUDRATE.values()) {
+				if((b != BAUDRATE.BCUSTOM) && (b.getValue() == baudRate)) {
+					baud = b;
+					break;
+				}
+			}
+			DATABITS db = DATABITS.DB_8;
+			if(dataBits == 5) {
+				db = DATABITS.DB_5;
+			}else if(dataBits == 6) {
+				db = DATABITS.DB_6;
+			}else if(dataBits == 7) {
+				db = DATABITS.DB_7;
+			}
+			STOPBITS sb = STOPBITS.SB_1;
+			if(stopSize == 2) {
+				sb = STOPBITS.SB_2;
+			}else if(stopSize == 3) {
+				sb = STOPBITS.SB_1_5;
+			}
+			PARITY p = PARITY.P_NONE;
+			for(PARITY x : PARITY.values()) {
+				if(x.getValue() == parity) {
+					p = x;
+				}
+			}
+			try {
+				scm.configureComPortData(handle, db, sb, p, baud, (baud == BAUDRATE.BCUSTOM) ? baudRate : 0);
+				return true;
+			} catch (SerialComException e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComRFC2217Server object and starts thread serving exposed ports.</p>
+	 * 
+	 * @param scm SerialComManager instance through which ports to be exposed have been opened.
+	 * @param pollInterval time in milliseconds between two successive reads of serial ports which 
+	 *         have client connected.
+	 * @throws IOException if selector can not be opened.
+	 * @throws IllegalArgumentException if scm is null or pollInterval is not positive.
+	 */
+	public SerialComRFC2217Server(SerialComManager scm, int pollInterval) throws IOException {
+		if(scm == null) {
+			throw new IllegalArgumentException("Argument scm can not be null !");
+		}
+		if(pollInterval <= 0) {
+			throw new IllegalArgumentException("Argument pollInterval must be positive !");
+		}
+		this.scm = scm;
+		nioServer = new SerialComNioServer(pollInterval, "SCM RFC2217 server");
+	}
+
+	/**
+	 * <p>Exposes given serial port to RFC 2217 clients on given address.</p>
+	 * 
+	 * @param handle handle of the port opened through SerialComManager given to constructor.
+	 * @param address local address and TCP port on which clients will connect; port 0 selects a free port.
+	 * @return TCP port on which server is listening for this serial port.
+	 * @throws IOException if address can not be bound.
+	 * @throws SerialComException if line event listener can not be registered on port.
+	 * @throws IllegalStateException if port is already exposed or server is closed.
+	 * @throws IllegalArgumentException if address is null.
+	 */
+	public int exposePort(long handle, InetSocketAddress address) throws IOException {
+		if(address == null) {
+			throw new IllegalArgumentException("Argument address can not be null !");
+		}
+		if(nioServer.isClosed()) {
+			throw new IllegalStateException("Server has been closed !");
+		}
+		if(bindings.containsKey(handle)) {
+			throw new IllegalStateException("Given port is already exposed !");
+		}
+
+		ServerSocketChannel server = SerialComNioServer.bind(address);
+		PortBinding binding = new PortBinding(handle, server);
+		try {
+			scm.registerLineEventListener(handle, binding);
+		} catch (IOException e) {
+			server.close();
+			throw e;
+		}
+
+		bindings.put(handle, binding);
+		nioServer.addPort(binding);
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * <p>Exposes given serial port to RFC 2217 clients on given TCP port of all local addresses.</p>
+	 * 
+	 * @param handle handle of the port opened through SerialComManager given to constructor.
+	 * @param tcpPort TCP port on which clients will connect; 0 selects a free port.
+	 * @return TCP port on which server is listening for this serial port.
+	 * @throws IOException if TCP port can not be bound.
+	 * @throws SerialComException if line event listener can not be registered on port.
+	 * @throws IllegalStateException if port is already exposed or server is closed.
+	 */
+	public int exposePort(long handle, int tcpPort) throws IOException {
+		return exposePort(handle, new InetSocketAddress(tcpPort));
+	}
+
+	/**
+	 * <p>Disconnects client (if any) of given port, stops listening for new clients and unregisters 
+	 * line event listener registered by this server. The serial port remains opened.</p>
+	 * 
+	 * @param handle handle of the exposed port.
+	 * @throws SerialComException if line event listener can not be unregistered.
+	 * @throws IllegalArgumentException if given port is not exposed.
+	 */
+	public void unexposePort(long handle) throws SerialComException {
+		PortBinding binding = bindings.remove(handle);
+		if(binding == null) {
+			throw new IllegalArgumentException("Given port is not exposed !");
+		}
+		nioServer.removePort(binding);
+		scm.unregisterLineEventListener(handle, binding);
+	}
+
+	/**
+	 * <p>Tells whether a client is connected to given exposed port.</p>
+	 * 
+	 * @param handle handle of the exposed port.
+	 * @return true if a client is connected.
+	 */
+	public boolean isClientConnected(long handle) {
+		PortBinding binding = bindings.get(handle);
+		return (binding != null) && (binding.client != null);
+	}
+
+	/**
+	 * <p>Disconnects all clients, stops serving all exposed ports and terminates server thread. 
+	 * Serial ports remain opened.</p>
+	 * 
+	 * @throws SerialComException if line event listener of any port can not be unregistered.
+	 */
+	public void close() throws SerialComException {
+		if(nioServer.isClosed()) {
+			return;
+		}
+		nioServer.close();
+		SerialComException error = null;
+		for(PortBinding binding : bindings.values()) {
+			try {
+				scm.unregisterLineEventListener(binding.handle, binding);
+			} catch (SerialComException e) {
+				error = e;
+			}
+		}
+		bindings.clear();
+		if(error != null) {
+			throw error;
+		}
+	}
+}
@@ -0,0 +1,1104 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.ISerialComTransport;
+import com.embeddedunveiled.serial.transport.ISerialComTransportCallback;
+
+/**
+ * <p>RFC 2217 (Telnet Com Port Control Option) client which presents serial ports of remote terminal 
+ * servers as local handles. Given to SerialComManager constructor, it lets application use remote ports 
+ * through the same read/write, data/event listener and byte stream API as local ports, so application 
+ * can move between local and networked ports by only changing how SerialComManager is created and the 
+ * port name.</p>
+ * 
+ * <pre>
+ * {@code
+ * SerialComManager scm = new SerialComManager(new SerialComRFC2217Transport(1));
+ * long handle = scm.openComPort("rfc2217://terminal-server:2001", true, true, true);
+ * scm.configureComPortData(handle, DATABITS.DB_8, STOPBITS.SB_1, PARITY.P_NONE, BAUDRATE.B115200, 0);
+ * }</pre>
+ * 
+ * <p>Port name is host:port optionally prefixed with rfc2217://, IPv6 address must be given in square 
+ * brackets. Every opened port is a TCP connection with Nagle algorithm disabled. All connections are 
+ * served by one thread using non-blocking NIO sockets; no thread is created per port. Bytes written by 
+ * application are escaped and queued, and queued bytes of all ports are sent once every tick, so many 
+ * small writes made within a tick go out in one TCP segment. Write methods therefore return when data 
+ * has been queued rather than when it has left the remote serial port. Writer waits only when the queue 
+ * of the port is full.</p>
+ * 
+ * <p>Received bytes are kept in a receive buffer of RX_BUFFER_SIZE bytes per port, or given to data 
+ * listener if one is registered. When receive buffer is full, socket is not read till application reads 
+ * data, so TCP flow control slows down the server instead of data being lost.</p>
+ * 
+ * <p>Settings, control lines, break and purge are sent as RFC 2217 commands and the method waits for the 
+ * server to confirm it; an exception is thrown if server does not reply within REPLY_TIMEOUT. Modem state 
+ * notifications from server are given to event listeners and are used for getLinesStatus. Line state 
+ * notifications (overrun, parity, framing error and break) are counted in getInterruptCount.</p>
+ * 
+ * <p>listAvailableComPorts gives names of currently opened remote ports, as remote ports can not be 
+ * enumerated.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComRFC2217Transport implements ISerialComTransport {
+
+	/** <p>Size of receive buffer of each port in bytes. </p>*/
+	public static final int RX_BUFFER_SIZE = 64 * 1024;
+
+	/** <p>Time in milliseconds to wait for TCP connection and for replies from server. </p>*/
+	public static final int REPLY_TIMEOUT = 5000;
+
+	private static final int TX_BUFFER_SIZE = 16 * 1024;
+	private static final int SOCKET_READ_SIZE = 4096;
+
+	// indexes in interrupt count array, same order as Linux serial_icounter_struct.
+	private static final int IC_CTS = 0;
+	private static final int IC_DSR = 1;
+	private static final int IC_RING = 2;
+	private static final int IC_DCD = 3;
+	private static final int IC_RX = 4;
+	private static final int IC_TX = 5;
+	private static final int IC_FRAME = 6;
+	private static final int IC_OVERRUN = 7;
+	private static final int IC_PARITY = 8;
+	private static final int IC_BRK = 9;
+
+	private final int tickInterval;
+	private final Selector selector;
+	private final Thread mLoopThread;
+	private final ConcurrentHashMap<Long, RemotePort> ports = new ConcurrentHashMap<Long, RemotePort>();
+	private final ConcurrentHashMap<Long, BlockingContext> contexts = new ConcurrentHashMap<Long, BlockingContext>();
+	private final ConcurrentLinkedQueue<RemotePort> toRegister = new ConcurrentLinkedQueue<RemotePort>();
+	private final AtomicLong nextHandle = new AtomicLong(1);
+	private final AtomicLong nextContext = new AtomicLong(1);
+	private volatile boolean closed;
+
+	/**
+	 * <p>Context for blocking reads. Once unblocked, every blocking read using this context throws 
+	 * exception with message SerialComManager.EXP_UNBLOCKIO.</p>
+	 */
+	private static final class BlockingContext {
+		volatile boolean unblocked;
+		volatile Object waitingOn;
+	}
+
+	/**
+	 * <p>Connection to a remote port. Socket is read and written only by event loop thread; receive 
+	 * buffer, transmit queue and replies are guarded by lock.</p>
+	 */
+	private final class RemotePort implements SerialComTelnet.Handler {
+
+		final long handle;
+		final String name;
+		final SocketChannel channel;
+		final boolean enableRead;
+		final boolean enableWrite;
+		final Object lock = new Object();
+		SelectionKey key;
+		final SerialComTelnet telnet = new SerialComTelnet(this);
+		final ByteBuffer fromSocket = ByteBuffer.allocateDirect(SOCKET_READ_SIZE);
+		final ByteBuffer toSocket = ByteBuffer.allocateDirect(TX_BUFFER_SIZE);
+
+		// guarded by lock.
+		final byte[] rx = new byte[RX_BUFFER_SIZE];
+		int rxHead;
+		int rxCount;
+		boolean rxPaused;
+		boolean disconnected;
+		boolean comPortAccepted;
+		boolean comPortRefused;
+		final int[] replySequence = new int[13];
+		final int[] replyValue = new int[13];
+		final boolean[] commandPending = new boolean[13];
+		final int[] interruptCount = new int[11];
+		int modemState;
+		boolean rts = true;
+		boolean dtr = true;
+		int baudRate;
+		int dataBits;
+		int parity;
+		int stopSize;
+
+		// used only by event loop thread.
+		final boolean[] remoteOn = new boolean[256];
+		final boolean[] localOn = new boolean[256];
+		final boolean[] willSent = new boolean[256];
+		final boolean[] doSent = new boolean[256];
+
+		volatile ISerialComTransportCallback dataLooper;
+		volatile ISerialComTransportCallback eventLooper;
+		volatile boolean eventsPaused;
+
+		RemotePort(long handle, String name, SocketChannel channel, boolean enableRead, boolean enableWrite) {
+			this.handle = handle;
+			this.name = name;
+			this.channel = channel;
+			this.enableRead = enableRead;
+			this.enableWrite = enableWrite;
+		}
+
+		/* called with lock held, true if there is room for given number of bytes in transmit queue. */
+		private boolean hasRoom(int numBytes) {
+			return toSocket.remaining() >= numBytes;
+		}
+
+		private void checkConnected() throws SerialComException {
+			if(disconnected) {
+				throw new SerialComException("Connection to RFC 2217 server of port " + name + " is closed !");
+			}
+		}
+
+		/* queues bytes escaping IAC, waits if queue is full. */
+		void queueData(byte[] data, int offset, int length) throws SerialComException {
+			synchronized(lock) {
+				int x = offset;
+				int end = offset + length;
+				while(x < end) {
+					checkConnected();
+					if(!hasRoom(2)) {
+						if(toSocket.position() > (TX_BUFFER_SIZE / 2)) {
+							selector.wakeup();
+						}
+						if(!await(lock, 0)) {
+							throw new SerialComException("Interrupted while waiting to write data !");
+						}
+						continue;
+					}
+					while((x < end) && hasRoom(2)) {
+						toSocket.put(data[x]);
+						if(data[x] == (byte) SerialComTelnet.IAC) {
+							toSocket.put(data[x]);
+						}
+						x++;
+					}
+				}
+				interruptCount[IC_TX] += length;
+				if(toSocket.position() > (TX_BUFFER_SIZE / 2)) {
+					selector.wakeup();
+				}
+			}
+		}
+
+		/* sends RFC 2217 command and waits for the server to reply, gives value in reply. Replies carry only 
+		 * command type, so only one command of a given type is outstanding at a time. */
+		int command(int command, byte[] values, int length) throws SerialComException {
+			synchronized(lock) {
+				long deadline = System.currentTimeMillis() + REPLY_TIMEOUT;
+				while(commandPending[command] || !hasRoom((2 * length) + 6)) {
+					checkConnected();
+					long wait = deadline - System.currentTimeMillis();
+					if((wait <= 0) || !await(lock, wait * 1000000L)) {
+						throw new SerialComException("Could not send command to RFC 2217 server of port " + name + " !");
+					}
+				}
+				checkConnected();
+				commandPending[command] = true;
+				try {
+					int sequence = replySequence[command];
+					SerialComTelnet.putComPortCommand(toSocket, command, values, length);
+					selector.wakeup();
+					while(replySequence[command] == sequence) {
+						checkConnected();
+						long wait = deadline - System.currentTimeMillis();
+						if((wait <= 0) || !await(lock, wait * 1000000L)) {
+							throw new SerialComException("RFC 2217 server of port " + name + " did not reply !");
+						}
+					}
+					return replyValue[command];
+				} finally {
+					commandPending[command] = false;
+					lock.notifyAll();
+				}
+			}
+		}
+
+		int command(int command, int value) throws SerialComException {
+			byte[] params = new byte[1];
+			params[0] = (byte) value;
+			return command(command, params, 1);
+		}
+
+		/* reads arrived bytes, waiting for at least one byte if a blocking context is given. */
+		int read(byte[] buffer, int offset, int length, BlockingContext bc) throws SerialComException {
+			synchronized(lock) {
+				while(rxCount == 0) {
+					if(disconnected) {
+						throw new SerialComException("Connection to RFC 2217 server of port " + name + " is closed !");
+					}
+					if(bc == null) {
+						return 0;
+					}
+					bc.waitingOn = lock;
+					if(bc.unblocked == true) {
+						bc.waitingOn = null;
+						throw new SerialComException(SerialComManager.EXP_UNBLOCKIO);
+					}
+					if(!await(lock, 0)) {
+						bc.waitingOn = null;
+						throw new SerialComException("Interrupted while waiting for data !");
+					}
+				}
+				if(bc != null) {
+					bc.waitingOn = null;
+				}
+				int num = (rxCount < length) ? rxCount : length;
+				int first = RX_BUFFER_SIZE - rxHead;
+				if(first >= num) {
+					System.arraycopy(rx, rxHead, buffer, offset, num);
+				}else {
+					System.arraycopy(rx, rxHead, buffer, offset, first);
+					System.arraycopy(rx, 0, buffer, offset + first, num - first);
+				}
+				rxHead = (rxHead + num) % RX_BUFFER_SIZE;
+				rxCount -= num;
+				if(rxPaused && ((RX_BUFFER_SIZE - rxCount) >= SOCKET_READ_SIZE)) {
+					selector.wakeup();
+				}
+				return num;
+			}
+		}
+
+		/* event loop: socket -> receive buffer or data looper. */
+		void readSocket() throws IOException {
+			ISerialComTransportCallback looper = dataLooper;
+			synchronized(lock) {
+				if((looper == null) && ((RX_BUFFER_SIZE - rxCount) < SOCKET_READ_SIZE)) {
+					rxPaused = true;
+					updateInterest();
+					return;
+				}
+				rxPaused = false;
+			}
+			fromSocket.clear();
+			int numBytes = channel.read(fromSocket);
+			if(numBytes < 0) {
+				throw new IOException("Server closed connection !");
+			}
+			int numData = telnet.decode(fromSocket, 0, numBytes);
+			if(numData == 0) {
+				return;
+			}
+			if(looper != null) {
+				byte[] data = new byte[numData];
+				fromSocket.position(0);
+				fromSocket.get(data, 0, numData);
+				synchronized(lock) {
+					interruptCount[IC_RX] += numData;
+				}
+				looper.insertInDataQueue(data);
+				return;
+			}
+			synchronized(lock) {
+				int tail = (rxHead + rxCount) % RX_BUFFER_SIZE;
+				int first = RX_BUFFER_SIZE - tail;
+				fromSocket.position(0);
+				if(first >= numData) {
+					fromSocket.get(rx, tail, numData);
+				}else {
+					fromSocket.get(rx, tail, first);
+					fromSocket.get(rx, 0, numData - first);
+				}
+				rxCount += numData;
+				interruptCount[IC_RX] += numData;
+				lock.notifyAll();
+			}
+		}
+
+		/* event loop: transmit queue -> socket. */
+		void flush() throws IOException {
+			synchronized(lock) {
+				if(toSocket.position() > 0) {
+					toSocket.flip();
+					channel.write(toSocket);
+					toSocket.compact();
+					lock.notifyAll();
+				}
+				updateInterest();
+			}
+		}
+
+		/* called with lock held. */
+		private void updateInterest() {
+			if((key == null) || !key.isValid()) {
+				return;
+			}
+			int ops = rxPaused ? 0 : SelectionKey.OP_READ;
+			if(toSocket.position() > 0) {
+				ops |= SelectionKey.OP_WRITE;
+			}
+			key.interestOps(ops);
+		}
+
+		/* event loop: connection is closed by server or failed. */
+		void disconnected() {
+			synchronized(lock) {
+				disconnected = true;
+				lock.notifyAll();
+			}
+			if(key != null) {
+				key.cancel();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+			}
+		}
+
+		private void sendNegotiation(int command, int option) throws IOException {
+			synchronized(lock) {
+				if(!hasRoom(3)) {
+					throw new IOException("Transmit queue is full !");
+				}
+				SerialComTelnet.putNegotiation(toSocket, command, option);
+			}
+		}
+
+		/* offers to enable option at this end and optionally asks server to enable it at its end. */
+		void offer(int option, boolean remote) throws IOException {
+			willSent[option] = true;
+			sendNegotiation(SerialComTelnet.WILL, option);
+			if(remote) {
+				doSent[option] = true;
+				sendNegotiation(SerialComTelnet.DO, option);
+			}
+		}
+
+		@Override
+		public void onNegotiation(int command, int option) throws IOException {
+			boolean supported = (option == SerialComTelnet.OPT_BINARY) || (option == SerialComTelnet.OPT_SGA);
+			if(command == SerialComTelnet.DO) {
+				if(supported || (option == SerialComTelnet.OPT_COM_PORT)) {
+					if(!localOn[option]) {
+						localOn[option] = true;
+						if(!willSent[option]) {
+							willSent[option] = true;
+							sendNegotiation(SerialComTelnet.WILL, option);
+						}
+					}
+					if(option == SerialComTelnet.OPT_COM_PORT) {
+						synchronized(lock) {
+							comPortAccepted = true;
+							lock.notifyAll();
+						}
+					}
+				}else {
+					sendNegotiation(SerialComTelnet.WONT, option);
+				}
+			}else if(command == SerialComTelnet.DONT) {
+				if(localOn[option]) {
+					sendNegotiation(SerialComTelnet.WONT, option);
+				}
+				localOn[option] = false;
+				willSent[option] = false;
+				if(option == SerialComTelnet.OPT_COM_PORT) {
+					synchronized(lock) {
+						comPortRefused = true;
+						lock.notifyAll();
+					}
+				}
+			}else if(command == SerialComTelnet.WILL) {
+				if(supported) {
+					if(!remoteOn[option]) {
+						remoteOn[option] = true;
+						if(!doSent[option]) {
+							doSent[option] = true;
+							sendNegotiation(SerialComTelnet.DO, option);
+						}
+					}
+				}else {
+					sendNegotiation(SerialComTelnet.DONT, option);
+				}
+			}else {
+				if(remoteOn[option]) {
+					sendNegotiation(SerialComTelnet.DONT, option);
+				}
+				remoteOn[option] = false;
+				doSent[option] = false;
+			}
+		}
+
+		@Override
+		public void onCommand(int command) {
+		}
+
+		@Override
+		public void onSubnegotiation(byte[] data, int length) {
+			if((length < 2) || ((data[0] & 0xFF) != SerialComTelnet.OPT_COM_PORT)) {
+				return;
+			}
+			int command = (data[1] & 0xFF) - SerialComTelnet.SERVER_OFFSET;
+			if((command < 0) || (command >= replySequence.length)) {
+				return;
+			}
+			int value = 0;
+			if(command == SerialComTelnet.SET_BAUDRATE) {
+				if(length < 6) {
+					return;
+				}
+				value = ((data[2] & 0xFF) << 24) | ((data[3] & 0xFF) << 16) | ((data[4] & 0xFF) << 8) | (data[5] & 0xFF);
+			}else if(length > 2) {
+				value = data[2] & 0xFF;
+			}
+
+			if(command == SerialComTelnet.NOTIFY_MODEMSTATE) {
+				modemStateChanged(value);
+				return;
+			}
+			synchronized(lock) {
+				if(command == SerialComTelnet.NOTIFY_LINESTATE) {
+					countLineState(value);
+					return;
+				}
+				replyValue[command] = value;
+				replySequence[command]++;
+				lock.notifyAll();
+			}
+		}
+
+		/* called with lock held. */
+		private void countLineState(int lineState) {
+			if((lineState & 0x02) != 0) {
+				interruptCount[IC_OVERRUN]++;
+			}
+			if((lineState & 0x04) != 0) {
+				interruptCount[IC_PARITY]++;
+			}
+			if((lineState & 0x08) != 0) {
+				interruptCount[IC_FRAME]++;
+			}
+			if((lineState & 0x10) != 0) {
+				interruptCount[IC_BRK]++;
+			}
+		}
+
+		private void modemStateChanged(int state) {
+			int lines;
+			synchronized(lock) {
+				if((state & SerialComTelnet.MS_DELTA_CTS) != 0) {
+					interruptCount[IC_CTS]++;
+				}
+				if((state & SerialComTelnet.MS_DELTA_DSR) != 0) {
+					interruptCount[IC_DSR]++;
+				}
+				if((state & SerialComTelnet.MS_TRAILING_RI) != 0) {
+					interruptCount[IC_RING]++;
+				}
+				if((state & SerialComTelnet.MS_DELTA_CD) != 0) {
+					interruptCount[IC_DCD]++;
+				}
+				modemState = state;
+				lines = linesMask();
+			}
+			ISerialComTransportCallback looper = eventLooper;
+			if((looper != null) && (eventsPaused == false)) {
+				looper.insertInEventQueue(lines);
+			}
+		}
+
+		/* called with lock held, input lines as SerialComManager.CTS/DSR/DCD/RI mask. */
+		int linesMask() {
+			int mask = 0;
+			if((modemState & SerialComTelnet.MS_CTS) != 0) {
+				mask |= SerialComManager.CTS;
+			}
+			if((modemState & SerialComTelnet.MS_DSR) != 0) {
+				mask |= SerialComManager.DSR;
+			}
+			if((modemState & SerialComTelnet.MS_CD) != 0) {
+				mask |= SerialComManager.DCD;
+			}
+			if((modemState & SerialComTelnet.MS_RI) != 0) {
+				mask |= SerialComManager.RI;
+			}
+			return mask;
+		}
+	}
+
+	/**
+	 * <p>This class runs in as a different thread context and moves data between sockets and ports 
+	 * of all connections, flushing transmit queues once every tick.</p>
+	 */
+	private final class EventLoop implements Runnable {
+		@Override
+		public void run() {
+			while(closed == false) {
+				try {
+					selector.select(tickInterval);
+				} catch (IOException e) {
+					break;
+				}
+
+				RemotePort port;
+				while((port = toRegister.poll()) != null) {
+					try {
+						synchronized(port.lock) {
+							port.key = port.channel.register(selector, SelectionKey.OP_READ, port);
+						}
+						port.flush();
+					} catch (IOException e) {
+						port.disconnected();
+					}
+				}
+
+				for(SelectionKey key : selector.selectedKeys()) {
+					RemotePort rp = (RemotePort) key.attachment();
+					try {
+						if(key.isValid() && key.isReadable()) {
+							rp.readSocket();
+						}
+					} catch (IOException e) {
+						rp.disconnected();
+					}
+				}
+				selector.selectedKeys().clear();
+
+				for(RemotePort rp : ports.values()) {
+					if((rp.key == null) || !rp.key.isValid()) {
+						continue;
+					}
+					try {
+						synchronized(rp.lock) {
+							if(rp.rxPaused && ((RX_BUFFER_SIZE - rp.rxCount) >= SOCKET_READ_SIZE)) {
+								rp.rxPaused = false;
+							}
+						}
+						rp.flush();
+					} catch (IOException e) {
+						rp.disconnected();
+					}
+				}
+			}
+
+			for(RemotePort rp : ports.values()) {
+				rp.disconnected();
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComRFC2217Transport object and starts event loop thread.</p>
+	 * 
+	 * @param tickInterval time in milliseconds between two successive flushes of transmit queues; 
+	 *         bytes written within this time are sent together.
+	 * @throws IOException if selector can not be opened.
+	 * @throws IllegalArgumentException if tickInterval is not positive.
+	 */
+	public SerialComRFC2217Transport(int tickInterval) throws IOException {
+		if(tickInterval <= 0) {
+			throw new IllegalArgumentException("Argument tickInterval must be positive !");
+		}
+		this.tickInterval = tickInterval;
+		selector = Selector.open();
+		mLoopThread = new Thread(new EventLoop(), "SCM RFC2217 client");
+		mLoopThread.setDaemon(true);
+		mLoopThread.start();
+	}
+
+	/**
+	 * <p>Closes connections of all ports and terminates event loop thread. Ports should be closed 
+	 * through SerialComManager before calling this method.</p>
+	 */
+	public void close() {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		selector.wakeup();
+		try {
+			mLoopThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+		}
+	}
+
+	/*
+	 * Waits on given lock (which must be held) for given nanoseconds or till notified if nanos is 0. 
+	 * Returns false if the thread was interrupted.
+	 */
+	private static boolean await(Object lock, long nanos) {
+		try {
+			if(nanos <= 0) {
+				lock.wait();
+			}else {
+				lock.wait(nanos / 1000000, (int) (nanos % 1000000));
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private RemotePort getPort(long handle) throws SerialComException {
+		RemotePort rp = ports.get(handle);
+		if(rp == null) {
+			throw new SerialComException("Given handle does not represent an opened remote port !");
+		}
+		return rp;
+	}
+
+	/* gives address from name in form [rfc2217://]host:port. */
+	private static InetSocketAddress parseAddress(String portName) throws SerialComException {
+		String name = portName;
+		if(name.startsWith("rfc2217://")) {
+			name = name.substring(10);
+		}
+		int colon = name.lastIndexOf(':');
+		if((colon <= 0) || (colon == (name.length() - 1))) {
+			throw new SerialComException("Port name must be in form host:port !");
+		}
+		String host = name.substring(0, colon);
+		if(host.startsWith("[") && host.endsWith("]")) {
+			host = host.substring(1, host.length() - 1);
+		}
+		int tcpPort;
+		try {
+			tcpPort = Integer.parseInt(name.substring(colon + 1));
+		} catch (NumberFormatException e) {
+			throw new SerialComException("Invalid TCP port in port name " + portName + " !");
+		}
+		return new InetSocketAddress(host, tcpPort);
+	}
+
+	@Override
+	public String[] listAvailableComPorts() {
+		List<String> names = new ArrayList<String>();
+		for(RemotePort rp : ports.values()) {
+			names.add(rp.name);
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	@Override
+	public long openComPort(String portName, boolean enableRead, boolean enableWrite, boolean exclusiveOwner) throws SerialComException {
+		if(closed) {
+			throw new SerialComException("Transport has been closed !");
+		}
+		InetSocketAddress address = parseAddress(portName);
+		if(address.isUnresolved()) {
+			throw new SerialComException("Could not resolve host of port " + portName + " !");
+		}
+
+		SocketChannel channel = null;
+		RemotePort rp = null;
+		try {
+			channel = SocketChannel.open();
+			channel.socket().connect(address, REPLY_TIMEOUT);
+			channel.socket().setTcpNoDelay(true);
+			channel.configureBlocking(false);
+			rp = new RemotePort(nextHandle.getAndIncrement(), portName, channel, enableRead, enableWrite);
+			rp.offer(SerialComTelnet.OPT_COM_PORT, false);
+			rp.offer(SerialComTelnet.OPT_BINARY, true);
+			rp.offer(SerialComTelnet.OPT_SGA, true);
+		} catch (IOException e) {
+			if(channel != null) {
+				try {
+					channel.close();
+				} catch (IOException ce) {
+				}
+			}
+			throw new SerialComException("Could not connect to " + portName + " : " + e.getMessage());
+		}
+
+		ports.put(rp.handle, rp);
+		toRegister.add(rp);
+		selector.wakeup();
+
+		try {
+			synchronized(rp.lock) {
+				long deadline = System.currentTimeMillis() + REPLY_TIMEOUT;
+				while(!rp.comPortAccepted) {
+					rp.checkConnected();
+					long wait = deadline - System.currentTimeMillis();
+					if(rp.comPortRefused || (wait <= 0) || !await(rp.lock, wait * 1000000L)) {
+						throw new SerialComException("Server of port " + portName + " does not support RFC 2217 !");
+					}
+				}
+			}
+			// like a tty, DTR and RTS are asserted when port is opened; line errors are to be reported.
+			rp.command(SerialComTelnet.SET_CONTROL, 8);
+			rp.command(SerialComTelnet.SET_CONTROL, 11);
+			rp.command(SerialComTelnet.SET_LINESTATE_MASK, 0x1E);
+		} catch (SerialComException e) {
+			ports.remove(rp.handle);
+			rp.disconnected();
+			throw e;
+		}
+		return rp.handle;
+	}
+
+	@Override
+	public int closeComPort(long handle) throws SerialComException {
+		RemotePort rp = ports.remove(handle);
+		if(rp == null) {
+			return -1;
+		}
+		// let queued data go out before closing connection.
+		synchronized(rp.lock) {
+			long deadline = System.currentTimeMillis() + REPLY_TIMEOUT;
+			selector.wakeup();
+			while((rp.toSocket.position() > 0) && !rp.disconnected) {
+				long wait = deadline - System.currentTimeMillis();
+				if((wait <= 0) || !await(rp.lock, wait * 1000000L)) {
+					break;
+				}
+			}
+		}
+		rp.disconnected();
+		return 0;
+	}
+
+	private int read(long handle, byte[] buffer, int offset, int length, long context) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		if(rp.enableRead == false) {
+			throw new SerialComException("Port was not opened for reading !");
+		}
+		BlockingContext bc = null;
+		if(context != -1) {
+			bc = contexts.get(context);
+			if(bc == null) {
+				throw new SerialComException("Invalid blocking I/O context !");
+			}
+		}
+		return rp.read(buffer, offset, length, bc);
+	}
+
+	private int write(long handle, byte[] data, int offset, int length) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		if(rp.enableWrite == false) {
+			throw new SerialComException("Port was not opened for writing !");
+		}
+		rp.queueData(data, offset, length);
+		return length;
+	}
+
+	@Override
+	public byte[] readBytes(long handle, int byteCount) throws SerialComException {
+		byte[] buffer = new byte[byteCount];
+		int num = read(handle, buffer, 0, byteCount, -1);
+		if(num == 0) {
+			return null;
+		}
+		return (num == byteCount) ? buffer : Arrays.copyOf(buffer, num);
+	}
+
+	@Override
+	public int readBytesP(long handle, byte[] buffer, int offset, int length, long context) throws SerialComException {
+		return read(handle, buffer, offset, length, context);
+	}
+
+	@Override
+	public byte[] readBytesBlocking(long handle, int byteCount, long context) throws SerialComException {
+		byte[] buffer = new byte[byteCount];
+		int num = read(handle, buffer, 0, byteCount, context);
+		return (num == byteCount) ? buffer : Arrays.copyOf(buffer, num);
+	}
+
+	@Override
+	public int readBytesDirect(long handle, ByteBuffer buffer, int offset, int length) throws SerialComException {
+		byte[] data = new byte[length];
+		int num = read(handle, data, 0, length, -1);
+		for(int x = 0; x < num; x++) {
+			buffer.put(offset + x, data[x]);
+		}
+		return num;
+	}
+
+	@Override
+	public int writeBytes(long handle, byte[] buffer, int delay) throws SerialComException {
+		if(delay <= 0) {
+			return write(handle, buffer, 0, buffer.length);
+		}
+		for(int x = 0; x < buffer.length; x++) {
+			write(handle, buffer, x, 1);
+			if(x < (buffer.length - 1)) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SerialComException("Interrupted while writing data !");
+				}
+			}
+		}
+		return buffer.length;
+	}
+
+	@Override
+	public int writeBytesDirect(long handle, ByteBuffer buffer, int offset, int length) throws SerialComException {
+		byte[] data = new byte[length];
+		for(int x = 0; x < length; x++) {
+			data[x] = buffer.get(offset + x);
+		}
+		return write(handle, data, 0, length);
+	}
+
+	@Override
+	public int writeSingleByte(long handle, byte dataByte) throws SerialComException {
+		return write(handle, new byte[] { dataByte }, 0, 1);
+	}
+
+	@Override
+	public long createBlockingIOContext() throws SerialComException {
+		long context = nextContext.getAndIncrement();
+		contexts.put(context, new BlockingContext());
+		return context;
+	}
+
+	@Override
+	public int unblockBlockingIOOperation(long context) throws SerialComException {
+		BlockingContext bc = contexts.get(context);
+		if(bc == null) {
+			return -1;
+		}
+		bc.unblocked = true;
+		Object lock = bc.waitingOn;
+		if(lock != null) {
+			synchronized(lock) {
+				lock.notifyAll();
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public int destroyBlockingIOContext(long context) throws SerialComException {
+		return (contexts.remove(context) != null) ? 0 : -1;
+	}
+
+	@Override
+	public int setUpDataLooperThread(long handle, ISerialComTransportCallback looper) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		if(rp.dataLooper != null) {
+			return -1;
+		}
+		// bytes already received are given to listener first.
+		synchronized(rp.lock) {
+			if(rp.rxCount > 0) {
+				byte[] pending = new byte[rp.rxCount];
+				rp.read(pending, 0, pending.length, null);
+				looper.insertInDataQueue(pending);
+			}
+			rp.dataLooper = looper;
+		}
+		return 0;
+	}
+
+	@Override
+	public int destroyDataLooperThread(long handle) throws SerialComException {
+		getPort(handle).dataLooper = null;
+		return 0;
+	}
+
+	@Override
+	public int setUpEventLooperThread(long handle, ISerialComTransportCallback looper) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		rp.eventsPaused = false;
+		rp.eventLooper = looper;
+		return 0;
+	}
+
+	@Override
+	public int destroyEventLooperThread(long handle) throws SerialComException {
+		getPort(handle).eventLooper = null;
+		return 0;
+	}
+
+	@Override
+	public int pauseListeningEvents(long handle) throws SerialComException {
+		getPort(handle).eventsPaused = true;
+		return 0;
+	}
+
+	@Override
+	public int resumeListeningEvents(long handle) throws SerialComException {
+		getPort(handle).eventsPaused = false;
+		return 0;
+	}
+
+	@Override
+	public int setRTS(long handle, boolean enabled) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		int reply = rp.command(SerialComTelnet.SET_CONTROL, enabled ? 11 : 12);
+		synchronized(rp.lock) {
+			rp.rts = (reply == 11);
+		}
+		return 0;
+	}
+
+	@Override
+	public int setDTR(long handle, boolean enabled) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		int reply = rp.command(SerialComTelnet.SET_CONTROL, enabled ? 8 : 9);
+		synchronized(rp.lock) {
+			rp.dtr = (reply == 8);
+		}
+		return 0;
+	}
+
+	@Override
+	public int[] getLinesStatus(long handle) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		synchronized(rp.lock) {
+			int mask = rp.linesMask();
+			return new int[] { mask & SerialComManager.CTS, mask & SerialComManager.DSR, mask & SerialComManager.DCD, 
+					mask & SerialComManager.RI, 0, rp.rts ? SerialComManager.RTS : 0, rp.dtr ? SerialComManager.DTR : 0 };
+		}
+	}
+
+	@Override
+	public int[] getInterruptCount(long handle) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		synchronized(rp.lock) {
+			return rp.interruptCount.clone();
+		}
+	}
+
+	@Override
+	public int sendBreak(long handle, int duration) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		rp.command(SerialComTelnet.SET_CONTROL, 5);
+		try {
+			Thread.sleep(duration);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		rp.command(SerialComTelnet.SET_CONTROL, 6);
+		return 0;
+	}
+
+	@Override
+	public int[] getByteCount(long handle) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		synchronized(rp.lock) {
+			return new int[] { rp.rxCount, rp.toSocket.position() };
+		}
+	}
+
+	@Override
+	public int clearPortIOBuffers(long handle, boolean rxPortbuf, boolean txPortbuf) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		int purge = (rxPortbuf ? 1 : 0) | (txPortbuf ? 2 : 0);
+		if(purge == 0) {
+			return 0;
+		}
+		rp.command(SerialComTelnet.PURGE_DATA, purge);
+		if(rxPortbuf) {
+			synchronized(rp.lock) {
+				rp.rxHead = 0;
+				rp.rxCount = 0;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public int configureComPortData(long handle, int dataBits, int stopBits, int parity, int baudRateTranslated, 
+			int custBaudTranslated) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		int baud = (baudRateTranslated == SerialComManager.BAUDRATE.BCUSTOM.getValue()) ? custBaudTranslated : baudRateTranslated;
+		byte[] value = new byte[] { (byte) (baud >>> 24), (byte) (baud >>> 16), (byte) (baud >>> 8), (byte) baud };
+		int stopSize = 1;
+		if(stopBits == SerialComManager.STOPBITS.SB_2.getValue()) {
+			stopSize = 2;
+		}else if(stopBits == SerialComManager.STOPBITS.SB_1_5.getValue()) {
+			stopSize = 3;
+		}
+		int actualBaud = rp.command(SerialComTelnet.SET_BAUDRATE, value, 4);
+		int actualDataBits = rp.command(SerialComTelnet.SET_DATASIZE, dataBits);
+		int actualParity = rp.command(SerialComTelnet.SET_PARITY, parity);
+		int actualStopSize = rp.command(SerialComTelnet.SET_STOPSIZE, stopSize);
+		synchronized(rp.lock) {
+			rp.baudRate = actualBaud;
+			rp.dataBits = actualDataBits;
+			rp.parity = actualParity;
+			rp.stopSize = actualStopSize;
+		}
+		if((actualBaud != baud) || (actualDataBits != dataBits) || (actualParity != parity) || (actualStopSize != stopSize)) {
+			throw new SerialComException("RFC 2217 server of port " + rp.name + " did not accept given settings !");
+		}
+		return 0;
+	}
+
+	@Override
+	public int configureComPortControl(long handle, int flowctrl, byte xonCh, byte xoffCh, boolean ParFraError, 
+			boolean overFlowErr) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		int control = 1;
+		if(flowctrl == SerialComManager.FLOWCONTROL.SOFTWARE.getValue()) {
+			control = 2;
+		}else if(flowctrl == SerialComManager.FLOWCONTROL.HARDWARE.getValue()) {
+			control = 3;
+		}
+		if(rp.command(SerialComTelnet.SET_CONTROL, control) != control) {
+			throw new SerialComException("RFC 2217 server of port " + rp.name + " did not accept given flow control !");
+		}
+		return 0;
+	}
+
+	@Override
+	public int[] getCurrentConfigurationU(long handle) throws SerialComException {
+		// only c_ispeed and c_ospeed are meaningful for a remote port.
+		RemotePort rp = getPort(handle);
+		int[] config = new int[24];
+		synchronized(rp.lock) {
+			config[22] = rp.baudRate;
+			config[23] = rp.baudRate;
+		}
+		return config;
+	}
+
+	@Override
+	public String[] getCurrentConfigurationW(long handle) throws SerialComException {
+		RemotePort rp = getPort(handle);
+		List<String> config = new ArrayList<String>();
+		synchronized(rp.lock) {
+			config.add("BaudRate : " + rp.baudRate);
+			config.add("ByteSize : " + rp.dataBits);
+			config.add("Parity : " + rp.parity);
+			config.add("StopBits : " + rp.stopSize);
+		}
+		return config.toArray(new String[config.size()]);
+	}
+
+	@Override
+	public int fineTuneRead(long handle, int vmin, int vtime, int rit, int rttm, int rttc) throws SerialComException {
+		getPort(handle);
+		return 0;
+	}
+}
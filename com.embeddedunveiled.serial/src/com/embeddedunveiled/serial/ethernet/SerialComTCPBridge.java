@@ -0,0 +1,313 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.embeddedunveiled.serial.SerialComManager;
+
+/**
+ * <p>Raw TCP to serial port bridge, similar to raw mode of ser2net. Each bridged serial port listens 
+ * on its own TCP port and serves one client at a time; bytes are relayed unchanged in both directions 
+ * without any telnet processing. A client connecting while another is connected is disconnected 
+ * immediately.</p>
+ * 
+ * <p>All bridges are served by a single thread using non-blocking NIO sockets (SerialComNioServer). 
+ * Each bridge has two direct byte buffers, one per direction, which are shared by serial port and socket; data read using 
+ * readBytesDirect is written to socket from the same buffer and data read from socket is given to 
+ * writeBytesDirect from the same buffer, so relaying involves no copy in Java. While at least one client 
+ * is connected the thread polls serial ports of connected clients every poll interval, otherwise it 
+ * sleeps till a client connects. A direction stops reading when its buffer is full, so a slow client 
+ * leaves data in serial port and a slow serial port makes TCP flow control slow down the client.</p>
+ * 
+ * <p>Client which neither sends nor receives any byte for idle timeout of its bridge is disconnected. 
+ * Traffic and connection counters of each bridge are given by getStatistics.</p>
+ * 
+ * <pre>
+ * {@code
+ * SerialComTCPBridge bridge = new SerialComTCPBridge(scm, 2);
+ * bridge.addBridge(handle, 4001, 300000);
+ * }</pre>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComTCPBridge {
+
+	private static final long RATE_INTERVAL = 1000000000L; // throughput is measured over 1 second.
+
+	private final SerialComManager scm;
+	private final SerialComNioServer nioServer;
+	private final Map<Long, Bridge> bridges = new ConcurrentHashMap<Long, Bridge>();
+
+	/**
+	 * <p>State of a bridged serial port and the client connected to it. Counters are written only by 
+	 * bridge thread and read by getStatistics.</p>
+	 */
+	private final class Bridge extends SerialComNioServer.Port {
+
+		final long idleTimeout;
+
+		volatile long bytesToSerial;
+		volatile long bytesToSocket;
+		volatile double serialRate;
+		volatile double socketRate;
+		volatile long numConnections;
+		volatile long numRejected;
+		volatile long numIdleTimeouts;
+		volatile long lastActivity;
+		long rateStart;
+		long rateBytesToSerial;
+		long rateBytesToSocket;
+
+		Bridge(long handle, ServerSocketChannel server, long idleTimeout) {
+			super(handle, server);
+			this.idleTimeout = idleTimeout;
+		}
+
+		@Override
+		void connected() {
+			lastActivity = System.nanoTime();
+			rateStart = lastActivity;
+			rateBytesToSerial = bytesToSerial;
+			rateBytesToSocket = bytesToSocket;
+			numConnections++;
+		}
+
+		@Override
+		void disconnected() {
+			serialRate = 0;
+			socketRate = 0;
+		}
+
+		@Override
+		void rejected() {
+			numRejected++;
+		}
+
+		/* socket -> serial port. New data is read from socket only after previous data has been written. */
+		@Override
+		void readSocket() throws IOException {
+			if(toSerialLength > 0) {
+				return;
+			}
+			toSerial.clear();
+			int numBytes = client.read(toSerial);
+			if(numBytes < 0) {
+				throw new IOException("Client closed connection !");
+			}
+			toSerialOffset = 0;
+			toSerialLength = numBytes;
+			writeSerial();
+		}
+
+		void writeSerial() throws IOException {
+			while(toSerialLength > 0) {
+				int numBytes = scm.writeBytesDirect(handle, toSerial, toSerialOffset, toSerialLength);
+				if(numBytes <= 0) {
+					break;
+				}
+				toSerialOffset += numBytes;
+				toSerialLength -= numBytes;
+				bytesToSerial += numBytes;
+				lastActivity = System.nanoTime();
+			}
+			updateInterest();
+		}
+
+		/* serial port -> socket. */
+		void readSerial() throws IOException {
+			int position = toSocket.position();
+			if(toSocket.remaining() > 0) {
+				int numBytes = scm.readBytesDirect(handle, toSocket, position, toSocket.remaining());
+				if(numBytes > 0) {
+					toSocket.position(position + numBytes);
+				}
+			}
+			flushSocket();
+		}
+
+		@Override
+		void flushSocket() throws IOException {
+			if(toSocket.position() > 0) {
+				toSocket.flip();
+				int numBytes = client.write(toSocket);
+				toSocket.compact();
+				if(numBytes > 0) {
+					bytesToSocket += numBytes;
+					lastActivity = System.nanoTime();
+				}
+			}
+			updateInterest();
+		}
+
+		@Override
+		boolean poll(long now) throws IOException {
+			if(toSerialLength > 0) {
+				writeSerial();
+			}
+			readSerial();
+			if(tick(now)) {
+				numIdleTimeouts++;
+				return false;
+			}
+			return true;
+		}
+
+		/* updates throughput once every interval, returns true if client has been idle for too long. */
+		private boolean tick(long now) {
+			long elapsed = now - rateStart;
+			if(elapsed >= RATE_INTERVAL) {
+				long toSerialNow = bytesToSerial;
+				long toSocketNow = bytesToSocket;
+				serialRate = ((toSerialNow - rateBytesToSerial) * 1000000000.0) / elapsed;
+				socketRate = ((toSocketNow - rateBytesToSocket) * 1000000000.0) / elapsed;
+				rateBytesToSerial = toSerialNow;
+				rateBytesToSocket = toSocketNow;
+				rateStart = now;
+			}
+			return (idleTimeout > 0) && ((now - lastActivity) >= idleTimeout);
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComTCPBridge object and starts thread serving bridges.</p>
+	 * 
+	 * @param scm SerialComManager instance through which ports to be bridged have been opened.
+	 * @param pollInterval time in milliseconds between two successive reads of serial ports which 
+	 *         have client connected.
+	 * @throws IOException if selector can not be opened.
+	 * @throws IllegalArgumentException if scm is null or pollInterval is not positive.
+	 */
+	public SerialComTCPBridge(SerialComManager scm, int pollInterval) throws IOException {
+		if(scm == null) {
+			throw new IllegalArgumentException("Argument scm can not be null !");
+		}
+		if(pollInterval <= 0) {
+			throw new IllegalArgumentException("Argument pollInterval must be positive !");
+		}
+		this.scm = scm;
+		nioServer = new SerialComNioServer(pollInterval, "SCM TCP bridge");
+	}
+
+	/**
+	 * <p>Bridges given serial port to TCP clients connecting on given address.</p>
+	 * 
+	 * @param handle handle of the port opened through SerialComManager given to constructor.
+	 * @param address local address and TCP port on which clients will connect; port 0 selects a free port.
+	 * @param idleTimeout time in milliseconds after which a client which has not exchanged any data 
+	 *         is disconnected, 0 to never disconnect idle clients.
+	 * @return TCP port on which bridge is listening for this serial port.
+	 * @throws IOException if address can not be bound.
+	 * @throws IllegalStateException if port is already bridged or bridge is closed.
+	 * @throws IllegalArgumentException if address is null or idleTimeout is negative.
+	 */
+	public int addBridge(long handle, InetSocketAddress address, int idleTimeout) throws IOException {
+		if(address == null) {
+			throw new IllegalArgumentException("Argument address can not be null !");
+		}
+		if(idleTimeout < 0) {
+			throw new IllegalArgumentException("Argument idleTimeout can not be negative !");
+		}
+		if(nioServer.isClosed()) {
+			throw new IllegalStateException("Bridge has been closed !");
+		}
+		if(bridges.containsKey(handle)) {
+			throw new IllegalStateException("Given port is already bridged !");
+		}
+
+		ServerSocketChannel server = SerialComNioServer.bind(address);
+		Bridge bridge = new Bridge(handle, server, idleTimeout * 1000000L);
+		bridges.put(handle, bridge);
+		nioServer.addPort(bridge);
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * <p>Bridges given serial port to TCP clients connecting on given TCP port of all local addresses.</p>
+	 * 
+	 * @param handle handle of the port opened through SerialComManager given to constructor.
+	 * @param tcpPort TCP port on which clients will connect; 0 selects a free port.
+	 * @param idleTimeout time in milliseconds after which a client which has not exchanged any data 
+	 *         is disconnected, 0 to never disconnect idle clients.
+	 * @return TCP port on which bridge is listening for this serial port.
+	 * @throws IOException if TCP port can not be bound.
+	 * @throws IllegalStateException if port is already bridged or bridge is closed.
+	 * @throws IllegalArgumentException if idleTimeout is negative.
+	 */
+	public int addBridge(long handle, int tcpPort, int idleTimeout) throws IOException {
+		return addBridge(handle, new InetSocketAddress(tcpPort), idleTimeout);
+	}
+
+	/**
+	 * <p>Disconnects client (if any) of given port and stops listening for new clients. The serial 
+	 * port remains opened.</p>
+	 * 
+	 * @param handle handle of the bridged port.
+	 * @throws IllegalArgumentException if given port is not bridged.
+	 */
+	public void removeBridge(long handle) {
+		Bridge bridge = bridges.remove(handle);
+		if(bridge == null) {
+			throw new IllegalArgumentException("Given port is not bridged !");
+		}
+		nioServer.removePort(bridge);
+	}
+
+	/**
+	 * <p>Tells whether a client is connected to given bridged port.</p>
+	 * 
+	 * @param handle handle of the bridged port.
+	 * @return true if a client is connected.
+	 */
+	public boolean isClientConnected(long handle) {
+		Bridge bridge = bridges.get(handle);
+		return (bridge != null) && (bridge.client != null);
+	}
+
+	/**
+	 * <p>Gives traffic and connection counters of given bridged port.</p>
+	 * 
+	 * @param handle handle of the bridged port.
+	 * @return snapshot of counters.
+	 * @throws IllegalArgumentException if given port is not bridged.
+	 */
+	public SerialComTCPBridgeStats getStatistics(long handle) {
+		Bridge bridge = bridges.get(handle);
+		if(bridge == null) {
+			throw new IllegalArgumentException("Given port is not bridged !");
+		}
+		boolean connected = bridge.client != null;
+		long idleTime = connected ? ((System.nanoTime() - bridge.lastActivity) / 1000000L) : 0;
+		return new SerialComTCPBridgeStats(bridge.bytesToSerial, bridge.bytesToSocket, bridge.serialRate, 
+				bridge.socketRate, bridge.numConnections, bridge.numRejected, bridge.numIdleTimeouts, connected, idleTime);
+	}
+
+	/**
+	 * <p>Disconnects all clients, stops serving all bridges and terminates bridge thread. Serial ports 
+	 * remain opened.</p>
+	 */
+	public void close() {
+		nioServer.close();
+		bridges.clear();
+	}
+}
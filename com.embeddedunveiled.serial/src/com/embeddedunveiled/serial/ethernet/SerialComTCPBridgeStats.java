@@ -0,0 +1,138 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+/**
+ * <p>Snapshot of traffic and connection counters of a port bridged by SerialComTCPBridge.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComTCPBridgeStats {
+
+	private final long bytesToSerial;
+	private final long bytesToSocket;
+	private final double serialRate;
+	private final double socketRate;
+	private final long numConnections;
+	private final long numRejected;
+	private final long numIdleTimeouts;
+	private final boolean clientConnected;
+	private final long idleTime;
+
+	SerialComTCPBridgeStats(long bytesToSerial, long bytesToSocket, double serialRate, double socketRate, 
+			long numConnections, long numRejected, long numIdleTimeouts, boolean clientConnected, long idleTime) {
+		this.bytesToSerial = bytesToSerial;
+		this.bytesToSocket = bytesToSocket;
+		this.serialRate = serialRate;
+		this.socketRate = socketRate;
+		this.numConnections = numConnections;
+		this.numRejected = numRejected;
+		this.numIdleTimeouts = numIdleTimeouts;
+		this.clientConnected = clientConnected;
+		this.idleTime = idleTime;
+	}
+
+	/**
+	 * <p>Gives number of bytes received from clients and written to serial port.</p>
+	 * 
+	 * @return number of bytes.
+	 */
+	public long getBytesToSerial() {
+		return bytesToSerial;
+	}
+
+	/**
+	 * <p>Gives number of bytes read from serial port and sent to clients.</p>
+	 * 
+	 * @return number of bytes.
+	 */
+	public long getBytesToSocket() {
+		return bytesToSocket;
+	}
+
+	/**
+	 * <p>Gives rate at which data was written to serial port during last measurement interval.</p>
+	 * 
+	 * @return bytes per second.
+	 */
+	public double getSerialRate() {
+		return serialRate;
+	}
+
+	/**
+	 * <p>Gives rate at which data was sent to client during last measurement interval.</p>
+	 * 
+	 * @return bytes per second.
+	 */
+	public double getSocketRate() {
+		return socketRate;
+	}
+
+	/**
+	 * <p>Gives number of clients accepted since port was bridged.</p>
+	 * 
+	 * @return number of connections.
+	 */
+	public long getNumberOfConnections() {
+		return numConnections;
+	}
+
+	/**
+	 * <p>Gives number of clients disconnected immediately because another client was connected.</p>
+	 * 
+	 * @return number of rejected connections.
+	 */
+	public long getNumberOfRejected() {
+		return numRejected;
+	}
+
+	/**
+	 * <p>Gives number of clients disconnected because no data was exchanged for idle timeout.</p>
+	 * 
+	 * @return number of idle disconnections.
+	 */
+	public long getNumberOfIdleTimeouts() {
+		return numIdleTimeouts;
+	}
+
+	/**
+	 * <p>Tells whether a client was connected when this snapshot was taken.</p>
+	 * 
+	 * @return true if a client was connected.
+	 */
+	public boolean isClientConnected() {
+		return clientConnected;
+	}
+
+	/**
+	 * <p>Gives time since data was last exchanged with connected client.</p>
+	 * 
+	 * @return time in milliseconds, 0 if no client was connected.
+	 */
+	public long getIdleTime() {
+		return idleTime;
+	}
+
+	@Override
+	public String toString() {
+		return "to serial=" + bytesToSerial + " bytes (" + (long) serialRate + " B/s), to socket=" + bytesToSocket + " bytes (" 
+				+ (long) socketRate + " B/s), connections=" + numConnections + ", rejected=" + numRejected 
+				+ ", idle timeouts=" + numIdleTimeouts + ", connected=" + clientConnected;
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.ethernet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Telnet (RFC 854) stream codec used by RFC 2217 server and client. Data bytes are separated 
+ * from telnet commands in place in the given buffer so that data can be passed on to serial port 
+ * or application without copying it to another buffer. Decoder state is kept between calls, so 
+ * a command split across two TCP segments is handled correctly.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComTelnet {
+
+	static final int IAC  = 255;
+	static final int DONT = 254;
+	static final int DO   = 253;
+	static final int WONT = 252;
+	static final int WILL = 251;
+	static final int SB   = 250;
+	static final int BRK  = 243;
+	static final int SE   = 240;
+
+	static final int OPT_BINARY = 0;
+	static final int OPT_SGA = 3;
+	static final int OPT_COM_PORT = 44;
+
+	// RFC 2217 commands sent by client, server replies with value + SERVER_OFFSET.
+	static final int SIGNATURE = 0;
+	static final int SET_BAUDRATE = 1;
+	static final int SET_DATASIZE = 2;
+	static final int SET_PARITY = 3;
+	static final int SET_STOPSIZE = 4;
+	static final int SET_CONTROL = 5;
+	static final int NOTIFY_LINESTATE = 6;
+	static final int NOTIFY_MODEMSTATE = 7;
+	static final int FLOWCONTROL_SUSPEND = 8;
+	static final int FLOWCONTROL_RESUME = 9;
+	static final int SET_LINESTATE_MASK = 10;
+	static final int SET_MODEMSTATE_MASK = 11;
+	static final int PURGE_DATA = 12;
+	static final int SERVER_OFFSET = 100;
+
+	// modem state bits in NOTIFY-MODEMSTATE.
+	static final int MS_CD = 0x80;
+	static final int MS_RI = 0x40;
+	static final int MS_DSR = 0x20;
+	static final int MS_CTS = 0x10;
+	static final int MS_DELTA_CD = 0x08;
+	static final int MS_TRAILING_RI = 0x04;
+	static final int MS_DELTA_DSR = 0x02;
+	static final int MS_DELTA_CTS = 0x01;
+
+	/**
+	 * <p>Receives telnet commands found by decoder.</p>
+	 */
+	interface Handler {
+
+		/**
+		 * <p>Called for WILL, WONT, DO and DONT.</p>
+		 * 
+		 * @param command one of WILL, WONT, DO or DONT.
+		 * @param option telnet option.
+		 * @throws IOException if reply can not be queued.
+		 */
+		void onNegotiation(int command, int option) throws IOException;
+
+		/**
+		 * <p>Called for commands other than negotiation and sub negotiation, for example BRK.</p>
+		 * 
+		 * @param command telnet command.
+		 * @throws IOException if command can not be executed.
+		 */
+		void onCommand(int command) throws IOException;
+
+		/**
+		 * <p>Called with complete sub negotiation, IAC IAC inside it is already un-escaped.</p>
+		 * 
+		 * @param data buffer holding option followed by its parameters.
+		 * @param length number of valid bytes in data.
+		 * @throws IOException if command can not be executed or reply can not be queued.
+		 */
+		void onSubnegotiation(byte[] data, int length) throws IOException;
+	}
+
+	private static final int ST_DATA = 0;
+	private static final int ST_IAC = 1;
+	private static final int ST_OPTION = 2;
+	private static final int ST_SB = 3;
+	private static final int ST_SB_IAC = 4;
+
+	private final Handler handler;
+	private int state = ST_DATA;
+	private int pendingCommand;
+	private final byte[] sbBuffer = new byte[64];
+	private int sbLength;
+
+	/**
+	 * <p>Allocates a new SerialComTelnet object.</p>
+	 * 
+	 * @param handler object to which telnet commands will be given.
+	 */
+	SerialComTelnet(Handler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * <p>Removes telnet commands from given region of buffer and un-escapes IAC IAC. Data bytes are 
+	 * moved towards offset, so after this method returns [offset, offset + return value) contains 
+	 * only data. Position and limit of buffer are not changed.</p>
+	 * 
+	 * @param buffer buffer holding bytes received from network.
+	 * @param offset index of first byte received.
+	 * @param length number of bytes received.
+	 * @return number of data bytes.
+	 * @throws IOException if handler fails to process a command.
+	 */
+	int decode(ByteBuffer buffer, int offset, int length) throws IOException {
+		int w = offset;
+		int end = offset + length;
+		for(int r = offset; r < end; r++) {
+			int b = buffer.get(r) & 0xFF;
+			switch(state) {
+			case ST_DATA:
+				if(b == IAC) {
+					state = ST_IAC;
+				}else {
+					if(w != r) {
+						buffer.put(w, (byte) b);
+					}
+					w++;
+				}
+				break;
+			case ST_IAC:
+				if(b == IAC) {
+					buffer.put(w, (byte) IAC);
+					w++;
+					state = ST_DATA;
+				}else if((b == WILL) || (b == WONT) || (b == DO) || (b == DONT)) {
+					pendingCommand = b;
+					state = ST_OPTION;
+				}else if(b == SB) {
+					sbLength = 0;
+					state = ST_SB;
+				}else {
+					handler.onCommand(b);
+					state = ST_DATA;
+				}
+				break;
+			case ST_OPTION:
+				handler.onNegotiation(pendingCommand, b);
+				state = ST_DATA;
+				break;
+			case ST_SB:
+				if(b == IAC) {
+					state = ST_SB_IAC;
+				}else {
+					appendSubnegotiation(b);
+				}
+				break;
+			case ST_SB_IAC:
+				if(b == SE) {
+					handler.onSubnegotiation(sbBuffer, sbLength);
+					state = ST_DATA;
+				}else {
+					// IAC IAC inside sub negotiation is a data byte of value 255.
+					appendSubnegotiation(b);
+					state = ST_SB;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return w - offset;
+	}
+
+	private void appendSubnegotiation(int b) {
+		// RFC 2217 sub negotiations are at most few bytes; longer ones (e.g. signature) are truncated.
+		if(sbLength < sbBuffer.length) {
+			sbBuffer[sbLength] = (byte) b;
+			sbLength++;
+		}
+	}
+
+	/**
+	 * <p>Doubles every IAC byte in given region of buffer in place. Buffer must have room for up to 
+	 * length more bytes after the region. Position and limit of buffer are not changed.</p>
+	 * 
+	 * @param buffer buffer holding data to be sent to network.
+	 * @param offset index of first data byte.
+	 * @param length number of data bytes.
+	 * @return number of bytes after escaping.
+	 */
+	static int escape(ByteBuffer buffer, int offset, int length) {
+		int extra = 0;
+		for(int x = offset; x < (offset + length); x++) {
+			if(buffer.get(x) == (byte) IAC) {
+				extra++;
+			}
+		}
+		int total = length + extra;
+		// move bytes towards end starting from last one, writing IAC twice.
+		for(int x = offset + length - 1; (x >= offset) && (extra > 0); x--) {
+			byte b = buffer.get(x);
+			buffer.put(x + extra, b);
+			if(b == (byte) IAC) {
+				extra--;
+				buffer.put(x + extra, b);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * <p>Puts option negotiation command in buffer.</p>
+	 * 
+	 * @param buffer buffer in which command is to be placed at its position.
+	 * @param command one of WILL, WONT, DO or DONT.
+	 * @param option telnet option.
+	 */
+	static void putNegotiation(ByteBuffer buffer, int command, int option) {
+		buffer.put((byte) IAC).put((byte) command).put((byte) option);
+	}
+
+	/**
+	 * <p>Puts RFC 2217 sub negotiation in buffer escaping IAC in parameters.</p>
+	 * 
+	 * @param buffer buffer in which command is to be placed at its position.
+	 * @param command RFC 2217 command.
+	 * @param params parameters of command.
+	 * @param length number of bytes in params.
+	 */
+	static void putComPortCommand(ByteBuffer buffer, int command, byte[] params, int length) {
+		buffer.put((byte) IAC).put((byte) SB).put((byte) OPT_COM_PORT).put((byte) command);
+		for(int x = 0; x < length; x++) {
+			buffer.put(params[x]);
+			if(params[x] == (byte) IAC) {
+				buffer.put(params[x]);
+			}
+		}
+		buffer.put((byte) IAC).put((byte) SE);
+	}
+}
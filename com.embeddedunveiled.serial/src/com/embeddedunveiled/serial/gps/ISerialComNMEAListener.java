@@ -0,0 +1,60 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>The interface ISerialComNMEAListener should be implemented by class who wish to receive 
+ * sentences decoded by SerialComNMEAParser.</p>
+ * 
+ * <p>All methods are called in the thread which gave bytes to parser. Objects given are reused for 
+ * next sentence, so they must not be kept after method returns.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface ISerialComNMEAListener {
+
+	/**
+	 * <p>This method is called whenever a valid GGA sentence is received.</p>
+	 * 
+	 * @param gga decoded sentence.
+	 */
+	public abstract void onGGA(SerialComNMEAGGA gga);
+
+	/**
+	 * <p>This method is called whenever a valid RMC sentence is received.</p>
+	 * 
+	 * @param rmc decoded sentence.
+	 */
+	public abstract void onRMC(SerialComNMEARMC rmc);
+
+	/**
+	 * <p>This method is called whenever a valid GSV sentence is received.</p>
+	 * 
+	 * @param gsv decoded sentence.
+	 */
+	public abstract void onGSV(SerialComNMEAGSV gsv);
+
+	/**
+	 * <p>This method is called whenever a valid sentence other than GGA, RMC and GSV is received, 
+	 * including proprietary sentences. Fields can be decoded using accessors of given sentence.</p>
+	 * 
+	 * @param sentence sentence received.
+	 */
+	public abstract void onSentence(SerialComNMEASentence sentence);
+}
@@ -0,0 +1,61 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>The interface ISerialComUBXListener should be implemented by class who wish to receive 
+ * messages decoded by SerialComUBXDecoder.</p>
+ * 
+ * <p>All methods are called in the thread which gave bytes to decoder. Objects given are views over 
+ * decoder or application buffers and are reused for next message, so they must not be kept after 
+ * method returns.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface ISerialComUBXListener {
+
+	/**
+	 * <p>This method is called whenever a valid NAV-PVT message is received.</p>
+	 * 
+	 * @param pvt view of message.
+	 */
+	public abstract void onNavPvt(SerialComUBXNavPvt pvt);
+
+	/**
+	 * <p>This method is called whenever a valid NAV-SAT message is received.</p>
+	 * 
+	 * @param sat view of message.
+	 */
+	public abstract void onNavSat(SerialComUBXNavSat sat);
+
+	/**
+	 * <p>This method is called whenever a valid RXM-RAWX message is received.</p>
+	 * 
+	 * @param rawx view of message.
+	 */
+	public abstract void onRxmRawx(SerialComUBXRxmRawx rawx);
+
+	/**
+	 * <p>This method is called whenever a valid message other than NAV-PVT, NAV-SAT and RXM-RAWX 
+	 * is received, including ACK-ACK and ACK-NAK.</p>
+	 * 
+	 * @param message view of message.
+	 */
+	public abstract void onMessage(SerialComUBXMessage message);
+}
@@ -0,0 +1,148 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>Decoded GGA (global positioning system fix data) sentence. Coordinates are in 1e-7 degrees, 
+ * altitudes in millimetres and HDOP in hundredths. Fields absent in sentence are 
+ * SerialComNMEASentence.NOT_AVAILABLE.</p>
+ * 
+ * <p>This object is reused by parser for every GGA sentence and is valid only during the listener 
+ * callback in which it is given.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComNMEAGGA {
+
+	private SerialComNMEASentence sentence;
+	private int utcTime;
+	private int latitude;
+	private int longitude;
+	private int fixQuality;
+	private int numSatellites;
+	private int hdop;
+	private int altitude;
+	private int geoidSeparation;
+
+	SerialComNMEAGGA() {
+	}
+
+	void decode(SerialComNMEASentence s) {
+		sentence = s;
+		utcTime = s.getFieldTime(1);
+		latitude = s.getFieldCoordinate(2, 3);
+		longitude = s.getFieldCoordinate(4, 5);
+		fixQuality = s.getFieldInt(6);
+		numSatellites = s.getFieldInt(7);
+		hdop = s.getFieldFixed(8, 2);
+		altitude = s.getFieldFixed(9, 3);
+		geoidSeparation = s.getFieldFixed(11, 3);
+	}
+
+	/**
+	 * <p>Gives the sentence from which this object was decoded, for example to know the talker.</p>
+	 * 
+	 * @return sentence flyweight.
+	 */
+	public SerialComNMEASentence getSentence() {
+		return sentence;
+	}
+
+	/**
+	 * <p>Gives UTC time of fix.</p>
+	 * 
+	 * @return milliseconds since midnight.
+	 */
+	public int getUTCTime() {
+		return utcTime;
+	}
+
+	/**
+	 * <p>Gives latitude, negative for south.</p>
+	 * 
+	 * @return latitude in 1e-7 degrees.
+	 */
+	public int getLatitude() {
+		return latitude;
+	}
+
+	/**
+	 * <p>Gives longitude, negative for west.</p>
+	 * 
+	 * @return longitude in 1e-7 degrees.
+	 */
+	public int getLongitude() {
+		return longitude;
+	}
+
+	/**
+	 * <p>Gives fix quality, 0 invalid, 1 GPS, 2 DGPS, 4 RTK fixed, 5 RTK float, 6 dead reckoning.</p>
+	 * 
+	 * @return fix quality.
+	 */
+	public int getFixQuality() {
+		return fixQuality;
+	}
+
+	/**
+	 * <p>Gives number of satellites used for fix.</p>
+	 * 
+	 * @return number of satellites.
+	 */
+	public int getNumberOfSatellites() {
+		return numSatellites;
+	}
+
+	/**
+	 * <p>Gives horizontal dilution of precision.</p>
+	 * 
+	 * @return HDOP multiplied by 100.
+	 */
+	public int getHDOP() {
+		return hdop;
+	}
+
+	/**
+	 * <p>Gives altitude above mean sea level.</p>
+	 * 
+	 * @return altitude in millimetres.
+	 */
+	public int getAltitude() {
+		return altitude;
+	}
+
+	/**
+	 * <p>Gives height of geoid above WGS84 ellipsoid.</p>
+	 * 
+	 * @return geoid separation in millimetres.
+	 */
+	public int getGeoidSeparation() {
+		return geoidSeparation;
+	}
+
+	/**
+	 * <p>Tells whether sentence carries a position fix.</p>
+	 * 
+	 * @return true if fix quality is not 0 and coordinates are present.
+	 */
+	public boolean hasFix() {
+		return (fixQuality > 0) && (latitude != SerialComNMEASentence.NOT_AVAILABLE) 
+				&& (longitude != SerialComNMEASentence.NOT_AVAILABLE);
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>Decoded GSV (satellites in view) sentence. One sentence describes up to 4 satellites; receivers 
+ * send as many sentences as needed to cover all satellites in view. Fields absent in sentence, for 
+ * example SNR of a satellite which is not tracked, are SerialComNMEASentence.NOT_AVAILABLE.</p>
+ * 
+ * <p>This object is reused by parser for every GSV sentence and is valid only during the listener 
+ * callback in which it is given.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComNMEAGSV {
+
+	private SerialComNMEASentence sentence;
+	private int numMessages;
+	private int messageNumber;
+	private int satellitesInView;
+	private int count;
+	private final int[] prn = new int[4];
+	private final int[] elevation = new int[4];
+	private final int[] azimuth = new int[4];
+	private final int[] snr = new int[4];
+
+	SerialComNMEAGSV() {
+	}
+
+	void decode(SerialComNMEASentence s) {
+		sentence = s;
+		numMessages = s.getFieldInt(1);
+		messageNumber = s.getFieldInt(2);
+		satellitesInView = s.getFieldInt(3);
+		// NMEA 4.10 adds signal id after last satellite, so only complete groups of 4 fields are taken.
+		count = (s.getFieldCount() - 4) / 4;
+		if(count > 4) {
+			count = 4;
+		}else if(count < 0) {
+			count = 0;
+		}
+		for(int x = 0; x < count; x++) {
+			int field = 4 + (x * 4);
+			prn[x] = s.getFieldInt(field);
+			elevation[x] = s.getFieldInt(field + 1);
+			azimuth[x] = s.getFieldInt(field + 2);
+			snr[x] = s.getFieldInt(field + 3);
+		}
+	}
+
+	/**
+	 * <p>Gives the sentence from which this object was decoded, for example to know the talker.</p>
+	 * 
+	 * @return sentence flyweight.
+	 */
+	public SerialComNMEASentence getSentence() {
+		return sentence;
+	}
+
+	/**
+	 * <p>Gives total number of GSV sentences in this cycle.</p>
+	 * 
+	 * @return number of sentences.
+	 */
+	public int getNumberOfMessages() {
+		return numMessages;
+	}
+
+	/**
+	 * <p>Gives sequence number of this sentence in cycle, starting from 1.</p>
+	 * 
+	 * @return sequence number.
+	 */
+	public int getMessageNumber() {
+		return messageNumber;
+	}
+
+	/**
+	 * <p>Gives total number of satellites in view.</p>
+	 * 
+	 * @return number of satellites.
+	 */
+	public int getSatellitesInView() {
+		return satellitesInView;
+	}
+
+	/**
+	 * <p>Gives number of satellites described in this sentence.</p>
+	 * 
+	 * @return 0 to 4.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * <p>Gives PRN number of satellite at given index in this sentence.</p>
+	 * 
+	 * @param index index of satellite, less than getCount().
+	 * @return PRN number.
+	 * @throws IndexOutOfBoundsException if index is not less than getCount().
+	 */
+	public int getPRN(int index) {
+		checkIndex(index);
+		return prn[index];
+	}
+
+	/**
+	 * <p>Gives elevation of satellite at given index in this sentence.</p>
+	 * 
+	 * @param index index of satellite, less than getCount().
+	 * @return elevation in degrees.
+	 * @throws IndexOutOfBoundsException if index is not less than getCount().
+	 */
+	public int getElevation(int index) {
+		checkIndex(index);
+		return elevation[index];
+	}
+
+	/**
+	 * <p>Gives azimuth of satellite at given index in this sentence.</p>
+	 * 
+	 * @param index index of satellite, less than getCount().
+	 * @return azimuth in degrees from true north.
+	 * @throws IndexOutOfBoundsException if index is not less than getCount().
+	 */
+	public int getAzimuth(int index) {
+		checkIndex(index);
+		return azimuth[index];
+	}
+
+	/**
+	 * <p>Gives signal to noise ratio of satellite at given index in this sentence.</p>
+	 * 
+	 * @param index index of satellite, less than getCount().
+	 * @return SNR in dBHz or NOT_AVAILABLE if satellite is not tracked.
+	 * @throws IndexOutOfBoundsException if index is not less than getCount().
+	 */
+	public int getSNR(int index) {
+		checkIndex(index);
+		return snr[index];
+	}
+
+	private void checkIndex(int index) {
+		if((index < 0) || (index >= count)) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not less than count " + count + " !");
+		}
+	}
+}
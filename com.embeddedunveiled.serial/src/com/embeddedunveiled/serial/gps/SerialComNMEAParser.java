@@ -0,0 +1,288 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+import java.nio.ByteBuffer;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+
+/**
+ * <p>Incremental NMEA 0183 parser which does not create any object while parsing. Bytes can be given 
+ * in chunks of any size as they arrive, from a data listener (this class is itself a data listener), 
+ * from a byte stream or from a direct byte buffer. Checksum is computed while bytes arrive and sentence 
+ * is decoded as soon as its checksum has been received.</p>
+ * 
+ * <p>GGA, RMC and GSV sentences from any talker are decoded in flyweight objects owned by the parser 
+ * and given to listener; coordinates and other decimal values are fixed point integers. Other sentences 
+ * are given to listener as SerialComNMEASentence whose fields can be decoded using its accessors. 
+ * Sentences with wrong checksum, non printable characters or exceeding SerialComNMEASentence.MAX_LENGTH 
+ * are dropped and counted.</p>
+ * 
+ * <pre>
+ * {@code
+ * SerialComNMEAParser parser = new SerialComNMEAParser(listener, true);
+ * scm.registerDataListener(handle, parser);
+ * }</pre>
+ * 
+ * <p>A parser keeps state of partially received sentence, so one parser must be used per receiver and 
+ * it must not be given bytes from multiple threads at the same time.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComNMEAParser implements ISerialComDataListener {
+
+	private static final int ST_IDLE = 0;
+	private static final int ST_BODY = 1;
+	private static final int ST_CHECKSUM1 = 2;
+	private static final int ST_CHECKSUM2 = 3;
+
+	private final ISerialComNMEAListener listener;
+	private final boolean requireChecksum;
+	private final SerialComNMEASentence sentence = new SerialComNMEASentence();
+	private final SerialComNMEAGGA gga = new SerialComNMEAGGA();
+	private final SerialComNMEARMC rmc = new SerialComNMEARMC();
+	private final SerialComNMEAGSV gsv = new SerialComNMEAGSV();
+	private int state = ST_IDLE;
+	private int checksum;
+	private int receivedChecksum;
+	private long numSentences;
+	private long numChecksumErrors;
+	private long numDiscarded;
+
+	/**
+	 * <p>Allocates a new SerialComNMEAParser object.</p>
+	 * 
+	 * @param listener listener to which decoded sentences will be given.
+	 * @param requireChecksum if true sentences without checksum are dropped, otherwise they are 
+	 *         accepted when terminated by CR or LF.
+	 * @throws IllegalArgumentException if listener is null.
+	 */
+	public SerialComNMEAParser(ISerialComNMEAListener listener, boolean requireChecksum) {
+		if(listener == null) {
+			throw new IllegalArgumentException("Argument listener can not be null !");
+		}
+		this.listener = listener;
+		this.requireChecksum = requireChecksum;
+	}
+
+	/**
+	 * <p>Parses given bytes. Listener is called for every sentence completed by these bytes.</p>
+	 * 
+	 * @param data buffer containing bytes received from receiver.
+	 * @param offset position of first byte in buffer.
+	 * @param length number of bytes to parse.
+	 * @throws IllegalArgumentException if data is null.
+	 * @throws IndexOutOfBoundsException if offset and length do not fit in data.
+	 */
+	public void parse(byte[] data, int offset, int length) {
+		if(data == null) {
+			throw new IllegalArgumentException("Argument data can not be null !");
+		}
+		if((offset < 0) || (length < 0) || (length > (data.length - offset))) {
+			throw new IndexOutOfBoundsException("Index violation detected !");
+		}
+		int end = offset + length;
+		for(int x = offset; x < end; x++) {
+			consume(data[x]);
+		}
+	}
+
+	/**
+	 * <p>Parses bytes in given byte buffer, for example one filled by readBytesDirect. Like 
+	 * readBytesDirect, position, limit and mark of buffer are not modified.</p>
+	 * 
+	 * @param buffer buffer containing bytes received from receiver.
+	 * @param offset position of first byte in buffer.
+	 * @param length number of bytes to parse.
+	 * @throws IllegalArgumentException if buffer is null.
+	 * @throws IndexOutOfBoundsException if offset and length do not fit in buffer.
+	 */
+	public void parse(ByteBuffer buffer, int offset, int length) {
+		if(buffer == null) {
+			throw new IllegalArgumentException("Argument buffer can not be null !");
+		}
+		if((offset < 0) || (length < 0) || (length > (buffer.capacity() - offset))) {
+			throw new IndexOutOfBoundsException("Index violation detected !");
+		}
+		int end = offset + length;
+		for(int x = offset; x < end; x++) {
+			consume(buffer.get(x));
+		}
+	}
+
+	/**
+	 * <p>Parses bytes given by data listener mechanism.</p>
+	 * 
+	 * @param data bytes read from serial port.
+	 */
+	@Override
+	public void onNewSerialDataAvailable(byte[] data) {
+		parse(data, 0, data.length);
+	}
+
+	/**
+	 * <p>Drops partially received sentence as bytes may have been lost.</p>
+	 * 
+	 * @param errorNum operating system specific error number.
+	 */
+	@Override
+	public void onDataListenerError(int errorNum) {
+		reset();
+	}
+
+	/**
+	 * <p>Drops partially received sentence, for example after port has been reconfigured.</p>
+	 */
+	public void reset() {
+		state = ST_IDLE;
+	}
+
+	private void consume(byte b) {
+		switch(state) {
+		case ST_IDLE:
+			if((b == '$') || (b == '!')) {
+				start();
+			}
+			break;
+		case ST_BODY:
+			if(b == '*') {
+				state = ST_CHECKSUM1;
+			}else if((b == '\r') || (b == '\n')) {
+				state = ST_IDLE;
+				if(requireChecksum) {
+					numDiscarded++;
+				}else {
+					sentence.hasChecksum = false;
+					dispatch();
+				}
+			}else if((b == '$') || (b == '!')) {
+				// previous sentence was truncated.
+				numDiscarded++;
+				start();
+			}else if((b < 0x20) || (b > 0x7E) || (sentence.length == SerialComNMEASentence.MAX_LENGTH)) {
+				numDiscarded++;
+				state = ST_IDLE;
+			}else {
+				if(b == ',') {
+					if(sentence.numFields == SerialComNMEASentence.MAX_FIELDS) {
+						numDiscarded++;
+						state = ST_IDLE;
+						break;
+					}
+					sentence.fieldStart[sentence.numFields++] = sentence.length + 1;
+				}
+				sentence.data[sentence.length++] = b;
+				checksum ^= b;
+			}
+			break;
+		case ST_CHECKSUM1:
+			receivedChecksum = hexValue(b);
+			if(receivedChecksum < 0) {
+				numDiscarded++;
+				state = ST_IDLE;
+			}else {
+				receivedChecksum <<= 4;
+				state = ST_CHECKSUM2;
+			}
+			break;
+		case ST_CHECKSUM2:
+			state = ST_IDLE;
+			int low = hexValue(b);
+			if(low < 0) {
+				numDiscarded++;
+				break;
+			}
+			if((receivedChecksum | low) != checksum) {
+				numChecksumErrors++;
+				break;
+			}
+			sentence.hasChecksum = true;
+			dispatch();
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void start() {
+		state = ST_BODY;
+		checksum = 0;
+		sentence.length = 0;
+		sentence.numFields = 1;
+		sentence.fieldStart[0] = 0;
+	}
+
+	private static int hexValue(byte b) {
+		if((b >= '0') && (b <= '9')) {
+			return b - '0';
+		}
+		if((b >= 'A') && (b <= 'F')) {
+			return b - 'A' + 10;
+		}
+		if((b >= 'a') && (b <= 'f')) {
+			return b - 'a' + 10;
+		}
+		return -1;
+	}
+
+	private void dispatch() {
+		sentence.complete();
+		numSentences++;
+		if(sentence.isType('G', 'G', 'A')) {
+			gga.decode(sentence);
+			listener.onGGA(gga);
+		}else if(sentence.isType('R', 'M', 'C')) {
+			rmc.decode(sentence);
+			listener.onRMC(rmc);
+		}else if(sentence.isType('G', 'S', 'V')) {
+			gsv.decode(sentence);
+			listener.onGSV(gsv);
+		}else {
+			listener.onSentence(sentence);
+		}
+	}
+
+	/**
+	 * <p>Gives number of valid sentences given to listener.</p>
+	 * 
+	 * @return number of sentences.
+	 */
+	public long getNumberOfSentences() {
+		return numSentences;
+	}
+
+	/**
+	 * <p>Gives number of sentences dropped because of wrong checksum.</p>
+	 * 
+	 * @return number of sentences.
+	 */
+	public long getNumberOfChecksumErrors() {
+		return numChecksumErrors;
+	}
+
+	/**
+	 * <p>Gives number of sentences dropped because they were truncated, too long, contained non printable 
+	 * characters or had no checksum when checksum is required.</p>
+	 * 
+	 * @return number of sentences.
+	 */
+	public long getNumberOfDiscarded() {
+		return numDiscarded;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>Decoded RMC (recommended minimum specific GNSS data) sentence. Coordinates are in 1e-7 degrees, 
+ * speed in thousandths of a knot and course and magnetic variation in hundredths of a degree. Fields 
+ * absent in sentence are SerialComNMEASentence.NOT_AVAILABLE.</p>
+ * 
+ * <p>This object is reused by parser for every RMC sentence and is valid only during the listener 
+ * callback in which it is given.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComNMEARMC {
+
+	private SerialComNMEASentence sentence;
+	private int utcTime;
+	private boolean valid;
+	private int latitude;
+	private int longitude;
+	private int speed;
+	private int course;
+	private int day;
+	private int month;
+	private int year;
+	private int magneticVariation;
+	private char mode;
+
+	SerialComNMEARMC() {
+	}
+
+	void decode(SerialComNMEASentence s) {
+		sentence = s;
+		utcTime = s.getFieldTime(1);
+		valid = s.getFieldChar(2) == 'A';
+		latitude = s.getFieldCoordinate(3, 4);
+		longitude = s.getFieldCoordinate(5, 6);
+		speed = s.getFieldFixed(7, 3);
+		course = s.getFieldFixed(8, 2);
+		day = SerialComNMEASentence.NOT_AVAILABLE;
+		month = SerialComNMEASentence.NOT_AVAILABLE;
+		year = SerialComNMEASentence.NOT_AVAILABLE;
+		int date = (s.getFieldLength(9) == 6) ? s.getFieldInt(9) : SerialComNMEASentence.NOT_AVAILABLE;
+		if(date >= 0) {
+			day = date / 10000;
+			month = (date / 100) % 100;
+			// two digit year, receivers in use are not older than 1980.
+			year = date % 100;
+			year += (year < 80) ? 2000 : 1900;
+		}
+		magneticVariation = s.getFieldFixed(10, 2);
+		if((magneticVariation != SerialComNMEASentence.NOT_AVAILABLE) && (s.getFieldChar(11) == 'W')) {
+			magneticVariation = -magneticVariation;
+		}
+		mode = s.getFieldChar(12);
+	}
+
+	/**
+	 * <p>Gives the sentence from which this object was decoded, for example to know the talker.</p>
+	 * 
+	 * @return sentence flyweight.
+	 */
+	public SerialComNMEASentence getSentence() {
+		return sentence;
+	}
+
+	/**
+	 * <p>Gives UTC time of fix.</p>
+	 * 
+	 * @return milliseconds since midnight.
+	 */
+	public int getUTCTime() {
+		return utcTime;
+	}
+
+	/**
+	 * <p>Tells whether receiver marked data as valid (status A).</p>
+	 * 
+	 * @return true if data is valid.
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * <p>Gives latitude, negative for south.</p>
+	 * 
+	 * @return latitude in 1e-7 degrees.
+	 */
+	public int getLatitude() {
+		return latitude;
+	}
+
+	/**
+	 * <p>Gives longitude, negative for west.</p>
+	 * 
+	 * @return longitude in 1e-7 degrees.
+	 */
+	public int getLongitude() {
+		return longitude;
+	}
+
+	/**
+	 * <p>Gives speed over ground.</p>
+	 * 
+	 * @return speed in thousandths of a knot.
+	 */
+	public int getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * <p>Gives course over ground with respect to true north.</p>
+	 * 
+	 * @return course in hundredths of a degree.
+	 */
+	public int getCourse() {
+		return course;
+	}
+
+	/**
+	 * <p>Gives day of month of fix.</p>
+	 * 
+	 * @return day 1 to 31.
+	 */
+	public int getDay() {
+		return day;
+	}
+
+	/**
+	 * <p>Gives month of fix.</p>
+	 * 
+	 * @return month 1 to 12.
+	 */
+	public int getMonth() {
+		return month;
+	}
+
+	/**
+	 * <p>Gives year of fix. Two digit year of sentence is taken as 1980 to 2079.</p>
+	 * 
+	 * @return four digit year.
+	 */
+	public int getYear() {
+		return year;
+	}
+
+	/**
+	 * <p>Gives magnetic variation, negative for west.</p>
+	 * 
+	 * @return variation in hundredths of a degree.
+	 */
+	public int getMagneticVariation() {
+		return magneticVariation;
+	}
+
+	/**
+	 * <p>Gives mode indicator of NMEA 2.3 and later, A autonomous, D differential, E estimated, 
+	 * N not valid.</p>
+	 * 
+	 * @return mode character or 0 if sentence does not have it.
+	 */
+	public char getMode() {
+		return mode;
+	}
+}
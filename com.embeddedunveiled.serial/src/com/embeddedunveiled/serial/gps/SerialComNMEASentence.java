@@ -0,0 +1,297 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>Flyweight view of the NMEA 0183 sentence just parsed by SerialComNMEAParser. Field 0 is the address 
+ * field (for example GPGGA) and data fields follow it; start delimiter and checksum are not part of any 
+ * field. Accessors decode fields directly from the parser buffer without creating any object, numbers 
+ * with fraction are given as fixed point integers.</p>
+ * 
+ * <p>Contents are valid only during the listener callback in which this object is given; the same object 
+ * is reused for next sentence, so application must copy what it needs to keep.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComNMEASentence {
+
+	/** <p>Value given by numeric accessors when field is empty or not a valid number. </p>*/
+	public static final int NOT_AVAILABLE = Integer.MIN_VALUE;
+
+	/** <p>Maximum number of characters between start delimiter and checksum delimiter accepted by parser. </p>*/
+	public static final int MAX_LENGTH = 128;
+
+	/** <p>Maximum number of fields including address field accepted by parser. </p>*/
+	public static final int MAX_FIELDS = 40;
+
+	private static final int[] POW10 = { 1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000 };
+
+	// written by parser.
+	final byte[] data = new byte[MAX_LENGTH];
+	final int[] fieldStart = new int[MAX_FIELDS + 1];
+	int length;
+	int numFields;
+	boolean hasChecksum;
+
+	SerialComNMEASentence() {
+	}
+
+	/* called by parser after last character, sets end of last field. */
+	void complete() {
+		fieldStart[numFields] = length + 1;
+	}
+
+	/**
+	 * <p>Gives number of fields including address field.</p>
+	 * 
+	 * @return number of fields.
+	 */
+	public int getFieldCount() {
+		return numFields;
+	}
+
+	/**
+	 * <p>Gives number of characters in given field.</p>
+	 * 
+	 * @param field index of field, 0 for address field.
+	 * @return number of characters, 0 if field is empty or not present.
+	 */
+	public int getFieldLength(int field) {
+		if((field < 0) || (field >= numFields)) {
+			return 0;
+		}
+		return fieldStart[field + 1] - fieldStart[field] - 1;
+	}
+
+	/**
+	 * <p>Tells whether sentence carried a checksum. Sentences without checksum are given only if 
+	 * parser does not require checksum.</p>
+	 * 
+	 * @return true if checksum was present and valid.
+	 */
+	public boolean hasChecksum() {
+		return hasChecksum;
+	}
+
+	/**
+	 * <p>Tells whether this is a standard sentence of given type from any talker, for example 
+	 * isType('G', 'G', 'A') is true for both GPGGA and GNGGA.</p>
+	 * 
+	 * @param c0 first character of sentence type.
+	 * @param c1 second character of sentence type.
+	 * @param c2 third character of sentence type.
+	 * @return true if address field has 5 characters and ends with given type.
+	 */
+	public boolean isType(char c0, char c1, char c2) {
+		return (getFieldLength(0) == 5) && (data[0] != 'P') && (data[2] == c0) && (data[3] == c1) && (data[4] == c2);
+	}
+
+	/**
+	 * <p>Gives character at given position of given field.</p>
+	 * 
+	 * @param field index of field, 0 for address field.
+	 * @param index position of character in field.
+	 * @return character or 0 if field does not have that many characters.
+	 */
+	public char getFieldChar(int field, int index) {
+		if((index < 0) || (index >= getFieldLength(field))) {
+			return 0;
+		}
+		return (char) data[fieldStart[field] + index];
+	}
+
+	/**
+	 * <p>Gives first character of given field, useful for single character fields like N/S, E/W 
+	 * and status.</p>
+	 * 
+	 * @param field index of field.
+	 * @return character or 0 if field is empty.
+	 */
+	public char getFieldChar(int field) {
+		return getFieldChar(field, 0);
+	}
+
+	/**
+	 * <p>Copies characters of given field in given buffer.</p>
+	 * 
+	 * @param field index of field, 0 for address field.
+	 * @param buffer buffer in which characters will be copied.
+	 * @param offset position in buffer from where to start copying.
+	 * @return number of characters copied.
+	 * @throws IllegalArgumentException if buffer is null.
+	 * @throws IndexOutOfBoundsException if field does not fit in buffer.
+	 */
+	public int getField(int field, byte[] buffer, int offset) {
+		if(buffer == null) {
+			throw new IllegalArgumentException("Argument buffer can not be null !");
+		}
+		int num = getFieldLength(field);
+		if(num > 0) {
+			System.arraycopy(data, fieldStart[field], buffer, offset, num);
+		}
+		return num;
+	}
+
+	/**
+	 * <p>Gives value of given field holding a whole number, optionally signed.</p>
+	 * 
+	 * @param field index of field.
+	 * @return value or NOT_AVAILABLE if field is empty or is not a whole number.
+	 */
+	public int getFieldInt(int field) {
+		return parseFixed(field, 0, getFieldLength(field), 0);
+	}
+
+	/**
+	 * <p>Gives value of given field holding a decimal number as fixed point integer, that is value 
+	 * multiplied by 10 raised to decimals. Extra fraction digits are truncated, for example 
+	 * getFieldFixed(f, 2) gives 1234 for field 12.345.</p>
+	 * 
+	 * @param field index of field.
+	 * @param decimals number of fraction digits to keep, 0 to 9.
+	 * @return value or NOT_AVAILABLE if field is empty or is not a decimal number.
+	 * @throws IllegalArgumentException if decimals is not in range 0 to 9.
+	 */
+	public int getFieldFixed(int field, int decimals) {
+		if((decimals < 0) || (decimals > 9)) {
+			throw new IllegalArgumentException("Argument decimals must be in range 0 to 9 !");
+		}
+		return parseFixed(field, 0, getFieldLength(field), decimals);
+	}
+
+	/**
+	 * <p>Gives latitude or longitude in field of format (d)ddmm.mmmm as degrees multiplied by 10^7, 
+	 * negative for south and west as given in hemisphere field.</p>
+	 * 
+	 * @param field index of field holding coordinate.
+	 * @param hemisphereField index of field holding N, S, E or W.
+	 * @return coordinate in 1e-7 degrees or NOT_AVAILABLE if field is empty or invalid.
+	 */
+	public int getFieldCoordinate(int field, int hemisphereField) {
+		int num = getFieldLength(field);
+		if(num == 0) {
+			return NOT_AVAILABLE;
+		}
+		int start = fieldStart[field];
+		int dot = 0;
+		while((dot < num) && (data[start + dot] != '.')) {
+			dot++;
+		}
+		if(dot < 3) {
+			return NOT_AVAILABLE;
+		}
+		int degrees = parseFixed(field, 0, dot - 2, 0);
+		int minutes = parseFixed(field, dot - 2, num, 7);
+		if((degrees == NOT_AVAILABLE) || (minutes == NOT_AVAILABLE) || (degrees < 0) || (minutes < 0)) {
+			return NOT_AVAILABLE;
+		}
+		int value = (degrees * 10000000) + ((minutes + 30) / 60);
+		char hemisphere = getFieldChar(hemisphereField);
+		return ((hemisphere == 'S') || (hemisphere == 'W')) ? -value : value;
+	}
+
+	/**
+	 * <p>Gives time in field of format hhmmss.sss as milliseconds since midnight.</p>
+	 * 
+	 * @param field index of field holding time.
+	 * @return milliseconds since midnight or NOT_AVAILABLE if field is empty or invalid.
+	 */
+	public int getFieldTime(int field) {
+		int num = getFieldLength(field);
+		if(num < 6) {
+			return NOT_AVAILABLE;
+		}
+		int hours = parseFixed(field, 0, 2, 0);
+		int minutes = parseFixed(field, 2, 4, 0);
+		int millis = parseFixed(field, 4, num, 3);
+		if((hours == NOT_AVAILABLE) || (minutes == NOT_AVAILABLE) || (millis == NOT_AVAILABLE) || (hours < 0) 
+				|| (minutes < 0) || (millis < 0)) {
+			return NOT_AVAILABLE;
+		}
+		return (((hours * 60) + minutes) * 60000) + millis;
+	}
+
+	/*
+	 * Parses characters from begin (inclusive) to end (exclusive) of given field as optionally signed 
+	 * decimal number and gives it multiplied by 10^decimals.
+	 */
+	private int parseFixed(int field, int begin, int end, int decimals) {
+		if(begin >= end) {
+			return NOT_AVAILABLE;
+		}
+		int x = fieldStart[field] + begin;
+		int limit = fieldStart[field] + end;
+		boolean negative = false;
+		if((data[x] == '-') || (data[x] == '+')) {
+			negative = (data[x] == '-');
+			x++;
+		}
+		long value = 0;
+		int fraction = -1;
+		int numDigits = 0;
+		for(; x < limit; x++) {
+			int c = data[x];
+			if(c == '.') {
+				if(fraction >= 0) {
+					return NOT_AVAILABLE;
+				}
+				fraction = 0;
+				continue;
+			}
+			if((c < '0') || (c > '9')) {
+				return NOT_AVAILABLE;
+			}
+			numDigits++;
+			if(fraction >= 0) {
+				if(fraction == decimals) {
+					continue;
+				}
+				fraction++;
+			}
+			value = (value * 10) + (c - '0');
+			if(value > Integer.MAX_VALUE) {
+				return NOT_AVAILABLE;
+			}
+		}
+		if(numDigits == 0) {
+			return NOT_AVAILABLE;
+		}
+		if(fraction < 0) {
+			fraction = 0;
+		}
+		value = value * POW10[decimals - fraction];
+		if(value > Integer.MAX_VALUE) {
+			return NOT_AVAILABLE;
+		}
+		return negative ? (int) -value : (int) value;
+	}
+
+	/**
+	 * <p>Gives sentence as string without start delimiter and checksum. This method creates objects and 
+	 * is meant for logging and debugging.</p>
+	 */
+	@Override
+	public String toString() {
+		char[] chars = new char[length];
+		for(int x = 0; x < length; x++) {
+			chars[x] = (char) data[x];
+		}
+		return new String(chars);
+	}
+}
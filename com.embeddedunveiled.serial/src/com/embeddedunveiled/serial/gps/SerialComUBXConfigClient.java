@@ -0,0 +1,258 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+import java.util.Arrays;
+
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComTimeOutException;
+
+/**
+ * <p>Pipelined configuration client for u-blox receivers. Configuration messages are queued using add 
+ * methods and commit writes all of them to receiver at once, then waits for ACK-ACK or ACK-NAK of every 
+ * message. Acknowledgements are matched to messages as they are decoded by SerialComUBXDecoder given 
+ * to constructor, in the order in which messages were sent, so configuring a receiver takes one round 
+ * trip per batch instead of one per message.</p>
+ * 
+ * <pre>
+ * {@code
+ * SerialComUBXDecoder decoder = new SerialComUBXDecoder(listener);
+ * scm.registerDataListener(handle, decoder);
+ * SerialComUBXConfigClient config = new SerialComUBXConfigClient(scm, handle, decoder);
+ * config.addMessageRate(SerialComUBXDecoder.CLASS_NAV, SerialComUBXDecoder.ID_NAV_PVT, 1);
+ * config.addValSet(SerialComUBXConfigClient.LAYER_RAM, new int[] { 0x30210001 }, new long[] { 100 });
+ * boolean[] acked = config.commit(1000);
+ * }</pre>
+ * 
+ * <p>Receiver must answer every message with an acknowledgement, which is true for all CFG messages. 
+ * Decoder must be fed with bytes from the same receiver by a different thread (for example as data 
+ * listener) while commit waits.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComUBXConfigClient {
+
+	/** <p>CFG-VALSET layer RAM, configuration takes effect immediately. </p>*/
+	public static final int LAYER_RAM = 0x01;
+
+	/** <p>CFG-VALSET layer battery backed RAM. </p>*/
+	public static final int LAYER_BBR = 0x02;
+
+	/** <p>CFG-VALSET layer flash, configuration survives power cycle. </p>*/
+	public static final int LAYER_FLASH = 0x04;
+
+	private static final int ID_CFG_MSG = 0x01;
+	private static final int ID_CFG_VALSET = 0x8A;
+	private static final int MAX_KEYS = 64;
+
+	private final SerialComManager scm;
+	private final long handle;
+
+	// guarded by this.
+	private byte[] batch = new byte[512];
+	private int batchLength;
+	private int[] queued = new int[16];
+	private int numQueued;
+	private int[] inFlight = new int[0];
+	private int[] results = new int[0]; // 0 waiting, 1 ACK, 2 NAK.
+	private int numAnswered;
+	private boolean committing;
+
+	/**
+	 * <p>Allocates a new SerialComUBXConfigClient object and attaches it to given decoder.</p>
+	 * 
+	 * @param scm SerialComManager instance through which port has been opened.
+	 * @param handle handle of the port to which receiver is connected.
+	 * @param decoder decoder fed with bytes from this receiver.
+	 * @throws IllegalArgumentException if scm or decoder is null.
+	 */
+	public SerialComUBXConfigClient(SerialComManager scm, long handle, SerialComUBXDecoder decoder) {
+		if(scm == null) {
+			throw new IllegalArgumentException("Argument scm can not be null !");
+		}
+		if(decoder == null) {
+			throw new IllegalArgumentException("Argument decoder can not be null !");
+		}
+		this.scm = scm;
+		this.handle = handle;
+		decoder.setConfigClient(this);
+	}
+
+	/**
+	 * <p>Queues given CFG message to be sent with next commit.</p>
+	 * 
+	 * @param messageId id of message in class CFG.
+	 * @param payload payload of message.
+	 * @throws IllegalArgumentException if payload is null or longer than SerialComUBXDecoder.MAX_PAYLOAD.
+	 */
+	public synchronized void add(int messageId, byte[] payload) {
+		if(payload == null) {
+			throw new IllegalArgumentException("Argument payload can not be null !");
+		}
+		if(payload.length > SerialComUBXDecoder.MAX_PAYLOAD) {
+			throw new IllegalArgumentException("Argument payload can not be longer than " + SerialComUBXDecoder.MAX_PAYLOAD + " bytes !");
+		}
+		if((batchLength + payload.length + 8) > batch.length) {
+			batch = Arrays.copyOf(batch, Math.max(batch.length * 2, batchLength + payload.length + 8));
+		}
+		batchLength += SerialComUBXDecoder.encode(SerialComUBXDecoder.CLASS_CFG, messageId, payload, 0, payload.length, 
+				batch, batchLength);
+		if(numQueued == queued.length) {
+			queued = Arrays.copyOf(queued, queued.length * 2);
+		}
+		queued[numQueued++] = ((SerialComUBXDecoder.CLASS_CFG << 8) | (messageId & 0xFF));
+	}
+
+	/**
+	 * <p>Queues CFG-MSG setting output rate of given message on the port receiver is connected to.</p>
+	 * 
+	 * @param messageClass class of message.
+	 * @param messageId id of message.
+	 * @param rate message is sent once every this many navigation solutions, 0 to disable it.
+	 */
+	public void addMessageRate(int messageClass, int messageId, int rate) {
+		add(ID_CFG_MSG, new byte[] { (byte) messageClass, (byte) messageId, (byte) rate });
+	}
+
+	/**
+	 * <p>Queues CFG-VALSET setting given configuration items, as used by generation 9 and later receivers. 
+	 * Size of each value is taken from its key id.</p>
+	 * 
+	 * @param layers combination of LAYER_RAM, LAYER_BBR and LAYER_FLASH.
+	 * @param keys key ids of configuration items.
+	 * @param values values of configuration items.
+	 * @throws IllegalArgumentException if keys or values is null, they differ in length, there are more 
+	 *          than 64 keys or a key id has invalid size.
+	 */
+	public void addValSet(int layers, int[] keys, long[] values) {
+		if((keys == null) || (values == null)) {
+			throw new IllegalArgumentException("Argument keys and values can not be null !");
+		}
+		if((keys.length != values.length) || (keys.length == 0) || (keys.length > MAX_KEYS)) {
+			throw new IllegalArgumentException("Argument keys and values must have same length from 1 to " + MAX_KEYS + " !");
+		}
+		byte[] payload = new byte[4 + (12 * keys.length)];
+		payload[1] = (byte) layers;
+		int x = 4;
+		for(int y = 0; y < keys.length; y++) {
+			int size;
+			switch((keys[y] >>> 28) & 0x07) {
+			case 1:
+			case 2:
+				size = 1;
+				break;
+			case 3:
+				size = 2;
+				break;
+			case 4:
+				size = 4;
+				break;
+			case 5:
+				size = 8;
+				break;
+			default:
+				throw new IllegalArgumentException("Key id 0x" + Integer.toHexString(keys[y]) + " has invalid size !");
+			}
+			for(int z = 0; z < 4; z++) {
+				payload[x++] = (byte) (keys[y] >>> (8 * z));
+			}
+			for(int z = 0; z < size; z++) {
+				payload[x++] = (byte) (values[y] >>> (8 * z));
+			}
+		}
+		add(ID_CFG_VALSET, Arrays.copyOf(payload, x));
+	}
+
+	/**
+	 * <p>Sends all queued messages in one write and waits till every message has been acknowledged 
+	 * or rejected by receiver.</p>
+	 * 
+	 * @param timeOut time in milliseconds to wait for all acknowledgements.
+	 * @return array with one entry per message in order queued, true if receiver acknowledged message 
+	 *          and false if it rejected it.
+	 * @throws SerialComTimeOutException if all acknowledgements are not received within timeOut.
+	 * @throws SerialComException if messages could not be written to port or thread is interrupted.
+	 * @throws IllegalStateException if another batch is being committed.
+	 */
+	public boolean[] commit(long timeOut) throws SerialComException, SerialComTimeOutException {
+		byte[] frames;
+		int length;
+		synchronized(this) {
+			if(committing) {
+				throw new IllegalStateException("Another batch is being committed !");
+			}
+			if(numQueued == 0) {
+				return new boolean[0];
+			}
+			committing = true;
+			inFlight = Arrays.copyOf(queued, numQueued);
+			results = new int[numQueued];
+			numAnswered = 0;
+			frames = batch;
+			length = batchLength;
+			batch = new byte[512];
+			batchLength = 0;
+			numQueued = 0;
+		}
+
+		try {
+			scm.writeBytes(handle, (length == frames.length) ? frames : Arrays.copyOf(frames, length), 0);
+			synchronized(this) {
+				long deadline = System.currentTimeMillis() + timeOut;
+				while(numAnswered < inFlight.length) {
+					long wait = deadline - System.currentTimeMillis();
+					if(wait <= 0) {
+						throw new SerialComTimeOutException("Only " + numAnswered + " of " + inFlight.length 
+								+ " configuration messages acknowledged within " + timeOut + " ms !");
+					}
+					try {
+						wait(wait);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SerialComException("Interrupted while waiting for acknowledgement !");
+					}
+				}
+				boolean[] acked = new boolean[results.length];
+				for(int x = 0; x < results.length; x++) {
+					acked[x] = (results[x] == 1);
+				}
+				return acked;
+			}
+		} finally {
+			synchronized(this) {
+				committing = false;
+				inFlight = new int[0];
+			}
+		}
+	}
+
+	/* called by decoder for every ACK-ACK and ACK-NAK, matches oldest unanswered message of same type. */
+	synchronized void acknowledged(int messageClass, int messageId, boolean ack) {
+		int type = (messageClass << 8) | messageId;
+		for(int x = 0; x < inFlight.length; x++) {
+			if((results[x] == 0) && (inFlight[x] == type)) {
+				results[x] = ack ? 1 : 2;
+				numAnswered++;
+				notifyAll();
+				return;
+			}
+		}
+	}
+}
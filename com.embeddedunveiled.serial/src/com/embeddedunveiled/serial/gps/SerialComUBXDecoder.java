@@ -0,0 +1,416 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+import java.nio.ByteBuffer;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+
+/**
+ * <p>Incremental decoder of u-blox UBX binary protocol frames. A frame is sync characters 0xB5 0x62, 
+ * class, id, 16 bit little endian payload length, payload and 8 bit Fletcher checksum over class to 
+ * end of payload. Bytes can be given in chunks of any size; frames split across chunks are assembled 
+ * in a buffer owned by the decoder.</p>
+ * 
+ * <p>When bytes are given in a byte buffer, for example one filled by readBytesDirect, frames lying 
+ * completely in the given range are checked and given to listener in place: views read fields straight 
+ * from that buffer and no byte is copied. NAV-PVT, NAV-SAT and RXM-RAWX are given as typed views and 
+ * other messages as SerialComUBXMessage. Frames with wrong checksum or payload longer than MAX_PAYLOAD 
+ * are dropped and counted. No object is created while decoding.</p>
+ * 
+ * <p>A decoder keeps state of partially received frame, so one decoder must be used per receiver and 
+ * it must not be given bytes from multiple threads at the same time. It is itself a data listener 
+ * and may be registered on the port directly.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComUBXDecoder implements ISerialComDataListener {
+
+	/** <p>Navigation results class. </p>*/
+	public static final int CLASS_NAV = 0x01;
+
+	/** <p>Receiver manager class. </p>*/
+	public static final int CLASS_RXM = 0x02;
+
+	/** <p>Acknowledgement class. </p>*/
+	public static final int CLASS_ACK = 0x05;
+
+	/** <p>Configuration class. </p>*/
+	public static final int CLASS_CFG = 0x06;
+
+	/** <p>Id of NAV-PVT in CLASS_NAV. </p>*/
+	public static final int ID_NAV_PVT = 0x07;
+
+	/** <p>Id of NAV-SAT in CLASS_NAV. </p>*/
+	public static final int ID_NAV_SAT = 0x35;
+
+	/** <p>Id of RXM-RAWX in CLASS_RXM. </p>*/
+	public static final int ID_RXM_RAWX = 0x15;
+
+	/** <p>Id of ACK-NAK in CLASS_ACK. </p>*/
+	public static final int ID_ACK_NAK = 0x00;
+
+	/** <p>Id of ACK-ACK in CLASS_ACK. </p>*/
+	public static final int ID_ACK_ACK = 0x01;
+
+	/** <p>Largest payload accepted by decoder. </p>*/
+	public static final int MAX_PAYLOAD = 8192;
+
+	private static final int SYNC_CHAR1 = 0xB5;
+	private static final int SYNC_CHAR2 = 0x62;
+
+	private static final int ST_SYNC1 = 0;
+	private static final int ST_SYNC2 = 1;
+	private static final int ST_CLASS = 2;
+	private static final int ST_ID = 3;
+	private static final int ST_LENGTH1 = 4;
+	private static final int ST_LENGTH2 = 5;
+	private static final int ST_PAYLOAD = 6;
+	private static final int ST_CK_A = 7;
+	private static final int ST_CK_B = 8;
+
+	private final ISerialComUBXListener listener;
+	private final byte[] assembly = new byte[MAX_PAYLOAD];
+	private final ByteBuffer assemblyBuffer = ByteBuffer.wrap(assembly);
+	private final SerialComUBXMessage message = new SerialComUBXMessage();
+	private final SerialComUBXNavPvt navPvt = new SerialComUBXNavPvt();
+	private final SerialComUBXNavSat navSat = new SerialComUBXNavSat();
+	private final SerialComUBXRxmRawx rxmRawx = new SerialComUBXRxmRawx();
+	private volatile SerialComUBXConfigClient configClient;
+	private int state = ST_SYNC1;
+	private int messageClass;
+	private int messageId;
+	private int length;
+	private int received;
+	private int ckA;
+	private int ckB;
+	private long numFrames;
+	private long numChecksumErrors;
+	private long numOversized;
+
+	/**
+	 * <p>Allocates a new SerialComUBXDecoder object.</p>
+	 * 
+	 * @param listener listener to which decoded messages will be given.
+	 * @throws IllegalArgumentException if listener is null.
+	 */
+	public SerialComUBXDecoder(ISerialComUBXListener listener) {
+		if(listener == null) {
+			throw new IllegalArgumentException("Argument listener can not be null !");
+		}
+		this.listener = listener;
+	}
+
+	/* acknowledgements are also given to this configuration client. */
+	void setConfigClient(SerialComUBXConfigClient client) {
+		configClient = client;
+	}
+
+	/**
+	 * <p>Decodes bytes in given byte buffer. Position, limit and mark of buffer are not modified.</p>
+	 * 
+	 * @param buffer buffer containing bytes received from receiver.
+	 * @param offset position of first byte in buffer.
+	 * @param length number of bytes to decode.
+	 * @throws IllegalArgumentException if buffer is null.
+	 * @throws IndexOutOfBoundsException if offset and length do not fit in buffer.
+	 */
+	public void parse(ByteBuffer buffer, int offset, int length) {
+		if(buffer == null) {
+			throw new IllegalArgumentException("Argument buffer can not be null !");
+		}
+		if((offset < 0) || (length < 0) || (length > (buffer.capacity() - offset))) {
+			throw new IndexOutOfBoundsException("Index violation detected !");
+		}
+		int x = offset;
+		int end = offset + length;
+		while(x < end) {
+			if((state == ST_SYNC1) && ((end - x) >= 8) && ((buffer.get(x) & 0xFF) == SYNC_CHAR1) 
+					&& ((buffer.get(x + 1) & 0xFF) == SYNC_CHAR2)) {
+				int len = (buffer.get(x + 4) & 0xFF) | ((buffer.get(x + 5) & 0xFF) << 8);
+				if((len <= MAX_PAYLOAD) && ((end - x - 8) >= len)) {
+					// complete frame in buffer, check and dispatch it in place.
+					int a = 0;
+					int b = 0;
+					int ckEnd = x + 6 + len;
+					for(int y = x + 2; y < ckEnd; y++) {
+						a = (a + (buffer.get(y) & 0xFF)) & 0xFF;
+						b = (b + a) & 0xFF;
+					}
+					if((a == (buffer.get(ckEnd) & 0xFF)) && (b == (buffer.get(ckEnd + 1) & 0xFF))) {
+						dispatch(buffer, x + 6, buffer.get(x + 2) & 0xFF, buffer.get(x + 3) & 0xFF, len);
+					}else {
+						numChecksumErrors++;
+					}
+					x = ckEnd + 2;
+					continue;
+				}
+			}
+			consume(buffer.get(x) & 0xFF);
+			x++;
+		}
+	}
+
+	/**
+	 * <p>Decodes given bytes.</p>
+	 * 
+	 * @param data buffer containing bytes received from receiver.
+	 * @param offset position of first byte in buffer.
+	 * @param length number of bytes to decode.
+	 * @throws IllegalArgumentException if data is null.
+	 * @throws IndexOutOfBoundsException if offset and length do not fit in data.
+	 */
+	public void parse(byte[] data, int offset, int length) {
+		if(data == null) {
+			throw new IllegalArgumentException("Argument data can not be null !");
+		}
+		if((offset < 0) || (length < 0) || (length > (data.length - offset))) {
+			throw new IndexOutOfBoundsException("Index violation detected !");
+		}
+		int end = offset + length;
+		for(int x = offset; x < end; x++) {
+			consume(data[x] & 0xFF);
+		}
+	}
+
+	/**
+	 * <p>Decodes bytes given by data listener mechanism.</p>
+	 * 
+	 * @param data bytes read from serial port.
+	 */
+	@Override
+	public void onNewSerialDataAvailable(byte[] data) {
+		parse(data, 0, data.length);
+	}
+
+	/**
+	 * <p>Drops partially received frame as bytes may have been lost.</p>
+	 * 
+	 * @param errorNum operating system specific error number.
+	 */
+	@Override
+	public void onDataListenerError(int errorNum) {
+		reset();
+	}
+
+	/**
+	 * <p>Drops partially received frame, for example after baud rate of port has been changed.</p>
+	 */
+	public void reset() {
+		state = ST_SYNC1;
+	}
+
+	private void consume(int b) {
+		switch(state) {
+		case ST_SYNC1:
+			if(b == SYNC_CHAR1) {
+				state = ST_SYNC2;
+			}
+			break;
+		case ST_SYNC2:
+			if(b == SYNC_CHAR2) {
+				state = ST_CLASS;
+				ckA = 0;
+				ckB = 0;
+			}else if(b != SYNC_CHAR1) {
+				state = ST_SYNC1;
+			}
+			break;
+		case ST_CLASS:
+			messageClass = b;
+			checksum(b);
+			state = ST_ID;
+			break;
+		case ST_ID:
+			messageId = b;
+			checksum(b);
+			state = ST_LENGTH1;
+			break;
+		case ST_LENGTH1:
+			length = b;
+			checksum(b);
+			state = ST_LENGTH2;
+			break;
+		case ST_LENGTH2:
+			length |= b << 8;
+			checksum(b);
+			received = 0;
+			if(length > MAX_PAYLOAD) {
+				numOversized++;
+				state = ST_SYNC1;
+			}else {
+				state = (length == 0) ? ST_CK_A : ST_PAYLOAD;
+			}
+			break;
+		case ST_PAYLOAD:
+			assembly[received++] = (byte) b;
+			checksum(b);
+			if(received == length) {
+				state = ST_CK_A;
+			}
+			break;
+		case ST_CK_A:
+			if(b == ckA) {
+				state = ST_CK_B;
+			}else {
+				numChecksumErrors++;
+				state = ST_SYNC1;
+			}
+			break;
+		case ST_CK_B:
+			state = ST_SYNC1;
+			if(b == ckB) {
+				dispatch(assemblyBuffer, 0, messageClass, messageId, length);
+			}else {
+				numChecksumErrors++;
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void checksum(int b) {
+		ckA = (ckA + b) & 0xFF;
+		ckB = (ckB + ckA) & 0xFF;
+	}
+
+	private void dispatch(ByteBuffer buffer, int payloadOffset, int cls, int id, int len) {
+		numFrames++;
+		if(cls == CLASS_NAV) {
+			if((id == ID_NAV_PVT) && (len >= SerialComUBXNavPvt.LENGTH)) {
+				navPvt.wrap(buffer, payloadOffset, cls, id, len);
+				listener.onNavPvt(navPvt);
+				return;
+			}
+			if(id == ID_NAV_SAT) {
+				navSat.wrap(buffer, payloadOffset, cls, id, len);
+				if(navSat.isComplete()) {
+					listener.onNavSat(navSat);
+					return;
+				}
+			}
+		}else if((cls == CLASS_RXM) && (id == ID_RXM_RAWX)) {
+			rxmRawx.wrap(buffer, payloadOffset, cls, id, len);
+			if(rxmRawx.isComplete()) {
+				listener.onRxmRawx(rxmRawx);
+				return;
+			}
+		}
+
+		message.wrap(buffer, payloadOffset, cls, id, len);
+		if((cls == CLASS_ACK) && (len >= 2)) {
+			SerialComUBXConfigClient client = configClient;
+			if(client != null) {
+				client.acknowledged(message.getU1(0), message.getU1(1), id == ID_ACK_ACK);
+			}
+		}
+		listener.onMessage(message);
+	}
+
+	/**
+	 * <p>Builds UBX frame for given message in given buffer.</p>
+	 * 
+	 * @param messageClass class of message.
+	 * @param messageId id of message.
+	 * @param payload buffer containing payload, may be null if length is 0.
+	 * @param offset position of payload in buffer.
+	 * @param length length of payload.
+	 * @param frame buffer in which frame will be built, must have room for length + 8 bytes.
+	 * @param frameOffset position in frame buffer from where frame will be built.
+	 * @return number of bytes in frame.
+	 * @throws IllegalArgumentException if frame is null or length is more than MAX_PAYLOAD.
+	 * @throws IndexOutOfBoundsException if payload or frame buffer is too small.
+	 */
+	public static int encode(int messageClass, int messageId, byte[] payload, int offset, int length, byte[] frame, 
+			int frameOffset) {
+		if(frame == null) {
+			throw new IllegalArgumentException("Argument frame can not be null !");
+		}
+		if((length < 0) || (length > MAX_PAYLOAD)) {
+			throw new IllegalArgumentException("Argument length must be in range 0 to " + MAX_PAYLOAD + " !");
+		}
+		if((frameOffset < 0) || ((length + 8) > (frame.length - frameOffset))) {
+			throw new IndexOutOfBoundsException("Index violation detected !");
+		}
+		int x = frameOffset;
+		frame[x++] = (byte) SYNC_CHAR1;
+		frame[x++] = (byte) SYNC_CHAR2;
+		frame[x++] = (byte) messageClass;
+		frame[x++] = (byte) messageId;
+		frame[x++] = (byte) length;
+		frame[x++] = (byte) (length >>> 8);
+		if(length > 0) {
+			System.arraycopy(payload, offset, frame, x, length);
+			x += length;
+		}
+		int a = 0;
+		int b = 0;
+		for(int y = frameOffset + 2; y < x; y++) {
+			a = (a + (frame[y] & 0xFF)) & 0xFF;
+			b = (b + a) & 0xFF;
+		}
+		frame[x++] = (byte) a;
+		frame[x++] = (byte) b;
+		return length + 8;
+	}
+
+	/**
+	 * <p>Builds UBX frame for given message.</p>
+	 * 
+	 * @param messageClass class of message.
+	 * @param messageId id of message.
+	 * @param payload payload of message, may be null or empty for poll requests.
+	 * @return frame ready to be written to receiver.
+	 * @throws IllegalArgumentException if payload is longer than MAX_PAYLOAD.
+	 */
+	public static byte[] encode(int messageClass, int messageId, byte[] payload) {
+		int length = (payload == null) ? 0 : payload.length;
+		byte[] frame = new byte[length + 8];
+		encode(messageClass, messageId, payload, 0, length, frame, 0);
+		return frame;
+	}
+
+	/**
+	 * <p>Gives number of frames with valid checksum given to listener.</p>
+	 * 
+	 * @return number of frames.
+	 */
+	public long getNumberOfFrames() {
+		return numFrames;
+	}
+
+	/**
+	 * <p>Gives number of frames dropped because of wrong checksum.</p>
+	 * 
+	 * @return number of frames.
+	 */
+	public long getNumberOfChecksumErrors() {
+		return numChecksumErrors;
+	}
+
+	/**
+	 * <p>Gives number of frames dropped because payload length was more than MAX_PAYLOAD.</p>
+	 * 
+	 * @return number of frames.
+	 */
+	public long getNumberOfOversized() {
+		return numOversized;
+	}
+}
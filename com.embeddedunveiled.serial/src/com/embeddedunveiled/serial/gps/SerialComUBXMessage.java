@@ -0,0 +1,199 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Flyweight view of the payload of a UBX message decoded by SerialComUBXDecoder. Values are read 
+ * directly from the buffer holding the frame, little endian as defined by UBX, irrespective of byte 
+ * order set on the buffer. Offsets given to accessors are relative to start of payload.</p>
+ * 
+ * <p>Contents are valid only during the listener callback in which this object is given; the same object 
+ * is reused for next message, so application must copy what it needs to keep.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public class SerialComUBXMessage {
+
+	private ByteBuffer buffer;
+	private int payloadOffset;
+	private int messageClass;
+	private int messageId;
+	private int length;
+
+	SerialComUBXMessage() {
+	}
+
+	void wrap(ByteBuffer buffer, int payloadOffset, int messageClass, int messageId, int length) {
+		this.buffer = buffer;
+		this.payloadOffset = payloadOffset;
+		this.messageClass = messageClass;
+		this.messageId = messageId;
+		this.length = length;
+	}
+
+	/**
+	 * <p>Gives class of this message, for example SerialComUBXDecoder.CLASS_NAV.</p>
+	 * 
+	 * @return message class.
+	 */
+	public final int getMessageClass() {
+		return messageClass;
+	}
+
+	/**
+	 * <p>Gives id of this message within its class.</p>
+	 * 
+	 * @return message id.
+	 */
+	public final int getMessageId() {
+		return messageId;
+	}
+
+	/**
+	 * <p>Gives number of bytes in payload.</p>
+	 * 
+	 * @return payload length.
+	 */
+	public final int getPayloadLength() {
+		return length;
+	}
+
+	private int index(int offset, int size) {
+		if((offset < 0) || (offset > (length - size))) {
+			throw new IndexOutOfBoundsException("Offset " + offset + " is outside payload of " + length + " bytes !");
+		}
+		return payloadOffset + offset;
+	}
+
+	/**
+	 * <p>Gives unsigned byte (U1/X1) at given offset.</p>
+	 * 
+	 * @param offset offset in payload.
+	 * @return value 0 to 255.
+	 * @throws IndexOutOfBoundsException if offset is outside payload.
+	 */
+	public final int getU1(int offset) {
+		return buffer.get(index(offset, 1)) & 0xFF;
+	}
+
+	/**
+	 * <p>Gives signed byte (I1) at given offset.</p>
+	 * 
+	 * @param offset offset in payload.
+	 * @return value -128 to 127.
+	 * @throws IndexOutOfBoundsException if offset is outside payload.
+	 */
+	public final int getI1(int offset) {
+		return buffer.get(index(offset, 1));
+	}
+
+	/**
+	 * <p>Gives unsigned 16 bit value (U2/X2) at given offset.</p>
+	 * 
+	 * @param offset offset in payload.
+	 * @return value 0 to 65535.
+	 * @throws IndexOutOfBoundsException if offset is outside payload.
+	 */
+	public final int getU2(int offset) {
+		int x = index(offset, 2);
+		return (buffer.get(x) & 0xFF) | ((buffer.get(x + 1) & 0xFF) << 8);
+	}
+
+	/**
+	 * <p>Gives signed 16 bit value (I2) at given offset.</p>
+	 * 
+	 * @param offset offset in payload.
+	 * @return value -32768 to 32767.
+	 * @throws IndexOutOfBoundsException if offset is outside payload.
+	 */
+	public final int getI2(int offset) {
+		return (short) getU2(offset);
+	}
+
+	/**
+	 * <p>Gives signed 32 bit value (I4/X4) at given offset.</p>
+	 * 
+	 * @param offset offset in payload.
+	 * @return value.
+	 * @throws IndexOutOfBoundsException if offset is outside payload.
+	 */
+	public final int getI4(int offset) {
+		int x = index(offset, 4);
+		return (buffer.get(x) & 0xFF) | ((buffer.get(x + 1) & 0xFF) << 8) | ((buffer.get(x + 2) & 0xFF) << 16) 
+				| ((buffer.get(x + 3) & 0xFF) << 24);
+	}
+
+	/**
+	 * <p>Gives unsigned 32 bit value (U4) at given offset.</p>
+	 * 
+	 * @param offset offset in payload.
+	 * @return value 0 to 4294967295.
+	 * @throws IndexOutOfBoundsException if offset is outside payload.
+	 */
+	public final long getU4(int offset) {
+		return getI4(offset) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * <p>Gives single precision floating point value (R4) at given offset.</p>
+	 * 
+	 * @param offset offset in payload.
+	 * @return value.
+	 * @throws IndexOutOfBoundsException if offset is outside payload.
+	 */
+	public final float getR4(int offset) {
+		return Float.intBitsToFloat(getI4(offset));
+	}
+
+	/**
+	 * <p>Gives double precision floating point value (R8) at given offset.</p>
+	 * 
+	 * @param offset offset in payload.
+	 * @return value.
+	 * @throws IndexOutOfBoundsException if offset is outside payload.
+	 */
+	public final double getR8(int offset) {
+		index(offset, 8);
+		return Double.longBitsToDouble((getI4(offset) & 0xFFFFFFFFL) | ((long) getI4(offset + 4) << 32));
+	}
+
+	/**
+	 * <p>Copies payload in given buffer.</p>
+	 * 
+	 * @param data buffer in which payload will be copied.
+	 * @param offset position in data from where to start copying.
+	 * @return number of bytes copied.
+	 * @throws IllegalArgumentException if data is null.
+	 * @throws IndexOutOfBoundsException if payload does not fit in data.
+	 */
+	public final int getPayload(byte[] data, int offset) {
+		if(data == null) {
+			throw new IllegalArgumentException("Argument data can not be null !");
+		}
+		if((offset < 0) || (length > (data.length - offset))) {
+			throw new IndexOutOfBoundsException("Index violation detected !");
+		}
+		for(int x = 0; x < length; x++) {
+			data[offset + x] = buffer.get(payloadOffset + x);
+		}
+		return length;
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>View of UBX-NAV-PVT (navigation position velocity time solution) message. Fields are read from 
+ * frame buffer when accessor is called.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComUBXNavPvt extends SerialComUBXMessage {
+
+	/** <p>Payload length of NAV-PVT. </p>*/
+	public static final int LENGTH = 92;
+
+	SerialComUBXNavPvt() {
+	}
+
+	/**
+	 * <p>Gives GPS time of week of the navigation epoch.</p>
+	 * 
+	 * @return time of week in milliseconds.
+	 */
+	public long getITOW() {
+		return getU4(0);
+	}
+
+	/**
+	 * <p>Gives UTC year.</p>
+	 * 
+	 * @return year.
+	 */
+	public int getYear() {
+		return getU2(4);
+	}
+
+	/**
+	 * <p>Gives UTC month.</p>
+	 * 
+	 * @return month 1 to 12.
+	 */
+	public int getMonth() {
+		return getU1(6);
+	}
+
+	/**
+	 * <p>Gives UTC day of month.</p>
+	 * 
+	 * @return day 1 to 31.
+	 */
+	public int getDay() {
+		return getU1(7);
+	}
+
+	/**
+	 * <p>Gives UTC hour.</p>
+	 * 
+	 * @return hour 0 to 23.
+	 */
+	public int getHour() {
+		return getU1(8);
+	}
+
+	/**
+	 * <p>Gives UTC minute.</p>
+	 * 
+	 * @return minute 0 to 59.
+	 */
+	public int getMinute() {
+		return getU1(9);
+	}
+
+	/**
+	 * <p>Gives UTC second.</p>
+	 * 
+	 * @return second 0 to 60.
+	 */
+	public int getSecond() {
+		return getU1(10);
+	}
+
+	/**
+	 * <p>Gives validity flags of date and time (bit 0 date, bit 1 time, bit 2 fully resolved).</p>
+	 * 
+	 * @return validity flags.
+	 */
+	public int getValidity() {
+		return getU1(11);
+	}
+
+	/**
+	 * <p>Gives fraction of second to be added to UTC time, may be negative.</p>
+	 * 
+	 * @return fraction in nanoseconds.
+	 */
+	public int getNano() {
+		return getI4(16);
+	}
+
+	/**
+	 * <p>Gives fix type, 0 no fix, 1 dead reckoning, 2 2D, 3 3D, 4 GNSS and dead reckoning, 5 time only.</p>
+	 * 
+	 * @return fix type.
+	 */
+	public int getFixType() {
+		return getU1(20);
+	}
+
+	/**
+	 * <p>Gives fix status flags, bit 0 is set when fix is valid within accuracy masks.</p>
+	 * 
+	 * @return flags.
+	 */
+	public int getFlags() {
+		return getU1(21);
+	}
+
+	/**
+	 * <p>Gives number of satellites used in solution.</p>
+	 * 
+	 * @return number of satellites.
+	 */
+	public int getNumberOfSatellites() {
+		return getU1(23);
+	}
+
+	/**
+	 * <p>Gives longitude.</p>
+	 * 
+	 * @return longitude in 1e-7 degrees.
+	 */
+	public int getLongitude() {
+		return getI4(24);
+	}
+
+	/**
+	 * <p>Gives latitude.</p>
+	 * 
+	 * @return latitude in 1e-7 degrees.
+	 */
+	public int getLatitude() {
+		return getI4(28);
+	}
+
+	/**
+	 * <p>Gives height above ellipsoid.</p>
+	 * 
+	 * @return height in millimetres.
+	 */
+	public int getHeight() {
+		return getI4(32);
+	}
+
+	/**
+	 * <p>Gives height above mean sea level.</p>
+	 * 
+	 * @return height in millimetres.
+	 */
+	public int getHeightMSL() {
+		return getI4(36);
+	}
+
+	/**
+	 * <p>Gives horizontal accuracy estimate.</p>
+	 * 
+	 * @return accuracy in millimetres.
+	 */
+	public long getHorizontalAccuracy() {
+		return getU4(40);
+	}
+
+	/**
+	 * <p>Gives vertical accuracy estimate.</p>
+	 * 
+	 * @return accuracy in millimetres.
+	 */
+	public long getVerticalAccuracy() {
+		return getU4(44);
+	}
+
+	/**
+	 * <p>Gives north component of velocity.</p>
+	 * 
+	 * @return velocity in millimetres per second.
+	 */
+	public int getVelocityNorth() {
+		return getI4(48);
+	}
+
+	/**
+	 * <p>Gives east component of velocity.</p>
+	 * 
+	 * @return velocity in millimetres per second.
+	 */
+	public int getVelocityEast() {
+		return getI4(52);
+	}
+
+	/**
+	 * <p>Gives down component of velocity.</p>
+	 * 
+	 * @return velocity in millimetres per second.
+	 */
+	public int getVelocityDown() {
+		return getI4(56);
+	}
+
+	/**
+	 * <p>Gives 2D ground speed.</p>
+	 * 
+	 * @return speed in millimetres per second.
+	 */
+	public int getGroundSpeed() {
+		return getI4(60);
+	}
+
+	/**
+	 * <p>Gives 2D heading of motion.</p>
+	 * 
+	 * @return heading in 1e-5 degrees.
+	 */
+	public int getHeadingOfMotion() {
+		return getI4(64);
+	}
+
+	/**
+	 * <p>Gives speed accuracy estimate.</p>
+	 * 
+	 * @return accuracy in millimetres per second.
+	 */
+	public long getSpeedAccuracy() {
+		return getU4(68);
+	}
+
+	/**
+	 * <p>Gives position dilution of precision.</p>
+	 * 
+	 * @return PDOP multiplied by 100.
+	 */
+	public int getPDOP() {
+		return getU2(76);
+	}
+
+	/**
+	 * <p>Tells whether receiver reports a valid fix (gnssFixOK flag).</p>
+	 * 
+	 * @return true if fix is valid.
+	 */
+	public boolean isFixOK() {
+		return (getFlags() & 0x01) != 0;
+	}
+}
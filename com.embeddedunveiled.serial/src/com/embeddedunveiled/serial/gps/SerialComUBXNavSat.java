@@ -0,0 +1,149 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>View of UBX-NAV-SAT (satellite information) message. It has a header of 8 bytes followed by a 
+ * block of 12 bytes for every satellite; satellites are addressed by index.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComUBXNavSat extends SerialComUBXMessage {
+
+	SerialComUBXNavSat() {
+	}
+
+	/* true if payload has all satellite blocks given in header. */
+	boolean isComplete() {
+		return (getPayloadLength() >= 8) && (getPayloadLength() >= (8 + (12 * getU1(5))));
+	}
+
+	private int block(int index) {
+		if((index < 0) || (index >= getU1(5))) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not less than number of satellites !");
+		}
+		return 8 + (12 * index);
+	}
+
+	/**
+	 * <p>Gives GPS time of week of the navigation epoch.</p>
+	 * 
+	 * @return time of week in milliseconds.
+	 */
+	public long getITOW() {
+		return getU4(0);
+	}
+
+	/**
+	 * <p>Gives number of satellites described in this message.</p>
+	 * 
+	 * @return number of satellites.
+	 */
+	public int getNumberOfSatellites() {
+		return getU1(5);
+	}
+
+	/**
+	 * <p>Gives GNSS of satellite, 0 GPS, 1 SBAS, 2 Galileo, 3 BeiDou, 5 QZSS, 6 GLONASS.</p>
+	 * 
+	 * @param index index of satellite.
+	 * @return GNSS identifier.
+	 * @throws IndexOutOfBoundsException if index is not less than number of satellites.
+	 */
+	public int getGnssId(int index) {
+		return getU1(block(index));
+	}
+
+	/**
+	 * <p>Gives satellite identifier within its GNSS.</p>
+	 * 
+	 * @param index index of satellite.
+	 * @return satellite identifier.
+	 * @throws IndexOutOfBoundsException if index is not less than number of satellites.
+	 */
+	public int getSvId(int index) {
+		return getU1(block(index) + 1);
+	}
+
+	/**
+	 * <p>Gives carrier to noise ratio of satellite.</p>
+	 * 
+	 * @param index index of satellite.
+	 * @return C/N0 in dBHz.
+	 * @throws IndexOutOfBoundsException if index is not less than number of satellites.
+	 */
+	public int getCNO(int index) {
+		return getU1(block(index) + 2);
+	}
+
+	/**
+	 * <p>Gives elevation of satellite.</p>
+	 * 
+	 * @param index index of satellite.
+	 * @return elevation in degrees, -91 if unknown.
+	 * @throws IndexOutOfBoundsException if index is not less than number of satellites.
+	 */
+	public int getElevation(int index) {
+		return getI1(block(index) + 3);
+	}
+
+	/**
+	 * <p>Gives azimuth of satellite.</p>
+	 * 
+	 * @param index index of satellite.
+	 * @return azimuth in degrees.
+	 * @throws IndexOutOfBoundsException if index is not less than number of satellites.
+	 */
+	public int getAzimuth(int index) {
+		return getI2(block(index) + 4);
+	}
+
+	/**
+	 * <p>Gives pseudorange residual of satellite.</p>
+	 * 
+	 * @param index index of satellite.
+	 * @return residual in decimetres.
+	 * @throws IndexOutOfBoundsException if index is not less than number of satellites.
+	 */
+	public int getPseudorangeResidual(int index) {
+		return getI2(block(index) + 6);
+	}
+
+	/**
+	 * <p>Gives flags of satellite, bits 0 to 2 signal quality and bit 3 used in navigation.</p>
+	 * 
+	 * @param index index of satellite.
+	 * @return flags.
+	 * @throws IndexOutOfBoundsException if index is not less than number of satellites.
+	 */
+	public int getFlags(int index) {
+		return getI4(block(index) + 8);
+	}
+
+	/**
+	 * <p>Tells whether satellite is used in navigation solution.</p>
+	 * 
+	 * @param index index of satellite.
+	 * @return true if satellite is used.
+	 * @throws IndexOutOfBoundsException if index is not less than number of satellites.
+	 */
+	public boolean isUsed(int index) {
+		return (getFlags(index) & 0x08) != 0;
+	}
+}
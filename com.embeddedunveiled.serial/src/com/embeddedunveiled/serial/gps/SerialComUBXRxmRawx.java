@@ -0,0 +1,199 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gps;
+
+/**
+ * <p>View of UBX-RXM-RAWX (multi GNSS raw measurement) message. It has a header of 16 bytes followed 
+ * by a block of 32 bytes for every measurement; measurements are addressed by index.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComUBXRxmRawx extends SerialComUBXMessage {
+
+	SerialComUBXRxmRawx() {
+	}
+
+	/* true if payload has all measurement blocks given in header. */
+	boolean isComplete() {
+		return (getPayloadLength() >= 16) && (getPayloadLength() >= (16 + (32 * getU1(11))));
+	}
+
+	private int block(int index) {
+		if((index < 0) || (index >= getU1(11))) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not less than number of measurements !");
+		}
+		return 16 + (32 * index);
+	}
+
+	/**
+	 * <p>Gives receiver local time of week of the measurements.</p>
+	 * 
+	 * @return time of week in seconds.
+	 */
+	public double getReceiverTOW() {
+		return getR8(0);
+	}
+
+	/**
+	 * <p>Gives GPS week number in receiver local time.</p>
+	 * 
+	 * @return week number.
+	 */
+	public int getWeek() {
+		return getU2(8);
+	}
+
+	/**
+	 * <p>Gives GPS leap seconds.</p>
+	 * 
+	 * @return leap seconds.
+	 */
+	public int getLeapSeconds() {
+		return getI1(10);
+	}
+
+	/**
+	 * <p>Gives number of measurements in this message.</p>
+	 * 
+	 * @return number of measurements.
+	 */
+	public int getNumberOfMeasurements() {
+		return getU1(11);
+	}
+
+	/**
+	 * <p>Gives receiver tracking status, bit 0 leap seconds determined, bit 1 clock reset.</p>
+	 * 
+	 * @return status flags.
+	 */
+	public int getReceiverStatus() {
+		return getU1(12);
+	}
+
+	/**
+	 * <p>Gives pseudorange measurement.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return pseudorange in metres.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public double getPseudorange(int index) {
+		return getR8(block(index));
+	}
+
+	/**
+	 * <p>Gives carrier phase measurement.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return carrier phase in cycles.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public double getCarrierPhase(int index) {
+		return getR8(block(index) + 8);
+	}
+
+	/**
+	 * <p>Gives Doppler measurement, positive sign for approaching satellites.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return Doppler in Hz.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public float getDoppler(int index) {
+		return getR4(block(index) + 16);
+	}
+
+	/**
+	 * <p>Gives GNSS of measurement.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return GNSS identifier.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public int getGnssId(int index) {
+		return getU1(block(index) + 20);
+	}
+
+	/**
+	 * <p>Gives satellite identifier of measurement.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return satellite identifier.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public int getSvId(int index) {
+		return getU1(block(index) + 21);
+	}
+
+	/**
+	 * <p>Gives signal identifier of measurement.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return signal identifier.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public int getSigId(int index) {
+		return getU1(block(index) + 22);
+	}
+
+	/**
+	 * <p>Gives frequency slot of GLONASS measurement.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return frequency identifier.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public int getFreqId(int index) {
+		return getU1(block(index) + 23);
+	}
+
+	/**
+	 * <p>Gives carrier phase lock time counter.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return lock time in milliseconds, saturating at 64500.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public int getLockTime(int index) {
+		return getU2(block(index) + 24);
+	}
+
+	/**
+	 * <p>Gives carrier to noise ratio of measurement.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return C/N0 in dBHz.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public int getCNO(int index) {
+		return getU1(block(index) + 26);
+	}
+
+	/**
+	 * <p>Gives tracking status of measurement, bit 0 pseudorange valid, bit 1 carrier phase valid, 
+	 * bit 2 half cycle valid, bit 3 half cycle subtracted.</p>
+	 * 
+	 * @param index index of measurement.
+	 * @return tracking status flags.
+	 * @throws IndexOutOfBoundsException if index is not less than number of measurements.
+	 */
+	public int getTrackingStatus(int index) {
+		return getU1(block(index) + 30);
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+/**
+ * <p>The interface ISerialComURCListener should be implemented by class who wish to receive 
+ * unsolicited result codes (for example +CMTI, +CREG and RING) from SerialComATEngine.</p>
+ * 
+ * <p>Method is called in dispatcher thread of engine, so commands may be executed from it. Views 
+ * are valid only till method returns.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface ISerialComURCListener {
+
+	/**
+	 * <p>This method is called whenever an unsolicited result code matching the prefix with which this 
+	 * listener was added is received.</p>
+	 * 
+	 * @param line the unsolicited result code, for example +CMTI: "SM",3.
+	 * @param body line following it for result codes added with body (for example text of +CMT), 
+	 *         otherwise empty.
+	 */
+	public abstract void onURC(SerialComATLine line, SerialComATLine body);
+}
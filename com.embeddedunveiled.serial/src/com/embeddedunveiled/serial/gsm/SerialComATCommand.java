@@ -0,0 +1,267 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import java.util.Arrays;
+
+import com.embeddedunveiled.serial.SerialComException;
+
+/**
+ * <p>An AT command queued in SerialComATEngine and, once completed, its result and information 
+ * response lines. Lines are kept in a byte buffer of this command and are given as a SerialComATLine 
+ * view, so reading responses does not create a string per line.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComATCommand {
+
+	/** <p>Command is queued or being executed. </p>*/
+	public static final int RESULT_PENDING = 0;
+
+	/** <p>Modem replied OK. </p>*/
+	public static final int RESULT_OK = 1;
+
+	/** <p>Modem replied ERROR. </p>*/
+	public static final int RESULT_ERROR = 2;
+
+	/** <p>Modem replied +CME ERROR, error code is given by getErrorCode. </p>*/
+	public static final int RESULT_CME_ERROR = 3;
+
+	/** <p>Modem replied +CMS ERROR, error code is given by getErrorCode. </p>*/
+	public static final int RESULT_CMS_ERROR = 4;
+
+	/** <p>Modem replied NO CARRIER, BUSY, NO ANSWER or NO DIALTONE, given by getResultLine. </p>*/
+	public static final int RESULT_CALL_FAILED = 5;
+
+	/** <p>Modem replied CONNECT and entered data mode. </p>*/
+	public static final int RESULT_CONNECT = 6;
+
+	/** <p>Modem did not give final result within timeout of command. </p>*/
+	public static final int RESULT_TIMEOUT = 7;
+
+	/** <p>Command could not be written or engine was closed before command completed. </p>*/
+	public static final int RESULT_ABORTED = 8;
+
+	final byte[] command;
+	final byte[] payload;
+	final int payloadLength;
+	final byte[] responsePrefix;
+	final int timeOut;
+	long deadline;
+	boolean commandWritten;
+	boolean promptReceived;
+	boolean payloadSent;
+
+	// guarded by engine lock till completed, immutable afterwards.
+	private byte[] lines = new byte[128];
+	private int[] lineEnd = new int[4];
+	private int numLines;
+	private int resultStart;
+	private int resultEnd;
+	private volatile int result = RESULT_PENDING;
+	private int errorCode = SerialComATLine.NOT_AVAILABLE;
+	private final SerialComATLine view = new SerialComATLine();
+
+	SerialComATCommand(String text, byte[] payload, int payloadLength, int timeOut) {
+		command = new byte[text.length() + 1];
+		for(int x = 0; x < text.length(); x++) {
+			command[x] = (byte) text.charAt(x);
+		}
+		command[text.length()] = '\r';
+		this.payload = payload;
+		this.payloadLength = payloadLength;
+		this.timeOut = timeOut;
+
+		// information response of AT+CREG? is +CREG: so lines with this prefix belong to command.
+		int end = 2;
+		while((end < text.length()) && ("=?;".indexOf(text.charAt(end)) < 0)) {
+			end++;
+		}
+		if((end > 3) && ((text.charAt(0) == 'A') || (text.charAt(0) == 'a')) && (text.charAt(2) == '+')) {
+			responsePrefix = new byte[end - 2 + 1];
+			for(int x = 2; x < end; x++) {
+				responsePrefix[x - 2] = (byte) Character.toUpperCase(text.charAt(x));
+			}
+			responsePrefix[end - 2] = ':';
+		}else {
+			responsePrefix = null;
+		}
+	}
+
+	/* true if given line is echo of this command. */
+	boolean isEcho(byte[] data, int length) {
+		if(length != (command.length - 1)) {
+			return false;
+		}
+		for(int x = 0; x < length; x++) {
+			if(data[x] != command[x]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* true if given line starts with name of this command followed by colon. */
+	boolean isResponse(byte[] data, int length) {
+		if((responsePrefix == null) || (length < responsePrefix.length)) {
+			return false;
+		}
+		for(int x = 0; x < responsePrefix.length; x++) {
+			if(data[x] != responsePrefix[x]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	void addLine(byte[] data, int length) {
+		int start = (numLines == 0) ? 0 : lineEnd[numLines - 1];
+		if((start + length) > lines.length) {
+			lines = Arrays.copyOf(lines, Math.max(lines.length * 2, start + length));
+		}
+		System.arraycopy(data, 0, lines, start, length);
+		if(numLines == lineEnd.length) {
+			lineEnd = Arrays.copyOf(lineEnd, lineEnd.length * 2);
+		}
+		lineEnd[numLines++] = start + length;
+	}
+
+	/* records final result line and wakes up waiting threads. */
+	synchronized void complete(int result, byte[] data, int length) {
+		if(data != null) {
+			addLine(data, length);
+			numLines--;
+			resultStart = (numLines == 0) ? 0 : lineEnd[numLines - 1];
+			resultEnd = resultStart + length;
+			if((result == RESULT_CME_ERROR) || (result == RESULT_CMS_ERROR)) {
+				view.wrap(lines, resultStart, length);
+				errorCode = view.getFieldInt(0);
+			}
+		}
+		this.result = result;
+		notifyAll();
+	}
+
+	/**
+	 * <p>Waits till command completes. As every command has a timeout, this method always returns.</p>
+	 * 
+	 * @return result of command, one of RESULT_XXX constants other than RESULT_PENDING.
+	 * @throws SerialComException if thread is interrupted while waiting.
+	 */
+	public synchronized int await() throws SerialComException {
+		while(result == RESULT_PENDING) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SerialComException("Interrupted while waiting for result of AT command !");
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * <p>Tells whether command has completed.</p>
+	 * 
+	 * @return true if result is available.
+	 */
+	public boolean isDone() {
+		return result != RESULT_PENDING;
+	}
+
+	/**
+	 * <p>Gives result of command.</p>
+	 * 
+	 * @return one of RESULT_XXX constants.
+	 */
+	public int getResult() {
+		return result;
+	}
+
+	/**
+	 * <p>Gives error code of +CME ERROR or +CMS ERROR result.</p>
+	 * 
+	 * @return error code or SerialComATLine.NOT_AVAILABLE if result is not an error with numeric code.
+	 */
+	public synchronized int getErrorCode() {
+		return errorCode;
+	}
+
+	/**
+	 * <p>Gives number of information response lines received for this command, excluding echo and 
+	 * final result.</p>
+	 * 
+	 * @return number of lines.
+	 * @throws IllegalStateException if command has not completed.
+	 */
+	public synchronized int getLineCount() {
+		checkDone();
+		return numLines;
+	}
+
+	/**
+	 * <p>Gives view of given information response line. The same view object is returned by every call 
+	 * on this command, so previous view is invalid after this method is called again.</p>
+	 * 
+	 * @param index index of line.
+	 * @return view of line.
+	 * @throws IllegalStateException if command has not completed.
+	 * @throws IndexOutOfBoundsException if index is not less than getLineCount().
+	 */
+	public synchronized SerialComATLine getLine(int index) {
+		checkDone();
+		if((index < 0) || (index >= numLines)) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not less than line count " + numLines + " !");
+		}
+		int start = (index == 0) ? 0 : lineEnd[index - 1];
+		view.wrap(lines, start, lineEnd[index] - start);
+		return view;
+	}
+
+	/**
+	 * <p>Gives view of final result line, for example +CME ERROR: 10. The same view object is returned 
+	 * by getLine.</p>
+	 * 
+	 * @return view of final result line, empty if command timed out or was aborted.
+	 * @throws IllegalStateException if command has not completed.
+	 */
+	public synchronized SerialComATLine getResultLine() {
+		checkDone();
+		view.wrap(lines, resultStart, resultEnd - resultStart);
+		return view;
+	}
+
+	private void checkDone() {
+		if(result == RESULT_PENDING) {
+			throw new IllegalStateException("Command has not completed !");
+		}
+	}
+
+	/**
+	 * <p>Gives command text as written to modem, without carriage return.</p>
+	 */
+	@Override
+	public String toString() {
+		char[] chars = new char[command.length - 1];
+		for(int x = 0; x < chars.length; x++) {
+			chars[x] = (char) command[x];
+		}
+		return new String(chars);
+	}
+}
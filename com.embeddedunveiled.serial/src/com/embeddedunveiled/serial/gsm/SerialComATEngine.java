@@ -0,0 +1,694 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+
+/**
+ * <p>AT command engine for GSM/GPRS modems. Commands are queued and written one after another; the 
+ * next command is written as soon as final result code of the previous one (OK, ERROR, +CME ERROR, 
+ * +CMS ERROR etc.) is received, or after an optional inter command delay, instead of waiting a fixed 
+ * time after every command. Every command has its own timeout after which it completes with 
+ * RESULT_TIMEOUT and the queue moves on.</p>
+ * 
+ * <p>The engine is a data listener; bytes from modem are split in lines incrementally in a fixed 
+ * buffer and response lines are copied in the buffer of their command, so no string is created per 
+ * line. Echo of command is skipped. Lines starting with +NAME: of the running command belong to it, 
+ * lines matching a registered unsolicited result code prefix are queued to listeners, and remaining 
+ * lines belong to running command if any. Unsolicited result codes are delivered by a dispatcher 
+ * thread from a fixed ring of MAX_PENDING_URC entries, so a slow listener never delays commands; 
+ * result codes arriving while the ring is full are dropped and counted.</p>
+ * 
+ * <pre>
+ * {@code
+ * SerialComATEngine engine = new SerialComATEngine(scm, handle);
+ * scm.registerDataListener(handle, engine);
+ * engine.addURCListener("+CMTI:", false, smsListener);
+ * SerialComATCommand csq = engine.execute("AT+CSQ", 1000);
+ * int rssi = csq.getLine(0).getFieldInt(0);
+ * }</pre>
+ * 
+ * <p>For commands which prompt with "&gt; " (for example AT+CMGS) a payload is given and is written 
+ * when the prompt is received; payload must contain terminating Ctrl-Z itself.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComATEngine implements ISerialComDataListener {
+
+	/** <p>Longest line kept, longer lines are truncated. </p>*/
+	public static final int MAX_LINE_LENGTH = 512;
+
+	/** <p>Number of unsolicited result codes which can wait for dispatcher thread. </p>*/
+	public static final int MAX_PENDING_URC = 32;
+
+	private final SerialComManager scm;
+	private final long handle;
+	private final OutputStream out;
+	private final Thread mTimerThread;
+	private final Thread mDispatcherThread;
+
+	// guarded by lock.
+	private final Object lock = new Object();
+	private final ArrayDeque<SerialComATCommand> queue = new ArrayDeque<SerialComATCommand>();
+	private SerialComATCommand current;
+	private long nextSendTime;
+	private int interCommandDelay;
+	private volatile boolean closed;
+
+	// used only by timer thread.
+	private ByteBuffer txBuffer = ByteBuffer.allocateDirect(256);
+
+	// used only by thread giving bytes to engine.
+	private final byte[] line = new byte[MAX_LINE_LENGTH];
+	private int lineLength;
+	private final byte[] pendingHeader = new byte[MAX_LINE_LENGTH];
+	private int pendingHeaderLength;
+	private Registration pendingBody;
+	private long numUnhandled;
+
+	// guarded by urcLock.
+	private final Object urcLock = new Object();
+	private final byte[][] urcHeader = new byte[MAX_PENDING_URC][MAX_LINE_LENGTH];
+	private final byte[][] urcBody = new byte[MAX_PENDING_URC][MAX_LINE_LENGTH];
+	private final int[] urcHeaderLength = new int[MAX_PENDING_URC];
+	private final int[] urcBodyLength = new int[MAX_PENDING_URC];
+	private final Registration[] urcRegistration = new Registration[MAX_PENDING_URC];
+	private int urcHead;
+	private int urcCount;
+	private long numDropped;
+
+	private volatile Registration[] registrations = new Registration[0];
+
+	private static final class Registration {
+		final String prefix;
+		final boolean hasBody;
+		final ISerialComURCListener listener;
+
+		Registration(String prefix, boolean hasBody, ISerialComURCListener listener) {
+			this.prefix = prefix;
+			this.hasBody = hasBody;
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * <p>This class runs in as a different thread context, writes commands and payloads and completes 
+	 * commands whose timeout has expired. Writing is done here outside lock so that a port which does 
+	 * not accept bytes never stops the thread which parses modem responses.</p>
+	 */
+	private final class Timer implements Runnable {
+		@Override
+		public void run() {
+			while(true) {
+				SerialComATCommand cmd = null;
+				byte[] data = null;
+				int length = 0;
+				synchronized(lock) {
+					while(data == null) {
+						if(closed) {
+							return;
+						}
+						long now = now();
+						long wait = 0;
+						cmd = current;
+						if(cmd != null) {
+							if(cmd.commandWritten == false) {
+								cmd.commandWritten = true;
+								data = cmd.command;
+								length = cmd.command.length;
+								continue;
+							}
+							if(cmd.promptReceived && (cmd.payloadSent == false)) {
+								cmd.payloadSent = true;
+								data = cmd.payload;
+								length = cmd.payloadLength;
+								continue;
+							}
+							if(now >= cmd.deadline) {
+								finish(SerialComATCommand.RESULT_TIMEOUT, null, 0);
+								continue;
+							}
+							wait = cmd.deadline - now;
+						}else if(queue.isEmpty() == false) {
+							if(now >= nextSendTime) {
+								current = queue.poll();
+								current.deadline = now + current.timeOut;
+								continue;
+							}
+							wait = nextSendTime - now;
+						}
+						try {
+							lock.wait(wait);
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}
+				try {
+					write(data, length, cmd.deadline);
+				} catch (IOException e) {
+					synchronized(lock) {
+						if(current == cmd) {
+							finish(SerialComATCommand.RESULT_ABORTED, null, 0);
+						}
+					}
+					continue;
+				}
+				if(data == cmd.command) {
+					synchronized(lock) {
+						if(current == cmd) {
+							cmd.deadline = now() + cmd.timeOut;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>This class runs in as a different thread context and gives unsolicited result codes to 
+	 * listeners.</p>
+	 */
+	private final class Dispatcher implements Runnable {
+		private final SerialComATLine header = new SerialComATLine();
+		private final SerialComATLine body = new SerialComATLine();
+
+		@Override
+		public void run() {
+			while(true) {
+				int slot;
+				synchronized(urcLock) {
+					while((urcCount == 0) && (closed == false)) {
+						try {
+							urcLock.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					if(urcCount == 0) {
+						return;
+					}
+					slot = urcHead;
+				}
+				header.wrap(urcHeader[slot], 0, urcHeaderLength[slot]);
+				body.wrap(urcBody[slot], 0, urcBodyLength[slot]);
+				try {
+					urcRegistration[slot].listener.onURC(header, body);
+				} catch (RuntimeException e) {
+				}
+				synchronized(urcLock) {
+					urcRegistration[slot] = null;
+					urcHead = (urcHead + 1) % MAX_PENDING_URC;
+					urcCount--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComATEngine object which writes commands to given serial port. Engine 
+	 * must also be registered as data listener on this port.</p>
+	 * 
+	 * @param scm SerialComManager instance through which port has been opened.
+	 * @param handle handle of the port to which modem is connected.
+	 * @throws IllegalArgumentException if scm is null.
+	 */
+	public SerialComATEngine(SerialComManager scm, long handle) {
+		if(scm == null) {
+			throw new IllegalArgumentException("Argument scm can not be null !");
+		}
+		this.scm = scm;
+		this.handle = handle;
+		this.out = null;
+		mTimerThread = new Thread(new Timer(), "SCM AT engine");
+		mDispatcherThread = new Thread(new Dispatcher(), "SCM URC dispatcher");
+		start();
+	}
+
+	/**
+	 * <p>Allocates a new SerialComATEngine object which writes commands to given stream, for example a 
+	 * multiplexer channel. Bytes received from modem must be given to onNewSerialDataAvailable.</p>
+	 * 
+	 * @param out stream to which commands will be written.
+	 * @throws IllegalArgumentException if out is null.
+	 */
+	public SerialComATEngine(OutputStream out) {
+		if(out == null) {
+			throw new IllegalArgumentException("Argument out can not be null !");
+		}
+		this.scm = null;
+		this.handle = -1;
+		this.out = out;
+		mTimerThread = new Thread(new Timer(), "SCM AT engine");
+		mDispatcherThread = new Thread(new Dispatcher(), "SCM URC dispatcher");
+		start();
+	}
+
+	private void start() {
+		mTimerThread.setDaemon(true);
+		mDispatcherThread.setDaemon(true);
+		mTimerThread.start();
+		mDispatcherThread.start();
+	}
+
+	private static long now() {
+		return System.nanoTime() / 1000000L;
+	}
+
+	/**
+	 * <p>Sets time to wait after final result of a command before next command is written. Some modems 
+	 * need a short guard time after certain commands; default is 0.</p>
+	 * 
+	 * @param delay delay in milliseconds.
+	 * @throws IllegalArgumentException if delay is negative.
+	 */
+	public void setInterCommandDelay(int delay) {
+		if(delay < 0) {
+			throw new IllegalArgumentException("Argument delay can not be negative !");
+		}
+		synchronized(lock) {
+			interCommandDelay = delay;
+		}
+	}
+
+	/**
+	 * <p>Queues given command and returns without waiting for it to be executed.</p>
+	 * 
+	 * @param command command without carriage return, for example AT+CSQ.
+	 * @param timeOut time in milliseconds to wait for final result once command has been written.
+	 * @return queued command, completes when final result is received or timeout expires.
+	 * @throws IllegalArgumentException if command is null or empty or timeOut is not positive.
+	 * @throws IllegalStateException if engine has been closed.
+	 */
+	public SerialComATCommand send(String command, int timeOut) {
+		return send(command, null, timeOut);
+	}
+
+	/**
+	 * <p>Queues given command which prompts for data, for example AT+CMGS, and returns without waiting 
+	 * for it to be executed. Payload is written when modem sends prompt.</p>
+	 * 
+	 * @param command command without carriage return.
+	 * @param payload bytes to write after prompt including terminating Ctrl-Z, null if command does not 
+	 *         prompt.
+	 * @param timeOut time in milliseconds to wait for final result once command has been written.
+	 * @return queued command, completes when final result is received or timeout expires.
+	 * @throws IllegalArgumentException if command is null or empty or timeOut is not positive.
+	 * @throws IllegalStateException if engine has been closed.
+	 */
+	public SerialComATCommand send(String command, byte[] payload, int timeOut) {
+		return send(command, payload, (payload == null) ? 0 : payload.length, timeOut);
+	}
+
+	/**
+	 * <p>Queues given command which prompts for data and returns without waiting for it to be executed. 
+	 * First payloadLength bytes of payload are written when modem sends prompt, so a buffer reused for 
+	 * every message can be given; it must not be modified till command completes.</p>
+	 * 
+	 * @param command command without carriage return.
+	 * @param payload buffer containing bytes to write after prompt including terminating Ctrl-Z.
+	 * @param payloadLength number of bytes from start of payload to write.
+	 * @param timeOut time in milliseconds to wait for final result once command has been written.
+	 * @return queued command, completes when final result is received or timeout expires.
+	 * @throws IllegalArgumentException if command is null or empty, timeOut is not positive or 
+	 *          payloadLength does not fit in payload.
+	 * @throws IllegalStateException if engine has been closed.
+	 */
+	public SerialComATCommand send(String command, byte[] payload, int payloadLength, int timeOut) {
+		if((command == null) || (command.length() == 0)) {
+			throw new IllegalArgumentException("Argument command can not be null or empty !");
+		}
+		if(timeOut <= 0) {
+			throw new IllegalArgumentException("Argument timeOut must be positive !");
+		}
+		if((payloadLength < 0) || (payloadLength > ((payload == null) ? 0 : payload.length))) {
+			throw new IllegalArgumentException("Argument payloadLength does not fit in payload !");
+		}
+		SerialComATCommand cmd = new SerialComATCommand(command, payload, payloadLength, timeOut);
+		synchronized(lock) {
+			if(closed) {
+				throw new IllegalStateException("Engine has been closed !");
+			}
+			queue.add(cmd);
+			lock.notifyAll();
+		}
+		return cmd;
+	}
+
+	/**
+	 * <p>Queues given command and waits till it completes.</p>
+	 * 
+	 * @param command command without carriage return.
+	 * @param timeOut time in milliseconds to wait for final result once command has been written.
+	 * @return completed command.
+	 * @throws SerialComException if thread is interrupted while waiting.
+	 * @throws IllegalArgumentException if command is null or empty or timeOut is not positive.
+	 * @throws IllegalStateException if engine has been closed.
+	 */
+	public SerialComATCommand execute(String command, int timeOut) throws SerialComException {
+		SerialComATCommand cmd = send(command, null, timeOut);
+		cmd.await();
+		return cmd;
+	}
+
+	/* called with lock held, completes running command so that timer thread moves queue. */
+	private void finish(int result, byte[] data, int length) {
+		SerialComATCommand cmd = current;
+		current = null;
+		cmd.complete(result, data, length);
+		nextSendTime = now() + interCommandDelay;
+		lock.notifyAll();
+	}
+
+	/* called by timer thread only, without lock held. Gives up when port accepts no bytes till 
+	 * deadline or engine is closed. */
+	private void write(byte[] data, int length, long deadline) throws IOException {
+		if(out != null) {
+			out.write(data, 0, length);
+			out.flush();
+			return;
+		}
+		if(txBuffer.capacity() < length) {
+			txBuffer = ByteBuffer.allocateDirect(length);
+		}
+		txBuffer.clear();
+		txBuffer.put(data, 0, length);
+		int offset = 0;
+		while(offset < length) {
+			int num = scm.writeBytesDirect(handle, txBuffer, offset, length - offset);
+			if(num > 0) {
+				offset += num;
+				continue;
+			}
+			if(closed || (now() >= deadline)) {
+				throw new SerialComException("Port did not accept bytes within timeout of command !");
+			}
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				throw new SerialComException("Interrupted while writing command !");
+			}
+		}
+	}
+
+	/**
+	 * <p>Adds listener for unsolicited result codes starting with given prefix. When more than one 
+	 * prefix matches a line, listener added first gets it.</p>
+	 * 
+	 * @param prefix start of result code, for example +CMTI: or RING.
+	 * @param hasBody true if result code is followed by one more line which belongs to it, for example 
+	 *         text of SMS after +CMT: header.
+	 * @param listener listener to be called.
+	 * @throws IllegalArgumentException if prefix or listener is null or prefix is empty.
+	 */
+	public void addURCListener(String prefix, boolean hasBody, ISerialComURCListener listener) {
+		if((prefix == null) || (prefix.length() == 0)) {
+			throw new IllegalArgumentException("Argument prefix can not be null or empty !");
+		}
+		if(listener == null) {
+			throw new IllegalArgumentException("Argument listener can not be null !");
+		}
+		synchronized(lock) {
+			Registration[] updated = new Registration[registrations.length + 1];
+			System.arraycopy(registrations, 0, updated, 0, registrations.length);
+			updated[registrations.length] = new Registration(prefix, hasBody, listener);
+			registrations = updated;
+		}
+	}
+
+	/**
+	 * <p>Removes given listener for all prefixes it was added with.</p>
+	 * 
+	 * @param listener listener to be removed.
+	 * @return true if listener was found.
+	 */
+	public boolean removeURCListener(ISerialComURCListener listener) {
+		synchronized(lock) {
+			int count = 0;
+			for(Registration r : registrations) {
+				if(r.listener != listener) {
+					count++;
+				}
+			}
+			if(count == registrations.length) {
+				return false;
+			}
+			Registration[] updated = new Registration[count];
+			int x = 0;
+			for(Registration r : registrations) {
+				if(r.listener != listener) {
+					updated[x++] = r;
+				}
+			}
+			registrations = updated;
+			return true;
+		}
+	}
+
+	/**
+	 * <p>Splits given bytes received from modem in lines and processes them.</p>
+	 * 
+	 * @param data bytes received from modem.
+	 */
+	@Override
+	public void onNewSerialDataAvailable(byte[] data) {
+		parse(data, 0, data.length);
+	}
+
+	/**
+	 * <p>Drops partially received line as bytes may have been lost.</p>
+	 * 
+	 * @param errorNum operating system specific error number.
+	 */
+	@Override
+	public void onDataListenerError(int errorNum) {
+		lineLength = 0;
+		pendingBody = null;
+	}
+
+	/**
+	 * <p>Splits given bytes received from modem in lines and processes them. Bytes must be given from 
+	 * one thread at a time.</p>
+	 * 
+	 * @param data buffer containing bytes received from modem.
+	 * @param offset position of first byte in buffer.
+	 * @param length number of bytes to process.
+	 * @throws IllegalArgumentException if data is null.
+	 * @throws IndexOutOfBoundsException if offset and length do not fit in data.
+	 */
+	public void parse(byte[] data, int offset, int length) {
+		if(data == null) {
+			throw new IllegalArgumentException("Argument data can not be null !");
+		}
+		if((offset < 0) || (length < 0) || (length > (data.length - offset))) {
+			throw new IndexOutOfBoundsException("Index violation detected !");
+		}
+		int end = offset + length;
+		for(int x = offset; x < end; x++) {
+			byte b = data[x];
+			if((b == '\r') || (b == '\n')) {
+				if(lineLength > 0) {
+					processLine();
+					lineLength = 0;
+				}
+				continue;
+			}
+			if(lineLength < MAX_LINE_LENGTH) {
+				line[lineLength++] = b;
+			}
+			if((lineLength == 2) && (line[0] == '>') && (line[1] == ' ')) {
+				prompt();
+			}
+		}
+	}
+
+	private void prompt() {
+		synchronized(lock) {
+			SerialComATCommand cmd = current;
+			if((cmd == null) || (cmd.payload == null) || cmd.promptReceived) {
+				return;
+			}
+			cmd.promptReceived = true;
+			lineLength = 0;
+			lock.notifyAll();
+		}
+	}
+
+	private static int finalResult(byte[] data, int length) {
+		switch(data[0]) {
+		case 'O':
+			return ((length == 2) && (data[1] == 'K')) ? SerialComATCommand.RESULT_OK : 0;
+		case 'E':
+			return ((length == 5) && SerialComATLine.regionMatches(data, 0, length, "ERROR")) ? SerialComATCommand.RESULT_ERROR : 0;
+		case '+':
+			if(SerialComATLine.regionMatches(data, 0, length, "+CME ERROR")) {
+				return SerialComATCommand.RESULT_CME_ERROR;
+			}
+			return SerialComATLine.regionMatches(data, 0, length, "+CMS ERROR") ? SerialComATCommand.RESULT_CMS_ERROR : 0;
+		case 'N':
+			if(((length == 10) && SerialComATLine.regionMatches(data, 0, length, "NO CARRIER")) 
+					|| ((length == 9) && SerialComATLine.regionMatches(data, 0, length, "NO ANSWER")) 
+					|| ((length == 11) && SerialComATLine.regionMatches(data, 0, length, "NO DIALTONE"))) {
+				return SerialComATCommand.RESULT_CALL_FAILED;
+			}
+			return 0;
+		case 'B':
+			return ((length == 4) && SerialComATLine.regionMatches(data, 0, length, "BUSY")) ? SerialComATCommand.RESULT_CALL_FAILED : 0;
+		case 'C':
+			return SerialComATLine.regionMatches(data, 0, length, "CONNECT") ? SerialComATCommand.RESULT_CONNECT : 0;
+		default:
+			return 0;
+		}
+	}
+
+	private Registration matchURC() {
+		Registration[] all = registrations;
+		for(int x = 0; x < all.length; x++) {
+			if(SerialComATLine.regionMatches(line, 0, lineLength, all[x].prefix)) {
+				return all[x];
+			}
+		}
+		return null;
+	}
+
+	private void processLine() {
+		if(pendingBody != null) {
+			Registration r = pendingBody;
+			pendingBody = null;
+			queueURC(r, pendingHeader, pendingHeaderLength, line, lineLength);
+			return;
+		}
+
+		Registration r;
+		synchronized(lock) {
+			SerialComATCommand cmd = current;
+			if(cmd != null) {
+				if(cmd.isEcho(line, lineLength)) {
+					return;
+				}
+				int result = finalResult(line, lineLength);
+				if(result != 0) {
+					finish(result, line, lineLength);
+					return;
+				}
+				if(cmd.isResponse(line, lineLength)) {
+					cmd.addLine(line, lineLength);
+					return;
+				}
+			}
+			r = matchURC();
+			if(r == null) {
+				if(cmd != null) {
+					cmd.addLine(line, lineLength);
+				}else {
+					numUnhandled++;
+				}
+				return;
+			}
+			if(r.hasBody) {
+				System.arraycopy(line, 0, pendingHeader, 0, lineLength);
+				pendingHeaderLength = lineLength;
+				pendingBody = r;
+				return;
+			}
+		}
+		queueURC(r, line, lineLength, line, 0);
+	}
+
+	private void queueURC(Registration r, byte[] header, int headerLength, byte[] body, int bodyLength) {
+		synchronized(urcLock) {
+			if(urcCount == MAX_PENDING_URC) {
+				numDropped++;
+				return;
+			}
+			int slot = (urcHead + urcCount) % MAX_PENDING_URC;
+			System.arraycopy(header, 0, urcHeader[slot], 0, headerLength);
+			System.arraycopy(body, 0, urcBody[slot], 0, bodyLength);
+			urcHeaderLength[slot] = headerLength;
+			urcBodyLength[slot] = bodyLength;
+			urcRegistration[slot] = r;
+			urcCount++;
+			urcLock.notifyAll();
+		}
+	}
+
+	/**
+	 * <p>Gives number of unsolicited result codes dropped because dispatcher thread could not keep up.</p>
+	 * 
+	 * @return number of result codes.
+	 */
+	public long getNumberOfDroppedURCs() {
+		synchronized(urcLock) {
+			return numDropped;
+		}
+	}
+
+	/**
+	 * <p>Gives number of lines received while no command was running which did not match any 
+	 * registered unsolicited result code.</p>
+	 * 
+	 * @return number of lines.
+	 */
+	public long getNumberOfUnhandledLines() {
+		synchronized(lock) {
+			return numUnhandled;
+		}
+	}
+
+	/**
+	 * <p>Completes running and queued commands with RESULT_ABORTED and terminates threads of engine. 
+	 * Engine should be unregistered as data listener by application.</p>
+	 */
+	public void close() {
+		synchronized(lock) {
+			if(closed) {
+				return;
+			}
+			closed = true;
+			if(current != null) {
+				SerialComATCommand cmd = current;
+				current = null;
+				cmd.complete(SerialComATCommand.RESULT_ABORTED, null, 0);
+			}
+			SerialComATCommand cmd;
+			while((cmd = queue.poll()) != null) {
+				cmd.complete(SerialComATCommand.RESULT_ABORTED, null, 0);
+			}
+			lock.notifyAll();
+		}
+		synchronized(urcLock) {
+			urcLock.notifyAll();
+		}
+		try {
+			mTimerThread.join();
+			if(Thread.currentThread() != mDispatcherThread) {
+				mDispatcherThread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+/**
+ * <p>Flyweight view of one line received from a modem, without line terminator. Accessors read 
+ * characters directly from the buffer holding the line and do not create objects, except 
+ * getFieldString and toString.</p>
+ * 
+ * <p>Information responses have form +NAME: field,field,... where a field may be a quoted string 
+ * which can contain commas. Fields are counted from 0 starting after ": ", or from start of line if 
+ * line has no such prefix.</p>
+ * 
+ * <p>A view is reused, so application must copy what it needs to keep once the method which gave it 
+ * returns.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComATLine {
+
+	/** <p>Value given by getFieldInt when field is empty, absent or not a number. </p>*/
+	public static final int NOT_AVAILABLE = Integer.MIN_VALUE;
+
+	private byte[] data;
+	private int offset;
+	private int length;
+
+	SerialComATLine() {
+	}
+
+	void wrap(byte[] data, int offset, int length) {
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * <p>Gives number of characters in line.</p>
+	 * 
+	 * @return length of line.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * <p>Gives character at given index.</p>
+	 * 
+	 * @param index index of character.
+	 * @return character.
+	 * @throws IndexOutOfBoundsException if index is not less than length.
+	 */
+	public char charAt(int index) {
+		if((index < 0) || (index >= length)) {
+			throw new IndexOutOfBoundsException("Index " + index + " is outside line of length " + length + " !");
+		}
+		return (char) (data[offset + index] & 0xFF);
+	}
+
+	/**
+	 * <p>Tells whether line starts with given text.</p>
+	 * 
+	 * @param prefix text to compare with.
+	 * @return true if line starts with prefix.
+	 * @throws IllegalArgumentException if prefix is null.
+	 */
+	public boolean startsWith(String prefix) {
+		if(prefix == null) {
+			throw new IllegalArgumentException("Argument prefix can not be null !");
+		}
+		return regionMatches(data, offset, length, prefix);
+	}
+
+	/**
+	 * <p>Tells whether line is exactly given text.</p>
+	 * 
+	 * @param text text to compare with.
+	 * @return true if line and text are same.
+	 * @throws IllegalArgumentException if text is null.
+	 */
+	public boolean contentEquals(String text) {
+		if(text == null) {
+			throw new IllegalArgumentException("Argument text can not be null !");
+		}
+		return (length == text.length()) && regionMatches(data, offset, length, text);
+	}
+
+	static boolean regionMatches(byte[] data, int offset, int length, String prefix) {
+		int num = prefix.length();
+		if(num > length) {
+			return false;
+		}
+		for(int x = 0; x < num; x++) {
+			if((data[offset + x] & 0xFF) != prefix.charAt(x)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* gives index just after ": " of information response, or 0. */
+	private int fieldsStart() {
+		if((length > 0) && (data[offset] == '+')) {
+			for(int x = 1; x < length; x++) {
+				if(data[offset + x] == ':') {
+					return (((x + 1) < length) && (data[offset + x + 1] == ' ')) ? (x + 2) : (x + 1);
+				}
+				if((data[offset + x] == ',') || (data[offset + x] == '"')) {
+					break;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/* gives start of given field in bits 0 to 15 and its end in bits 16 to 31, or -1 if absent. */
+	private int findField(int field) {
+		if(field < 0) {
+			return -1;
+		}
+		int x = fieldsStart();
+		if((x == length) && (field == 0)) {
+			return x | (x << 16);
+		}
+		int current = 0;
+		int start = x;
+		boolean quoted = false;
+		for(; x < length; x++) {
+			byte b = data[offset + x];
+			if(b == '"') {
+				quoted = !quoted;
+			}else if((b == ',') && !quoted) {
+				if(current == field) {
+					return start | (x << 16);
+				}
+				current++;
+				start = x + 1;
+			}
+		}
+		return (current == field) ? (start | (length << 16)) : -1;
+	}
+
+	/**
+	 * <p>Gives number of fields in line.</p>
+	 * 
+	 * @return number of fields.
+	 */
+	public int getFieldCount() {
+		int count = 1;
+		boolean quoted = false;
+		for(int x = fieldsStart(); x < length; x++) {
+			byte b = data[offset + x];
+			if(b == '"') {
+				quoted = !quoted;
+			}else if((b == ',') && !quoted) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Gives value of given field holding an optionally signed whole number, for example 
+	 * getFieldInt(0) gives 21 for +CSQ: 21,99. Surrounding quotes and spaces are ignored.</p>
+	 * 
+	 * @param field index of field.
+	 * @return value or NOT_AVAILABLE if field is empty, absent or not a number.
+	 */
+	public int getFieldInt(int field) {
+		int range = findField(field);
+		if(range < 0) {
+			return NOT_AVAILABLE;
+		}
+		int x = range & 0xFFFF;
+		int end = range >>> 16;
+		while((x < end) && ((data[offset + x] == ' ') || (data[offset + x] == '"'))) {
+			x++;
+		}
+		while((end > x) && ((data[offset + end - 1] == ' ') || (data[offset + end - 1] == '"'))) {
+			end--;
+		}
+		boolean negative = false;
+		if((x < end) && ((data[offset + x] == '-') || (data[offset + x] == '+'))) {
+			negative = data[offset + x] == '-';
+			x++;
+		}
+		if(x == end) {
+			return NOT_AVAILABLE;
+		}
+		long value = 0;
+		for(; x < end; x++) {
+			int c = data[offset + x];
+			if((c < '0') || (c > '9')) {
+				return NOT_AVAILABLE;
+			}
+			value = (value * 10) + (c - '0');
+			if(value > Integer.MAX_VALUE) {
+				return NOT_AVAILABLE;
+			}
+		}
+		return negative ? (int) -value : (int) value;
+	}
+
+	/**
+	 * <p>Gives given field as string, without surrounding quotes. This method creates objects.</p>
+	 * 
+	 * @param field index of field.
+	 * @return field or null if line does not have that many fields.
+	 */
+	public String getFieldString(int field) {
+		int range = findField(field);
+		if(range < 0) {
+			return null;
+		}
+		int x = range & 0xFFFF;
+		int end = range >>> 16;
+		if(((end - x) >= 2) && (data[offset + x] == '"') && (data[offset + end - 1] == '"')) {
+			x++;
+			end--;
+		}
+		return text(x, end);
+	}
+
+	private String text(int begin, int end) {
+		char[] chars = new char[end - begin];
+		for(int x = begin; x < end; x++) {
+			chars[x - begin] = (char) (data[offset + x] & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * <p>Copies characters of line in given buffer.</p>
+	 * 
+	 * @param buffer buffer in which line will be copied.
+	 * @param bufOffset position in buffer from where to start copying.
+	 * @return number of bytes copied.
+	 * @throws IllegalArgumentException if buffer is null.
+	 * @throws IndexOutOfBoundsException if line does not fit in buffer.
+	 */
+	public int getBytes(byte[] buffer, int bufOffset) {
+		if(buffer == null) {
+			throw new IllegalArgumentException("Argument buffer can not be null !");
+		}
+		System.arraycopy(data, offset, buffer, bufOffset, length);
+		return length;
+	}
+
+	/**
+	 * <p>Gives line as string. This method creates objects and is meant for logging and for text 
+	 * which is not parsed by other accessors, for example body of an SMS.</p>
+	 */
+	@Override
+	public String toString() {
+		return text(0, length);
+	}
+}
@@ -0,0 +1,787 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComTimeOutException;
+
+/**
+ * <p>Implements basic option of 3GPP TS 27.010 multiplexer protocol, so that AT commands, packet data 
+ * and GNSS sentences can be exchanged at the same time with a cellular module over its single serial 
+ * port. Application first switches modem in multiplexer mode (usually AT+CMUX=0 with frame size 
+ * matching the one given here) and then opens multiplexer and channels.</p>
+ * 
+ * <pre>
+ * {@code
+ * SerialComCMUX mux = new SerialComCMUX(scm, handle, 127);
+ * mux.open(3000);
+ * SerialComCMUXChannel at = mux.openChannel(1, 3000);
+ * SerialComATEngine engine = new SerialComATEngine(at.getOutputStream());
+ * at.setDataListener(engine);
+ * SerialComCMUXChannel ppp = mux.openChannel(2, 3000);
+ * }</pre>
+ * 
+ * <p>Frame check sequence is calculated with a 256 entry table. A single writer thread sends frames; 
+ * control channel frames (open/close, modem status and flow control messages) are always sent before 
+ * data, and channels having data are served round robin one frame at a time, so a busy data channel 
+ * neither starves control channel nor other channels. Flow of each channel is controlled 
+ * independently through FC bit of modem status command; global FCon/FCoff from modem is also obeyed.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComCMUX implements ISerialComDataListener {
+
+	/** <p>Default maximum information field length (N1) of basic option. </p>*/
+	public static final int DEFAULT_FRAME_SIZE = 31;
+
+	/** <p>Largest data link connection identifier. </p>*/
+	public static final int MAX_DLCI = 63;
+
+	/** <p>Size of receive and transmit buffer of every channel. </p>*/
+	public static final int CHANNEL_BUFFER_SIZE = 16384;
+
+	/** <p>Time in milliseconds after which multiplexer is stopped if serial port accepts no byte of a frame. </p>*/
+	public static final int WRITE_TIMEOUT = 5000;
+
+	static final int FLAG = 0xF9;
+	static final int SABM = 0x2F;
+	static final int UA = 0x63;
+	static final int DM = 0x0F;
+	static final int DISC = 0x43;
+	static final int UIH = 0xEF;
+	static final int UI = 0x03;
+	static final int PF = 0x10;
+
+	// control channel message types without EA and C/R bits.
+	static final int MSG_PN = 0x80;
+	static final int MSG_TEST = 0x20;
+	static final int MSG_FCON = 0xA0;
+	static final int MSG_FCOFF = 0x60;
+	static final int MSG_MSC = 0xE0;
+	static final int MSG_NSC = 0x10;
+	static final int MSG_CLD = 0xC0;
+
+	// V.24 signals octet of modem status command.
+	static final int SIGNAL_FC = 0x02;
+	static final int SIGNAL_RTC = 0x04;
+	static final int SIGNAL_RTR = 0x08;
+	static final int SIGNAL_DV = 0x80;
+
+	private static final int[] FCS_TABLE = new int[256];
+	static {
+		// reversed x^8 + x^2 + x + 1.
+		for(int x = 0; x < 256; x++) {
+			int crc = x;
+			for(int y = 0; y < 8; y++) {
+				crc = ((crc & 1) != 0) ? ((crc >>> 1) ^ 0xE0) : (crc >>> 1);
+			}
+			FCS_TABLE[x] = crc;
+		}
+	}
+
+	private static final int RX_HUNT = 0;
+	private static final int RX_ADDRESS = 1;
+	private static final int RX_CONTROL = 2;
+	private static final int RX_LENGTH = 3;
+	private static final int RX_LENGTH2 = 4;
+	private static final int RX_DATA = 5;
+	private static final int RX_FCS = 6;
+	private static final int RX_END = 7;
+
+	private final SerialComManager scm;
+	private final long handle;
+	private final int maxFrameSize;
+	private Thread mWriterThread;
+
+	// guarded by lock.
+	final Object lock = new Object();
+	private final SerialComCMUXChannel control;
+	private final SerialComCMUXChannel[] channels = new SerialComCMUXChannel[MAX_DLCI + 1];
+	private final ArrayDeque<byte[]> controlQueue = new ArrayDeque<byte[]>();
+	private boolean running;
+	private SerialComException writeFailure;
+	private boolean globalFlowStopped;
+	private int lastServed;
+
+	// used only by receiver thread.
+	private final byte[] rxFrame;
+	private int rxState;
+	private int rxAddress;
+	private int rxControl;
+	private int rxLength;
+	private int rxIndex;
+	private int rxCrc;
+	private volatile long numFCSErrors;
+	private volatile long numDiscarded;
+
+	/**
+	 * <p>This class runs in as a different thread context and writes frames to serial port.</p>
+	 */
+	private final class Writer implements Runnable {
+		@Override
+		public void run() {
+			ByteBuffer frame = ByteBuffer.allocateDirect(maxFrameSize + 8);
+			byte[] header = new byte[5];
+			while(true) {
+				synchronized(lock) {
+					byte[] controlFrame;
+					SerialComCMUXChannel ch = null;
+					while(true) {
+						controlFrame = controlQueue.poll();
+						if(controlFrame != null) {
+							break;
+						}
+						if(!running) {
+							return;
+						}
+						ch = nextChannel();
+						if(ch != null) {
+							break;
+						}
+						try {
+							lock.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+
+					frame.clear();
+					if(controlFrame != null) {
+						frame.put(controlFrame);
+					}else {
+						int length = Math.min(ch.txCount, maxFrameSize);
+						int headerLength = encodeHeader(header, ch.dlci, true, UIH, length);
+						frame.put(header, 0, headerLength);
+						int first = Math.min(length, ch.txBuffer.length - ch.txHead);
+						frame.put(ch.txBuffer, ch.txHead, first);
+						frame.put(ch.txBuffer, 0, length - first);
+						frame.put((byte) (0xFF - fcs(header, 1, headerLength - 1)));
+						frame.put((byte) FLAG);
+						ch.txHead = (ch.txHead + length) % ch.txBuffer.length;
+						ch.txCount -= length;
+						lock.notifyAll();
+					}
+					frame.flip();
+				}
+
+				try {
+					if(writeFrame(frame) == false) {
+						return;
+					}
+				} catch (SerialComException e) {
+					synchronized(lock) {
+						if(running) {
+							writeFailure = e;
+						}
+						running = false;
+						closeAll();
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	/* writes whole frame, backing off while port accepts no byte (flow control or stalled modem). 
+	 * Gives false if multiplexer is being stopped. */
+	private boolean writeFrame(ByteBuffer frame) throws SerialComException {
+		int offset = 0;
+		int length = frame.limit();
+		long deadline = System.nanoTime() + (WRITE_TIMEOUT * 1000000L);
+		while(offset < length) {
+			int numBytes = scm.writeBytesDirect(handle, frame, offset, length - offset);
+			if(numBytes > 0) {
+				offset += numBytes;
+				deadline = System.nanoTime() + (WRITE_TIMEOUT * 1000000L);
+				continue;
+			}
+			synchronized(lock) {
+				if(running == false) {
+					return false;
+				}
+			}
+			if((System.nanoTime() - deadline) >= 0) {
+				throw new SerialComException("Serial port did not accept any byte of frame within " + WRITE_TIMEOUT + " ms !");
+			}
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* called with lock held, gives reason why writer stopped the multiplexer or null. */
+	SerialComException getWriteFailure() {
+		return writeFailure;
+	}
+
+	/**
+	 * <p>Allocates a new SerialComCMUX object for the given port.</p>
+	 * 
+	 * @param scm SerialComManager instance through which port has been opened.
+	 * @param handle handle of the port to which modem is connected.
+	 * @param maxFrameSize maximum information field length (N1) configured in modem.
+	 * @throws IllegalArgumentException if scm is null or maxFrameSize is not between 1 and 32768.
+	 */
+	public SerialComCMUX(SerialComManager scm, long handle, int maxFrameSize) {
+		if(scm == null) {
+			throw new IllegalArgumentException("Argument scm can not be null !");
+		}
+		if((maxFrameSize < 1) || (maxFrameSize > 32768)) {
+			throw new IllegalArgumentException("Argument maxFrameSize must be between 1 and 32768 !");
+		}
+		this.scm = scm;
+		this.handle = handle;
+		this.maxFrameSize = maxFrameSize;
+		rxFrame = new byte[maxFrameSize];
+		control = new SerialComCMUXChannel(this, lock, 0, 0);
+	}
+
+	/**
+	 * <p>Calculates frame check sequence register over given bytes. Transmitted FCS is 0xFF minus 
+	 * the returned value; over a received frame including its FCS the value is 0xCF.</p>
+	 */
+	static int fcs(byte[] data, int offset, int length) {
+		int crc = 0xFF;
+		for(int x = offset; x < (offset + length); x++) {
+			crc = FCS_TABLE[(crc ^ data[x]) & 0xFF];
+		}
+		return crc;
+	}
+
+	/* puts opening flag, address, control and length fields and returns number of bytes put. */
+	static int encodeHeader(byte[] frame, int dlci, boolean command, int controlField, int length) {
+		frame[0] = (byte) FLAG;
+		frame[1] = (byte) ((dlci << 2) | (command ? 0x02 : 0x00) | 0x01);
+		frame[2] = (byte) controlField;
+		if(length < 128) {
+			frame[3] = (byte) ((length << 1) | 0x01);
+			return 4;
+		}
+		frame[3] = (byte) ((length & 0x7F) << 1);
+		frame[4] = (byte) (length >>> 7);
+		return 5;
+	}
+
+	/**
+	 * <p>Builds a complete frame. Command frames are the ones sent by initiator of multiplexer 
+	 * (this end) as commands and by responder as responses.</p>
+	 */
+	static byte[] encodeFrame(int dlci, boolean command, int controlField, byte[] info, int offset, int length) {
+		byte[] frame = new byte[length + 7];
+		int x = encodeHeader(frame, dlci, command, controlField, length);
+		int headerLength = x;
+		if(length > 0) {
+			System.arraycopy(info, offset, frame, x, length);
+			x += length;
+		}
+		int crc = ((controlField & ~PF) == UI) ? fcs(frame, 1, x - 1) : fcs(frame, 1, headerLength - 1);
+		frame[x++] = (byte) (0xFF - crc);
+		frame[x++] = (byte) FLAG;
+		return Arrays.copyOf(frame, x);
+	}
+
+	/* called with lock held. */
+	private void queueFrame(int dlci, boolean command, int controlField, byte[] info, int offset, int length) {
+		controlQueue.add(encodeFrame(dlci, command, controlField, info, offset, length));
+		lock.notifyAll();
+	}
+
+	/* called with lock held, sends a control channel message. */
+	private void queueMessage(int type, byte[] value, int offset, int length) {
+		byte[] info = new byte[length + 3];
+		info[0] = (byte) type;
+		int x;
+		if(length < 128) {
+			info[1] = (byte) ((length << 1) | 0x01);
+			x = 2;
+		}else {
+			info[1] = (byte) ((length & 0x7F) << 1);
+			info[2] = (byte) (length >>> 7);
+			x = 3;
+		}
+		if(length > 0) {
+			System.arraycopy(value, offset, info, x, length);
+		}
+		queueFrame(0, true, UIH, info, 0, x + length);
+	}
+
+	/* called with lock held, sends modem status command for given channel. */
+	void queueModemStatus(int dlci, boolean stopFlow) {
+		int signals = 0x01 | SIGNAL_RTC | SIGNAL_RTR | SIGNAL_DV | (stopFlow ? SIGNAL_FC : 0);
+		queueMessage(MSG_MSC | 0x03, new byte[] { (byte) ((dlci << 2) | 0x03), (byte) signals }, 0, 2);
+	}
+
+	/* called with lock held, selects next channel having data which may be sent. */
+	private SerialComCMUXChannel nextChannel() {
+		if(globalFlowStopped) {
+			return null;
+		}
+		for(int x = 1; x <= MAX_DLCI; x++) {
+			int dlci = ((lastServed + x - 1) % MAX_DLCI) + 1;
+			SerialComCMUXChannel ch = channels[dlci];
+			if((ch != null) && (ch.state == SerialComCMUXChannel.OPEN) && (ch.txCount > 0) && !ch.remoteFlowStopped) {
+				lastServed = dlci;
+				return ch;
+			}
+		}
+		return null;
+	}
+
+	/* called with lock held. */
+	private void closeAll() {
+		for(SerialComCMUXChannel ch : channels) {
+			if(ch != null) {
+				ch.state = SerialComCMUXChannel.CLOSED;
+			}
+		}
+		control.state = SerialComCMUXChannel.CLOSED;
+		lock.notifyAll();
+	}
+
+	/* called with lock held, waits while channel is opening or closing and returns final state. */
+	private int waitForState(SerialComCMUXChannel ch, int timeOut) throws SerialComException {
+		long deadline = System.nanoTime() + (timeOut * 1000000L);
+		while((ch.state == SerialComCMUXChannel.OPENING) || (ch.state == SerialComCMUXChannel.CLOSING)) {
+			long remaining = (deadline - System.nanoTime()) / 1000000L;
+			if(remaining <= 0) {
+				break;
+			}
+			try {
+				lock.wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SerialComException("Interrupted while waiting for response from modem !");
+			}
+		}
+		return ch.state;
+	}
+
+	/**
+	 * <p>Starts multiplexer by registering it as data listener on port and opening control channel 
+	 * (DLCI 0). Modem must already have been switched to multiplexer mode.</p>
+	 * 
+	 * @param timeOut time in milliseconds to wait for modem to acknowledge.
+	 * @throws SerialComTimeOutException if modem does not respond in time.
+	 * @throws SerialComException if modem refuses, multiplexer is already open or an I/O error occurs.
+	 */
+	public void open(int timeOut) throws SerialComException, SerialComTimeOutException {
+		synchronized(lock) {
+			if(running) {
+				throw new SerialComException("Multiplexer is already open !");
+			}
+			running = true;
+			writeFailure = null;
+			globalFlowStopped = false;
+			rxState = RX_HUNT;
+			control.state = SerialComCMUXChannel.OPENING;
+		}
+		mWriterThread = new Thread(new Writer(), "SCM CMUX writer");
+		mWriterThread.setDaemon(true);
+		mWriterThread.start();
+		try {
+			scm.registerDataListener(handle, this);
+		} catch (SerialComException e) {
+			stopWriter();
+			throw e;
+		}
+
+		int state;
+		synchronized(lock) {
+			queueFrame(0, true, SABM | PF, null, 0, 0);
+			state = waitForState(control, timeOut);
+			if(state != SerialComCMUXChannel.OPEN) {
+				control.state = SerialComCMUXChannel.CLOSED;
+			}
+		}
+		if(state == SerialComCMUXChannel.OPEN) {
+			return;
+		}
+		stop();
+		if(state == SerialComCMUXChannel.OPENING) {
+			throw new SerialComTimeOutException("Modem did not acknowledge control channel !");
+		}
+		throw new SerialComException("Modem refused to open control channel !");
+	}
+
+	/**
+	 * <p>Opens given channel (SABM) and sends modem status command with RTC, RTR and DV set.</p>
+	 * 
+	 * @param dlci data link connection identifier from 1 to 63.
+	 * @param timeOut time in milliseconds to wait for modem to acknowledge.
+	 * @return opened channel.
+	 * @throws SerialComTimeOutException if modem does not respond in time.
+	 * @throws SerialComException if modem refuses, multiplexer is not open or channel is already open.
+	 * @throws IllegalArgumentException if dlci is not between 1 and 63.
+	 */
+	public SerialComCMUXChannel openChannel(int dlci, int timeOut) throws SerialComException, SerialComTimeOutException {
+		if((dlci < 1) || (dlci > MAX_DLCI)) {
+			throw new IllegalArgumentException("Argument dlci must be between 1 and 63 !");
+		}
+		synchronized(lock) {
+			if(control.state != SerialComCMUXChannel.OPEN) {
+				throw new SerialComException("Multiplexer is not open !");
+			}
+			SerialComCMUXChannel ch = channels[dlci];
+			if((ch != null) && (ch.state != SerialComCMUXChannel.CLOSED)) {
+				throw new SerialComException("Channel " + dlci + " is already open !");
+			}
+			ch = new SerialComCMUXChannel(this, lock, dlci, CHANNEL_BUFFER_SIZE);
+			ch.state = SerialComCMUXChannel.OPENING;
+			channels[dlci] = ch;
+			queueFrame(dlci, true, SABM | PF, null, 0, 0);
+			int state = waitForState(ch, timeOut);
+			if(state == SerialComCMUXChannel.OPEN) {
+				queueModemStatus(dlci, false);
+				return ch;
+			}
+			ch.state = SerialComCMUXChannel.CLOSED;
+			if(state == SerialComCMUXChannel.OPENING) {
+				throw new SerialComTimeOutException("Modem did not acknowledge channel " + dlci + " !");
+			}
+			throw new SerialComException("Modem refused to open channel " + dlci + " !");
+		}
+	}
+
+	/* closes given channel, does nothing if it is not open. */
+	void closeChannel(SerialComCMUXChannel ch, int timeOut) throws SerialComException {
+		synchronized(lock) {
+			if(ch.state != SerialComCMUXChannel.OPEN) {
+				return;
+			}
+			ch.state = SerialComCMUXChannel.CLOSING;
+			queueFrame(ch.dlci, true, DISC | PF, null, 0, 0);
+			try {
+				waitForState(ch, timeOut);
+			} finally {
+				ch.state = SerialComCMUXChannel.CLOSED;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * <p>Closes all channels, sends close down command to modem so that it returns to AT command mode, 
+	 * and unregisters multiplexer as data listener.</p>
+	 * 
+	 * @param timeOut time in milliseconds to wait for modem to acknowledge each step.
+	 * @throws SerialComException if thread is interrupted, an I/O error occurs or multiplexer had been 
+	 *          stopped because a frame could not be written to serial port.
+	 */
+	public void close(int timeOut) throws SerialComException {
+		for(int x = 1; x <= MAX_DLCI; x++) {
+			SerialComCMUXChannel ch;
+			synchronized(lock) {
+				ch = channels[x];
+			}
+			if(ch != null) {
+				closeChannel(ch, timeOut);
+			}
+		}
+		SerialComException failure = null;
+		synchronized(lock) {
+			if(!running) {
+				// writer may have stopped multiplexer on its own, data listener is still registered then.
+				failure = writeFailure;
+				if(failure == null) {
+					return;
+				}
+				writeFailure = null;
+			}else if(control.state == SerialComCMUXChannel.OPEN) {
+				control.state = SerialComCMUXChannel.CLOSING;
+				queueMessage(MSG_CLD | 0x03, null, 0, 0);
+				try {
+					waitForState(control, timeOut);
+				} finally {
+					closeAll();
+				}
+			}
+		}
+		stop();
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+	private void stop() throws SerialComException {
+		stopWriter();
+		scm.unregisterDataListener(handle, this);
+	}
+
+	private void stopWriter() {
+		synchronized(lock) {
+			control.state = SerialComCMUXChannel.CLOSED;
+			running = false;
+			lock.notifyAll();
+		}
+		try {
+			mWriterThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * <p>Gives number of frames dropped because their frame check sequence was wrong.</p>
+	 * 
+	 * @return number of frames.
+	 */
+	public long getNumberOfFCSErrors() {
+		return numFCSErrors;
+	}
+
+	/**
+	 * <p>Gives number of frames dropped because they were malformed or longer than frame size.</p>
+	 * 
+	 * @return number of frames.
+	 */
+	public long getNumberOfDiscardedFrames() {
+		return numDiscarded;
+	}
+
+	/**
+	 * <p>Splits bytes received from modem in frames and processes them.</p>
+	 * 
+	 * @param data bytes received from modem.
+	 */
+	@Override
+	public void onNewSerialDataAvailable(byte[] data) {
+		for(int x = 0; x < data.length; x++) {
+			int b = data[x] & 0xFF;
+			switch(rxState) {
+			case RX_HUNT:
+				if(b == FLAG) {
+					rxState = RX_ADDRESS;
+				}
+				break;
+			case RX_ADDRESS:
+				if(b == FLAG) {
+					break;
+				}
+				if((b & 0x01) == 0) {
+					numDiscarded++;
+					rxState = RX_HUNT;
+					break;
+				}
+				rxAddress = b;
+				rxCrc = FCS_TABLE[0xFF ^ b];
+				rxState = RX_CONTROL;
+				break;
+			case RX_CONTROL:
+				rxControl = b;
+				rxCrc = FCS_TABLE[rxCrc ^ b];
+				rxState = RX_LENGTH;
+				break;
+			case RX_LENGTH:
+				rxCrc = FCS_TABLE[rxCrc ^ b];
+				rxLength = b >>> 1;
+				if((b & 0x01) != 0) {
+					lengthReceived();
+				}else {
+					rxState = RX_LENGTH2;
+				}
+				break;
+			case RX_LENGTH2:
+				rxCrc = FCS_TABLE[rxCrc ^ b];
+				rxLength |= b << 7;
+				lengthReceived();
+				break;
+			case RX_DATA:
+				rxFrame[rxIndex++] = (byte) b;
+				if((rxControl & ~PF) == UI) {
+					rxCrc = FCS_TABLE[rxCrc ^ b];
+				}
+				if(rxIndex == rxLength) {
+					rxState = RX_FCS;
+				}
+				break;
+			case RX_FCS:
+				if(FCS_TABLE[rxCrc ^ b] == 0xCF) {
+					rxState = RX_END;
+				}else {
+					numFCSErrors++;
+					rxState = RX_HUNT;
+				}
+				break;
+			case RX_END:
+				if(b == FLAG) {
+					processFrame();
+					rxState = RX_ADDRESS;
+				}else {
+					numDiscarded++;
+					rxState = RX_HUNT;
+				}
+				break;
+			default:
+				rxState = RX_HUNT;
+			}
+		}
+	}
+
+	/**
+	 * <p>Drops partially received frame as bytes may have been lost.</p>
+	 * 
+	 * @param errorNum operating system specific error number.
+	 */
+	@Override
+	public void onDataListenerError(int errorNum) {
+		rxState = RX_HUNT;
+	}
+
+	private void lengthReceived() {
+		if(rxLength > maxFrameSize) {
+			numDiscarded++;
+			rxState = RX_HUNT;
+			return;
+		}
+		rxIndex = 0;
+		rxState = (rxLength == 0) ? RX_FCS : RX_DATA;
+	}
+
+	private void processFrame() {
+		int dlci = rxAddress >>> 2;
+		int type = rxControl & ~PF;
+		ISerialComDataListener listener;
+		synchronized(lock) {
+			SerialComCMUXChannel ch = (dlci == 0) ? control : channels[dlci];
+			switch(type) {
+			case UA:
+				if(ch != null) {
+					if(ch.state == SerialComCMUXChannel.OPENING) {
+						ch.state = SerialComCMUXChannel.OPEN;
+					}else if(ch.state == SerialComCMUXChannel.CLOSING) {
+						ch.state = SerialComCMUXChannel.CLOSED;
+					}
+					lock.notifyAll();
+				}
+				return;
+			case DM:
+				if(ch != null) {
+					ch.state = SerialComCMUXChannel.CLOSED;
+					lock.notifyAll();
+				}
+				return;
+			case SABM:
+				// channels are opened only by this end.
+				queueFrame(dlci, false, DM | PF, null, 0, 0);
+				return;
+			case DISC:
+				queueFrame(dlci, false, UA | PF, null, 0, 0);
+				if(dlci == 0) {
+					closeAll();
+				}else if(ch != null) {
+					ch.state = SerialComCMUXChannel.CLOSED;
+					lock.notifyAll();
+				}
+				return;
+			case UIH:
+			case UI:
+				if(dlci == 0) {
+					processControlMessages();
+					return;
+				}
+				if((ch == null) || (ch.state != SerialComCMUXChannel.OPEN)) {
+					return;
+				}
+				listener = ch.listener;
+				if(listener == null) {
+					ch.receive(rxFrame, rxLength);
+					return;
+				}
+				break;
+			default:
+				numDiscarded++;
+				return;
+			}
+		}
+		listener.onNewSerialDataAvailable(Arrays.copyOf(rxFrame, rxLength));
+	}
+
+	/* called with lock held, handles messages in UIH frame received on control channel. */
+	private void processControlMessages() {
+		int x = 0;
+		while(x < rxLength) {
+			int type = rxFrame[x++] & 0xFF;
+			if(x >= rxLength) {
+				return;
+			}
+			int length = (rxFrame[x] & 0xFF) >>> 1;
+			if((rxFrame[x++] & 0x01) == 0) {
+				if(x >= rxLength) {
+					return;
+				}
+				length |= (rxFrame[x++] & 0xFF) << 7;
+			}
+			if(length > (rxLength - x)) {
+				return;
+			}
+
+			int code = type & 0xFC;
+			if((type & 0x02) == 0) {
+				// response to a command sent by this end.
+				if((code == MSG_CLD) && (control.state == SerialComCMUXChannel.CLOSING)) {
+					control.state = SerialComCMUXChannel.CLOSED;
+					lock.notifyAll();
+				}
+			}else {
+				switch(code) {
+				case MSG_MSC:
+					if(length >= 2) {
+						int dlci = (rxFrame[x] & 0xFF) >>> 2;
+						SerialComCMUXChannel ch = channels[dlci];
+						if((dlci > 0) && (ch != null)) {
+							ch.remoteSignals = rxFrame[x + 1] & 0xFF;
+							ch.remoteFlowStopped = (ch.remoteSignals & SIGNAL_FC) != 0;
+						}
+					}
+					queueMessage(type & ~0x02, rxFrame, x, length);
+					break;
+				case MSG_FCON:
+					globalFlowStopped = false;
+					queueMessage(type & ~0x02, rxFrame, x, length);
+					break;
+				case MSG_FCOFF:
+					globalFlowStopped = true;
+					queueMessage(type & ~0x02, rxFrame, x, length);
+					break;
+				case MSG_TEST:
+				case MSG_PN:
+					queueMessage(type & ~0x02, rxFrame, x, length);
+					break;
+				case MSG_CLD:
+					queueMessage(type & ~0x02, rxFrame, x, length);
+					closeAll();
+					break;
+				default:
+					queueMessage(MSG_NSC | 0x01, new byte[] { (byte) type }, 0, 1);
+				}
+				lock.notifyAll();
+			}
+			x += length;
+		}
+	}
+}
@@ -0,0 +1,312 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+import com.embeddedunveiled.serial.SerialComException;
+
+/**
+ * <p>Represents one virtual channel (DLC) of a 3GPP 27.010 multiplexer. Data received on channel is 
+ * buffered and read through input stream, or given to data listener if one has been set. Data 
+ * written to output stream is buffered and sent by multiplexer in UIH frames.</p>
+ * 
+ * <p>When receive buffer gets three quarter full, modem is asked to stop sending on this channel 
+ * (MSC with FC bit set) and is asked to resume when buffer has been drained to one quarter. When 
+ * modem stops flow on this channel, writes continue till transmit buffer is full and then block; 
+ * other channels are not affected.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComCMUXChannel {
+
+	static final int CLOSED = 0;
+	static final int OPENING = 1;
+	static final int OPEN = 2;
+	static final int CLOSING = 3;
+
+	private final SerialComCMUX mux;
+	private final Object lock;
+	final int dlci;
+	private final InputStream in;
+	private final OutputStream out;
+
+	// guarded by lock.
+	int state;
+	final byte[] rxBuffer;
+	int rxHead;
+	int rxCount;
+	final byte[] txBuffer;
+	int txHead;
+	int txCount;
+	boolean localFlowStopped;
+	boolean remoteFlowStopped;
+	int remoteSignals;
+	ISerialComDataListener listener;
+	long numDropped;
+
+	private final class ChannelInputStream extends InputStream {
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return (read(one, 0, 1) < 0) ? -1 : (one[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(b == null) {
+				throw new NullPointerException("Argument b can not be null !");
+			}
+			if((off < 0) || (len < 0) || (len > (b.length - off))) {
+				throw new IndexOutOfBoundsException("Index violation detected !");
+			}
+			if(len == 0) {
+				return 0;
+			}
+			synchronized(lock) {
+				while((rxCount == 0) && (state == OPEN)) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("Interrupted while waiting for data !");
+					}
+				}
+				if(rxCount == 0) {
+					return -1;
+				}
+				int numBytes = Math.min(len, rxCount);
+				int first = Math.min(numBytes, rxBuffer.length - rxHead);
+				System.arraycopy(rxBuffer, rxHead, b, off, first);
+				System.arraycopy(rxBuffer, 0, b, off + first, numBytes - first);
+				rxHead = (rxHead + numBytes) % rxBuffer.length;
+				rxCount -= numBytes;
+				if(localFlowStopped && (rxCount <= (rxBuffer.length >> 2)) && (state == OPEN)) {
+					localFlowStopped = false;
+					mux.queueModemStatus(dlci, false);
+				}
+				return numBytes;
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			synchronized(lock) {
+				return rxCount;
+			}
+		}
+	}
+
+	private final class ChannelOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if(b == null) {
+				throw new NullPointerException("Argument b can not be null !");
+			}
+			if((off < 0) || (len < 0) || (len > (b.length - off))) {
+				throw new IndexOutOfBoundsException("Index violation detected !");
+			}
+			synchronized(lock) {
+				while(len > 0) {
+					while((txCount == txBuffer.length) && (state == OPEN)) {
+						try {
+							lock.wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new IOException("Interrupted while waiting for buffer space !");
+						}
+					}
+					if(state != OPEN) {
+						throw notOpen();
+					}
+					int tail = (txHead + txCount) % txBuffer.length;
+					int numBytes = Math.min(len, Math.min(txBuffer.length - txCount, txBuffer.length - tail));
+					System.arraycopy(b, off, txBuffer, tail, numBytes);
+					txCount += numBytes;
+					off += numBytes;
+					len -= numBytes;
+					lock.notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * <p>Waits till all buffered bytes have been given to serial port.</p>
+		 */
+		@Override
+		public void flush() throws IOException {
+			synchronized(lock) {
+				while((txCount > 0) && (state == OPEN)) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("Interrupted while flushing channel !");
+					}
+				}
+				if(txCount > 0) {
+					throw notOpen();
+				}
+			}
+		}
+	}
+
+	/* called with lock held, tells that channel is closed and why if multiplexer failed to write. */
+	private IOException notOpen() {
+		SerialComException failure = mux.getWriteFailure();
+		if(failure != null) {
+			return new IOException("Channel " + dlci + " is not open, " + failure.getMessage());
+		}
+		return new IOException("Channel " + dlci + " is not open !");
+	}
+
+	SerialComCMUXChannel(SerialComCMUX mux, Object lock, int dlci, int bufferSize) {
+		this.mux = mux;
+		this.lock = lock;
+		this.dlci = dlci;
+		rxBuffer = new byte[bufferSize];
+		txBuffer = new byte[bufferSize];
+		in = new ChannelInputStream();
+		out = new ChannelOutputStream();
+	}
+
+	/* called with lock held, buffers received data and stops modem when buffer is getting full. */
+	void receive(byte[] data, int length) {
+		int numBytes = Math.min(length, rxBuffer.length - rxCount);
+		int tail = (rxHead + rxCount) % rxBuffer.length;
+		int first = Math.min(numBytes, rxBuffer.length - tail);
+		System.arraycopy(data, 0, rxBuffer, tail, first);
+		System.arraycopy(data, first, rxBuffer, 0, numBytes - first);
+		rxCount += numBytes;
+		numDropped += length - numBytes;
+		if(!localFlowStopped && (rxCount > (rxBuffer.length - (rxBuffer.length >> 2)))) {
+			localFlowStopped = true;
+			mux.queueModemStatus(dlci, true);
+		}
+		lock.notifyAll();
+	}
+
+	/**
+	 * <p>Gives data link connection identifier of this channel.</p>
+	 * 
+	 * @return DLCI of this channel.
+	 */
+	public int getDLCI() {
+		return dlci;
+	}
+
+	/**
+	 * <p>Tells whether channel is open. Channel gets closed when application or modem closes it or 
+	 * multiplexer is closed.</p>
+	 * 
+	 * @return true if channel is open.
+	 */
+	public boolean isOpen() {
+		synchronized(lock) {
+			return state == OPEN;
+		}
+	}
+
+	/**
+	 * <p>Tells whether modem has asked to stop sending data on this channel.</p>
+	 * 
+	 * @return true if flow from this end is stopped.
+	 */
+	public boolean isFlowStopped() {
+		synchronized(lock) {
+			return remoteFlowStopped;
+		}
+	}
+
+	/**
+	 * <p>Gives V.24 signals octet last sent by modem for this channel in modem status command.</p>
+	 * 
+	 * @return signals octet, 0 if modem has not sent any.
+	 */
+	public int getModemSignals() {
+		synchronized(lock) {
+			return remoteSignals;
+		}
+	}
+
+	/**
+	 * <p>Gives stream to read data received on this channel. Read returns -1 once channel is closed 
+	 * and buffered data has been read.</p>
+	 * 
+	 * @return input stream of this channel.
+	 */
+	public InputStream getInputStream() {
+		return in;
+	}
+
+	/**
+	 * <p>Gives stream to write data on this channel. Write blocks while transmit buffer is full.</p>
+	 * 
+	 * @return output stream of this channel.
+	 */
+	public OutputStream getOutputStream() {
+		return out;
+	}
+
+	/**
+	 * <p>Sets listener to which data received on this channel is given instead of buffering it for 
+	 * input stream. Listener is called in receiver thread of multiplexer and should return quickly 
+	 * as no other channel receives data meanwhile.</p>
+	 * 
+	 * @param listener listener to be called or null to buffer data again.
+	 */
+	public void setDataListener(ISerialComDataListener listener) {
+		synchronized(lock) {
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * <p>Gives number of bytes dropped because receive buffer was full, which means modem did not obey 
+	 * flow control.</p>
+	 * 
+	 * @return number of bytes.
+	 */
+	public long getNumberOfDroppedBytes() {
+		synchronized(lock) {
+			return numDropped;
+		}
+	}
+
+	/**
+	 * <p>Closes this channel (DISC). Data not yet sent is discarded, output stream should be flushed 
+	 * before if required.</p>
+	 * 
+	 * @param timeOut time in milliseconds to wait for modem to acknowledge.
+	 * @throws SerialComException if thread is interrupted while waiting.
+	 */
+	public void close(int timeOut) throws SerialComException {
+		mux.closeChannel(this, timeOut);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import com.embeddedunveiled.serial.SerialComException;
+
+/**
+ * <p>Represents a text message submitted to SerialComSMSModemPool and tracks its delivery to 
+ * network. A message is sent when every part has been accepted by a modem, and fails when attempts 
+ * are exhausted or pool is closed.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComSMS {
+
+	/** <p>Message is waiting in queue of a modem or being sent. </p>*/
+	public static final int STATUS_PENDING = 0;
+
+	/** <p>All parts of message have been accepted by network. </p>*/
+	public static final int STATUS_SENT = 1;
+
+	/** <p>Message could not be sent. </p>*/
+	public static final int STATUS_FAILED = 2;
+
+	private final String destination;
+	private final String text;
+	private final int[] messageReferences;
+
+	// owned by the modem worker currently handling message, handed over through pool lock.
+	final int reference;
+	int nextPart;
+	volatile int numAttempts;
+
+	// written once at completion.
+	private volatile int status = STATUS_PENDING;
+	private int result;
+	private int errorCode = SerialComATLine.NOT_AVAILABLE;
+	private String portName;
+
+	SerialComSMS(String destination, String text, int numParts, int reference) {
+		this.destination = destination;
+		this.text = text;
+		this.reference = reference;
+		messageReferences = new int[numParts];
+	}
+
+	void setMessageReference(int part, int messageReference) {
+		messageReferences[part] = messageReference;
+	}
+
+	/* forgets parts sent till now so that message is sent again from its first part. */
+	void restart() {
+		nextPart = 0;
+		for(int x = 0; x < messageReferences.length; x++) {
+			messageReferences[x] = 0;
+		}
+	}
+
+	/* records outcome and wakes up waiting threads. */
+	synchronized void complete(int status, int result, int errorCode, String portName) {
+		this.result = result;
+		this.errorCode = errorCode;
+		this.portName = portName;
+		this.status = status;
+		notifyAll();
+	}
+
+	/**
+	 * <p>Waits till message is sent or fails.</p>
+	 * 
+	 * @return STATUS_SENT or STATUS_FAILED.
+	 * @throws SerialComException if thread is interrupted while waiting.
+	 */
+	public synchronized int await() throws SerialComException {
+		while(status == STATUS_PENDING) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SerialComException("Interrupted while waiting for message to be sent !");
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * <p>Gives status of message.</p>
+	 * 
+	 * @return one of STATUS_XXX constants.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * <p>Tells whether message has been sent or has failed.</p>
+	 * 
+	 * @return true if message is no longer pending.
+	 */
+	public boolean isDone() {
+		return status != STATUS_PENDING;
+	}
+
+	/**
+	 * <p>Gives phone number to which message is sent.</p>
+	 * 
+	 * @return destination phone number.
+	 */
+	public String getDestination() {
+		return destination;
+	}
+
+	/**
+	 * <p>Gives text of message.</p>
+	 * 
+	 * @return text of message.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * <p>Gives number of parts in which message is sent.</p>
+	 * 
+	 * @return number of parts.
+	 */
+	public int getNumberOfParts() {
+		return messageReferences.length;
+	}
+
+	/**
+	 * <p>Gives message reference assigned by network to given part (from +CMGS: response). Valid once 
+	 * message has been sent.</p>
+	 * 
+	 * @param part index of part starting from 0.
+	 * @return message reference.
+	 */
+	public int getMessageReference(int part) {
+		return messageReferences[part];
+	}
+
+	/**
+	 * <p>Gives number of times sending has been attempted, including first attempt.</p>
+	 * 
+	 * @return number of attempts.
+	 */
+	public int getNumberOfAttempts() {
+		return numAttempts;
+	}
+
+	/**
+	 * <p>Gives result of last AT+CMGS executed for this message.</p>
+	 * 
+	 * @return one of SerialComATCommand.RESULT_XXX constants.
+	 */
+	public synchronized int getResult() {
+		return result;
+	}
+
+	/**
+	 * <p>Gives error code of +CMS ERROR or +CME ERROR when message failed.</p>
+	 * 
+	 * @return error code or SerialComATLine.NOT_AVAILABLE.
+	 */
+	public synchronized int getErrorCode() {
+		return errorCode;
+	}
+
+	/**
+	 * <p>Gives name of port of the modem which sent or last tried to send message.</p>
+	 * 
+	 * @return port name, null if pool was closed before any attempt.
+	 */
+	public synchronized String getPortName() {
+		return portName;
+	}
+}
@@ -0,0 +1,333 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import java.util.Arrays;
+
+/**
+ * <p>Encodes SMS-SUBMIT PDUs for sending text messages in PDU mode (AT+CMGF=0, AT+CMGS). Text is 
+ * encoded in GSM 7 bit default alphabet (including extension table) when possible, otherwise in 
+ * UCS2. Texts longer than one message are split in concatenated parts carrying a user data header 
+ * with 8 bit reference.</p>
+ * 
+ * <p>All buffers are allocated once, so an encoder should be used by one thread and reused for every 
+ * message; PDU returned by getPDU() is overwritten by next call to encodePart().</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComSMSEncoder {
+
+	/** <p>Largest number of concatenated parts of a message. </p>*/
+	public static final int MAX_PARTS = 10;
+
+	/** <p>Data coding scheme value for GSM 7 bit default alphabet. </p>*/
+	public static final int CODING_GSM7 = 0x00;
+
+	/** <p>Data coding scheme value for UCS2. </p>*/
+	public static final int CODING_UCS2 = 0x08;
+
+	private static final int MAX_DIGITS = 20;
+	private static final int MAX_TPDU_LENGTH = 2 + 2 + (MAX_DIGITS / 2) + 3 + 140;
+	private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+	private static final String BASIC = "@\u00A3$\u00A5\u00E8\u00E9\u00F9\u00EC\u00F2\u00C7\n\u00D8\u00F8\r\u00C5\u00E5" 
+			+ "\u0394_\u03A6\u0393\u039B\u03A9\u03A0\u03A8\u03A3\u0398\u039E\u001B\u00C6\u00E6\u00DF\u00C9" 
+			+ " !\"#\u00A4%&'()*+,-./0123456789:;<=>?" 
+			+ "\u00A1ABCDEFGHIJKLMNOPQRSTUVWXYZ\u00C4\u00D6\u00D1\u00DC\u00A7" 
+			+ "\u00BFabcdefghijklmnopqrstuvwxyz\u00E4\u00F6\u00F1\u00FC\u00E0";
+	private static final String EXTENSION = "\f^{}\\[~]|";
+	private static final int[] EXTENSION_CODES = { 0x0A, 0x14, 0x28, 0x29, 0x2F, 0x3C, 0x3D, 0x3E, 0x40 };
+	private static final int EURO_CODE = 0x65;
+
+	// septet value for characters below 0x400, extension characters have bit 8 set, -1 if not mapped.
+	private static final short[] GSM7 = new short[0x400];
+	static {
+		Arrays.fill(GSM7, (short) -1);
+		for(int x = 0; x < BASIC.length(); x++) {
+			if(x != 0x1B) {
+				GSM7[BASIC.charAt(x)] = (short) x;
+			}
+		}
+		for(int x = 0; x < EXTENSION.length(); x++) {
+			GSM7[EXTENSION.charAt(x)] = (short) (0x100 | EXTENSION_CODES[x]);
+		}
+	}
+
+	private final byte[] septets = new byte[MAX_PARTS * 153];
+	private final int[] partStart = new int[MAX_PARTS + 1];
+	private final byte[] tpdu = new byte[MAX_TPDU_LENGTH];
+	private final byte[] pdu = new byte[2 + (2 * MAX_TPDU_LENGTH) + 1];
+	private String destination;
+	private String text;
+	private int coding;
+	private int numParts;
+	private int tpduLength;
+
+	/**
+	 * <p>Allocates a new SerialComSMSEncoder object.</p>
+	 */
+	public SerialComSMSEncoder() {
+	}
+
+	/* septet value of given character, -1 if it can not be encoded in GSM 7 bit alphabet. */
+	private static int gsm7(char c) {
+		if(c < GSM7.length) {
+			return GSM7[c];
+		}
+		return (c == '\u20AC') ? (0x100 | EURO_CODE) : -1;
+	}
+
+	/**
+	 * <p>Gives number of parts required to send given text or -1 if it needs more than MAX_PARTS.</p>
+	 * 
+	 * @param text text of message.
+	 * @return number of parts.
+	 * @throws IllegalArgumentException if text is null.
+	 */
+	public static int countParts(String text) {
+		if(text == null) {
+			throw new IllegalArgumentException("Argument text can not be null !");
+		}
+		int numSeptets = 0;
+		boolean ucs2 = false;
+		for(int x = 0; x < text.length(); x++) {
+			int code = gsm7(text.charAt(x));
+			if(code < 0) {
+				ucs2 = true;
+				break;
+			}
+			numSeptets += (code > 0xFF) ? 2 : 1;
+		}
+		if((ucs2 && (text.length() <= 70)) || (!ucs2 && (numSeptets <= 160))) {
+			return 1;
+		}
+
+		// same split as prepare(), escape sequence or surrogate pair is never split.
+		int parts = 1;
+		int used = 0;
+		int x = 0;
+		while(x < text.length()) {
+			int width;
+			if(ucs2) {
+				width = (Character.isHighSurrogate(text.charAt(x)) && ((x + 1) < text.length())) ? 2 : 1;
+			}else {
+				width = (gsm7(text.charAt(x)) > 0xFF) ? 2 : 1;
+			}
+			if((used + width) > (ucs2 ? 67 : 153)) {
+				parts++;
+				used = 0;
+			}
+			used += width;
+			x += ucs2 ? width : 1;
+		}
+		return (parts <= MAX_PARTS) ? parts : -1;
+	}
+
+	/**
+	 * <p>Checks given message and prepares it for encoding.</p>
+	 * 
+	 * @param destination phone number in international (with leading +) or national format.
+	 * @param text text of message.
+	 * @return number of parts in which message will be sent.
+	 * @throws IllegalArgumentException if destination is not a valid phone number, text is null or 
+	 *          text needs more than MAX_PARTS parts.
+	 */
+	public int prepare(String destination, String text) {
+		if(destination == null) {
+			throw new IllegalArgumentException("Argument destination can not be null !");
+		}
+		int start = destination.startsWith("+") ? 1 : 0;
+		int numDigits = destination.length() - start;
+		if((numDigits < 1) || (numDigits > MAX_DIGITS)) {
+			throw new IllegalArgumentException("Argument destination is not a valid phone number !");
+		}
+		for(int x = start; x < destination.length(); x++) {
+			char c = destination.charAt(x);
+			if((c < '0') || (c > '9')) {
+				throw new IllegalArgumentException("Argument destination is not a valid phone number !");
+			}
+		}
+		if(countParts(text) < 0) {
+			throw new IllegalArgumentException("Argument text is too long !");
+		}
+
+		this.destination = destination;
+		this.text = text;
+		coding = CODING_GSM7;
+		int numSeptets = 0;
+		for(int x = 0; x < text.length(); x++) {
+			int code = gsm7(text.charAt(x));
+			if(code < 0) {
+				coding = CODING_UCS2;
+				break;
+			}
+			if(code > 0xFF) {
+				septets[numSeptets++] = 0x1B;
+			}
+			septets[numSeptets++] = (byte) code;
+		}
+
+		int total = (coding == CODING_GSM7) ? numSeptets : text.length();
+		int single = (coding == CODING_GSM7) ? 160 : 70;
+		int perPart = (coding == CODING_GSM7) ? 153 : 67;
+		numParts = 0;
+		partStart[0] = 0;
+		if(total <= single) {
+			partStart[++numParts] = total;
+			return numParts;
+		}
+		int end = 0;
+		while(end < total) {
+			end = Math.min(partStart[numParts] + perPart, total);
+			if(end < total) {
+				if((coding == CODING_GSM7) && (septets[end - 1] == 0x1B)) {
+					end--;
+				}else if((coding == CODING_UCS2) && Character.isHighSurrogate(text.charAt(end - 1))) {
+					end--;
+				}
+			}
+			partStart[++numParts] = end;
+		}
+		return numParts;
+	}
+
+	/**
+	 * <p>Encodes given part of prepared message as hexadecimal PDU followed by Ctrl-Z, ready to be 
+	 * written after prompt of AT+CMGS. Service centre address is left empty so that one stored in 
+	 * modem is used.</p>
+	 * 
+	 * @param part index of part starting from 0.
+	 * @param reference reference number common to all parts of a concatenated message.
+	 * @return number of bytes in buffer given by getPDU().
+	 * @throws IllegalArgumentException if part is not less than number of parts.
+	 * @throws IllegalStateException if no message has been prepared.
+	 */
+	public int encodePart(int part, int reference) {
+		if(text == null) {
+			throw new IllegalStateException("No message has been prepared !");
+		}
+		if((part < 0) || (part >= numParts)) {
+			throw new IllegalArgumentException("Argument part is not a valid part index !");
+		}
+
+		int x = 0;
+		tpdu[x++] = (byte) ((numParts > 1) ? 0x41 : 0x01); // SMS-SUBMIT, UDHI if concatenated.
+		tpdu[x++] = 0x00; // message reference, assigned by modem.
+		int start = destination.startsWith("+") ? 1 : 0;
+		int numDigits = destination.length() - start;
+		tpdu[x++] = (byte) numDigits;
+		tpdu[x++] = (byte) ((start == 1) ? 0x91 : 0x81);
+		for(int y = start; y < destination.length(); y += 2) {
+			int low = destination.charAt(y) - '0';
+			int high = ((y + 1) < destination.length()) ? (destination.charAt(y + 1) - '0') : 0x0F;
+			tpdu[x++] = (byte) ((high << 4) | low);
+		}
+		tpdu[x++] = 0x00; // protocol identifier.
+		tpdu[x++] = (byte) coding;
+		int udlIndex = x++;
+		int udStart = x;
+		int udhLength = 0;
+		if(numParts > 1) {
+			tpdu[x++] = 0x05;
+			tpdu[x++] = 0x00;
+			tpdu[x++] = 0x03;
+			tpdu[x++] = (byte) reference;
+			tpdu[x++] = (byte) numParts;
+			tpdu[x++] = (byte) (part + 1);
+			udhLength = 6;
+		}
+
+		int first = partStart[part];
+		int end = partStart[part + 1];
+		if(coding == CODING_UCS2) {
+			for(int y = first; y < end; y++) {
+				char c = text.charAt(y);
+				tpdu[x++] = (byte) (c >>> 8);
+				tpdu[x++] = (byte) c;
+			}
+			tpdu[udlIndex] = (byte) (x - udStart);
+		}else {
+			// septets start at septet boundary following header.
+			int bit = ((udhLength * 8) + 6) / 7 * 7;
+			int totalBits = bit + (7 * (end - first));
+			int udEnd = udStart + ((totalBits + 7) / 8);
+			Arrays.fill(tpdu, x, udEnd, (byte) 0);
+			for(int y = first; y < end; y++) {
+				int septet = septets[y] & 0x7F;
+				int index = udStart + (bit >>> 3);
+				int shift = bit & 0x07;
+				tpdu[index] |= (byte) (septet << shift);
+				if(shift > 1) {
+					tpdu[index + 1] |= (byte) (septet >>> (8 - shift));
+				}
+				bit += 7;
+			}
+			tpdu[udlIndex] = (byte) (totalBits / 7);
+			x = udEnd;
+		}
+		tpduLength = x;
+
+		int n = 0;
+		pdu[n++] = '0';
+		pdu[n++] = '0';
+		for(int y = 0; y < tpduLength; y++) {
+			pdu[n++] = HEX[(tpdu[y] >>> 4) & 0x0F];
+			pdu[n++] = HEX[tpdu[y] & 0x0F];
+		}
+		pdu[n++] = 0x1A;
+		return n;
+	}
+
+	/**
+	 * <p>Gives buffer containing last encoded PDU.</p>
+	 * 
+	 * @return buffer, valid bytes are given by encodePart().
+	 */
+	public byte[] getPDU() {
+		return pdu;
+	}
+
+	/**
+	 * <p>Gives length of last encoded PDU excluding service centre address, which is the length to be 
+	 * given to AT+CMGS.</p>
+	 * 
+	 * @return length in octets.
+	 */
+	public int getTPDULength() {
+		return tpduLength;
+	}
+
+	/**
+	 * <p>Gives data coding scheme selected for prepared message.</p>
+	 * 
+	 * @return CODING_GSM7 or CODING_UCS2.
+	 */
+	public int getCoding() {
+		return coding;
+	}
+
+	/**
+	 * <p>Gives number of parts of prepared message.</p>
+	 * 
+	 * @return number of parts.
+	 */
+	public int getNumberOfParts() {
+		return numParts;
+	}
+}
@@ -0,0 +1,482 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComManager.BAUDRATE;
+import com.embeddedunveiled.serial.SerialComManager.DATABITS;
+import com.embeddedunveiled.serial.SerialComManager.FLOWCONTROL;
+import com.embeddedunveiled.serial.SerialComManager.PARITY;
+import com.embeddedunveiled.serial.SerialComManager.STOPBITS;
+
+/**
+ * <p>Sends text messages through a pool of GSM modems so that throughput grows with number of 
+ * modems. Every modem has its own queue and worker thread driving a SerialComATEngine in PDU mode; 
+ * a submitted message is given to the modem expected to finish it first, that is the one with 
+ * smallest (queued + in progress + 1) * smoothed send latency, so slower modems get proportionally 
+ * fewer messages.</p>
+ * 
+ * <p>A part rejected with +CMS ERROR or not acknowledged in time is retried, preferably on another 
+ * modem, till maximum number of attempts is reached. A concatenated message moved to another modem 
+ * is sent again from its first part, as handset can reassemble only parts coming from same originating 
+ * address. A modem failing MAX_CONSECUTIVE_FAILURES times in a row is suspended for SUSPEND_TIME and 
+ * its queue is moved to other modems. PDUs are encoded into buffers allocated once per modem.</p>
+ * 
+ * <pre>
+ * {@code
+ * SerialComSMSModemPool pool = new SerialComSMSModemPool(scm);
+ * pool.addModem("/dev/ttyUSB0", BAUDRATE.B115200, FLOWCONTROL.HARDWARE);
+ * pool.addModem("/dev/ttyUSB3", BAUDRATE.B115200, FLOWCONTROL.HARDWARE);
+ * SerialComSMS sms = pool.submit("+911234567890", "Pump 3 pressure low");
+ * }</pre>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComSMSModemPool {
+
+	/** <p>Failed attempts in a row after which a modem is suspended. </p>*/
+	public static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+	/** <p>Time in milliseconds for which failing modem is not given new messages. </p>*/
+	public static final int SUSPEND_TIME = 30000;
+
+	private static final int INIT_TIMEOUT = 5000;
+
+	private final SerialComManager scm;
+
+	// guarded by lock.
+	private final Object lock = new Object();
+	private final ArrayList<Modem> modems = new ArrayList<Modem>();
+	private final SerialComSMSEncoder validator = new SerialComSMSEncoder();
+	private boolean closed;
+	private int maxAttempts = 3;
+	private int sendTimeOut = 60000;
+	private int nextReference;
+	private long numSent;
+	private long numFailed;
+	private long numRetries;
+	private long windowStart = System.currentTimeMillis();
+	private long windowCount;
+	private double throughput;
+
+	/**
+	 * <p>One modem of pool. Its worker thread sends queued messages one part at a time.</p>
+	 */
+	private final class Modem implements Runnable {
+		final String portName;
+		final long handle;
+		final SerialComATEngine engine;
+		final SerialComSMSEncoder encoder = new SerialComSMSEncoder();
+		final Thread thread;
+
+		// guarded by lock.
+		final ArrayDeque<SerialComSMS> queue = new ArrayDeque<SerialComSMS>();
+		boolean busy;
+		long numSent;
+		long numFailures;
+		long latency = -1;
+		int consecutiveFailures;
+		long suspendedUntil;
+		int lastErrorCode = SerialComATLine.NOT_AVAILABLE;
+
+		Modem(String portName, long handle, SerialComATEngine engine) {
+			this.portName = portName;
+			this.handle = handle;
+			this.engine = engine;
+			thread = new Thread(this, "SCM SMS " + portName);
+			thread.setDaemon(true);
+		}
+
+		/* called with lock held, expected time to finish one more message. */
+		long cost() {
+			return (queue.size() + (busy ? 1 : 0) + 1) * ((latency < 0) ? 1 : (latency + 1));
+		}
+
+		@Override
+		public void run() {
+			while(true) {
+				SerialComSMS sms;
+				int timeOut;
+				synchronized(lock) {
+					while(queue.isEmpty() && !closed) {
+						try {
+							lock.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					if(closed) {
+						return;
+					}
+					sms = queue.poll();
+					busy = true;
+					timeOut = sendTimeOut;
+				}
+				sms.numAttempts++;
+
+				SerialComATCommand cmd = null;
+				int parts = encoder.prepare(sms.getDestination(), sms.getText());
+				while(sms.nextPart < parts) {
+					int length = encoder.encodePart(sms.nextPart, sms.reference);
+					long start = System.nanoTime();
+					try {
+						cmd = engine.send("AT+CMGS=" + encoder.getTPDULength(), encoder.getPDU(), length, timeOut);
+						cmd.await();
+					} catch (IllegalStateException e) {
+						cmd = null;
+						break;
+					} catch (SerialComException e) {
+						cmd = null;
+						break;
+					}
+					if(cmd.getResult() != SerialComATCommand.RESULT_OK) {
+						break;
+					}
+					long sample = (System.nanoTime() - start) / 1000000L;
+					synchronized(lock) {
+						latency = (latency < 0) ? sample : (latency + ((sample - latency) >> 2));
+					}
+					sms.setMessageReference(sms.nextPart, (cmd.getLineCount() > 0) ? cmd.getLine(0).getFieldInt(0) : SerialComATLine.NOT_AVAILABLE);
+					sms.nextPart++;
+				}
+				completed(this, sms, (cmd == null) ? SerialComATCommand.RESULT_ABORTED : cmd.getResult(), 
+						(cmd == null) ? SerialComATLine.NOT_AVAILABLE : cmd.getErrorCode(), parts);
+			}
+		}
+	}
+
+	/**
+	 * <p>Allocates a new SerialComSMSModemPool object.</p>
+	 * 
+	 * @param scm SerialComManager instance through which modem ports will be opened.
+	 * @throws IllegalArgumentException if scm is null.
+	 */
+	public SerialComSMSModemPool(SerialComManager scm) {
+		if(scm == null) {
+			throw new IllegalArgumentException("Argument scm can not be null !");
+		}
+		this.scm = scm;
+	}
+
+	/**
+	 * <p>Sets number of times a message is tried before it fails, default is 3.</p>
+	 * 
+	 * @param maxAttempts number of attempts including first one.
+	 * @throws IllegalArgumentException if maxAttempts is less than 1.
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		if(maxAttempts < 1) {
+			throw new IllegalArgumentException("Argument maxAttempts must be at least 1 !");
+		}
+		synchronized(lock) {
+			this.maxAttempts = maxAttempts;
+		}
+	}
+
+	/**
+	 * <p>Sets time to wait for modem to accept one part of a message, default is 60 seconds.</p>
+	 * 
+	 * @param sendTimeOut time in milliseconds.
+	 * @throws IllegalArgumentException if sendTimeOut is not positive.
+	 */
+	public void setSendTimeOut(int sendTimeOut) {
+		if(sendTimeOut <= 0) {
+			throw new IllegalArgumentException("Argument sendTimeOut must be positive !");
+		}
+		synchronized(lock) {
+			this.sendTimeOut = sendTimeOut;
+		}
+	}
+
+	/**
+	 * <p>Opens given port, switches modem connected to it to PDU mode and adds it to pool. Port is 
+	 * configured for 8 data bits, 1 stop bit and no parity.</p>
+	 * 
+	 * @param portName name of port to which modem is connected.
+	 * @param baudRate baud rate of port.
+	 * @param flowControl flow control used with modem.
+	 * @throws SerialComException if port can not be opened or modem does not accept PDU mode.
+	 * @throws IllegalArgumentException if portName, baudRate or flowControl is null.
+	 * @throws IllegalStateException if pool has been closed.
+	 */
+	public void addModem(String portName, BAUDRATE baudRate, FLOWCONTROL flowControl) throws SerialComException {
+		if(portName == null) {
+			throw new IllegalArgumentException("Argument portName can not be null !");
+		}
+		if((baudRate == null) || (flowControl == null)) {
+			throw new IllegalArgumentException("Arguments baudRate and flowControl can not be null !");
+		}
+		synchronized(lock) {
+			if(closed) {
+				throw new IllegalStateException("Modem pool has been closed !");
+			}
+		}
+
+		long handle = scm.openComPort(portName, true, true, true);
+		SerialComATEngine engine = null;
+		try {
+			scm.configureComPortData(handle, DATABITS.DB_8, STOPBITS.SB_1, PARITY.P_NONE, baudRate, 0);
+			scm.configureComPortControl(handle, flowControl, 'x', 'x', false, false);
+			engine = new SerialComATEngine(scm, handle);
+			scm.registerDataListener(handle, engine);
+			engine.execute("ATE0", INIT_TIMEOUT);
+			engine.execute("AT+CMEE=1", INIT_TIMEOUT);
+			if(engine.execute("AT+CMGF=0", INIT_TIMEOUT).getResult() != SerialComATCommand.RESULT_OK) {
+				throw new SerialComException("Modem on " + portName + " did not accept PDU mode !");
+			}
+		} catch (SerialComException e) {
+			if(engine != null) {
+				engine.close();
+				scm.unregisterDataListener(handle, engine);
+			}
+			scm.closeComPort(handle);
+			throw e;
+		}
+
+		Modem modem = new Modem(portName, handle, engine);
+		synchronized(lock) {
+			modems.add(modem);
+		}
+		modem.thread.start();
+	}
+
+	/**
+	 * <p>Queues given message on the modem expected to send it first.</p>
+	 * 
+	 * @param destination phone number in international (with leading +) or national format.
+	 * @param text text of message, sent in concatenated parts if it does not fit in one.
+	 * @return submitted message.
+	 * @throws IllegalArgumentException if destination is not a valid phone number, text is null or 
+	 *          text needs more than SerialComSMSEncoder.MAX_PARTS parts.
+	 * @throws IllegalStateException if pool has been closed or has no modem.
+	 */
+	public SerialComSMS submit(String destination, String text) {
+		synchronized(lock) {
+			int numParts = validator.prepare(destination, text);
+			if(closed) {
+				throw new IllegalStateException("Modem pool has been closed !");
+			}
+			if(modems.isEmpty()) {
+				throw new IllegalStateException("Modem pool has no modem !");
+			}
+			SerialComSMS sms = new SerialComSMS(destination, text, numParts, nextReference);
+			nextReference = (nextReference + 1) & 0xFF;
+			dispatch(sms, null);
+			return sms;
+		}
+	}
+
+	/* called with lock held, queues message on cheapest healthy modem other than excluded one. Excluded 
+	 * modem is the one which sent earlier parts of message (if any). */
+	private void dispatch(SerialComSMS sms, Modem exclude) {
+		long now = System.currentTimeMillis();
+		Modem best = null;
+		long bestCost = Long.MAX_VALUE;
+		for(int x = 0; x < modems.size(); x++) {
+			Modem m = modems.get(x);
+			if((m == exclude) || (now < m.suspendedUntil)) {
+				continue;
+			}
+			long cost = m.cost();
+			if(cost < bestCost) {
+				best = m;
+				bestCost = cost;
+			}
+		}
+		if(best == null) {
+			// every other modem is suspended, use least loaded one anyway.
+			for(int x = 0; x < modems.size(); x++) {
+				Modem m = modems.get(x);
+				long cost = m.cost();
+				if(cost < bestCost) {
+					best = m;
+					bestCost = cost;
+				}
+			}
+		}
+		if((sms.nextPart > 0) && (exclude != null) && (best != exclude)) {
+			// parts sent from other SIM can not be reassembled with remaining ones.
+			sms.restart();
+		}
+		best.queue.add(sms);
+		lock.notifyAll();
+	}
+
+	/* called by worker when a message has been handled. */
+	private void completed(Modem modem, SerialComSMS sms, int result, int errorCode, int parts) {
+		synchronized(lock) {
+			modem.busy = false;
+			if(sms.nextPart == parts) {
+				modem.numSent++;
+				modem.consecutiveFailures = 0;
+				numSent++;
+				long now = System.currentTimeMillis();
+				updateThroughput(now);
+				windowCount++;
+				sms.complete(SerialComSMS.STATUS_SENT, result, SerialComATLine.NOT_AVAILABLE, modem.portName);
+				return;
+			}
+
+			modem.numFailures++;
+			modem.consecutiveFailures++;
+			if(errorCode != SerialComATLine.NOT_AVAILABLE) {
+				modem.lastErrorCode = errorCode;
+			}
+			if((modem.consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) && (modems.size() > 1)) {
+				modem.suspendedUntil = System.currentTimeMillis() + SUSPEND_TIME;
+				SerialComSMS queued;
+				while((queued = modem.queue.poll()) != null) {
+					dispatch(queued, modem);
+				}
+			}
+
+			boolean retry = (result == SerialComATCommand.RESULT_CMS_ERROR) || (result == SerialComATCommand.RESULT_TIMEOUT);
+			if(retry && !closed && (sms.numAttempts < maxAttempts)) {
+				numRetries++;
+				dispatch(sms, (modems.size() > 1) ? modem : null);
+				return;
+			}
+			numFailed++;
+			sms.complete(SerialComSMS.STATUS_FAILED, result, errorCode, modem.portName);
+		}
+	}
+
+	/* called with lock held, closes measurement window after one second. */
+	private void updateThroughput(long now) {
+		long elapsed = now - windowStart;
+		if(elapsed >= 1000) {
+			throughput = (windowCount * 1000.0) / elapsed;
+			windowStart = now;
+			windowCount = 0;
+		}
+	}
+
+	/**
+	 * <p>Gives number of messages sent per second during last measurement interval of at least one 
+	 * second.</p>
+	 * 
+	 * @return messages per second.
+	 */
+	public double getThroughput() {
+		synchronized(lock) {
+			updateThroughput(System.currentTimeMillis());
+			return throughput;
+		}
+	}
+
+	/**
+	 * <p>Gives number of messages sent by all modems.</p>
+	 * 
+	 * @return number of messages.
+	 */
+	public long getNumberOfSent() {
+		synchronized(lock) {
+			return numSent;
+		}
+	}
+
+	/**
+	 * <p>Gives number of messages which failed after all attempts.</p>
+	 * 
+	 * @return number of messages.
+	 */
+	public long getNumberOfFailed() {
+		synchronized(lock) {
+			return numFailed;
+		}
+	}
+
+	/**
+	 * <p>Gives number of times a message was queued again after a failed attempt.</p>
+	 * 
+	 * @return number of retries.
+	 */
+	public long getNumberOfRetries() {
+		synchronized(lock) {
+			return numRetries;
+		}
+	}
+
+	/**
+	 * <p>Gives snapshot of queue, counters and health of every modem in the order they were added.</p>
+	 * 
+	 * @return statistics of modems.
+	 */
+	public SerialComSMSModemStats[] getModemStatistics() {
+		synchronized(lock) {
+			long now = System.currentTimeMillis();
+			SerialComSMSModemStats[] stats = new SerialComSMSModemStats[modems.size()];
+			for(int x = 0; x < stats.length; x++) {
+				Modem m = modems.get(x);
+				stats[x] = new SerialComSMSModemStats(m.portName, m.queue.size(), m.busy, m.numSent, m.numFailures, 
+						(m.latency < 0) ? 0 : m.latency, m.consecutiveFailures, now >= m.suspendedUntil, m.lastErrorCode);
+			}
+			return stats;
+		}
+	}
+
+	/**
+	 * <p>Stops all modems, fails messages not yet sent and closes ports of modems. Message being sent 
+	 * when pool is closed may still have been delivered by network.</p>
+	 * 
+	 * @throws SerialComException if a port can not be closed.
+	 */
+	public void close() throws SerialComException {
+		ArrayList<Modem> all;
+		synchronized(lock) {
+			if(closed) {
+				return;
+			}
+			closed = true;
+			for(Modem m : modems) {
+				SerialComSMS sms;
+				while((sms = m.queue.poll()) != null) {
+					numFailed++;
+					sms.complete(SerialComSMS.STATUS_FAILED, SerialComATCommand.RESULT_ABORTED, SerialComATLine.NOT_AVAILABLE, null);
+				}
+			}
+			all = new ArrayList<Modem>(modems);
+			lock.notifyAll();
+		}
+		for(Modem m : all) {
+			m.engine.close();
+			try {
+				m.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		SerialComException failure = null;
+		for(Modem m : all) {
+			try {
+				scm.unregisterDataListener(m.handle, m.engine);
+				scm.closeComPort(m.handle);
+			} catch (SerialComException e) {
+				failure = e;
+			}
+		}
+		if(failure != null) {
+			throw failure;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.gsm;
+
+/**
+ * <p>Snapshot of queue, counters and health of one modem of SerialComSMSModemPool.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComSMSModemStats {
+
+	private final String portName;
+	private final int queueDepth;
+	private final boolean busy;
+	private final long numSent;
+	private final long numFailures;
+	private final long averageLatency;
+	private final int consecutiveFailures;
+	private final boolean healthy;
+	private final int lastErrorCode;
+
+	SerialComSMSModemStats(String portName, int queueDepth, boolean busy, long numSent, long numFailures, 
+			long averageLatency, int consecutiveFailures, boolean healthy, int lastErrorCode) {
+		this.portName = portName;
+		this.queueDepth = queueDepth;
+		this.busy = busy;
+		this.numSent = numSent;
+		this.numFailures = numFailures;
+		this.averageLatency = averageLatency;
+		this.consecutiveFailures = consecutiveFailures;
+		this.healthy = healthy;
+		this.lastErrorCode = lastErrorCode;
+	}
+
+	/**
+	 * <p>Gives name of port to which modem is connected.</p>
+	 * 
+	 * @return port name.
+	 */
+	public String getPortName() {
+		return portName;
+	}
+
+	/**
+	 * <p>Gives number of messages waiting in queue of this modem, excluding one being sent.</p>
+	 * 
+	 * @return number of messages.
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * <p>Tells whether modem was sending a message.</p>
+	 * 
+	 * @return true if a message was being sent.
+	 */
+	public boolean isBusy() {
+		return busy;
+	}
+
+	/**
+	 * <p>Gives number of messages sent by this modem.</p>
+	 * 
+	 * @return number of messages.
+	 */
+	public long getNumberOfSent() {
+		return numSent;
+	}
+
+	/**
+	 * <p>Gives number of failed attempts on this modem, including ones retried later.</p>
+	 * 
+	 * @return number of failed attempts.
+	 */
+	public long getNumberOfFailures() {
+		return numFailures;
+	}
+
+	/**
+	 * <p>Gives smoothed time taken by modem to accept one message part.</p>
+	 * 
+	 * @return latency in milliseconds, 0 if no part has been sent yet.
+	 */
+	public long getAverageLatency() {
+		return averageLatency;
+	}
+
+	/**
+	 * <p>Gives number of failed attempts since last successful one.</p>
+	 * 
+	 * @return number of failed attempts.
+	 */
+	public int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	/**
+	 * <p>Tells whether modem is given new messages. Modem failing repeatedly is suspended for a while.</p>
+	 * 
+	 * @return false if modem is suspended.
+	 */
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+	/**
+	 * <p>Gives error code of last +CMS ERROR or +CME ERROR reported by modem.</p>
+	 * 
+	 * @return error code or SerialComATLine.NOT_AVAILABLE.
+	 */
+	public int getLastErrorCode() {
+		return lastErrorCode;
+	}
+}
@@ -24,6 +24,7 @@ import java.util.TreeMap;
 import com.embeddedunveiled.serial.ISerialComDataListener;
 import com.embeddedunveiled.serial.ISerialComEventListener;
 import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.transport.ISerialComTransport;
 
 /**
  * <p>Represents Proactor in our IO design pattern.</p>
@@ -44,17 +45,17 @@ import com.embeddedunveiled.serial.SerialComException;
  */
 public final class SerialComCompletionDispatcher {
 
-	private SerialComPortJNIBridge mComPortJNIBridge = null;
+	private ISerialComTransport mTransport = null;
 	private TreeMap<Long, SerialComPortHandleInfo> mPortHandleInfo = null;
 
 	/**
 	 * <p>Allocates a new SerialComCompletionDispatcher object.</p>
 	 * 
-	 * @param mComPortJNIBridge interface used to invoke appropriate native function
+	 * @param mTransport transport used to perform operations on serial port
 	 * @param portHandleInfo reference to portHandleInfo object to get/set information about handle/port
 	 */
-	public SerialComCompletionDispatcher(SerialComPortJNIBridge mComPortJNIBridge, TreeMap<Long, SerialComPortHandleInfo> portHandleInfo) {
-		this.mComPortJNIBridge = mComPortJNIBridge;
+	public SerialComCompletionDispatcher(ISerialComTransport mTransport, TreeMap<Long, SerialComPortHandleInfo> portHandleInfo) {
+		this.mTransport = mTransport;
 		this.mPortHandleInfo = portHandleInfo;
 	}
 
@@ -74,7 +75,7 @@ public final class SerialComCompletionDispatcher {
 
 		// Create looper for this handle and listener, if it does not exist.
 		if(looper == null) {
-			looper = new SerialComLooper(mComPortJNIBridge);
+			looper = new SerialComLooper(mTransport);
 			mHandleInfo.setLooper(looper);
 		}
 
@@ -83,7 +84,7 @@ public final class SerialComCompletionDispatcher {
 		mHandleInfo.setDataListener(dataListener);
 
 		try {
-			ret = mComPortJNIBridge.setUpDataLooperThread(handle, looper);
+			ret = mTransport.setUpDataLooperThread(handle, looper);
 			if(ret < 0) {
 				looper.stopDataLooper();
 				mHandleInfo.setDataListener(null);
@@ -116,7 +117,7 @@ public final class SerialComCompletionDispatcher {
 	public boolean destroyDataLooper(long handle, SerialComPortHandleInfo handleInfo, ISerialComDataListener dataListener) throws SerialComException {
 
 		// We got valid handle so destroy native threads for this listener.
-		int ret = mComPortJNIBridge.destroyDataLooperThread(handle);
+		int ret = mTransport.destroyDataLooperThread(handle);
 		if(ret < 0) {
 			throw new SerialComException("Could not unregister data listener (termination of native thread failed.). Please retry !");
 		}
@@ -151,7 +152,7 @@ public final class SerialComCompletionDispatcher {
 
 		// Create looper for this handle and listener, if it does not exist.
 		if(looper == null) {
-			looper = new SerialComLooper(mComPortJNIBridge);
+			looper = new SerialComLooper(mTransport);
 			mHandleInfo.setLooper(looper);
 		}
 
@@ -159,7 +160,7 @@ public final class SerialComCompletionDispatcher {
 		mHandleInfo.setEventListener(eventListener);
 
 		try {
-			ret = mComPortJNIBridge.setUpEventLooperThread(handle, looper);
+			ret = mTransport.setUpEventLooperThread(handle, looper);
 			if(ret < 0) {
 				looper.stopEventLooper();
 				mHandleInfo.setEventListener(null);
@@ -192,7 +193,7 @@ public final class SerialComCompletionDispatcher {
 	public boolean destroyEventLooper(long handle, SerialComPortHandleInfo handleInfo, ISerialComEventListener eventListener) throws SerialComException {
 
 		// We got valid handle so destroy native threads for this listener.
-		int ret = mComPortJNIBridge.destroyEventLooperThread(handle);
+		int ret = mTransport.destroyEventLooperThread(handle);
 		if(ret < 0) {
 			throw new SerialComException("Could not unregister event listener (termination of native thread failed.). Please retry !");
 		}
@@ -237,7 +238,7 @@ public final class SerialComCompletionDispatcher {
 
 		if(handle != -1) {
 			// We got a valid handle, so pause native threads for this listener first.
-			int ret = mComPortJNIBridge.pauseListeningEvents(handle);
+			int ret = mTransport.pauseListeningEvents(handle);
 			if(ret < 0) {
 				throw new SerialComException("Could not pause event thread !");
 			}
@@ -279,7 +280,7 @@ public final class SerialComCompletionDispatcher {
 			looper.resume();
 
 			// now resume native subsystem.
-			int ret = mComPortJNIBridge.resumeListeningEvents(handle);
+			int ret = mTransport.resumeListeningEvents(handle);
 			if(ret < 0) {
 				throw new SerialComException("Could not resume event thread !");
 			}
@@ -0,0 +1,174 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.internal;
+
+import com.embeddedunveiled.serial.ISerialComUSBHotPlugListener;
+
+/**
+ * <p>Emits Java Flight Recorder events for serial port operations so that stalls in serial 
+ * communication can be correlated with garbage collection, safepoints and other JVM activity.</p>
+ * 
+ * <p>This library targets Java 1.6 which does not have JFR API, so every method in this class does 
+ * nothing and is inlined away by JIT. The library jar is a multi-release jar; when running on Java 11 
+ * or later, version of this class in META-INF/versions/11 is used instead which emits events under 
+ * the names com.embeddedunveiled.serial.*.</p>
+ * 
+ * <p>Typical usage is :</p>
+ * <p>Object event = SerialComFlightRecorder.beginRead();<br/>
+ * ... native read ...<br/>
+ * SerialComFlightRecorder.endRead(event, handle, numBytes);</p>
+ * 
+ * <p>The begin methods return null when the event is not enabled in any recording, the end methods 
+ * return immediately in that case.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComFlightRecorder {
+
+	private SerialComFlightRecorder() {
+	}
+
+	/**
+	 * <p>Starts timing opening of a port.</p>
+	 * 
+	 * @return event to be passed to endOpen or null if event is not enabled.
+	 */
+	public static Object beginOpen() {
+		return null;
+	}
+
+	/**
+	 * <p>Records opening of a port if it took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginOpen.
+	 * @param portName name of the port opened.
+	 * @param handle handle of the port opened.
+	 */
+	public static void endOpen(Object event, String portName, long handle) {
+	}
+
+	/**
+	 * <p>Starts timing closing of a port.</p>
+	 * 
+	 * @return event to be passed to endClose or null if event is not enabled.
+	 */
+	public static Object beginClose() {
+		return null;
+	}
+
+	/**
+	 * <p>Records closing of a port if it took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginClose.
+	 * @param handle handle of the port closed.
+	 */
+	public static void endClose(Object event, long handle) {
+	}
+
+	/**
+	 * <p>Starts timing a native read.</p>
+	 * 
+	 * @return event to be passed to endRead or null if event is not enabled.
+	 */
+	public static Object beginRead() {
+		return null;
+	}
+
+	/**
+	 * <p>Records a native read if it took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginRead.
+	 * @param handle handle of the port read.
+	 * @param numBytes number of bytes read or -1 if read failed.
+	 */
+	public static void endRead(Object event, long handle, int numBytes) {
+	}
+
+	/**
+	 * <p>Starts timing a native write.</p>
+	 * 
+	 * @return event to be passed to endWrite or null if event is not enabled.
+	 */
+	public static Object beginWrite() {
+		return null;
+	}
+
+	/**
+	 * <p>Records a native write if it took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginWrite.
+	 * @param handle handle of the port written.
+	 * @param numBytes number of bytes written or -1 if write failed.
+	 */
+	public static void endWrite(Object event, long handle, int numBytes) {
+	}
+
+	/**
+	 * <p>Tells whether listener dispatch events are being recorded, in which case time at which data 
+	 * is queued for data listener should be noted.</p>
+	 * 
+	 * @return true if listener dispatch event is enabled.
+	 */
+	public static boolean isListenerDispatchEnabled() {
+		return false;
+	}
+
+	/**
+	 * <p>Starts timing delivery of data to a data listener.</p>
+	 * 
+	 * @return event to be passed to endListenerDispatch or null if event is not enabled.
+	 */
+	public static Object beginListenerDispatch() {
+		return null;
+	}
+
+	/**
+	 * <p>Records delivery of data to data listener if listener took longer than configured threshold.</p>
+	 * 
+	 * @param event object returned by beginListenerDispatch.
+	 * @param numBytes number of bytes delivered.
+	 * @param queueWaitNanos time data spent in queue before delivery or -1 if not known.
+	 */
+	public static void endListenerDispatch(Object event, int numBytes, long queueWaitNanos) {
+	}
+
+	/**
+	 * <p>Records re-sending of a block (sender) or request to re-send a block (receiver) in 
+	 * xmodem file transfer.</p>
+	 * 
+	 * @param handle handle of the port on which file is being transferred.
+	 * @param protocol variant of xmodem protocol in use.
+	 * @param sending true if file is being sent, false if it is being received.
+	 * @param blockNumber number of block being retried.
+	 */
+	public static void xmodemRetry(long handle, String protocol, boolean sending, int blockNumber) {
+	}
+
+	/**
+	 * <p>Gives listener to be registered with native layer for USB hot plug events. When hot plug 
+	 * events are recorded, returned listener records the event and time taken by application's 
+	 * listener.</p>
+	 * 
+	 * @param listener listener given by application.
+	 * @return listener to be registered.
+	 */
+	public static ISerialComUSBHotPlugListener wrapHotPlugListener(ISerialComUSBHotPlugListener listener) {
+		return listener;
+	}
+}
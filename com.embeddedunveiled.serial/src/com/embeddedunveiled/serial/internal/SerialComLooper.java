@@ -23,9 +23,13 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import com.embeddedunveiled.serial.ISerialComDataListener;
 import com.embeddedunveiled.serial.ISerialComEventListener;
+import com.embeddedunveiled.serial.ISerialComTrafficTap;
 import com.embeddedunveiled.serial.SerialComException;
 import com.embeddedunveiled.serial.SerialComLineEvent;
 import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.metrics.SerialComPortMetrics;
+import com.embeddedunveiled.serial.transport.ISerialComTransport;
+import com.embeddedunveiled.serial.transport.ISerialComTransportCallback;
 
 /**
  * <p>Encapsulates environment for data and event looper implementation. This runs in as a 
@@ -37,12 +41,13 @@ import com.embeddedunveiled.serial.SerialComManager;
  * 
  * @author Rishi Gupta
  */
-public final class SerialComLooper {
+public final class SerialComLooper implements ISerialComTransportCallback {
 
 	private final int MAX_NUM_EVENTS = 5000;
-	private SerialComPortJNIBridge mComPortJNIBridge;
+	private ISerialComTransport mTransport;
 
-	private BlockingQueue<byte[]> mDataQueue = null;
+	// elements are byte[] or, while metrics or listener dispatch events are enabled, TimedData.
+	private BlockingQueue<Object> mDataQueue = null;
 	private ISerialComDataListener mDataListener = null;
 	private Object mDataLock = new Object();
 	private Thread mDataLooperThread = null;
@@ -59,10 +64,27 @@ public final class SerialComLooper {
 	private Thread mEventLooperThread = null;
 	private AtomicBoolean exitEventThread = null;
 
+	private volatile SerialComPortMetrics mMetrics = null;
+	private volatile ISerialComTrafficTap mTrafficTap = null;
+	private volatile String mTappedPortName = null;
+
 	private int appliedMask = SerialComManager.CTS | SerialComManager.DSR | SerialComManager.DCD | SerialComManager.RI;
 	private int oldLineState = 0;
 	private int newLineState = 0;
 
+	/**
+	 * <p>Data queued along with time it was queued, so that time spent in queue can be recorded.</p>
+	 */
+	private static final class TimedData {
+		final byte[] data;
+		final long queuedTime;
+
+		TimedData(byte[] data, long queuedTime) {
+			this.data = data;
+			this.queuedTime = queuedTime;
+		}
+	}
+
 	/**
 	 * <p>This class runs in as a different thread context and keep looping over data queue, delivering 
 	 * data to the intended registered listener (data handler) one by one. The rate of delivery of
@@ -76,7 +98,28 @@ public final class SerialComLooper {
 			while(true) {
 				synchronized(mDataLock) {
 					try {
-						mDataListener.onNewSerialDataAvailable(mDataQueue.take());
+						Object element = mDataQueue.take();
+						SerialComPortMetrics metrics = mMetrics;
+						byte[] data = null;
+						long queueTime = -1;
+						if(element instanceof TimedData) {
+							data = ((TimedData) element).data;
+							queueTime = System.nanoTime() - ((TimedData) element).queuedTime;
+							if(metrics != null) {
+								metrics.recordQueueTime(queueTime);
+							}
+						}else {
+							data = (byte[]) element;
+						}
+						Object jfrEvent = SerialComFlightRecorder.beginListenerDispatch();
+						if(metrics == null) {
+							mDataListener.onNewSerialDataAvailable(data);
+						}else {
+							long start = System.nanoTime();
+							mDataListener.onNewSerialDataAvailable(data);
+							metrics.recordListenerCallback(System.nanoTime() - start);
+						}
+						SerialComFlightRecorder.endListenerDispatch(jfrEvent, data.length, queueTime);
 						if(deliverDataEvent.get() == false) {
 							/* Causes the current thread to wait until another thread
 							 * invokes the notify method. */
@@ -146,22 +189,35 @@ public final class SerialComLooper {
 	/**
 	 * <p>Allocates a new SerialComLooper object.</p>
 	 * 
-	 * @param mComPortJNIBridge interface used to invoke appropriate native function.
+	 * @param mTransport transport used to perform operations on serial port.
 	 */
-	public SerialComLooper(SerialComPortJNIBridge mComPortJNIBridge) { 
-		this.mComPortJNIBridge = mComPortJNIBridge;
+	public SerialComLooper(ISerialComTransport mTransport) { 
+		this.mTransport = mTransport;
 	}
 
 	/**
 	 * <p>This method is called from native code to pass data bytes.</p>
 	 * @param newData byte array containing data read from serial port
 	 */
+	@Override
 	public void insertInDataQueue(byte[] newData) {
+		ISerialComTrafficTap tap = mTrafficTap;
+		if(tap != null) {
+			tap.onDataTransferred(mTappedPortName, false, newData, 0, newData.length);
+		}
 		try {
 			if(mDataQueue.remainingCapacity() == 0) {
 				mDataQueue.poll();
+				SerialComPortMetrics metrics = mMetrics;
+				if(metrics != null) {
+					metrics.recordDroppedChunk();
+				}
+			}
+			if((mMetrics == null) && !SerialComFlightRecorder.isListenerDispatchEnabled()) {
+				mDataQueue.offer(newData);
+			}else {
+				mDataQueue.offer(new TimedData(newData, System.nanoTime()));
 			}
-			mDataQueue.offer(newData);
 		} catch (Exception e) {
 		}
 	}
@@ -171,6 +227,7 @@ public final class SerialComLooper {
 	 * 
 	 * @param errorNum operating system specific error number to be sent to application.
 	 */
+	@Override
 	public void insertInDataErrorQueue(int errorNum) {
 		if(mDataErrorQueue.remainingCapacity() == 0) {
 			mDataErrorQueue.poll();
@@ -187,6 +244,7 @@ public final class SerialComLooper {
 	 * 
 	 * @param newEvent bit mask representing event on serial port control lines.
 	 */
+	@Override
 	public void insertInEventQueue(int newEvent) {
 		newLineState = newEvent & appliedMask;
 		if(mEventQueue.remainingCapacity() == 0) {
@@ -208,7 +266,7 @@ public final class SerialComLooper {
 	 */
 	public void startDataLooper(long handle, ISerialComDataListener dataListener, String portName) {
 		mDataListener = dataListener;
-		mDataQueue = new ArrayBlockingQueue<byte[]>(MAX_NUM_EVENTS);
+		mDataQueue = new ArrayBlockingQueue<Object>(MAX_NUM_EVENTS);
 		mDataErrorQueue = new ArrayBlockingQueue<Integer>(MAX_NUM_EVENTS);
 		mDataLooperThread = new Thread(new DataLooper(), "SCM DataLooper for handle " + handle + " and port " + portName);
 		mDataErrorLooperThread = new Thread(new DataErrorLooper(), "SCM DataErrorLooper for handle " + handle + " and port " + portName);
@@ -241,7 +299,7 @@ public final class SerialComLooper {
 		int[] linestate = null;
 
 		// Return sequence is CTS, DSR, DCD, RI, LOOP, RTS, DTR respectively from native layer.
-		linestate = mComPortJNIBridge.getLinesStatus(handle);
+		linestate = mTransport.getLinesStatus(handle);
 		if (linestate == null) {
 			throw new SerialComException("Could not read current state of lines. Please retry !");
 		}
@@ -296,6 +354,36 @@ public final class SerialComLooper {
 		appliedMask = newMask;
 	}
 
+	/**
+	 * <p>Sets metrics in which dropped data chunks and data listener callback durations are recorded.</p>
+	 * 
+	 * @param metrics metrics of the port or null to stop recording.
+	 */
+	public void setMetrics(SerialComPortMetrics metrics) {
+		mMetrics = metrics;
+	}
+
+	/**
+	 * <p>Sets tap which is given data read by native looper before it is queued for data listener.</p>
+	 * 
+	 * @param tap tap to be given data or null to stop tapping.
+	 * @param portName name of port this looper belongs to.
+	 */
+	public void setTrafficTap(ISerialComTrafficTap tap, String portName) {
+		mTappedPortName = portName;
+		mTrafficTap = tap;
+	}
+
+	/**
+	 * <p>Gives number of data chunks waiting to be delivered to data listener.</p>
+	 * 
+	 * @return number of chunks in data queue.
+	 */
+	public int getDataQueueDepth() {
+		BlockingQueue<Object> queue = mDataQueue;
+		return (queue != null) ? queue.size() : 0;
+	}
+
 	/**
 	 * <p>Gives the event mask currently active.</p>
 	 * 
@@ -30,16 +30,17 @@ import com.embeddedunveiled.serial.ISerialComUSBHotPlugListener;
 import com.embeddedunveiled.serial.SerialComLoadException;
 import com.embeddedunveiled.serial.SerialComManager;
 import com.embeddedunveiled.serial.SerialComUnexpectedException;
-import com.embeddedunveiled.serial.internal.SerialComLooper;
 import com.embeddedunveiled.serial.internal.SerialComSystemProperty;
+import com.embeddedunveiled.serial.transport.ISerialComTransport;
+import com.embeddedunveiled.serial.transport.ISerialComTransportCallback;
 
 /**
  * <p>This class is an interface between java and native shared library. The native library is found 
- * in 'lib-tty' folder in 'scm-x.x.x.jar' file.</p>
+ * in 'lib-tty' folder in 'scm-x.x.x.jar' file. This is the default transport used by SerialComManager.</p>
  * 
  * @author Rishi Gupta
  */
-public final class SerialComPortJNIBridge {
+public final class SerialComPortJNIBridge implements ISerialComTransport {
 
 	private static final Comparator<String> comparator = new Comparator<String>() {
 
@@ -343,8 +344,8 @@ public final class SerialComPortJNIBridge {
 	public native String getNativeLibraryVersion();
 	public native String[] listAvailableComPorts();
 
-	public native int setUpDataLooperThread(long handle, SerialComLooper looper);
-	public native int setUpEventLooperThread(long handle, SerialComLooper looper);
+	public native int setUpDataLooperThread(long handle, ISerialComTransportCallback looper);
+	public native int setUpEventLooperThread(long handle, ISerialComTransportCallback looper);
 	public native int destroyDataLooperThread(long handle);
 	public native int destroyEventLooperThread(long handle);
 	public native int pauseListeningEvents(long handle);
@@ -26,6 +26,7 @@ import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.transport.ISerialComTransport;
 
 /**
  * <p>Finds all serial ports known to system and return them in sorted alphanumeric order.</p>
@@ -35,7 +36,7 @@ import com.embeddedunveiled.serial.SerialComManager;
 public final class SerialComPortsList {
 
 	private int osType = -1;
-	private SerialComPortJNIBridge mComPortJNIBridge = null;
+	private ISerialComTransport mTransport = null;
 	private static final Pattern Sol_regExpPattern = Pattern.compile("[0-9]*|[a-z]*");
 	private static final String Sol_search_path = "/dev/term/";
 
@@ -119,8 +120,8 @@ public final class SerialComPortsList {
 	};
 
 	/** Allocates a new SerialComPortsList object. */
-	public SerialComPortsList(SerialComPortJNIBridge mComPortJNIBridge, int osType) {
-		this.mComPortJNIBridge = mComPortJNIBridge;
+	public SerialComPortsList(ISerialComTransport mTransport, int osType) {
+		this.mTransport = mTransport;
 		this.osType = osType;
 	}
 
@@ -134,7 +135,7 @@ public final class SerialComPortsList {
 	public String[] listAvailableComPorts() {
 		if(osType != SerialComManager.OS_SOLARIS) {  // For Linux, Mac, Windows get list from native library.
 			ArrayList<String> portsIdentified = new ArrayList<String>();
-			String[] ports = mComPortJNIBridge.listAvailableComPorts();
+			String[] ports = mTransport.listAvailableComPorts();
 			if(ports != null) {
 				for(String portName : ports){
 					portsIdentified.add(portName);
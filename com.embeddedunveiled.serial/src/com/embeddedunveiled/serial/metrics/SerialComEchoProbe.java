@@ -0,0 +1,151 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComTimeOutException;
+
+/**
+ * <p>Measures write-to-echo latency of a serial link, i.e. time from handing bytes to the driver 
+ * till the same bytes are read back. The port must have a loopback plug (TX connected to RX) or the 
+ * device at other end must echo what it receives. Useful when tuning baud rate, USB-UART latency 
+ * timer (for example FTDI) or read behaviour.</p>
+ * 
+ * <p>Each probe carries a sequence number so that a late echo of an earlier probe is not taken for 
+ * the current one, and an echo is taken only if its payload also matches, so corrupted or unrelated 
+ * bytes are skipped. The port is polled without sleeping while a probe is in flight.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComEchoProbe {
+
+	private static final byte PROBE_MARKER = (byte) 0xA5;
+
+	private final SerialComManager scm;
+	private final long handle;
+	private final SerialComLatencyHistogram histogram = new SerialComLatencyHistogram();
+
+	/**
+	 * <p>Allocates a new SerialComEchoProbe object.</p>
+	 * 
+	 * @param scm SerialComManager instance to be used.
+	 * @param handle handle of opened serial port whose data gets echoed back.
+	 * @throws IllegalArgumentException if scm is null.
+	 */
+	public SerialComEchoProbe(SerialComManager scm, long handle) {
+		if(scm == null) {
+			throw new IllegalArgumentException("Argument scm can not be null !");
+		}
+		this.scm = scm;
+		this.handle = handle;
+	}
+
+	/**
+	 * <p>Sends given number of probes one after other and records round trip time of each.</p>
+	 * 
+	 * @param numProbes number of probes to send.
+	 * @param probeLength number of bytes in each probe (3 to 2048).
+	 * @param timeOut time in milliseconds to wait for echo of a probe.
+	 * @return snapshot of all round trip times recorded by this probe till now.
+	 * @throws SerialComTimeOutException if echo of a probe is not received in time.
+	 * @throws SerialComException if reading or writing fails.
+	 * @throws IllegalArgumentException if numProbes is less than 1, probeLength is out of range or 
+	 *          timeOut is not positive.
+	 */
+	public SerialComHistogramSnapshot run(int numProbes, int probeLength, long timeOut) throws SerialComException, 
+			SerialComTimeOutException {
+		if(numProbes < 1) {
+			throw new IllegalArgumentException("Argument numProbes must be greater than 0 !");
+		}
+		if((probeLength < 3) || (probeLength > 2048)) {
+			throw new IllegalArgumentException("Argument probeLength must be between 3 and 2048 !");
+		}
+		if(timeOut <= 0) {
+			throw new IllegalArgumentException("Argument timeOut must be greater than 0 !");
+		}
+
+		byte[] probe = new byte[probeLength];
+		byte[] echo = new byte[probeLength];
+		for(int x = 3; x < probeLength; x++) {
+			probe[x] = (byte) x;
+		}
+		probe[0] = PROBE_MARKER;
+
+		// discard stale data so that it is not taken for an echo.
+		while(scm.readBytes(handle, 2048) != null) {
+		}
+
+		for(int sequence = 0; sequence < numProbes; sequence++) {
+			probe[1] = (byte) (sequence >>> 8);
+			probe[2] = (byte) sequence;
+			long start = System.nanoTime();
+			long deadline = start + (timeOut * 1000000L);
+			scm.writeBytes(handle, probe, 0);
+
+			int received = 0;
+			while(received < probeLength) {
+				int numBytesRead = scm.readBytes(handle, echo, received, probeLength - received, -1);
+				if(numBytesRead > 0) {
+					received = received + numBytesRead;
+					// resynchronise on marker if bytes of an earlier probe came first.
+					int index = indexOfProbeStart(echo, received, probe);
+					if(index != 0) {
+						received = received - ((index < 0) ? received : index);
+						if(index > 0) {
+							System.arraycopy(echo, index, echo, 0, received);
+						}
+					}
+				}else if((System.nanoTime() - deadline) > 0) {
+					throw new SerialComTimeOutException("Echo of probe " + sequence + " not received within " + timeOut + " ms !");
+				}else {
+					Thread.yield();
+				}
+			}
+			histogram.record(System.nanoTime() - start);
+		}
+		return histogram.snapshot();
+	}
+
+	/**
+	 * <p>Gives histogram holding round trip times of all probes sent till now.</p>
+	 * 
+	 * @return histogram.
+	 */
+	public SerialComLatencyHistogram getHistogram() {
+		return histogram;
+	}
+
+	/* Gives index in echo from which current probe may start, -1 if none. All bytes from the index 
+	 * onwards must match start of probe (marker, sequence and payload); bytes not yet received are 
+	 * taken as matching. */
+	private static int indexOfProbeStart(byte[] echo, int length, byte[] probe) {
+		int y = 0;
+		for(int x = 0; x < length; x++) {
+			y = x;
+			while((y < length) && (echo[y] == probe[y - x])) {
+				y++;
+			}
+			if(y == length) {
+				return x;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+/**
+ * <p>Immutable copy of a SerialComLatencyHistogram taken at some instant, from which percentiles 
+ * are computed without disturbing recording.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComHistogramSnapshot {
+
+	private final long[] counts;
+	private final long count;
+	private final long total;
+	private final long min;
+	private final long max;
+
+	SerialComHistogramSnapshot(long[] counts, long total, long min, long max) {
+		long n = 0;
+		for(long c : counts) {
+			n = n + c;
+		}
+		this.counts = counts;
+		this.count = n;
+		this.total = total;
+		this.min = (n > 0) ? min : 0;
+		this.max = max;
+	}
+
+	/**
+	 * <p>Gives number of recorded durations.</p>
+	 * 
+	 * @return number of durations.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * <p>Gives smallest recorded duration.</p>
+	 * 
+	 * @return duration in nanoseconds or 0 if nothing was recorded.
+	 */
+	public long getMin() {
+		return min;
+	}
+
+	/**
+	 * <p>Gives largest recorded duration.</p>
+	 * 
+	 * @return duration in nanoseconds or 0 if nothing was recorded.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * <p>Gives mean of recorded durations.</p>
+	 * 
+	 * @return mean in nanoseconds or 0 if nothing was recorded.
+	 */
+	public long getMean() {
+		return (count > 0) ? (total / count) : 0;
+	}
+
+	/**
+	 * <p>Gives the duration below or at which given percentage of recorded durations lie. The value 
+	 * is the upper end of the bucket holding that rank (never more than the largest recorded value).</p>
+	 * 
+	 * @param percentile percentage between 0 and 100.
+	 * @return duration in nanoseconds or 0 if nothing was recorded.
+	 * @throws IllegalArgumentException if percentile is not between 0 and 100.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if((percentile < 0) || (percentile > 100)) {
+			throw new IllegalArgumentException("Argument percentile must be between 0 and 100 !");
+		}
+		if(count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil((percentile / 100.0) * count);
+		if(rank < 1) {
+			rank = 1;
+		}
+		long seen = 0;
+		for(int x = 0; x < counts.length; x++) {
+			seen = seen + counts[x];
+			if(seen >= rank) {
+				return Math.max(Math.min(SerialComLatencyHistogram.highestValueOf(x), max), min);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * <p>Gives summary as count, mean, 50th, 90th, 99th and 99.9th percentile and max in microseconds.</p>
+	 */
+	@Override
+	public String toString() {
+		return "count=" + count + ", mean=" + micros(getMean()) + " us, p50=" + micros(getValueAtPercentile(50)) 
+				+ " us, p90=" + micros(getValueAtPercentile(90)) + " us, p99=" + micros(getValueAtPercentile(99)) 
+				+ " us, p99.9=" + micros(getValueAtPercentile(99.9)) + " us, max=" + micros(max) + " us";
+	}
+
+	private static String micros(long nanos) {
+		return String.valueOf(nanos / 1000) + "." + ((nanos % 1000) / 100);
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Lock free high dynamic range histogram of durations in nanoseconds with log-linear buckets. 
+ * Values below 64 ns are counted exactly; above that every power of two range is split into 32 
+ * equal sub buckets, so any recorded value is reported within about 3% of its real value across the 
+ * whole range from nanoseconds to over an hour (larger values are counted in the last bucket).</p>
+ * 
+ * <p>Recording is a few arithmetic operations and atomic increments, safe to do from any number of 
+ * threads. Snapshot copies the counts for percentile calculations; reset while recording is in 
+ * progress may lose records being made at that instant.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComLatencyHistogram {
+
+	static final int SUB_BUCKET_BITS = 6;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;       // exact region, values 0..63.
+	static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;      // sub buckets per power of two.
+	static final int MAX_BIT = 41;                                 // largest value tracked is 2^42 - 1 ns.
+	static final int NUM_BUCKETS = SUB_BUCKET_COUNT + ((MAX_BIT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF);
+	static final long MAX_TRACKABLE = (1L << (MAX_BIT + 1)) - 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	private final SerialComStripedCounter total = new SerialComStripedCounter();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * <p>Records one duration.</p>
+	 * 
+	 * @param nanos duration in nanoseconds, negative values are taken as 0.
+	 */
+	public void record(long nanos) {
+		if(nanos < 0) {
+			nanos = 0;
+		}
+		counts.incrementAndGet(indexOf(nanos));
+		total.add(nanos);
+		long current = max.get();
+		while((nanos > current) && (max.compareAndSet(current, nanos) == false)) {
+			current = max.get();
+		}
+		current = min.get();
+		while((nanos < current) && (min.compareAndSet(current, nanos) == false)) {
+			current = min.get();
+		}
+	}
+
+	/**
+	 * <p>Gives copy of current state for percentile calculations.</p>
+	 * 
+	 * @return snapshot of this histogram.
+	 */
+	public SerialComHistogramSnapshot snapshot() {
+		long[] copy = new long[NUM_BUCKETS];
+		for(int x = 0; x < NUM_BUCKETS; x++) {
+			copy[x] = counts.get(x);
+		}
+		return new SerialComHistogramSnapshot(copy, total.sum(), min.get(), max.get());
+	}
+
+	/**
+	 * <p>Gives copy of current state and clears this histogram, useful for reporting per interval.</p>
+	 * 
+	 * @return snapshot of this histogram before reset.
+	 */
+	public SerialComHistogramSnapshot snapshotAndReset() {
+		long[] copy = new long[NUM_BUCKETS];
+		for(int x = 0; x < NUM_BUCKETS; x++) {
+			copy[x] = counts.getAndSet(x, 0);
+		}
+		SerialComHistogramSnapshot snapshot = new SerialComHistogramSnapshot(copy, total.sum(), min.getAndSet(Long.MAX_VALUE), 
+				max.getAndSet(0));
+		total.reset();
+		return snapshot;
+	}
+
+	/**
+	 * <p>Gives number of recorded durations.</p>
+	 * 
+	 * @return number of durations.
+	 */
+	public long getCount() {
+		long n = 0;
+		for(int x = 0; x < NUM_BUCKETS; x++) {
+			n = n + counts.get(x);
+		}
+		return n;
+	}
+
+	/**
+	 * <p>Gives mean of recorded durations.</p>
+	 * 
+	 * @return mean in nanoseconds or 0 if nothing has been recorded.
+	 */
+	public long getMean() {
+		return snapshot().getMean();
+	}
+
+	/**
+	 * <p>Gives largest recorded duration.</p>
+	 * 
+	 * @return duration in nanoseconds.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * <p>Gives the duration below or at which given percentage of recorded durations lie.</p>
+	 * 
+	 * @param percentile percentage between 0 and 100.
+	 * @return duration in nanoseconds or 0 if nothing has been recorded.
+	 */
+	public long getPercentile(double percentile) {
+		return snapshot().getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * <p>Clears all recorded durations.</p>
+	 */
+	public void reset() {
+		for(int x = 0; x < NUM_BUCKETS; x++) {
+			counts.set(x, 0);
+		}
+		total.reset();
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+	}
+
+	static int indexOf(long value) {
+		if(value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		if(value > MAX_TRACKABLE) {
+			value = MAX_TRACKABLE;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_HALF;
+		return SUB_BUCKET_COUNT + ((shift - 1) * SUB_BUCKET_HALF) + subBucket;
+	}
+
+	/* Gives largest value which is counted in given bucket. */
+	static long highestValueOf(int index) {
+		if(index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = ((index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF) + 1;
+		long subBucket = ((index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF) + SUB_BUCKET_HALF;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
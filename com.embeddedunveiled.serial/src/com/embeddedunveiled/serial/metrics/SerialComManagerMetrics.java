@@ -0,0 +1,70 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+/**
+ * <p>Run time counters of one SerialComManager instance, aggregated over all its ports.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComManagerMetrics implements SerialComManagerMetricsMBean {
+
+	final SerialComStripedCounter bytesRead = new SerialComStripedCounter();
+	final SerialComStripedCounter bytesWritten = new SerialComStripedCounter();
+	final SerialComStripedCounter portsOpened = new SerialComStripedCounter();
+	final SerialComStripedCounter portsClosed = new SerialComStripedCounter();
+	private final SerialComMetricsRegistry registry;
+
+	SerialComManagerMetrics(SerialComMetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public int getOpenPorts() {
+		return registry.getNumberOfPorts();
+	}
+
+	@Override
+	public long getPortsOpened() {
+		return portsOpened.sum();
+	}
+
+	@Override
+	public long getPortsClosed() {
+		return portsClosed.sum();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public void reset() {
+		bytesRead.reset();
+		bytesWritten.reset();
+		portsOpened.reset();
+		portsClosed.reset();
+	}
+}
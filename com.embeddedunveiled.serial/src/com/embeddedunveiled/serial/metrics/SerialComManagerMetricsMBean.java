@@ -0,0 +1,47 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+/**
+ * <p>Management interface of SerialComManagerMetrics exposed through JMX.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface SerialComManagerMetricsMBean {
+
+	/** @return number of serial ports currently opened. */
+	public abstract int getOpenPorts();
+
+	/** @return number of serial ports opened since metrics were enabled. */
+	public abstract long getPortsOpened();
+
+	/** @return number of serial ports closed since metrics were enabled. */
+	public abstract long getPortsClosed();
+
+	/** @return number of bytes read from all ports. */
+	public abstract long getBytesRead();
+
+	/** @return number of bytes written to all ports. */
+	public abstract long getBytesWritten();
+
+	/**
+	 * <p>Sets all counters to zero, counters of individual ports are not affected.</p>
+	 */
+	public abstract void reset();
+}
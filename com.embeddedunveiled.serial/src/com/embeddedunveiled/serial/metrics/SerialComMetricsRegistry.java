@@ -0,0 +1,160 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.embeddedunveiled.serial.SerialComException;
+
+/**
+ * <p>Keeps metrics of a SerialComManager and of each serial port it has opened, and optionally 
+ * registers them as MBeans in the platform MBean server:</p>
+ * <p>com.embeddedunveiled.serial:type=SerialComManager,id=&lt;n&gt;<br/>
+ * com.embeddedunveiled.serial:type=SerialComPort,manager=&lt;n&gt;,handle=&lt;handle&gt;,name=&lt;port name&gt;</p>
+ * 
+ * <p>Created by SerialComManager.enableMetrics. Metrics of a port are looked up by handle in a 
+ * concurrent map on every read/write, so recording takes no lock.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComMetricsRegistry {
+
+	/** <p>JMX domain under which MBeans are registered.</p> */
+	public static final String JMX_DOMAIN = "com.embeddedunveiled.serial";
+
+	private static final AtomicInteger nextManagerId = new AtomicInteger();
+
+	private final ConcurrentHashMap<Long, SerialComPortMetrics> ports = new ConcurrentHashMap<Long, SerialComPortMetrics>();
+	private final ConcurrentHashMap<Long, ObjectName> portNames = new ConcurrentHashMap<Long, ObjectName>();
+	private final SerialComManagerMetrics managerMetrics;
+	private final MBeanServer mbeanServer;
+	private final ObjectName managerName;
+	private final int managerId;
+
+	/**
+	 * <p>Allocates a new SerialComMetricsRegistry object.</p>
+	 * 
+	 * @param registerMBeans if true metrics are registered in platform MBean server.
+	 * @throws SerialComException if MBean of manager could not be registered.
+	 */
+	public SerialComMetricsRegistry(boolean registerMBeans) throws SerialComException {
+		managerMetrics = new SerialComManagerMetrics(this);
+		managerId = nextManagerId.incrementAndGet();
+		if(registerMBeans == false) {
+			mbeanServer = null;
+			managerName = null;
+			return;
+		}
+		mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			managerName = new ObjectName(JMX_DOMAIN + ":type=SerialComManager,id=" + managerId);
+			mbeanServer.registerMBean(managerMetrics, managerName);
+		} catch (JMException e) {
+			throw new SerialComException("Could not register metrics MBean: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * <p>Creates metrics for a newly opened port and registers its MBean. Failure to register is 
+	 * ignored as metrics must not affect opening of port.</p>
+	 * 
+	 * @param handle handle of the opened port.
+	 * @param portName name of the port.
+	 * @return metrics of the port.
+	 */
+	public SerialComPortMetrics portOpened(long handle, String portName) {
+		SerialComPortMetrics metrics = new SerialComPortMetrics(portName, handle, managerMetrics);
+		ports.put(handle, metrics);
+		managerMetrics.portsOpened.increment();
+		if(mbeanServer != null) {
+			try {
+				ObjectName name = new ObjectName(JMX_DOMAIN + ":type=SerialComPort,manager=" + managerId 
+						+ ",handle=" + handle + ",name=" + ObjectName.quote(portName));
+				mbeanServer.registerMBean(metrics, name);
+				portNames.put(handle, name);
+			} catch (JMException e) {
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * <p>Removes metrics of a closed port and unregisters its MBean.</p>
+	 * 
+	 * @param handle handle of the closed port.
+	 */
+	public void portClosed(long handle) {
+		if(ports.remove(handle) != null) {
+			managerMetrics.portsClosed.increment();
+		}
+		ObjectName name = portNames.remove(handle);
+		if(name != null) {
+			unregister(name);
+		}
+	}
+
+	/**
+	 * <p>Gives metrics of given port.</p>
+	 * 
+	 * @param handle handle of the opened port.
+	 * @return metrics of the port or null if port was not opened while metrics were enabled.
+	 */
+	public SerialComPortMetrics getPortMetrics(long handle) {
+		return ports.get(handle);
+	}
+
+	/**
+	 * <p>Gives metrics aggregated over all ports.</p>
+	 * 
+	 * @return metrics of the manager.
+	 */
+	public SerialComManagerMetrics getManagerMetrics() {
+		return managerMetrics;
+	}
+
+	/**
+	 * <p>Unregisters all MBeans. Called when metrics are disabled.</p>
+	 */
+	public void close() {
+		for(ObjectName name : portNames.values()) {
+			unregister(name);
+		}
+		portNames.clear();
+		if(managerName != null) {
+			unregister(managerName);
+		}
+	}
+
+	int getNumberOfPorts() {
+		return ports.size();
+	}
+
+	private void unregister(ObjectName name) {
+		try {
+			mbeanServer.unregisterMBean(name);
+		} catch (JMException e) {
+		}
+	}
+}
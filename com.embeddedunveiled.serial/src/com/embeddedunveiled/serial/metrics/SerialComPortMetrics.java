@@ -0,0 +1,294 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+import com.embeddedunveiled.serial.internal.SerialComLooper;
+
+/**
+ * <p>Run time counters of one opened serial port. Updated by SerialComManager and data looper when 
+ * metrics are enabled and registered as a JMX MBean if asked for.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComPortMetrics implements SerialComPortMetricsMBean {
+
+	private final String portName;
+	private final long handle;
+	private final SerialComManagerMetrics managerMetrics;
+	private final SerialComStripedCounter bytesRead = new SerialComStripedCounter();
+	private final SerialComStripedCounter bytesWritten = new SerialComStripedCounter();
+	private final SerialComStripedCounter readCalls = new SerialComStripedCounter();
+	private final SerialComStripedCounter emptyReads = new SerialComStripedCounter();
+	private final SerialComStripedCounter readFailures = new SerialComStripedCounter();
+	private final SerialComStripedCounter writeCalls = new SerialComStripedCounter();
+	private final SerialComStripedCounter writeFailures = new SerialComStripedCounter();
+	private final SerialComStripedCounter droppedChunks = new SerialComStripedCounter();
+	private final SerialComLatencyHistogram listenerCallbacks = new SerialComLatencyHistogram();
+	private final SerialComLatencyHistogram readCallLatency = new SerialComLatencyHistogram();
+	private final SerialComLatencyHistogram writeCallLatency = new SerialComLatencyHistogram();
+	private final SerialComLatencyHistogram looperQueueTime = new SerialComLatencyHistogram();
+	private volatile SerialComLooper looper;
+
+	SerialComPortMetrics(String portName, long handle, SerialComManagerMetrics managerMetrics) {
+		this.portName = portName;
+		this.handle = handle;
+		this.managerMetrics = managerMetrics;
+	}
+
+	/**
+	 * <p>Records a read call.</p>
+	 * 
+	 * @param numBytes number of bytes read, 0 if there was no data, negative if read failed.
+	 */
+	public void recordRead(int numBytes) {
+		recordRead(numBytes, -1);
+	}
+
+	/**
+	 * <p>Records a read call along with time taken by native read.</p>
+	 * 
+	 * @param numBytes number of bytes read, 0 if there was no data, negative if read failed.
+	 * @param callNanos duration of native call in nanoseconds, negative if not measured.
+	 */
+	public void recordRead(int numBytes, long callNanos) {
+		if(callNanos >= 0) {
+			readCallLatency.record(callNanos);
+		}
+		readCalls.increment();
+		if(numBytes > 0) {
+			bytesRead.add(numBytes);
+			managerMetrics.bytesRead.add(numBytes);
+		}else if(numBytes == 0) {
+			emptyReads.increment();
+		}else {
+			readFailures.increment();
+		}
+	}
+
+	/**
+	 * <p>Records a write call.</p>
+	 * 
+	 * @param numBytes number of bytes written, negative if write failed.
+	 */
+	public void recordWrite(int numBytes) {
+		recordWrite(numBytes, -1);
+	}
+
+	/**
+	 * <p>Records a write call along with time taken by native write.</p>
+	 * 
+	 * @param numBytes number of bytes written, negative if write failed.
+	 * @param callNanos duration of native call in nanoseconds, negative if not measured.
+	 */
+	public void recordWrite(int numBytes, long callNanos) {
+		if(callNanos >= 0) {
+			writeCallLatency.record(callNanos);
+		}
+		writeCalls.increment();
+		if(numBytes >= 0) {
+			bytesWritten.add(numBytes);
+			managerMetrics.bytesWritten.add(numBytes);
+		}else {
+			writeFailures.increment();
+		}
+	}
+
+	/**
+	 * <p>Records that a chunk of data was dropped as data looper queue was full.</p>
+	 */
+	public void recordDroppedChunk() {
+		droppedChunks.increment();
+	}
+
+	/**
+	 * <p>Records time taken by data listener to handle one chunk of data.</p>
+	 * 
+	 * @param nanos duration in nanoseconds.
+	 */
+	public void recordListenerCallback(long nanos) {
+		listenerCallbacks.record(nanos);
+	}
+
+	/**
+	 * <p>Records time a chunk of data spent in data looper queue before being given to data listener.</p>
+	 * 
+	 * @param nanos duration in nanoseconds.
+	 */
+	public void recordQueueTime(long nanos) {
+		looperQueueTime.record(nanos);
+	}
+
+	/**
+	 * <p>Sets data looper whose queue depth is reported.</p>
+	 * 
+	 * @param looper data looper of this port or null.
+	 */
+	public void setLooper(SerialComLooper looper) {
+		this.looper = looper;
+	}
+
+	@Override
+	public String getPortName() {
+		return portName;
+	}
+
+	@Override
+	public long getHandle() {
+		return handle;
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public long getReadCalls() {
+		return readCalls.sum();
+	}
+
+	@Override
+	public long getEmptyReads() {
+		return emptyReads.sum();
+	}
+
+	@Override
+	public long getReadFailures() {
+		return readFailures.sum();
+	}
+
+	@Override
+	public long getWriteCalls() {
+		return writeCalls.sum();
+	}
+
+	@Override
+	public long getWriteFailures() {
+		return writeFailures.sum();
+	}
+
+	@Override
+	public int getLooperQueueDepth() {
+		SerialComLooper current = looper;
+		return (current != null) ? current.getDataQueueDepth() : 0;
+	}
+
+	@Override
+	public long getDroppedChunks() {
+		return droppedChunks.sum();
+	}
+
+	@Override
+	public long getListenerCallbacks() {
+		return listenerCallbacks.getCount();
+	}
+
+	@Override
+	public long getListenerCallbackMeanMicros() {
+		return listenerCallbacks.getMean() / 1000;
+	}
+
+	@Override
+	public long getListenerCallbackP99Micros() {
+		return listenerCallbacks.getPercentile(99) / 1000;
+	}
+
+	@Override
+	public long getListenerCallbackMaxMicros() {
+		return listenerCallbacks.getMax() / 1000;
+	}
+
+	@Override
+	public long getReadCallP99Micros() {
+		return readCallLatency.getPercentile(99) / 1000;
+	}
+
+	@Override
+	public long getWriteCallP99Micros() {
+		return writeCallLatency.getPercentile(99) / 1000;
+	}
+
+	@Override
+	public long getLooperQueueTimeP99Micros() {
+		return looperQueueTime.getPercentile(99) / 1000;
+	}
+
+	@Override
+	public String getLatencyReport() {
+		return "read call: " + readCallLatency.snapshot() + "\nwrite call: " + writeCallLatency.snapshot() 
+				+ "\nlooper queue: " + looperQueueTime.snapshot() + "\nlistener callback: " + listenerCallbacks.snapshot();
+	}
+
+	/**
+	 * <p>Gives histogram of data listener callback durations.</p>
+	 * 
+	 * @return histogram.
+	 */
+	public SerialComLatencyHistogram getListenerCallbackHistogram() {
+		return listenerCallbacks;
+	}
+
+	/**
+	 * <p>Gives histogram of native read call durations.</p>
+	 * 
+	 * @return histogram.
+	 */
+	public SerialComLatencyHistogram getReadCallHistogram() {
+		return readCallLatency;
+	}
+
+	/**
+	 * <p>Gives histogram of native write call durations.</p>
+	 * 
+	 * @return histogram.
+	 */
+	public SerialComLatencyHistogram getWriteCallHistogram() {
+		return writeCallLatency;
+	}
+
+	/**
+	 * <p>Gives histogram of time data chunks spent in data looper queue.</p>
+	 * 
+	 * @return histogram.
+	 */
+	public SerialComLatencyHistogram getLooperQueueTimeHistogram() {
+		return looperQueueTime;
+	}
+
+	@Override
+	public void reset() {
+		bytesRead.reset();
+		bytesWritten.reset();
+		readCalls.reset();
+		emptyReads.reset();
+		readFailures.reset();
+		writeCalls.reset();
+		writeFailures.reset();
+		droppedChunks.reset();
+		listenerCallbacks.reset();
+		readCallLatency.reset();
+		writeCallLatency.reset();
+		looperQueueTime.reset();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+/**
+ * <p>Management interface of SerialComPortMetrics exposed through JMX.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface SerialComPortMetricsMBean {
+
+	/** @return name of the serial port. */
+	public abstract String getPortName();
+
+	/** @return handle of the opened serial port. */
+	public abstract long getHandle();
+
+	/** @return number of bytes read using read methods. */
+	public abstract long getBytesRead();
+
+	/** @return number of bytes written. */
+	public abstract long getBytesWritten();
+
+	/** @return number of read calls. */
+	public abstract long getReadCalls();
+
+	/** @return number of read calls which found no data. */
+	public abstract long getEmptyReads();
+
+	/** @return number of read calls which failed. */
+	public abstract long getReadFailures();
+
+	/** @return number of write calls. */
+	public abstract long getWriteCalls();
+
+	/** @return number of write calls which failed. */
+	public abstract long getWriteFailures();
+
+	/** @return number of data chunks waiting in data looper queue to be given to data listener. */
+	public abstract int getLooperQueueDepth();
+
+	/** @return number of data chunks dropped because data looper queue was full. */
+	public abstract long getDroppedChunks();
+
+	/** @return number of data listener callbacks. */
+	public abstract long getListenerCallbacks();
+
+	/** @return mean duration of data listener callbacks in microseconds. */
+	public abstract long getListenerCallbackMeanMicros();
+
+	/** @return 99th percentile of data listener callback duration in microseconds. */
+	public abstract long getListenerCallbackP99Micros();
+
+	/** @return longest data listener callback in microseconds. */
+	public abstract long getListenerCallbackMaxMicros();
+
+	/** @return 99th percentile of native read call duration in microseconds. */
+	public abstract long getReadCallP99Micros();
+
+	/** @return 99th percentile of native write call duration in microseconds. */
+	public abstract long getWriteCallP99Micros();
+
+	/** @return 99th percentile of time data spent in data looper queue in microseconds. */
+	public abstract long getLooperQueueTimeP99Micros();
+
+	/** @return percentiles of all latency histograms of this port. */
+	public abstract String getLatencyReport();
+
+	/**
+	 * <p>Sets all counters and histograms to zero.</p>
+	 */
+	public abstract void reset();
+}
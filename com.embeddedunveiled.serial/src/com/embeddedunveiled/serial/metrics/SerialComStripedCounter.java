@@ -0,0 +1,75 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A counter which can be incremented by many threads without them contending on a single memory 
+ * location. Updates go to one of several cells chosen by the updating thread (each cell on its own 
+ * cache line) and the value is the sum of all cells, similar to java.util.concurrent.atomic.LongAdder 
+ * which is not available in the Java versions this library supports.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComStripedCounter {
+
+	private static final int NUM_STRIPES = 8;    // power of 2.
+	private static final int PADDING = 8;        // longs per cache line.
+
+	private final AtomicLongArray cells = new AtomicLongArray(NUM_STRIPES * PADDING);
+
+	/**
+	 * <p>Adds given value to counter.</p>
+	 * 
+	 * @param value value to be added.
+	 */
+	public void add(long value) {
+		cells.addAndGet(((int) Thread.currentThread().getId() & (NUM_STRIPES - 1)) * PADDING, value);
+	}
+
+	/**
+	 * <p>Adds one to counter.</p>
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * <p>Gives current value. The value is not an atomic snapshot if updates are happening concurrently.</p>
+	 * 
+	 * @return sum of all updates since creation or last reset.
+	 */
+	public long sum() {
+		long sum = 0;
+		for(int x = 0; x < NUM_STRIPES; x++) {
+			sum = sum + cells.get(x * PADDING);
+		}
+		return sum;
+	}
+
+	/**
+	 * <p>Sets counter to zero.</p>
+	 */
+	public void reset() {
+		for(int x = 0; x < NUM_STRIPES; x++) {
+			cells.set(x * PADDING, 0);
+		}
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.transport;
+
+import java.nio.ByteBuffer;
+
+import com.embeddedunveiled.serial.SerialComException;
+
+/**
+ * <p>Service provider interface behind the serial port operations of SerialComManager. By default 
+ * SerialComManager uses native library (SerialComPortJNIBridge) as transport. Another transport 
+ * (for example SerialComVirtualTransport) may be given to SerialComManager(ISerialComTransport) 
+ * constructor, in which case all port operations (open, close, read, write, configuration, control 
+ * lines, listeners) are performed through it.</p>
+ * 
+ * <p>Contract is same as that of native library. Methods returning int return a negative value on 
+ * failure and methods returning array or object return null on failure. An implementation may also 
+ * throw SerialComException with message describing the reason. Blocking reads unblocked through 
+ * unblockBlockingIOOperation must throw SerialComException with message SerialComManager.EXP_UNBLOCKIO.</p>
+ * 
+ * <p>Data read by transport for a port on which data looper is set up is passed to insertInDataQueue() 
+ * of the ISerialComTransportCallback given to setUpDataLooperThread, errors to insertInDataErrorQueue() 
+ * and change in control lines to insertInEventQueue() of the one given to setUpEventLooperThread.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface ISerialComTransport {
+
+	/**
+	 * <p>Gives names of all serial ports known to this transport.</p>
+	 * 
+	 * @return array of port names or null if an error occurs.
+	 */
+	public String[] listAvailableComPorts();
+
+	/**
+	 * <p>Opens the given serial port.</p>
+	 * 
+	 * @param portName name of the port to open.
+	 * @param enableRead true if port will be read.
+	 * @param enableWrite true if port will be written.
+	 * @param exclusiveOwner true if no other handle may be opened for this port.
+	 * @return handle of the opened port or negative value on failure.
+	 * @throws SerialComException if port can not be opened.
+	 */
+	public long openComPort(String portName, boolean enableRead, boolean enableWrite, boolean exclusiveOwner) throws SerialComException;
+
+	/**
+	 * <p>Closes the given serial port.</p>
+	 * 
+	 * @param handle handle of the port to close.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if port can not be closed.
+	 */
+	public int closeComPort(long handle) throws SerialComException;
+
+	/**
+	 * <p>Reads available data without blocking.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param byteCount maximum number of bytes to read.
+	 * @return bytes read or null if there was no data.
+	 * @throws SerialComException if an I/O error occurs.
+	 */
+	public byte[] readBytes(long handle, int byteCount) throws SerialComException;
+
+	/**
+	 * <p>Reads data into given buffer.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param buffer buffer in which data will be saved.
+	 * @param offset index in buffer at which first byte will be saved.
+	 * @param length maximum number of bytes to read.
+	 * @param context blocking I/O context or -1 for non-blocking read.
+	 * @return number of bytes read or negative value on failure.
+	 * @throws SerialComException if an I/O error occurs or blocked read is unblocked.
+	 */
+	public int readBytesP(long handle, byte[] buffer, int offset, int length, long context) throws SerialComException;
+
+	/**
+	 * <p>Reads data, blocking till at least one byte is available.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param byteCount maximum number of bytes to read.
+	 * @param context blocking I/O context.
+	 * @return bytes read.
+	 * @throws SerialComException if an I/O error occurs or blocked read is unblocked.
+	 */
+	public byte[] readBytesBlocking(long handle, int byteCount, long context) throws SerialComException;
+
+	/**
+	 * <p>Reads available data into given direct byte buffer without blocking.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param buffer direct byte buffer in which data will be saved.
+	 * @param offset index in buffer at which first byte will be saved.
+	 * @param length maximum number of bytes to read.
+	 * @return number of bytes read or negative value on failure.
+	 * @throws SerialComException if an I/O error occurs.
+	 */
+	public int readBytesDirect(long handle, ByteBuffer buffer, int offset, int length) throws SerialComException;
+
+	/**
+	 * <p>Writes all the given bytes, returning when they have been transmitted.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param buffer bytes to write.
+	 * @param delay time gap in milliseconds between two successive bytes.
+	 * @return number of bytes written or negative value on failure.
+	 * @throws SerialComException if an I/O error occurs.
+	 */
+	public int writeBytes(long handle, byte[] buffer, int delay) throws SerialComException;
+
+	/**
+	 * <p>Writes bytes from given direct byte buffer.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param buffer direct byte buffer containing bytes to write.
+	 * @param offset index of first byte to write.
+	 * @param length number of bytes to write.
+	 * @return number of bytes written or negative value on failure.
+	 * @throws SerialComException if an I/O error occurs.
+	 */
+	public int writeBytesDirect(long handle, ByteBuffer buffer, int offset, int length) throws SerialComException;
+
+	/**
+	 * <p>Writes a single byte.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param dataByte byte to write.
+	 * @return number of bytes written or negative value on failure.
+	 * @throws SerialComException if an I/O error occurs.
+	 */
+	public int writeSingleByte(long handle, byte dataByte) throws SerialComException;
+
+	/**
+	 * <p>Creates context for blocking I/O operations.</p>
+	 * 
+	 * @return context or negative value on failure.
+	 * @throws SerialComException if context can not be created.
+	 */
+	public long createBlockingIOContext() throws SerialComException;
+
+	/**
+	 * <p>Unblocks blocking operation waiting on the given context.</p>
+	 * 
+	 * @param context context of the blocked operation.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int unblockBlockingIOOperation(long context) throws SerialComException;
+
+	/**
+	 * <p>Destroys the given blocking I/O context.</p>
+	 * 
+	 * @param context context to destroy.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int destroyBlockingIOContext(long context) throws SerialComException;
+
+	/**
+	 * <p>Starts passing data read from given port to the given looper.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param looper looper to which data will be passed.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int setUpDataLooperThread(long handle, ISerialComTransportCallback looper) throws SerialComException;
+
+	/**
+	 * <p>Starts passing change in control lines of given port to the given looper.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param looper looper to which events will be passed.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int setUpEventLooperThread(long handle, ISerialComTransportCallback looper) throws SerialComException;
+
+	/**
+	 * <p>Stops passing data read from given port to its looper.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int destroyDataLooperThread(long handle) throws SerialComException;
+
+	/**
+	 * <p>Stops passing change in control lines of given port to its looper.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int destroyEventLooperThread(long handle) throws SerialComException;
+
+	/**
+	 * <p>Temporarily stops passing change in control lines to looper.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int pauseListeningEvents(long handle) throws SerialComException;
+
+	/**
+	 * <p>Resumes passing change in control lines to looper.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int resumeListeningEvents(long handle) throws SerialComException;
+
+	/**
+	 * <p>Asserts or de-asserts RTS line.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param enabled true to assert line.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int setRTS(long handle, boolean enabled) throws SerialComException;
+
+	/**
+	 * <p>Asserts or de-asserts DTR line.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param enabled true to assert line.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int setDTR(long handle, boolean enabled) throws SerialComException;
+
+	/**
+	 * <p>Gives status of control lines in sequence CTS, DSR, DCD, RI, LOOP, RTS, DTR. Value at an index 
+	 * is the line's mask bit constant defined in SerialComManager if line is asserted, 0 otherwise.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return status of lines or null on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int[] getLinesStatus(long handle) throws SerialComException;
+
+	/**
+	 * <p>Gives interrupt counts in sequence CTS, DSR, RING, CARRIER DETECT, RECEIVER BUFFER, TRANSMIT 
+	 * BUFFER, FRAME ERROR, OVERRUN ERROR, PARITY ERROR, BREAK and BUFFER OVERRUN.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return interrupt counts or null on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int[] getInterruptCount(long handle) throws SerialComException;
+
+	/**
+	 * <p>Sends break condition for given duration.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param duration duration of break in milliseconds.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int sendBreak(long handle, int duration) throws SerialComException;
+
+	/**
+	 * <p>Gives number of bytes in input and output buffers.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return input and output byte counts or null on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int[] getByteCount(long handle) throws SerialComException;
+
+	/**
+	 * <p>Discards data in input and/or output buffers.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param rxPortbuf true to discard received data.
+	 * @param txPortbuf true to discard data not transmitted yet.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int clearPortIOBuffers(long handle, boolean rxPortbuf, boolean txPortbuf) throws SerialComException;
+
+	/**
+	 * <p>Configures data format and baud rate.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param dataBits number of data bits (SerialComManager.DATABITS value).
+	 * @param stopBits stop bits (SerialComManager.STOPBITS value).
+	 * @param parity parity (SerialComManager.PARITY value).
+	 * @param baudRateTranslated baud rate (SerialComManager.BAUDRATE value).
+	 * @param custBaudTranslated custom baud rate if baudRateTranslated is BCUSTOM.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int configureComPortData(long handle, int dataBits, int stopBits, int parity, int baudRateTranslated, int custBaudTranslated) throws SerialComException;
+
+	/**
+	 * <p>Configures flow control and error handling.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param flowctrl flow control (SerialComManager.FLOWCONTROL value).
+	 * @param xonCh XON character.
+	 * @param xoffCh XOFF character.
+	 * @param ParFraError true to check parity and frame errors.
+	 * @param overFlowErr true to report buffer overflow.
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int configureComPortControl(long handle, int flowctrl, byte xonCh, byte xoffCh, boolean ParFraError, boolean overFlowErr) throws SerialComException;
+
+	/**
+	 * <p>Gives current configuration in termios order for unix-like operating systems.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return configuration, first element is negative on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int[] getCurrentConfigurationU(long handle) throws SerialComException;
+
+	/**
+	 * <p>Gives current configuration in DCB order for windows operating system.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @return configuration or null on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public String[] getCurrentConfigurationW(long handle) throws SerialComException;
+
+	/**
+	 * <p>Fine tunes timing behavior of read operations.</p>
+	 * 
+	 * @param handle handle of the port.
+	 * @param vmin minimum number of bytes for read (unix-like os).
+	 * @param vtime inter byte timeout (unix-like os).
+	 * @param rit read interval timeout (windows).
+	 * @param rttm read total timeout multiplier (windows).
+	 * @param rttc read total timeout constant (windows).
+	 * @return 0 on success or negative value on failure.
+	 * @throws SerialComException if an error occurs.
+	 */
+	public int fineTuneRead(long handle, int vmin, int vtime, int rit, int rttm, int rttc) throws SerialComException;
+}
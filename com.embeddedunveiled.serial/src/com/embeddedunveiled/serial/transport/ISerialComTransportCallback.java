@@ -0,0 +1,53 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.transport;
+
+/**
+ * <p>Receives data, data errors and control line events which a transport detects on a port for 
+ * which a data or event looper has been set up. An object of this type is given to transport through 
+ * ISerialComTransport.setUpDataLooperThread and ISerialComTransport.setUpEventLooperThread.</p>
+ * 
+ * <p>Methods are called in the thread of transport and only queue what is given for delivery to 
+ * listeners of application, so they return quickly.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public interface ISerialComTransportCallback {
+
+	/**
+	 * <p>Gives bytes read from serial port.</p>
+	 * 
+	 * @param newData byte array containing data read from serial port.
+	 */
+	public abstract void insertInDataQueue(byte[] newData);
+
+	/**
+	 * <p>Gives error which occurred while reading serial port.</p>
+	 * 
+	 * @param errorNum operating system specific error number.
+	 */
+	public abstract void insertInDataErrorQueue(int errorNum);
+
+	/**
+	 * <p>Gives new state of control lines.</p>
+	 * 
+	 * @param newEvent bit mask representing state of serial port control lines.
+	 */
+	public abstract void insertInEventQueue(int newEvent);
+}
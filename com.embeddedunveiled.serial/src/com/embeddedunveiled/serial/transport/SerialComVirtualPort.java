@@ -0,0 +1,262 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.transport;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import com.embeddedunveiled.serial.SerialComManager;
+
+/**
+ * <p>State of one end of a virtual serial port pair; receive buffer, configuration, control lines, 
+ * interrupt counts and injected faults. Both ends of a pair share one lock which must be held when 
+ * accessing any field of this class.</p>
+ * 
+ * <p>Received data is kept as chunks in the order they were transmitted. With baud rate throttling, 
+ * a chunk starts arriving when transmitter becomes idle and one byte becomes readable every 
+ * nanosPerByte nanoseconds, just like bytes come out of a UART one after another.</p>
+ * 
+ * @author Rishi Gupta
+ */
+final class SerialComVirtualPort {
+
+	// indexes in interrupt count array, same sequence as given by native library.
+	static final int IC_CTS = 0;
+	static final int IC_DSR = 1;
+	static final int IC_RING = 2;
+	static final int IC_DCD = 3;
+	static final int IC_RX = 4;
+	static final int IC_TX = 5;
+	static final int IC_FRAME = 6;
+	static final int IC_OVERRUN = 7;
+	static final int IC_PARITY = 8;
+	static final int IC_BRK = 9;
+	static final int IC_BUF_OVERRUN = 10;
+
+	/**
+	 * <p>Data bytes transmitted together by the other end of pair.</p>
+	 */
+	private static final class Chunk {
+		final byte[] data;
+		final long startTime;
+		final long nanosPerByte;
+		int pos;
+
+		Chunk(byte[] data, long startTime, long nanosPerByte) {
+			this.data = data;
+			this.startTime = startTime;
+			this.nanosPerByte = nanosPerByte;
+		}
+
+		int arrived(long now) {
+			if(nanosPerByte == 0) {
+				return data.length;
+			}
+			if(now <= startTime) {
+				return 0;
+			}
+			long count = (now - startTime) / nanosPerByte;
+			return (count > data.length) ? data.length : (int) count;
+		}
+	}
+
+	final String name;
+	final Object lock;
+	SerialComVirtualPort peer;
+
+	private final ArrayDeque<Chunk> rxChunks = new ArrayDeque<Chunk>();
+	int rxBytes;
+
+	int dataBits = 8;
+	int stopBits = 1;
+	int parity = 1;
+	int baudRate = 9600;
+	int flowControl = 1;
+
+	boolean rts;
+	boolean dtr;
+	boolean ri;
+	long wireFreeAt;
+
+	final int[] interruptCount = new int[11];
+	int openCount;
+	boolean exclusive;
+
+	int readFailures;
+	int writeFailures;
+	int corruptOneIn;
+	Random corruptRandom;
+
+	/**
+	 * <p>Allocates a new SerialComVirtualPort object.</p>
+	 * 
+	 * @param name name of this port.
+	 * @param lock lock shared by both ends of pair.
+	 */
+	SerialComVirtualPort(String name, Object lock) {
+		this.name = name;
+		this.lock = lock;
+	}
+
+	/**
+	 * <p>Gives number of bytes which have arrived and can be read now.</p>
+	 * 
+	 * @param now current value of System.nanoTime().
+	 * @return number of readable bytes.
+	 */
+	int readable(long now) {
+		int count = 0;
+		for(Chunk chunk : rxChunks) {
+			int arrived = chunk.arrived(now);
+			count = count + (arrived - chunk.pos);
+			if(arrived < chunk.data.length) {
+				break;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Moves arrived bytes into given buffer and wakes up writers waiting for space.</p>
+	 * 
+	 * @param buffer buffer in which bytes will be saved.
+	 * @param offset index in buffer for first byte.
+	 * @param length maximum number of bytes to read.
+	 * @param now current value of System.nanoTime().
+	 * @return number of bytes read.
+	 */
+	int read(byte[] buffer, int offset, int length, long now) {
+		int count = 0;
+		while(count < length) {
+			Chunk chunk = rxChunks.peek();
+			if(chunk == null) {
+				break;
+			}
+			int arrived = chunk.arrived(now);
+			int num = arrived - chunk.pos;
+			if(num > (length - count)) {
+				num = length - count;
+			}
+			System.arraycopy(chunk.data, chunk.pos, buffer, offset + count, num);
+			chunk.pos = chunk.pos + num;
+			count = count + num;
+			if(chunk.pos == chunk.data.length) {
+				rxChunks.poll();
+			}else {
+				break;
+			}
+		}
+		if(count > 0) {
+			rxBytes = rxBytes - count;
+			lock.notifyAll();
+		}
+		return count;
+	}
+
+	/**
+	 * <p>Gives time in nanoseconds after which next byte will arrive.</p>
+	 * 
+	 * @param now current value of System.nanoTime().
+	 * @return nanoseconds to wait, 0 if nothing is being received (wait indefinitely).
+	 */
+	long nextArrivalIn(long now) {
+		for(Chunk chunk : rxChunks) {
+			int arrived = chunk.arrived(now);
+			if(arrived < chunk.data.length) {
+				// time at which one more byte than what has arrived till now will be there.
+				long wait = chunk.startTime + ((arrived + 1) * chunk.nanosPerByte) - now;
+				return (wait > 0) ? wait : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * <p>Appends bytes transmitted by other end to receive buffer.</p>
+	 * 
+	 * @param data bytes received, ownership is taken by this port.
+	 * @param startTime time at which first byte starts arriving.
+	 * @param nanosPerByte time taken by one byte on wire, 0 if not throttled.
+	 */
+	void receive(byte[] data, long startTime, long nanosPerByte) {
+		rxChunks.add(new Chunk(data, startTime, nanosPerByte));
+		rxBytes = rxBytes + data.length;
+		interruptCount[IC_RX]++;
+		lock.notifyAll();
+	}
+
+	/**
+	 * <p>Discards all received data.</p>
+	 */
+	void clearReceiveBuffer() {
+		rxChunks.clear();
+		rxBytes = 0;
+		lock.notifyAll();
+	}
+
+	/**
+	 * <p>Gives time one character takes on wire as per current configuration of this port.</p>
+	 * 
+	 * @return nanoseconds per character or 0 if baud rate is 0.
+	 */
+	long nanosPerByte() {
+		if(baudRate <= 0) {
+			return 0;
+		}
+		// start bit + data bits + parity bit + stop bits (1.5 is counted as 2).
+		int bits = 1 + dataBits + ((parity == 1) ? 0 : 1) + ((stopBits == 1) ? 1 : 2);
+		return (bits * 1000000000L) / baudRate;
+	}
+
+	/**
+	 * <p>Gives state of input lines as mask as per null modem wiring; RTS of other end drives CTS, 
+	 * DTR of other end drives DSR and DCD, RI is driven by test.</p>
+	 * 
+	 * @return bit mask of asserted input lines.
+	 */
+	int inputLinesMask() {
+		int mask = 0;
+		if(peer.rts == true) {
+			mask = mask | SerialComManager.CTS;
+		}
+		if(peer.dtr == true) {
+			mask = mask | SerialComManager.DSR | SerialComManager.DCD;
+		}
+		if(ri == true) {
+			mask = mask | SerialComManager.RI;
+		}
+		return mask;
+	}
+
+	/**
+	 * <p>Flips one random bit in some of the given bytes if corruption has been injected.</p>
+	 * 
+	 * @param data bytes to be transmitted.
+	 */
+	void corrupt(byte[] data) {
+		if(corruptOneIn <= 0) {
+			return;
+		}
+		for(int x = 0; x < data.length; x++) {
+			if(corruptRandom.nextInt(corruptOneIn) == 0) {
+				data[x] = (byte) (data[x] ^ (1 << corruptRandom.nextInt(dataBits)));
+			}
+		}
+	}
+}
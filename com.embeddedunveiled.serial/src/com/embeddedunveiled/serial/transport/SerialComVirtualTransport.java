@@ -0,0 +1,837 @@
+/*
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.embeddedunveiled.serial.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComManager;
+
+/**
+ * <p>Pure java in-memory transport providing connected pairs of virtual serial ports. Bytes written 
+ * on one end of a pair can be read from other end, control lines are wired as null modem cable 
+ * (RTS to CTS, DTR to DSR and DCD) and data/event listeners, byte streams, XMODEM etc. work as they 
+ * do with real ports. No native library, hardware or kernel driver is needed, so applications and 
+ * this library can be tested and benchmarked deterministically on any machine.</p>
+ * 
+ * <pre>
+ * {@code
+ * SerialComVirtualTransport transport = new SerialComVirtualTransport();
+ * transport.createPortPair("vport0", "vport1");
+ * SerialComManager scm = new SerialComManager(transport);
+ * long handleA = scm.openComPort("vport0", true, true, true);
+ * long handleB = scm.openComPort("vport1", true, true, true);
+ * }</pre>
+ * 
+ * <p>If baud rate throttling is enabled, bytes take as much time to reach other end as they would 
+ * take on a real line with the data format and baud rate configured on transmitting end, and write 
+ * methods return when bytes have been transmitted. Otherwise bytes are available to other end as soon 
+ * as they are written.</p>
+ * 
+ * <p>Each end has a receive buffer of RX_BUFFER_SIZE bytes. If hardware flow control is configured on 
+ * transmitting end, writer waits till other end asserts RTS and has space in its receive buffer. 
+ * Otherwise bytes which do not fit are dropped and overrun error is counted. Bytes written while other 
+ * end is not opened are lost.</p>
+ * 
+ * <p>Faults can be injected for a port; failure of read or write calls, random bit errors in transmitted 
+ * data, line errors (frame, parity, overrun) reported to data listener and ring indicator changes.</p>
+ * 
+ * @author Rishi Gupta
+ */
+public final class SerialComVirtualTransport implements ISerialComTransport {
+
+	/** <p>Size of receive buffer of each virtual port in bytes. </p>*/
+	public static final int RX_BUFFER_SIZE = 64 * 1024;
+
+	/** <p>Frame error type for injectLineError method. </p>*/
+	public static final int FRAME_ERROR = SerialComVirtualPort.IC_FRAME;
+
+	/** <p>Overrun error type for injectLineError method. </p>*/
+	public static final int OVERRUN_ERROR = SerialComVirtualPort.IC_OVERRUN;
+
+	/** <p>Parity error type for injectLineError method. </p>*/
+	public static final int PARITY_ERROR = SerialComVirtualPort.IC_PARITY;
+
+	// maximum number of bytes passed to data looper in one go.
+	private static final int MAX_LOOPER_CHUNK = 1024;
+
+	/**
+	 * <p>State of a handle returned by openComPort.</p>
+	 */
+	private static final class VirtualHandle {
+		final long handle;
+		final SerialComVirtualPort port;
+		final boolean enableRead;
+		final boolean enableWrite;
+		volatile ISerialComTransportCallback dataLooper;
+		volatile Thread dataThread;
+		volatile ISerialComTransportCallback eventLooper;
+		volatile boolean eventsPaused;
+
+		VirtualHandle(long handle, SerialComVirtualPort port, boolean enableRead, boolean enableWrite) {
+			this.handle = handle;
+			this.port = port;
+			this.enableRead = enableRead;
+			this.enableWrite = enableWrite;
+		}
+	}
+
+	/**
+	 * <p>Context for blocking reads. Once unblocked, every blocking read using this context throws 
+	 * exception with message SerialComManager.EXP_UNBLOCKIO.</p>
+	 */
+	private static final class BlockingContext {
+		volatile boolean unblocked;
+		volatile Object waitingOn;
+	}
+
+	/**
+	 * <p>Moves data received by a port into data looper of a handle, the job native data looper 
+	 * thread does for real ports.</p>
+	 */
+	private final class DataReader implements Runnable {
+		private final VirtualHandle vh;
+
+		DataReader(VirtualHandle vh) {
+			this.vh = vh;
+		}
+
+		@Override
+		public void run() {
+			SerialComVirtualPort port = vh.port;
+			Thread self = Thread.currentThread();
+			while(true) {
+				byte[] data = null;
+				synchronized(port.lock) {
+					while(vh.dataThread == self) {
+						long now = System.nanoTime();
+						int num = port.readable(now);
+						if(num > 0) {
+							data = new byte[(num > MAX_LOOPER_CHUNK) ? MAX_LOOPER_CHUNK : num];
+							port.read(data, 0, data.length, now);
+							break;
+						}
+						if(await(port.lock, port.nextArrivalIn(now)) == false) {
+							break;
+						}
+					}
+				}
+				if(data == null) {
+					return;
+				}
+				ISerialComTransportCallback looper = vh.dataLooper;
+				if(looper != null) {
+					looper.insertInDataQueue(data);
+				}
+			}
+		}
+	}
+
+	private final TreeMap<String, SerialComVirtualPort> ports = new TreeMap<String, SerialComVirtualPort>();
+	private final ConcurrentHashMap<Long, VirtualHandle> handles = new ConcurrentHashMap<Long, VirtualHandle>();
+	private final ConcurrentHashMap<Long, BlockingContext> contexts = new ConcurrentHashMap<Long, BlockingContext>();
+	private final AtomicLong nextHandle = new AtomicLong(1);
+	private final AtomicLong nextContext = new AtomicLong(1);
+	private volatile boolean throttle;
+
+	/**
+	 * <p>Allocates a new SerialComVirtualTransport object without any port and with baud rate 
+	 * throttling disabled.</p>
+	 */
+	public SerialComVirtualTransport() {
+	}
+
+	/**
+	 * <p>Creates two virtual ports connected to each other through a null modem cable.</p>
+	 * 
+	 * @param portNameA name of first port.
+	 * @param portNameB name of second port.
+	 * @throws IllegalArgumentException if any name is null or empty, names are same or a port with 
+	 *          any of the given name already exist.
+	 */
+	public void createPortPair(String portNameA, String portNameB) {
+		if((portNameA == null) || (portNameB == null)) {
+			throw new IllegalArgumentException("Argument portNameA or portNameB can not be null !");
+		}
+		if((portNameA.trim().length() == 0) || (portNameB.trim().length() == 0)) {
+			throw new IllegalArgumentException("Argument portNameA or portNameB can not be empty string !");
+		}
+		if(portNameA.trim().equals(portNameB.trim())) {
+			throw new IllegalArgumentException("Both ends of pair can not have same name !");
+		}
+
+		Object lock = new Object();
+		SerialComVirtualPort portA = new SerialComVirtualPort(portNameA.trim(), lock);
+		SerialComVirtualPort portB = new SerialComVirtualPort(portNameB.trim(), lock);
+		portA.peer = portB;
+		portB.peer = portA;
+		synchronized(ports) {
+			if(ports.containsKey(portA.name) || ports.containsKey(portB.name)) {
+				throw new IllegalArgumentException("A port with given name already exist !");
+			}
+			ports.put(portA.name, portA);
+			ports.put(portB.name, portB);
+		}
+	}
+
+	/**
+	 * <p>Enables or disables simulation of time bytes take on wire as per configured baud rate 
+	 * and data format.</p>
+	 * 
+	 * @param enabled true to enable throttling.
+	 */
+	public void setBaudRateThrottling(boolean enabled) {
+		throttle = enabled;
+	}
+
+	/**
+	 * <p>Makes next given number of read calls on given port fail with exception.</p>
+	 * 
+	 * @param portName name of the virtual port.
+	 * @param count number of read calls to fail.
+	 * @throws IllegalArgumentException if port does not exist or count is negative.
+	 */
+	public void injectReadFailures(String portName, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("Argument count can not be negative !");
+		}
+		SerialComVirtualPort port = getPort(portName);
+		synchronized(port.lock) {
+			port.readFailures = count;
+		}
+	}
+
+	/**
+	 * <p>Makes next given number of write calls on given port fail with exception.</p>
+	 * 
+	 * @param portName name of the virtual port.
+	 * @param count number of write calls to fail.
+	 * @throws IllegalArgumentException if port does not exist or count is negative.
+	 */
+	public void injectWriteFailures(String portName, int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("Argument count can not be negative !");
+		}
+		SerialComVirtualPort port = getPort(portName);
+		synchronized(port.lock) {
+			port.writeFailures = count;
+		}
+	}
+
+	/**
+	 * <p>Flips a random bit in on an average one out of oneInN bytes transmitted by given port. 
+	 * Sequence of errors is reproducible for a given seed.</p>
+	 * 
+	 * @param portName name of the virtual port.
+	 * @param oneInN average number of bytes per bit error, 0 to stop corrupting data.
+	 * @param seed seed for random number generator.
+	 * @throws IllegalArgumentException if port does not exist or oneInN is negative.
+	 */
+	public void injectCorruption(String portName, int oneInN, long seed) {
+		if(oneInN < 0) {
+			throw new IllegalArgumentException("Argument oneInN can not be negative !");
+		}
+		SerialComVirtualPort port = getPort(portName);
+		synchronized(port.lock) {
+			port.corruptOneIn = oneInN;
+			port.corruptRandom = new Random(seed);
+		}
+	}
+
+	/**
+	 * <p>Simulates a line error on receiving side of given port. Corresponding interrupt count is 
+	 * incremented and errorType is passed to data listeners registered for this port as error number.</p>
+	 * 
+	 * @param portName name of the virtual port.
+	 * @param errorType one of FRAME_ERROR, OVERRUN_ERROR or PARITY_ERROR.
+	 * @throws IllegalArgumentException if port does not exist or errorType is invalid.
+	 */
+	public void injectLineError(String portName, int errorType) {
+		if((errorType != FRAME_ERROR) && (errorType != OVERRUN_ERROR) && (errorType != PARITY_ERROR)) {
+			throw new IllegalArgumentException("Argument errorType must be FRAME_ERROR, OVERRUN_ERROR or PARITY_ERROR !");
+		}
+		SerialComVirtualPort port = getPort(portName);
+		synchronized(port.lock) {
+			port.interruptCount[errorType]++;
+		}
+		for(VirtualHandle vh : handles.values()) {
+			ISerialComTransportCallback looper = vh.dataLooper;
+			if((vh.port == port) && (looper != null)) {
+				looper.insertInDataErrorQueue(errorType);
+			}
+		}
+	}
+
+	/**
+	 * <p>Asserts or de-asserts ring indicator input of given port, as a modem would do on incoming call.</p>
+	 * 
+	 * @param portName name of the virtual port.
+	 * @param asserted true to assert RI.
+	 * @throws IllegalArgumentException if port does not exist.
+	 */
+	public void setRingIndicator(String portName, boolean asserted) {
+		SerialComVirtualPort port = getPort(portName);
+		synchronized(port.lock) {
+			if(port.ri == asserted) {
+				return;
+			}
+			port.ri = asserted;
+			port.interruptCount[SerialComVirtualPort.IC_RING]++;
+		}
+		dispatchLineEvent(port);
+	}
+
+	private SerialComVirtualPort getPort(String portName) {
+		if(portName == null) {
+			throw new IllegalArgumentException("Argument portName can not be null !");
+		}
+		synchronized(ports) {
+			SerialComVirtualPort port = ports.get(portName.trim());
+			if(port == null) {
+				throw new IllegalArgumentException("Virtual port " + portName + " does not exist !");
+			}
+			return port;
+		}
+	}
+
+	private VirtualHandle getHandle(long handle) throws SerialComException {
+		VirtualHandle vh = handles.get(handle);
+		if(vh == null) {
+			throw new SerialComException("Given handle does not represent an opened virtual port !");
+		}
+		return vh;
+	}
+
+	/*
+	 * Waits on given lock (which must be held) for given nanoseconds or till notified if nanos is 0. 
+	 * Returns false if the thread was interrupted.
+	 */
+	private static boolean await(Object lock, long nanos) {
+		try {
+			if(nanos <= 0) {
+				lock.wait();
+			}else {
+				lock.wait(nanos / 1000000, (int) (nanos % 1000000));
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/*
+	 * Passes current state of input lines of given port to event loopers of all its handles.
+	 */
+	private void dispatchLineEvent(SerialComVirtualPort port) {
+		int mask = 0;
+		synchronized(port.lock) {
+			mask = port.inputLinesMask();
+		}
+		for(VirtualHandle vh : handles.values()) {
+			ISerialComTransportCallback looper = vh.eventLooper;
+			if((vh.port == port) && (looper != null) && (vh.eventsPaused == false)) {
+				looper.insertInEventQueue(mask);
+			}
+		}
+	}
+
+	private void checkRead(VirtualHandle vh) throws SerialComException {
+		if(vh.enableRead == false) {
+			throw new SerialComException("Port was not opened for reading !");
+		}
+		synchronized(vh.port.lock) {
+			if(vh.port.readFailures > 0) {
+				vh.port.readFailures--;
+				throw new SerialComException("Injected read failure on virtual port " + vh.port.name + " !");
+			}
+		}
+	}
+
+	/*
+	 * Reads arrived bytes, waiting for at least one byte if a blocking context is given.
+	 */
+	private int read(VirtualHandle vh, byte[] buffer, int offset, int length, long context) throws SerialComException {
+		checkRead(vh);
+		BlockingContext bc = null;
+		if(context != -1) {
+			bc = contexts.get(context);
+			if(bc == null) {
+				throw new SerialComException("Invalid blocking I/O context !");
+			}
+		}
+
+		SerialComVirtualPort port = vh.port;
+		synchronized(port.lock) {
+			while(true) {
+				long now = System.nanoTime();
+				int num = port.readable(now);
+				if(num > 0) {
+					return port.read(buffer, offset, (num < length) ? num : length, now);
+				}
+				if(bc == null) {
+					return 0;
+				}
+				bc.waitingOn = port.lock;
+				if(bc.unblocked == true) {
+					bc.waitingOn = null;
+					throw new SerialComException(SerialComManager.EXP_UNBLOCKIO);
+				}
+				if(await(port.lock, port.nextArrivalIn(now)) == false) {
+					bc.waitingOn = null;
+					throw new SerialComException("Interrupted while waiting for data !");
+				}
+			}
+		}
+	}
+
+	/*
+	 * Transmits bytes to other end of pair, returns when they have been transmitted.
+	 */
+	private int write(VirtualHandle vh, byte[] data, int offset, int length) throws SerialComException {
+		SerialComVirtualPort port = vh.port;
+		SerialComVirtualPort peer = port.peer;
+		if(vh.enableWrite == false) {
+			throw new SerialComException("Port was not opened for writing !");
+		}
+
+		long doneAt = 0;
+		synchronized(port.lock) {
+			if(port.writeFailures > 0) {
+				port.writeFailures--;
+				throw new SerialComException("Injected write failure on virtual port " + port.name + " !");
+			}
+			boolean hwFlowControl = port.flowControl == SerialComManager.FLOWCONTROL.HARDWARE.getValue();
+			int written = 0;
+			while(written < length) {
+				if(peer.openCount == 0) {
+					// no one is listening at other end, bytes are lost.
+					break;
+				}
+				int space = RX_BUFFER_SIZE - peer.rxBytes;
+				if(hwFlowControl && ((peer.rts == false) || (space == 0))) {
+					if(await(port.lock, 0) == false) {
+						throw new SerialComException("Interrupted while waiting for CTS !");
+					}
+					continue;
+				}
+
+				int num = length - written;
+				boolean overrun = false;
+				if(num > space) {
+					overrun = (hwFlowControl == false);
+					num = space;
+				}
+				if(num > 0) {
+					byte[] chunk = Arrays.copyOfRange(data, offset + written, offset + written + num);
+					port.corrupt(chunk);
+					long nanosPerByte = (throttle == true) ? port.nanosPerByte() : 0;
+					long now = System.nanoTime();
+					long start = (port.wireFreeAt > now) ? port.wireFreeAt : now;
+					port.wireFreeAt = start + (num * nanosPerByte);
+					doneAt = port.wireFreeAt;
+					peer.receive(chunk, start, nanosPerByte);
+					port.interruptCount[SerialComVirtualPort.IC_TX]++;
+				}
+				if(overrun) {
+					peer.interruptCount[SerialComVirtualPort.IC_OVERRUN]++;
+					break;
+				}
+				written = written + num;
+			}
+		}
+
+		if(throttle == true) {
+			sleepUntil(doneAt);
+		}
+		return length;
+	}
+
+	private static void sleepUntil(long deadline) {
+		long remaining = deadline - System.nanoTime();
+		while(remaining > 0) {
+			try {
+				Thread.sleep(remaining / 1000000, (int) (remaining % 1000000));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			remaining = deadline - System.nanoTime();
+		}
+	}
+
+	private int setOutputLine(long handle, boolean enabled, boolean rts) throws SerialComException {
+		VirtualHandle vh = getHandle(handle);
+		SerialComVirtualPort port = vh.port;
+		synchronized(port.lock) {
+			if(rts == true) {
+				if(port.rts == enabled) {
+					return 0;
+				}
+				port.rts = enabled;
+				port.peer.interruptCount[SerialComVirtualPort.IC_CTS]++;
+			}else {
+				if(port.dtr == enabled) {
+					return 0;
+				}
+				port.dtr = enabled;
+				port.peer.interruptCount[SerialComVirtualPort.IC_DSR]++;
+				port.peer.interruptCount[SerialComVirtualPort.IC_DCD]++;
+			}
+			port.lock.notifyAll();
+		}
+		dispatchLineEvent(port.peer);
+		return 0;
+	}
+
+	@Override
+	public String[] listAvailableComPorts() {
+		synchronized(ports) {
+			return ports.keySet().toArray(new String[ports.size()]);
+		}
+	}
+
+	@Override
+	public long openComPort(String portName, boolean enableRead, boolean enableWrite, boolean exclusiveOwner) throws SerialComException {
+		SerialComVirtualPort port = null;
+		synchronized(ports) {
+			port = ports.get(portName);
+		}
+		if(port == null) {
+			throw new SerialComException("Virtual port " + portName + " does not exist !");
+		}
+
+		synchronized(port.lock) {
+			if(port.exclusive || (exclusiveOwner && (port.openCount > 0))) {
+				throw new SerialComException("Virtual port " + portName + " is busy !");
+			}
+			if(port.openCount == 0) {
+				// like a tty, DTR and RTS are asserted when port is opened.
+				port.rts = true;
+				port.dtr = true;
+				port.lock.notifyAll();
+			}
+			port.openCount++;
+			port.exclusive = exclusiveOwner;
+		}
+		dispatchLineEvent(port.peer);
+
+		long handle = nextHandle.getAndIncrement();
+		handles.put(handle, new VirtualHandle(handle, port, enableRead, enableWrite));
+		return handle;
+	}
+
+	@Override
+	public int closeComPort(long handle) throws SerialComException {
+		VirtualHandle vh = handles.remove(handle);
+		if(vh == null) {
+			return -1;
+		}
+		stopDataReader(vh);
+		SerialComVirtualPort port = vh.port;
+		boolean linesDropped = false;
+		synchronized(port.lock) {
+			port.openCount--;
+			port.exclusive = false;
+			if(port.openCount == 0) {
+				linesDropped = port.rts || port.dtr;
+				port.rts = false;
+				port.dtr = false;
+				port.clearReceiveBuffer();
+			}
+		}
+		if(linesDropped) {
+			dispatchLineEvent(port.peer);
+		}
+		return 0;
+	}
+
+	@Override
+	public byte[] readBytes(long handle, int byteCount) throws SerialComException {
+		byte[] buffer = new byte[byteCount];
+		int num = read(getHandle(handle), buffer, 0, byteCount, -1);
+		if(num == 0) {
+			return null;
+		}
+		return (num == byteCount) ? buffer : Arrays.copyOf(buffer, num);
+	}
+
+	@Override
+	public int readBytesP(long handle, byte[] buffer, int offset, int length, long context) throws SerialComException {
+		return read(getHandle(handle), buffer, offset, length, context);
+	}
+
+	@Override
+	public byte[] readBytesBlocking(long handle, int byteCount, long context) throws SerialComException {
+		byte[] buffer = new byte[byteCount];
+		int num = read(getHandle(handle), buffer, 0, byteCount, context);
+		return (num == byteCount) ? buffer : Arrays.copyOf(buffer, num);
+	}
+
+	@Override
+	public int readBytesDirect(long handle, ByteBuffer buffer, int offset, int length) throws SerialComException {
+		byte[] data = new byte[length];
+		int num = read(getHandle(handle), data, 0, length, -1);
+		for(int x = 0; x < num; x++) {
+			buffer.put(offset + x, data[x]);
+		}
+		return num;
+	}
+
+	@Override
+	public int writeBytes(long handle, byte[] buffer, int delay) throws SerialComException {
+		VirtualHandle vh = getHandle(handle);
+		if(delay <= 0) {
+			return write(vh, buffer, 0, buffer.length);
+		}
+		for(int x = 0; x < buffer.length; x++) {
+			write(vh, buffer, x, 1);
+			if(x < (buffer.length - 1)) {
+				sleepUntil(System.nanoTime() + (delay * 1000000L));
+			}
+		}
+		return buffer.length;
+	}
+
+	@Override
+	public int writeBytesDirect(long handle, ByteBuffer buffer, int offset, int length) throws SerialComException {
+		byte[] data = new byte[length];
+		for(int x = 0; x < length; x++) {
+			data[x] = buffer.get(offset + x);
+		}
+		return write(getHandle(handle), data, 0, length);
+	}
+
+	@Override
+	public int writeSingleByte(long handle, byte dataByte) throws SerialComException {
+		return write(getHandle(handle), new byte[] { dataByte }, 0, 1);
+	}
+
+	@Override
+	public long createBlockingIOContext() throws SerialComException {
+		long context = nextContext.getAndIncrement();
+		contexts.put(context, new BlockingContext());
+		return context;
+	}
+
+	@Override
+	public int unblockBlockingIOOperation(long context) throws SerialComException {
+		BlockingContext bc = contexts.get(context);
+		if(bc == null) {
+			return -1;
+		}
+		bc.unblocked = true;
+		Object lock = bc.waitingOn;
+		if(lock != null) {
+			synchronized(lock) {
+				lock.notifyAll();
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public int destroyBlockingIOContext(long context) throws SerialComException {
+		return (contexts.remove(context) != null) ? 0 : -1;
+	}
+
+	@Override
+	public int setUpDataLooperThread(long handle, ISerialComTransportCallback looper) throws SerialComException {
+		VirtualHandle vh = getHandle(handle);
+		if(vh.dataThread != null) {
+			return -1;
+		}
+		vh.dataLooper = looper;
+		Thread reader = new Thread(new DataReader(vh), "SCM virtual data reader for " + vh.port.name);
+		reader.setDaemon(true);
+		vh.dataThread = reader;
+		reader.start();
+		return 0;
+	}
+
+	private void stopDataReader(VirtualHandle vh) {
+		Thread reader = vh.dataThread;
+		if(reader == null) {
+			return;
+		}
+		synchronized(vh.port.lock) {
+			vh.dataThread = null;
+			vh.port.lock.notifyAll();
+		}
+		if(reader != Thread.currentThread()) {
+			try {
+				reader.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		vh.dataLooper = null;
+	}
+
+	@Override
+	public int destroyDataLooperThread(long handle) throws SerialComException {
+		stopDataReader(getHandle(handle));
+		return 0;
+	}
+
+	@Override
+	public int setUpEventLooperThread(long handle, ISerialComTransportCallback looper) throws SerialComException {
+		VirtualHandle vh = getHandle(handle);
+		vh.eventsPaused = false;
+		vh.eventLooper = looper;
+		return 0;
+	}
+
+	@Override
+	public int destroyEventLooperThread(long handle) throws SerialComException {
+		getHandle(handle).eventLooper = null;
+		return 0;
+	}
+
+	@Override
+	public int pauseListeningEvents(long handle) throws SerialComException {
+		getHandle(handle).eventsPaused = true;
+		return 0;
+	}
+
+	@Override
+	public int resumeListeningEvents(long handle) throws SerialComException {
+		getHandle(handle).eventsPaused = false;
+		return 0;
+	}
+
+	@Override
+	public int setRTS(long handle, boolean enabled) throws SerialComException {
+		return setOutputLine(handle, enabled, true);
+	}
+
+	@Override
+	public int setDTR(long handle, boolean enabled) throws SerialComException {
+		return setOutputLine(handle, enabled, false);
+	}
+
+	@Override
+	public int[] getLinesStatus(long handle) throws SerialComException {
+		SerialComVirtualPort port = getHandle(handle).port;
+		synchronized(port.lock) {
+			int mask = port.inputLinesMask();
+			return new int[] { mask & SerialComManager.CTS, mask & SerialComManager.DSR, mask & SerialComManager.DCD, 
+					mask & SerialComManager.RI, 0, port.rts ? SerialComManager.RTS : 0, port.dtr ? SerialComManager.DTR : 0 };
+		}
+	}
+
+	@Override
+	public int[] getInterruptCount(long handle) throws SerialComException {
+		SerialComVirtualPort port = getHandle(handle).port;
+		synchronized(port.lock) {
+			return port.interruptCount.clone();
+		}
+	}
+
+	@Override
+	public int sendBreak(long handle, int duration) throws SerialComException {
+		SerialComVirtualPort port = getHandle(handle).port;
+		synchronized(port.lock) {
+			port.peer.interruptCount[SerialComVirtualPort.IC_BRK]++;
+		}
+		sleepUntil(System.nanoTime() + (duration * 1000000L));
+		return 0;
+	}
+
+	@Override
+	public int[] getByteCount(long handle) throws SerialComException {
+		SerialComVirtualPort port = getHandle(handle).port;
+		synchronized(port.lock) {
+			return new int[] { port.rxBytes, 0 };
+		}
+	}
+
+	@Override
+	public int clearPortIOBuffers(long handle, boolean rxPortbuf, boolean txPortbuf) throws SerialComException {
+		SerialComVirtualPort port = getHandle(handle).port;
+		if(rxPortbuf == true) {
+			synchronized(port.lock) {
+				port.clearReceiveBuffer();
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public int configureComPortData(long handle, int dataBits, int stopBits, int parity, int baudRateTranslated, 
+			int custBaudTranslated) throws SerialComException {
+		SerialComVirtualPort port = getHandle(handle).port;
+		synchronized(port.lock) {
+			port.dataBits = dataBits;
+			port.stopBits = stopBits;
+			port.parity = parity;
+			port.baudRate = (baudRateTranslated == SerialComManager.BAUDRATE.BCUSTOM.getValue()) ? custBaudTranslated : baudRateTranslated;
+		}
+		return 0;
+	}
+
+	@Override
+	public int configureComPortControl(long handle, int flowctrl, byte xonCh, byte xoffCh, boolean ParFraError, 
+			boolean overFlowErr) throws SerialComException {
+		SerialComVirtualPort port = getHandle(handle).port;
+		synchronized(port.lock) {
+			port.flowControl = flowctrl;
+			port.lock.notifyAll();
+		}
+		return 0;
+	}
+
+	@Override
+	public int[] getCurrentConfigurationU(long handle) throws SerialComException {
+		// only c_ispeed and c_ospeed are meaningful for a virtual port.
+		SerialComVirtualPort port = getHandle(handle).port;
+		int[] config = new int[24];
+		synchronized(port.lock) {
+			config[22] = port.baudRate;
+			config[23] = port.baudRate;
+		}
+		return config;
+	}
+
+	@Override
+	public String[] getCurrentConfigurationW(long handle) throws SerialComException {
+		SerialComVirtualPort port = getHandle(handle).port;
+		List<String> config = new ArrayList<String>();
+		synchronized(port.lock) {
+			config.add("BaudRate : " + port.baudRate);
+			config.add("ByteSize : " + port.dataBits);
+			config.add("Parity : " + port.parity);
+			config.add("StopBits : " + port.stopBits);
+		}
+		return config.toArray(new String[config.size()]);
+	}
+
+	@Override
+	public int fineTuneRead(long handle, int vmin, int vtime, int rit, int rttm, int rttc) throws SerialComException {
+		getHandle(handle);
+		return 0;
+	}
+}
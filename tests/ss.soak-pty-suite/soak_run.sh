@@ -0,0 +1,36 @@
+#!/bin/bash
+#
+# Author : Rishi Gupta
+# 
+# This file is part of 'serial communication manager' library.
+# Copyright (C) <2014-2016>  <Rishi Gupta>
+#
+# This 'serial communication manager' is free software: you can redistribute it and/or modify
+# it under the terms of the GNU Affero General Public License as published by the Free Software 
+# Foundation, either version 3 of the License, or (at your option) any later version.
+#
+# The 'serial communication manager' is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+# A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+#
+# You should have received a copy of the GNU Affero General Public License
+# along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+#################################################################################################
+
+# Builds and runs the pty soak suite. Needs socat and a built scm jar.
+# usage : ./soak_run.sh /path/to/scm-x.y.z.jar [key=value ...]
+# example : ./soak_run.sh scm-1.0.4.jar pairs=16 duration=600 pattern=bursty path=all report=bursty.json
+
+set -e
+
+if [ -z "$1" ]; then
+	echo "usage : $0 /path/to/scm.jar [pairs=N] [duration=SEC] [pattern=steady|bursty|tiny|max] [path=poll|listener|stream|all] [report=FILE]"
+	exit 2
+fi
+SCMJAR="$1"
+shift
+
+DIR="$(cd "$(dirname "$0")" && pwd)"
+mkdir -p "$DIR/bin"
+javac -cp "$SCMJAR" -d "$DIR/bin" "$DIR"/src/soak/*.java
+java -cp "$SCMJAR:$DIR/bin" soak.SoakTest "$@"
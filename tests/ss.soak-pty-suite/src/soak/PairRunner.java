@@ -0,0 +1,250 @@
+/**
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package soak;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.embeddedunveiled.serial.ISerialComDataListener;
+import com.embeddedunveiled.serial.SerialComException;
+import com.embeddedunveiled.serial.SerialComInByteStream;
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.SerialComManager.BAUDRATE;
+import com.embeddedunveiled.serial.SerialComManager.DATABITS;
+import com.embeddedunveiled.serial.SerialComManager.FLOWCONTROL;
+import com.embeddedunveiled.serial.SerialComManager.PARITY;
+import com.embeddedunveiled.serial.SerialComManager.SMODE;
+import com.embeddedunveiled.serial.SerialComManager.STOPBITS;
+import com.embeddedunveiled.serial.SerialComOutByteStream;
+import com.embeddedunveiled.serial.metrics.SerialComLatencyHistogram;
+
+/*
+ * Drives traffic from port A to port B of one pty pair and verifies it. Transmitted bytes form a 
+ * running counter (0, 1, ... 255, 0, ...) so that receiver can detect lost or corrupted bytes without 
+ * any framing. Writer notes time of each write; when receiver has got all bytes of a write, latency 
+ * from start of write till arrival of its last byte is recorded.
+ */
+public final class PairRunner implements ISerialComDataListener {
+
+	public final int index;
+	public final ReadPath readPath;
+	public final TrafficPattern pattern;
+	private final SerialComManager scm;
+	private final PtyPair pty;
+	private long handleA;
+	private long handleB;
+	private SerialComOutByteStream outStream;
+	private SerialComInByteStream inStream;
+	private Thread writerThread;
+	private Thread readerThread;
+	private volatile boolean writing;
+	private volatile boolean reading;
+
+	final AtomicLong bytesWritten = new AtomicLong();
+	final AtomicLong bytesRead = new AtomicLong();
+	final AtomicLong corruptedBytes = new AtomicLong();
+	final AtomicLong writeErrors = new AtomicLong();
+	final AtomicLong readErrors = new AtomicLong();
+	final AtomicLong listenerErrors = new AtomicLong();
+	final SerialComLatencyHistogram latency = new SerialComLatencyHistogram();
+
+	// {offset just after last byte of a write, System.nanoTime() at start of that write}
+	private final ConcurrentLinkedQueue<long[]> inFlight = new ConcurrentLinkedQueue<long[]>();
+	private byte expected;
+	private long received;
+
+	public PairRunner(int index, SerialComManager scm, PtyPair pty, ReadPath readPath, TrafficPattern pattern) {
+		this.index = index;
+		this.scm = scm;
+		this.pty = pty;
+		this.readPath = readPath;
+		this.pattern = pattern;
+	}
+
+	public void start(final long seed) throws SerialComException {
+		handleA = scm.openComPort(pty.portA, true, true, true);
+		handleB = scm.openComPort(pty.portB, true, true, true);
+		scm.configureComPortData(handleA, DATABITS.DB_8, STOPBITS.SB_1, PARITY.P_NONE, BAUDRATE.B115200, 0);
+		scm.configureComPortControl(handleA, FLOWCONTROL.NONE, 'x', 'x', false, false);
+		scm.configureComPortData(handleB, DATABITS.DB_8, STOPBITS.SB_1, PARITY.P_NONE, BAUDRATE.B115200, 0);
+		scm.configureComPortControl(handleB, FLOWCONTROL.NONE, 'x', 'x', false, false);
+
+		reading = true;
+		if(readPath == ReadPath.LISTENER) {
+			scm.registerDataListener(handleB, this);
+		}else if(readPath == ReadPath.STREAM) {
+			outStream = (SerialComOutByteStream) scm.getIOStreamInstance(SerialComManager.OutputStream, handleA, SMODE.BLOCKING);
+			inStream = (SerialComInByteStream) scm.getIOStreamInstance(SerialComManager.InputStream, handleB, SMODE.BLOCKING);
+			readerThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					readStream();
+				}
+			}, "soak reader " + index);
+			readerThread.start();
+		}else {
+			readerThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					readPoll();
+				}
+			}, "soak reader " + index);
+			readerThread.start();
+		}
+
+		writing = true;
+		writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				write(seed);
+			}
+		}, "soak writer " + index);
+		writerThread.start();
+	}
+
+	private void write(long seed) {
+		TrafficPattern.Generator generator = pattern.newGenerator(seed);
+		byte[] buffer = new byte[TrafficPattern.MAX_WRITE_SIZE];
+		byte next = 0;
+		long offset = 0;
+		while(writing) {
+			int size = generator.nextWriteSize();
+			byte[] data = (size == buffer.length) ? buffer : new byte[size];
+			for(int x = 0; x < size; x++) {
+				data[x] = next++;
+			}
+			offset = offset + size;
+			inFlight.add(new long[] { offset, System.nanoTime() });
+			try {
+				if(outStream != null) {
+					outStream.write(data, 0, size);
+				}else {
+					scm.writeBytes(handleA, data, 0);
+				}
+				bytesWritten.addAndGet(size);
+			} catch (Exception e) {
+				writeErrors.incrementAndGet();
+				writing = false;
+				break;
+			}
+			int gap = generator.nextGapMillis();
+			if(gap > 0) {
+				try {
+					Thread.sleep(gap);
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+	}
+
+	private void readPoll() {
+		while(reading) {
+			try {
+				byte[] data = scm.readBytes(handleB, 2048);
+				if(data != null) {
+					received(data, data.length);
+				}else {
+					Thread.sleep(1);
+				}
+			} catch (InterruptedException e) {
+				break;
+			} catch (SerialComException e) {
+				readErrors.incrementAndGet();
+			}
+		}
+	}
+
+	private void readStream() {
+		byte[] buffer = new byte[2048];
+		while(reading) {
+			try {
+				int num = inStream.read(buffer, 0, buffer.length);
+				if(num < 0) {
+					break; // stream closed.
+				}
+				received(buffer, num);
+			} catch (Exception e) {
+				readErrors.incrementAndGet();
+			}
+		}
+	}
+
+	@Override
+	public void onNewSerialDataAvailable(byte[] data) {
+		received(data, data.length);
+	}
+
+	@Override
+	public void onDataListenerError(int errorNum) {
+		listenerErrors.incrementAndGet();
+	}
+
+	// called from one thread at a time (reader thread or data looper thread).
+	private void received(byte[] data, int length) {
+		long now = System.nanoTime();
+		for(int x = 0; x < length; x++) {
+			if(data[x] != expected) {
+				corruptedBytes.incrementAndGet();
+				expected = data[x]; // resynchronize.
+			}
+			expected++;
+		}
+		received = received + length;
+		bytesRead.addAndGet(length);
+
+		long[] write = inFlight.peek();
+		while((write != null) && (write[0] <= received)) {
+			latency.record(now - write[1]);
+			inFlight.poll();
+			write = inFlight.peek();
+		}
+	}
+
+	public void stopWriting() throws InterruptedException {
+		writing = false;
+		writerThread.join();
+	}
+
+	/* waits till all written bytes are received or timeout, gives number of bytes lost. */
+	public long drain(long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while((bytesRead.get() < bytesWritten.get()) && (System.currentTimeMillis() < deadline)) {
+			Thread.sleep(10);
+		}
+		long lost = bytesWritten.get() - bytesRead.get();
+		return (lost > 0) ? lost : 0;
+	}
+
+	public void close() throws Exception {
+		reading = false;
+		if(readPath == ReadPath.LISTENER) {
+			scm.unregisterDataListener(handleB, this);
+		}else if(readPath == ReadPath.STREAM) {
+			inStream.close();
+			readerThread.join();
+			outStream.close();
+		}else {
+			readerThread.join();
+		}
+		scm.closeComPort(handleA);
+		scm.closeComPort(handleB);
+		pty.destroy();
+	}
+}
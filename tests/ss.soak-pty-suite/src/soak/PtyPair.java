@@ -0,0 +1,53 @@
+/**
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package soak;
+
+import java.io.File;
+import java.io.IOException;
+
+/* Pseudo terminal pair created by socat, links are removed when socat exits. */
+public final class PtyPair {
+
+	public final String portA;
+	public final String portB;
+	private final Process socat;
+
+	public PtyPair(String linkDir, int index) throws IOException, InterruptedException {
+		portA = linkDir + "/scm-soak-" + index + "A";
+		portB = linkDir + "/scm-soak-" + index + "B";
+		ProcessBuilder pb = new ProcessBuilder("socat", "pty,raw,echo=0,link=" + portA, "pty,raw,echo=0,link=" + portB);
+		pb.redirectErrorStream(true);
+		socat = pb.start();
+
+		// wait till socat has created both links.
+		long deadline = System.currentTimeMillis() + 5000;
+		while(!new File(portA).exists() || !new File(portB).exists()) {
+			if(System.currentTimeMillis() > deadline) {
+				socat.destroy();
+				throw new IOException("socat did not create pty pair " + portA + " <-> " + portB + " (is socat installed ?)");
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	public void destroy() throws InterruptedException {
+		socat.destroy();
+		socat.waitFor();
+	}
+}
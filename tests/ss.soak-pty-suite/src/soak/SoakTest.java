@@ -0,0 +1,194 @@
+/**
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package soak;
+
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.embeddedunveiled.serial.SerialComManager;
+import com.embeddedunveiled.serial.metrics.SerialComHistogramSnapshot;
+
+/*
+ * Soak and throughput test over pseudo terminal pairs created with socat (Linux). Every pair gets a 
+ * writer thread on end A and a receiver on end B that reads using readBytes(), data listener or byte 
+ * stream. At end a JSON report with throughput, latency percentiles, lost/corrupted bytes and thread 
+ * count is written.
+ * 
+ * Arguments (all optional, key=value) :
+ * pairs=8 duration=60 pattern=steady|bursty|tiny|max path=poll|listener|stream|all interval=10 
+ * report=soak-report.json linkdir=/tmp drain=5 seed=1
+ */
+public final class SoakTest {
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> opts = new HashMap<String, String>();
+		opts.put("pairs", "8");
+		opts.put("duration", "60");
+		opts.put("pattern", "steady");
+		opts.put("path", "all");
+		opts.put("interval", "10");
+		opts.put("report", "soak-report.json");
+		opts.put("linkdir", "/tmp");
+		opts.put("drain", "5");
+		opts.put("seed", "1");
+		for(String arg : args) {
+			int eq = arg.indexOf('=');
+			if((eq <= 0) || !opts.containsKey(arg.substring(0, eq))) {
+				System.err.println("unknown argument : " + arg);
+				System.exit(2);
+			}
+			opts.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+
+		int numPairs = Integer.parseInt(opts.get("pairs"));
+		long durationMillis = Long.parseLong(opts.get("duration")) * 1000;
+		long intervalMillis = Long.parseLong(opts.get("interval")) * 1000;
+		long drainMillis = Long.parseLong(opts.get("drain")) * 1000;
+		long seed = Long.parseLong(opts.get("seed"));
+		TrafficPattern pattern = TrafficPattern.valueOf(opts.get("pattern").toUpperCase(Locale.ENGLISH));
+		String path = opts.get("path").toUpperCase(Locale.ENGLISH);
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int threadsAtStart = threads.getThreadCount();
+		threads.resetPeakThreadCount();
+
+		SerialComManager scm = new SerialComManager();
+		List<PairRunner> runners = new ArrayList<PairRunner>();
+		for(int x = 0; x < numPairs; x++) {
+			ReadPath readPath = path.equals("ALL") ? ReadPath.values()[x % ReadPath.values().length] : ReadPath.valueOf(path);
+			PairRunner runner = new PairRunner(x, scm, new PtyPair(opts.get("linkdir"), x), readPath, pattern);
+			runners.add(runner);
+			runner.start(seed + x);
+		}
+		int threadsRunning = threads.getThreadCount();
+
+		long startTime = System.currentTimeMillis();
+		long endTime = startTime + durationMillis;
+		long lastRead = 0;
+		long lastReport = startTime;
+		while(System.currentTimeMillis() < endTime) {
+			Thread.sleep(Math.min(intervalMillis, Math.max(1, endTime - System.currentTimeMillis())));
+			long now = System.currentTimeMillis();
+			long read = 0;
+			long errors = 0;
+			for(PairRunner runner : runners) {
+				read = read + runner.bytesRead.get();
+				errors = errors + runner.corruptedBytes.get() + runner.readErrors.get() + runner.writeErrors.get();
+			}
+			System.out.println(String.format(Locale.ENGLISH, "[%6ds] %10.1f KB/s  read %d bytes  errors %d  threads %d", 
+					(now - startTime) / 1000, (read - lastRead) * 1000.0 / 1024 / Math.max(1, now - lastReport), 
+					read, errors, threads.getThreadCount()));
+			lastRead = read;
+			lastReport = now;
+		}
+
+		for(PairRunner runner : runners) {
+			runner.stopWriting();
+		}
+		long elapsedMillis = System.currentTimeMillis() - startTime;
+		long[] lost = new long[runners.size()];
+		long drainDeadline = System.currentTimeMillis() + drainMillis;
+		for(int x = 0; x < runners.size(); x++) {
+			lost[x] = runners.get(x).drain(Math.max(0, drainDeadline - System.currentTimeMillis()));
+		}
+		for(PairRunner runner : runners) {
+			runner.close();
+		}
+		int peakThreads = threads.getPeakThreadCount();
+		Thread.sleep(500); // let library threads exit.
+		int threadsAtEnd = threads.getThreadCount();
+
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(opts.get("report")), "UTF-8"));
+		long totalWritten = 0;
+		long totalRead = 0;
+		long totalLost = 0;
+		long totalCorrupted = 0;
+		long totalErrors = 0;
+		out.println("{");
+		out.println("  \"pattern\": \"" + pattern.name().toLowerCase(Locale.ENGLISH) + "\",");
+		out.println("  \"durationMillis\": " + elapsedMillis + ",");
+		out.println("  \"pairs\": [");
+		for(int x = 0; x < runners.size(); x++) {
+			PairRunner runner = runners.get(x);
+			long written = runner.bytesWritten.get();
+			long read = runner.bytesRead.get();
+			long errors = runner.readErrors.get() + runner.writeErrors.get() + runner.listenerErrors.get();
+			totalWritten = totalWritten + written;
+			totalRead = totalRead + read;
+			totalLost = totalLost + lost[x];
+			totalCorrupted = totalCorrupted + runner.corruptedBytes.get();
+			totalErrors = totalErrors + errors;
+			out.println("    {");
+			out.println("      \"index\": " + runner.index + ",");
+			out.println("      \"readPath\": \"" + runner.readPath.name().toLowerCase(Locale.ENGLISH) + "\",");
+			out.println("      \"bytesWritten\": " + written + ",");
+			out.println("      \"bytesRead\": " + read + ",");
+			out.println("      \"bytesLost\": " + lost[x] + ",");
+			out.println("      \"bytesCorrupted\": " + runner.corruptedBytes.get() + ",");
+			out.println("      \"readErrors\": " + runner.readErrors.get() + ",");
+			out.println("      \"writeErrors\": " + runner.writeErrors.get() + ",");
+			out.println("      \"listenerErrors\": " + runner.listenerErrors.get() + ",");
+			out.println("      \"throughputBytesPerSec\": " + throughput(read, elapsedMillis) + ",");
+			out.println("      \"latencyMicros\": " + latency(runner.latency.snapshot()));
+			out.println((x == runners.size() - 1) ? "    }" : "    },");
+		}
+		out.println("  ],");
+		out.println("  \"totals\": {");
+		out.println("    \"bytesWritten\": " + totalWritten + ",");
+		out.println("    \"bytesRead\": " + totalRead + ",");
+		out.println("    \"bytesLost\": " + totalLost + ",");
+		out.println("    \"bytesCorrupted\": " + totalCorrupted + ",");
+		out.println("    \"errors\": " + totalErrors + ",");
+		out.println("    \"throughputBytesPerSec\": " + throughput(totalRead, elapsedMillis));
+		out.println("  },");
+		out.println("  \"threads\": { \"atStart\": " + threadsAtStart + ", \"running\": " + threadsRunning + 
+				", \"peak\": " + peakThreads + ", \"atEnd\": " + threadsAtEnd + " }");
+		out.println("}");
+		out.close();
+
+		System.out.println(String.format(Locale.ENGLISH, "%d pairs, %d ms : %d bytes read, %d lost, %d corrupted, %d errors, threads %d -> %d (peak %d)", 
+				runners.size(), elapsedMillis, totalRead, totalLost, totalCorrupted, totalErrors, threadsAtStart, threadsAtEnd, peakThreads));
+		System.out.println("report written to " + opts.get("report"));
+		System.exit(((totalLost + totalCorrupted + totalErrors) == 0) ? 0 : 1);
+	}
+
+	private static long throughput(long bytes, long millis) {
+		return (millis > 0) ? (bytes * 1000 / millis) : 0;
+	}
+
+	private static String latency(SerialComHistogramSnapshot snapshot) {
+		if(snapshot.getCount() == 0) {
+			return "{ \"count\": 0 }";
+		}
+		return String.format(Locale.ENGLISH, 
+				"{ \"count\": %d, \"min\": %d, \"mean\": %d, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"p99.9\": %d, \"max\": %d }",
+				snapshot.getCount(), snapshot.getMin() / 1000, snapshot.getMean() / 1000, 
+				snapshot.getValueAtPercentile(50) / 1000, snapshot.getValueAtPercentile(90) / 1000, 
+				snapshot.getValueAtPercentile(99) / 1000, snapshot.getValueAtPercentile(99.9) / 1000, 
+				snapshot.getMax() / 1000);
+	}
+}
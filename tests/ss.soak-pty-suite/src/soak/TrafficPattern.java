@@ -0,0 +1,87 @@
+/**
+ * Author : Rishi Gupta
+ * 
+ * This file is part of 'serial communication manager' library.
+ * Copyright (C) <2014-2016>  <Rishi Gupta>
+ *
+ * This 'serial communication manager' is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by the Free Software 
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * The 'serial communication manager' is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR 
+ * A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with 'serial communication manager'.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package soak;
+
+import java.util.Random;
+
+/* Sizes of writes and gaps between them for a traffic pattern. */
+public enum TrafficPattern {
+
+	/* 256 byte writes every 5 milliseconds. */
+	STEADY,
+	/* bursts of 10 to 50 back to back writes of up to 1 KB followed by 50 to 500 ms of silence. */
+	BURSTY,
+	/* 1 to 8 byte writes without any gap, stresses per call overhead. */
+	TINY,
+	/* 4096 byte writes without any gap, largest write used by other stress tests. */
+	MAX;
+
+	public static final int MAX_WRITE_SIZE = 4096;
+
+	private static final int BURST_UNSET = -1;
+
+	/* Per writer state so that one instance of enum can be shared by all writers. */
+	public static final class Generator {
+		private final TrafficPattern pattern;
+		private final Random random;
+		private int burstRemaining = BURST_UNSET;
+
+		Generator(TrafficPattern pattern, long seed) {
+			this.pattern = pattern;
+			this.random = new Random(seed);
+		}
+
+		public int nextWriteSize() {
+			switch(pattern) {
+			case STEADY :
+				return 256;
+			case BURSTY :
+				return 1 + random.nextInt(1024);
+			case TINY :
+				return 1 + random.nextInt(8);
+			default :
+				return MAX_WRITE_SIZE;
+			}
+		}
+
+		/* milliseconds to wait before next write. */
+		public int nextGapMillis() {
+			switch(pattern) {
+			case STEADY :
+				return 5;
+			case BURSTY :
+				if(burstRemaining == BURST_UNSET) {
+					burstRemaining = 10 + random.nextInt(41);
+				}
+				burstRemaining--;
+				if(burstRemaining <= 0) {
+					burstRemaining = BURST_UNSET;
+					return 50 + random.nextInt(451);
+				}
+				return 0;
+			default :
+				return 0;
+			}
+		}
+	}
+
+	public Generator newGenerator(long seed) {
+		return new Generator(this, seed);
+	}
+}